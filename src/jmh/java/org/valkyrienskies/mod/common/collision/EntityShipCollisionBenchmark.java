@@ -0,0 +1,119 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix4dc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.valkyrienskies.mod.common.ships.entity_interaction.EntityCollisionObject;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import valkyrienwarfare.api.TransformType;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link EntityPolygonCollider} entity collision against {@link EntityBoxCollider} for 200 entities
+ * walking on a 71x71 (about 5k blocks) deck, the same work EntityCollisionInjector does for every moving entity
+ * on a ship. The block boxes near every entity are looked up once in the setup, the lookup is the same for both.
+ * <p>
+ * Run with -prof gc to see the allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EntityShipCollisionBenchmark {
+
+    private static final int ENTITIES = 200;
+    private static final int DECK_SIZE = 71;
+
+    private ShipTransform transform;
+    private Vector3dc[] axes;
+    private AxisAlignedBB[] entityBBs;
+    // The velocity of every entity, walking with gravity pulling it into the deck
+    private double[] velocities;
+    // The block boxes in ship coordinates near every entity
+    private AxisAlignedBB[][] nearbyBoxes;
+    private EntityBoxCollider boxCollider;
+
+    @Setup
+    public void setup() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject ship = world.createShip(new Vector3d(-DECK_SIZE / 2D, 64, -DECK_SIZE / 2D),
+            HeadlessWorld.createBoxTemplate(DECK_SIZE, 1, DECK_SIZE, Blocks.PLANKS.getDefaultState()));
+        transform = ship.getShipTransformationManager().getCurrentTickTransform();
+        axes = ship.getShipTransformationManager().normals;
+        boxCollider = new EntityBoxCollider();
+
+        Random random = new Random(42);
+        entityBBs = new AxisAlignedBB[ENTITIES];
+        velocities = new double[ENTITIES * 3];
+        nearbyBoxes = new AxisAlignedBB[ENTITIES][];
+        for (int i = 0; i < ENTITIES; i++) {
+            double feetX = (random.nextDouble() - .5) * (DECK_SIZE - 2);
+            double feetZ = (random.nextDouble() - .5) * (DECK_SIZE - 2);
+            // Standing on the deck, slightly sunk into it like after a tick of gravity
+            double feetY = 65 - random.nextDouble() * .05;
+            entityBBs[i] = new AxisAlignedBB(feetX - .3, feetY, feetZ - .3, feetX + .3, feetY + 1.8, feetZ + .3);
+            velocities[i * 3] = (random.nextDouble() - .5) * .2;
+            velocities[i * 3 + 1] = -.0784;
+            velocities[i * 3 + 2] = (random.nextDouble() - .5) * .2;
+
+            AxisAlignedBB searchBB = entityBBs[i]
+                .offset(velocities[i * 3], velocities[i * 3 + 1], velocities[i * 3 + 2]).expand(1, 1, 1);
+            AxisAlignedBB inLocal = EntityBoxCollider.getEnclosedAABB(searchBB, transform.getGlobalToSubspace());
+            List<AxisAlignedBB> boxes = world.getCollisionBoxes(null, inLocal);
+            nearbyBoxes[i] = boxes.toArray(new AxisAlignedBB[0]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void polygonCollider(Blackhole blackhole) {
+        for (int i = 0; i < ENTITIES; i++) {
+            Vector3d total = new Vector3d();
+            Vector3dc velocity = new Vector3d(velocities[i * 3], velocities[i * 3 + 1], velocities[i * 3 + 2]);
+            EntityPolygon entityPoly = new EntityPolygon(entityBBs[i], null);
+            blackhole.consume(new Polygon(entityBBs[i], transform, TransformType.GLOBAL_TO_SUBSPACE)
+                .getEnclosedAABB());
+            for (AxisAlignedBB inLocal : nearbyBoxes[i]) {
+                ShipPolygon shipPoly = new ShipPolygon(inLocal, transform, TransformType.SUBSPACE_TO_GLOBAL, axes,
+                    null);
+                EntityPolygonCollider collider = new EntityPolygonCollider(entityPoly, shipPoly, axes,
+                    velocity.add(total, new Vector3d()));
+                if (!collider.arePolygonsSeparated()) {
+                    EntityCollisionObject collision = collider.getCollisions()[collider.getMinDistanceIndex()];
+                    total.add(collision.getResponse());
+                }
+            }
+            blackhole.consume(total);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES)
+    public void boxCollider(Blackhole blackhole) {
+        Matrix4dc subspaceToGlobal = transform.getSubspaceToGlobal();
+        for (int i = 0; i < ENTITIES; i++) {
+            double totalX = 0, totalY = 0, totalZ = 0;
+            boxCollider.setEntityBox(entityBBs[i]);
+            blackhole.consume(EntityBoxCollider.getEnclosedAABB(entityBBs[i], transform.getGlobalToSubspace()));
+            for (AxisAlignedBB inLocal : nearbyBoxes[i]) {
+                if (boxCollider.collide(inLocal.minX, inLocal.minY, inLocal.minZ, inLocal.maxX, inLocal.maxY,
+                    inLocal.maxZ, subspaceToGlobal, axes, velocities[i * 3] + totalX,
+                    velocities[i * 3 + 1] + totalY, velocities[i * 3 + 2] + totalZ)) {
+                    int minDistanceIndex = boxCollider.getMinDistanceIndex();
+                    totalX += boxCollider.getResponseX(minDistanceIndex);
+                    totalY += boxCollider.getResponseY(minDistanceIndex);
+                    totalZ += boxCollider.getResponseZ(minDistanceIndex);
+                }
+            }
+            blackhole.consume(totalX + totalY + totalZ);
+        }
+    }
+}
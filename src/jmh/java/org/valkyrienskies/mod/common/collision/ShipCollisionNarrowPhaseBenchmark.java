@@ -0,0 +1,93 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
+import valkyrienwarfare.api.TransformType;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link Polygon}/{@link PhysPolygonCollider} narrow phase against {@link PhysBoxCollider}
+ * over the same set of block pairs, about half of which are colliding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShipCollisionNarrowPhaseBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    private ShipTransform transform;
+    private Vector3dc[] axes;
+    // x, y, z of the ship block followed by x, y, z of the world block
+    private int[] pairs;
+    private PhysBoxCollider boxCollider;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Vector3dc centerCoord = new Vector3d(8, 64, 8);
+        Quaterniond rotation = new Quaterniond().rotateXYZ(0.1, 0.7, -0.2);
+        transform = new ShipTransform(100, 70, 100, rotation, centerCoord);
+        axes = ShipTransformationManager.createCollisionNormals(transform);
+        boxCollider = new PhysBoxCollider();
+
+        pairs = new int[PAIRS * 6];
+        Vector3d inGlobal = new Vector3d();
+        for (int i = 0; i < PAIRS; i++) {
+            int localX = 8 + random.nextInt(16) - 8;
+            int localY = 64 + random.nextInt(16) - 8;
+            int localZ = 8 + random.nextInt(16) - 8;
+            inGlobal.set(localX + .5, localY + .5, localZ + .5);
+            transform.transformPosition(inGlobal, TransformType.SUBSPACE_TO_GLOBAL);
+            pairs[i * 6] = localX;
+            pairs[i * 6 + 1] = localY;
+            pairs[i * 6 + 2] = localZ;
+            pairs[i * 6 + 3] = (int) Math.floor(inGlobal.x) + random.nextInt(3) - 1;
+            pairs[i * 6 + 4] = (int) Math.floor(inGlobal.y) + random.nextInt(3) - 1;
+            pairs[i * 6 + 5] = (int) Math.floor(inGlobal.z) + random.nextInt(3) - 1;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void polygonCollider(Blackhole blackhole) {
+        for (int i = 0; i < PAIRS * 6; i += 6) {
+            AxisAlignedBB inLocalBB = new AxisAlignedBB(pairs[i], pairs[i + 1], pairs[i + 2],
+                pairs[i] + 1, pairs[i + 1] + 1, pairs[i + 2] + 1);
+            AxisAlignedBB inGlobalBB = new AxisAlignedBB(pairs[i + 3], pairs[i + 4], pairs[i + 5],
+                pairs[i + 3] + 1, pairs[i + 4] + 1, pairs[i + 5] + 1);
+            Polygon shipInWorld = new Polygon(inLocalBB, transform, TransformType.SUBSPACE_TO_GLOBAL);
+            Polygon worldPoly = new Polygon(inGlobalBB);
+            PhysPolygonCollider collider = new PhysPolygonCollider(shipInWorld, worldPoly, axes);
+            if (!collider.seperated) {
+                PhysCollisionObject toCollideWith = collider.collisions[1];
+                if (toCollideWith.penetrationDistance > WorldPhysicsCollider.AXIS_TOLERANCE
+                    || toCollideWith.penetrationDistance < -WorldPhysicsCollider.AXIS_TOLERANCE) {
+                    toCollideWith = collider.collisions[collider.minDistanceIndex];
+                }
+                blackhole.consume(PolygonCollisionPointFinder.getPointsOfCollisionForPolygons(toCollideWith));
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAIRS)
+    public void boxCollider(Blackhole blackhole) {
+        CollisionInformationHolder holder = new CollisionInformationHolder();
+        for (int i = 0; i < PAIRS * 6; i += 6) {
+            if (boxCollider.collide(pairs[i], pairs[i + 1], pairs[i + 2], pairs[i + 3], pairs[i + 4],
+                pairs[i + 5], transform.getSubspaceToGlobal(), axes)) {
+                boxCollider.writeCollisionInformation(holder);
+                blackhole.consume(holder.topContactX);
+            }
+        }
+    }
+}
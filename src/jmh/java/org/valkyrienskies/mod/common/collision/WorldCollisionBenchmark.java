@@ -0,0 +1,63 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.init.Blocks;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the collision cache update and the collision tasks of a square ship sunk slightly into a
+ * flat stone floor. The world section cache is warm after the first invocation, so the cache update
+ * numbers are for a ship that isn't moving into new sections.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WorldCollisionBenchmark {
+
+    @Param({"8", "32"})
+    private int shipSize;
+
+    private PhysicsObject ship;
+    private WorldPhysicsCollider collider;
+    private List<ShipCollisionTask> tasks;
+
+    @Setup
+    public void setup() {
+        HeadlessWorld world = new HeadlessWorld();
+        world.fill(-64, 0, -64, 64, 63, 64, Blocks.STONE.getDefaultState());
+        ship = world.createShip(new Vector3d(-shipSize / 2D, 63.8, -shipSize / 2D),
+            HeadlessWorld.createBoxTemplate(shipSize, 4, shipSize, Blocks.PLANKS.getDefaultState()));
+        // Sets the physics time step used by the collision cache
+        ship.getPhysicsCalculations().rawPhysTickPreCol(VSConfig.timeSimulatedPerPhysicsTick);
+        collider = ship.getPhysicsCalculations().getWorldCollision();
+
+        ship.setNeedsCollisionCacheUpdate(true);
+        collider.tickUpdatingTheCollisionCache();
+        tasks = new ArrayList<>();
+        collider.splitIntoCollisionTasks(tasks);
+    }
+
+    @Benchmark
+    public void updatePotentialCollisionCache(Blackhole blackhole) {
+        ship.setNeedsCollisionCacheUpdate(true);
+        collider.tickUpdatingTheCollisionCache();
+        blackhole.consume(collider.getCachedPotentialHitSize());
+    }
+
+    @Benchmark
+    public void shipCollisionTasks(Blackhole blackhole) {
+        for (ShipCollisionTask task : tasks) {
+            task.call();
+            blackhole.consume(task.getCollisionInformationGenerated().size());
+            task.clearCollisionInformation();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.valkyrienskies.mod.common.physics;
+
+import net.minecraft.init.Blocks;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the force and integration steps of a physics tick for a single 16x4x16 ship floating in an
+ * empty {@link HeadlessWorld}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhysicsTickBenchmark {
+
+    private PhysicsCalculations calculations;
+
+    @Setup
+    public void setup() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject ship = world.createShip(new Vector3d(0, 100, 0),
+            HeadlessWorld.createBoxTemplate(16, 4, 16, Blocks.PLANKS.getDefaultState()));
+        calculations = ship.getPhysicsCalculations();
+    }
+
+    @Benchmark
+    public void rawPhysTickPreCol() {
+        calculations.rawPhysTickPreCol(VSConfig.timeSimulatedPerPhysicsTick);
+    }
+
+    @Benchmark
+    public void rawPhysTickPostCol() {
+        // Zero the velocities so the ship doesn't drift away between invocations
+        calculations.getLinearVelocity().zero();
+        calculations.getAngularVelocity().zero();
+        calculations.rawPhysTickPostCol();
+    }
+}
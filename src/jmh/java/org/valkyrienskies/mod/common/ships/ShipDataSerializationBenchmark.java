@@ -0,0 +1,48 @@
+package org.valkyrienskies.mod.common.ships;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minecraft.init.Blocks;
+import org.joml.Vector3d;
+import org.openjdk.jmh.annotations.*;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CBOR round trip of {@link ShipData} with the default mapper, which is what happens to every
+ * ship when the world is saved and loaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShipDataSerializationBenchmark {
+
+    @Param({"8", "32"})
+    private int shipSize;
+
+    private ObjectMapper mapper;
+    private ShipData shipData;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = VSJacksonUtil.getDefaultMapper();
+        HeadlessWorld world = new HeadlessWorld();
+        shipData = world.createShip(new Vector3d(0, 100, 0),
+            HeadlessWorld.createBoxTemplate(shipSize, shipSize / 2, shipSize,
+                Blocks.PLANKS.getDefaultState())).getShipData();
+        serialized = mapper.writeValueAsBytes(shipData);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(shipData);
+    }
+
+    @Benchmark
+    public ShipData deserialize() throws IOException {
+        return mapper.readValue(serialized, ShipData.class);
+    }
+}
@@ -0,0 +1,83 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import org.openjdk.jmh.annotations.*;
+import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
+import org.valkyrienskies.mod.common.ships.block_relocation.DetectorManager.DetectorIDs;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Measures the flood fill used to find the blocks of a new ship, on a solid block of planks floating above a stone
+ * floor, against the breadth first fill it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SpatialDetectorBenchmark {
+
+    // The ship is built in layers of this many blocks along x and z
+    private static final int SHIP_WIDTH = 32;
+    private static final Predicate<IBlockState> IS_PHYSICS_BLOCK =
+        state -> !BlockPhysicsDetails.blocksToNotPhysicsInfuse.contains(state.getBlock());
+
+    @Param({"1000", "10000", "15000"})
+    private int blockCount;
+
+    private HeadlessWorld world;
+    private BlockPos start;
+
+    @Setup
+    public void setup() {
+        world = new HeadlessWorld();
+        world.fill(-64, 0, -64, 64, 63, 64, Blocks.STONE.getDefaultState());
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        for (int i = 0; i < blockCount; i++) {
+            world.setBlockStateDirect(i % SHIP_WIDTH, 80 + i / (SHIP_WIDTH * SHIP_WIDTH),
+                (i / SHIP_WIDTH) % SHIP_WIDTH, planks);
+        }
+        start = new BlockPos(0, 80, 0);
+
+        // Both fills must find exactly the same blocks
+        for (boolean corners : new boolean[] {true, false}) {
+            SpatialDetector detector = DetectorManager.getDetectorFor(DetectorIDs.BlockPosFinder, start, world,
+                Integer.MAX_VALUE, corners);
+            LegacySpatialDetector legacy = new LegacySpatialDetector(start, world, Integer.MAX_VALUE, corners,
+                IS_PHYSICS_BLOCK);
+            if (detector.foundSet.size() != blockCount || !detector.foundSet.equals(legacy.foundSet)) {
+                throw new IllegalStateException("Scanline fill found " + detector.foundSet.size()
+                    + " blocks, the breadth first fill found " + legacy.foundSet.size());
+            }
+        }
+    }
+
+    @Benchmark
+    public SpatialDetector scanline() {
+        return DetectorManager.getDetectorFor(DetectorIDs.BlockPosFinder, start, world, Integer.MAX_VALUE, true);
+    }
+
+    @Benchmark
+    public SpatialDetector scanlineNoCorners() {
+        return DetectorManager.getDetectorFor(DetectorIDs.BlockPosFinder, start, world, Integer.MAX_VALUE, false);
+    }
+
+    @Benchmark
+    public LegacySpatialDetector breadthFirst() {
+        return new LegacySpatialDetector(start, world, Integer.MAX_VALUE, true, IS_PHYSICS_BLOCK);
+    }
+
+    @Benchmark
+    public LegacySpatialDetector breadthFirstNoCorners() {
+        return new LegacySpatialDetector(start, world, Integer.MAX_VALUE, false, IS_PHYSICS_BLOCK);
+    }
+
+    @Benchmark
+    public SpatialDetector shipSpawnDetector() {
+        return DetectorManager.getDetectorFor(DetectorIDs.ShipSpawnerGeneral, start, world,
+            Integer.MAX_VALUE, true);
+    }
+}
@@ -0,0 +1,83 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures setting and reading every block of a {@link PackedBitOctree}, with roughly the given
+ * fraction of blocks being solid, and finding the solid blocks of the whole section and of a small box
+ * the way the world collision does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PackedBitOctreeBenchmark {
+
+    @Param({"0.05", "0.5"})
+    private double solidFraction;
+
+    private boolean[] solid;
+    private PackedBitOctree filledOctree;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        solid = new boolean[IBitOctree.BLOCKS_TOTAL];
+        for (int i = 0; i < solid.length; i++) {
+            solid[i] = random.nextDouble() < solidFraction;
+        }
+        filledOctree = new PackedBitOctree();
+        setAll(filledOctree);
+    }
+
+    @Benchmark
+    public PackedBitOctree set() {
+        PackedBitOctree octree = new PackedBitOctree();
+        setAll(octree);
+        return octree;
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    blackhole.consume(filledOctree.get(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public TIntArrayList forEachSetBit() {
+        TIntArrayList solidBlocks = new TIntArrayList();
+        filledOctree.forEachSetBitInBox(0, 0, 0, 15, 15, 15, solidBlocks::add);
+        return solidBlocks;
+    }
+
+    @Benchmark
+    public void hasSetBitInBox(Blackhole blackhole) {
+        // The 3x3x3 boxes around every block that WorldPhysicsCollider looks for solid blocks in
+        for (int x = 1; x < 15; x++) {
+            for (int y = 1; y < 15; y++) {
+                for (int z = 1; z < 15; z++) {
+                    blackhole.consume(filledOctree.hasSetBitInBox(x - 1, y - 1, z - 1, x + 1, y + 1, z + 1));
+                }
+            }
+        }
+    }
+
+    private void setAll(PackedBitOctree octree) {
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    octree.set(x, y, z, solid[x | (y << 4) | (z << 8)]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SmallBlockPosSet} with the number of positions a medium sized ship has.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SmallBlockPosSetBenchmark {
+
+    @Param({"1000", "100000"})
+    private int positionCount;
+
+    // x, y, z of every position
+    private int[] positions;
+    private SmallBlockPosSet filledSet;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        positions = new int[positionCount * 3];
+        for (int i = 0; i < positions.length; i += 3) {
+            positions[i] = random.nextInt(512) - 256;
+            positions[i + 1] = random.nextInt(256);
+            positions[i + 2] = random.nextInt(512) - 256;
+        }
+        filledSet = new SmallBlockPosSet(0, 0);
+        for (int i = 0; i < positions.length; i += 3) {
+            filledSet.add(positions[i], positions[i + 1], positions[i + 2]);
+        }
+    }
+
+    @Benchmark
+    public SmallBlockPosSet add() {
+        SmallBlockPosSet set = new SmallBlockPosSet(0, 0);
+        for (int i = 0; i < positions.length; i += 3) {
+            set.add(positions[i], positions[i + 1], positions[i + 2]);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public SmallBlockPosSet addThenRemove() {
+        SmallBlockPosSet set = new SmallBlockPosSet(0, 0);
+        for (int i = 0; i < positions.length; i += 3) {
+            set.add(positions[i], positions[i + 1], positions[i + 2]);
+        }
+        for (int i = 0; i < positions.length; i += 3) {
+            set.remove(positions[i], positions[i + 1], positions[i + 2]);
+        }
+        return set;
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        filledSet.forEach((x, y, z) -> blackhole.consume(x + y + z));
+    }
+
+    @Benchmark
+    public void forEachUnsafe(Blackhole blackhole) {
+        filledSet.forEachUnsafe((x, y, z) -> blackhole.consume(x + y + z));
+    }
+}
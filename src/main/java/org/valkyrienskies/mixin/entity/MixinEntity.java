@@ -52,6 +52,7 @@ public abstract class MixinEntity implements IDraggable {
     private Vector3d searchVector = null;
     
     private EntityShipMovementData entityShipMovementData = new EntityShipMovementData(null, 0, new Vector3d(), 0);
+    private boolean inDraggedEntityTracker = false;
 
     /**
      * This is easier to have as an overwrite because there's less laggy hackery to be done then :P
@@ -253,5 +254,18 @@ public abstract class MixinEntity implements IDraggable {
     @Override
     public void setEntityShipMovementData(EntityShipMovementData entityShipMovementData) {
         this.entityShipMovementData = entityShipMovementData;
+        if (!inDraggedEntityTracker && entityShipMovementData != null && world != null) {
+            ValkyrienUtils.getPhysObjWorld(world).getDraggedEntities().onMovementDataChanged(thisAsEntity);
+        }
+    }
+
+    @Override
+    public boolean isInDraggedEntityTracker() {
+        return inDraggedEntityTracker;
+    }
+
+    @Override
+    public void setInDraggedEntityTracker(boolean inDraggedEntityTracker) {
+        this.inDraggedEntityTracker = inDraggedEntityTracker;
     }
 }
@@ -82,12 +82,20 @@ public abstract class MixinEntityIntrinsic {
         } else {
             if (this.collided) {
                 // If we collided and alteredMovement is null, then we're touching the ground.
+                if (oldEntityShipMovementData.getLastTouchedShip() == null
+                        && oldEntityShipMovementData.getTicksSinceTouchedShip() == 0
+                        && oldEntityShipMovementData.getAddedYawVelocity() == 0
+                        && oldEntityShipMovementData.getAddedLinearVelocity().lengthSquared() == 0) {
+                    // Already reset, most entities are never near a ship so don't make garbage for them
+                    return;
+                }
                 final EntityShipMovementData newEntityShipMovementData = new EntityShipMovementData(
                         null, 0, new Vector3d(), 0
                 );
                 thisClassAsDraggable.setEntityShipMovementData(newEntityShipMovementData);
-            } else {
-                // If we're not collided and alteredMovement is null, then we're in the air.
+            } else if (oldEntityShipMovementData.getLastTouchedShip() != null) {
+                // If we're not collided and alteredMovement is null, then we're in the air. The ticks since touching a
+                // ship only matter if there is a ship.
                 final EntityShipMovementData newEntityShipMovementData = oldEntityShipMovementData
                         .withTicksSinceTouchedShip(oldEntityShipMovementData.getTicksSinceTouchedShip() + 1);
                 thisClassAsDraggable.setEntityShipMovementData(newEntityShipMovementData);
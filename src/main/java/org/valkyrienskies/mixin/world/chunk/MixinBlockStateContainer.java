@@ -10,7 +10,7 @@ import org.spongepowered.asm.mixin.Overwrite;
 import org.spongepowered.asm.mixin.Shadow;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctreeProvider;
-import org.valkyrienskies.mod.common.util.datastructures.SimpleBitOctree;
+import org.valkyrienskies.mod.common.util.datastructures.PackedBitOctree;
 
 @Mixin(BlockStateContainer.class)
 public class MixinBlockStateContainer implements IBitOctreeProvider {
@@ -18,7 +18,7 @@ public class MixinBlockStateContainer implements IBitOctreeProvider {
     @Shadow
     @Final
     public static IBlockState AIR_BLOCK_STATE;
-    private final IBitOctree bitOctree = new SimpleBitOctree();
+    private final IBitOctree bitOctree = new PackedBitOctree();
     @Shadow
     public IBlockStatePalette palette;
     @Shadow
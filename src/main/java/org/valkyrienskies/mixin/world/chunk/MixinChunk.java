@@ -21,6 +21,8 @@ import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.ShipDataMethods;
 import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.ship_world.IPhysObjectWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.WorldServerShipManager;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
 
 import java.util.ArrayList;
@@ -89,7 +91,23 @@ public abstract class MixinChunk implements ITileEntitiesToRenderProvider {
             IBlockState oldState = getBlockState(pos);
             QueryableShipData queryableShipData = QueryableShipData.get(world);
             Optional<ShipData> shipDataOptional = queryableShipData.getShipFromChunk(pos.getX() >> 4, pos.getZ() >> 4);
-            shipDataOptional.ifPresent(shipData -> ShipDataMethods.onSetBlockState(shipData, pos, oldState, state));
+            if (shipDataOptional.isPresent()) {
+                ShipData shipData = shipDataOptional.get();
+                boolean changedShipData = ShipDataMethods.onSetBlockState(shipData, pos, oldState, state);
+                IPhysObjectWorld physObjectWorld = ValkyrienUtils.getPhysObjWorld(world);
+                if (physObjectWorld instanceof WorldServerShipManager) {
+                    WorldServerShipManager shipManager = (WorldServerShipManager) physObjectWorld;
+                    if (!changedShipData) {
+                        shipManager.onPagedOutShipBlockChanged(shipData, pos, oldState, state);
+                    }
+                    shipManager.onShipBlockChanged(shipData, pos, state);
+                }
+            } else if (!ShipChunkAllocator.isBlockInShipyard(pos)) {
+                IPhysObjectWorld physObjectWorld = ValkyrienUtils.getPhysObjWorld(world);
+                if (physObjectWorld instanceof WorldServerShipManager) {
+                    ((WorldServerShipManager) physObjectWorld).onWorldBlockChanged(pos);
+                }
+            }
         }
     }
 
@@ -278,4 +278,14 @@ public class PhysObjectRenderManager {
         }
         renderChunks.put(chunkPos, new PhysRenderChunk(parent, chunk));
     }
+
+    /**
+     * Stops rendering a chunk the ship no longer claims.
+     */
+    public void removeChunk(int chunkX, int chunkZ) {
+        PhysRenderChunk oldRenderer = renderChunks.remove(new ChunkPos(chunkX, chunkZ));
+        if (oldRenderer != null) {
+            oldRenderer.killRenderChunk();
+        }
+    }
 }
@@ -168,6 +168,13 @@ public class EventsCommon {
         }
     }
 
+    @SubscribeEvent
+    public static void onWorldSave(WorldEvent.Save event) {
+        if (!event.getWorld().isRemote) {
+            ((WorldServerShipManager) ((IHasShipManager) event.getWorld()).getManager()).saveShipData();
+        }
+    }
+
     @SubscribeEvent(priority = EventPriority.HIGHEST)
     public static void onPlayerInteractEvent(PlayerInteractEvent event) {
         BlockPos pos = event.getPos();
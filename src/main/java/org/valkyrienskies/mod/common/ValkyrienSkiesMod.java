@@ -29,6 +29,7 @@ import org.valkyrienskies.mixin.MixinLoaderForge;
 import org.valkyrienskies.mod.client.gui.TabValkyrienSkies;
 import org.valkyrienskies.mod.common.block.*;
 import org.valkyrienskies.mod.common.capability.VSCapabilityRegistry;
+import org.valkyrienskies.mod.common.collision.BlockCollisionShapes;
 import org.valkyrienskies.mod.common.command.framework.VSCommandRegistry;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.network.*;
@@ -46,6 +47,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 @Mod(
     modid = ValkyrienSkiesMod.MOD_ID,
@@ -84,6 +86,12 @@ public class ValkyrienSkiesMod {
     @Getter
     private static ExecutorService PHYSICS_THREADS_EXECUTOR = null;
 
+    /**
+     * This pool runs independent physics islands when {@link VSConfig#parallelPhysicsIslands} is enabled.
+     */
+    @Getter
+    private static ForkJoinPool PHYSICS_ISLANDS_POOL = null;
+
     public Block captainsChair;
     public Block passengerChair;
     public static SimpleNetworkWrapper physWrapperNetwork;
@@ -108,6 +116,7 @@ public class ValkyrienSkiesMod {
         log.debug("Instantiating the physics thread executor.");
         ValkyrienSkiesMod.PHYSICS_THREADS_EXECUTOR = Executors
             .newFixedThreadPool(VSConfig.threadCount);
+        ValkyrienSkiesMod.PHYSICS_ISLANDS_POOL = new ForkJoinPool(VSConfig.threadCount);
 
         log.debug("Initializing networks.");
         registerNetworks(event);
@@ -144,6 +153,8 @@ public class ValkyrienSkiesMod {
 
     @EventHandler
     public void postInit(FMLPostInitializationEvent event) {
+        log.debug("Building the block collision shapes.");
+        BlockCollisionShapes.build();
         proxy.postInit(event);
     }
 
@@ -159,6 +170,8 @@ public class ValkyrienSkiesMod {
             ShipIndexDataMessage.class, 0, Side.CLIENT);
         physWrapperNetwork.registerMessage(MessageHandlerPlayerOnShipPos.class,
                 MessagePlayerOnShipPos.class, 1, Side.SERVER);
+        physWrapperNetwork.registerMessage(ShipTransformUpdateMessageHandler.class,
+            ShipTransformUpdateMessage.class, 2, Side.CLIENT);
 
         controlNetwork = NetworkRegistry.INSTANCE.newSimpleChannel("valkyrien_piloting");
         controlNetwork
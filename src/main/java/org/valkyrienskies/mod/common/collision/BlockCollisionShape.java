@@ -0,0 +1,118 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.util.math.AxisAlignedBB;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The collision boxes of a block state, relative to the block position. Immutable, so the same shape can be read by
+ * every physics thread.
+ * <p>
+ * Most solid blocks are the {@link #FULL_CUBE} shape, which the narrow phase handles without looking at the boxes.
+ */
+public final class BlockCollisionShape {
+
+    public static final BlockCollisionShape EMPTY = new BlockCollisionShape(new double[0], false);
+    public static final BlockCollisionShape FULL_CUBE = new BlockCollisionShape(new double[]{0, 0, 0, 1, 1, 1},
+        true);
+
+    // minX, minY, minZ, maxX, maxY, maxZ of every box
+    private final double[] boxes;
+    private final boolean isFullCube;
+
+    private BlockCollisionShape(double[] boxes, boolean isFullCube) {
+        this.boxes = boxes;
+        this.isFullCube = isFullCube;
+    }
+
+    /**
+     * Creates the shape made of the given boxes, which are relative to the block position. Duplicate boxes are
+     * dropped, and a shape that has a box covering the whole block and nothing outside of it is the {@link
+     * #FULL_CUBE}.
+     */
+    public static BlockCollisionShape fromBoxes(@Nonnull List<AxisAlignedBB> boxList) {
+        if (boxList.isEmpty()) {
+            return EMPTY;
+        }
+        double[] boxes = new double[boxList.size() * 6];
+        int boxCount = 0;
+        boolean hasUnitBox = false;
+        boolean isInsideUnitBox = true;
+        for (AxisAlignedBB bb : boxList) {
+            hasUnitBox |= bb.minX <= 0 && bb.minY <= 0 && bb.minZ <= 0 && bb.maxX >= 1 && bb.maxY >= 1
+                && bb.maxZ >= 1;
+            // Boxes sticking out of the block, like the ones of fences, have to be kept
+            isInsideUnitBox &= bb.minX >= 0 && bb.minY >= 0 && bb.minZ >= 0 && bb.maxX <= 1 && bb.maxY <= 1
+                && bb.maxZ <= 1;
+            if (!containsBox(boxes, boxCount, bb)) {
+                int box = boxCount * 6;
+                boxes[box] = bb.minX;
+                boxes[box + 1] = bb.minY;
+                boxes[box + 2] = bb.minZ;
+                boxes[box + 3] = bb.maxX;
+                boxes[box + 4] = bb.maxY;
+                boxes[box + 5] = bb.maxZ;
+                boxCount++;
+            }
+        }
+        if (hasUnitBox && isInsideUnitBox) {
+            return FULL_CUBE;
+        }
+        return new BlockCollisionShape(Arrays.copyOf(boxes, boxCount * 6), false);
+    }
+
+    /**
+     * @return True if this shape is a single unit box
+     */
+    public boolean isFullCube() {
+        return isFullCube;
+    }
+
+    /**
+     * @return True if this shape has no boxes, blocks with this shape can't be collided with
+     */
+    public boolean isEmpty() {
+        return boxes.length == 0;
+    }
+
+    public int getBoxCount() {
+        return boxes.length / 6;
+    }
+
+    public double getMinX(int box) {
+        return boxes[box * 6];
+    }
+
+    public double getMinY(int box) {
+        return boxes[box * 6 + 1];
+    }
+
+    public double getMinZ(int box) {
+        return boxes[box * 6 + 2];
+    }
+
+    public double getMaxX(int box) {
+        return boxes[box * 6 + 3];
+    }
+
+    public double getMaxY(int box) {
+        return boxes[box * 6 + 4];
+    }
+
+    public double getMaxZ(int box) {
+        return boxes[box * 6 + 5];
+    }
+
+    private static boolean containsBox(double[] boxes, int boxCount, AxisAlignedBB bb) {
+        for (int box = 0; box < boxCount * 6; box += 6) {
+            if (boxes[box] == bb.minX && boxes[box + 1] == bb.minY && boxes[box + 2] == bb.minZ
+                && boxes[box + 3] == bb.maxX && boxes[box + 4] == bb.maxY && boxes[box + 5] == bb.maxZ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,102 @@
+package org.valkyrienskies.mod.common.collision;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link BlockCollisionShape} of every block state, built once by {@link #build()} after all the blocks are
+ * registered. Lets the physics threads collide slabs, stairs, fences and panes by their real shape without calling
+ * into the blocks.
+ * <p>
+ * The shapes are taken without a world, so a block whose shape depends on its neighbours, like a fence connecting to
+ * another fence, gets the union of all the shapes it could have. Chunks only store the states that can be made from
+ * metadata, so every state with the same metadata shares that union. Blocks that need a world to give their shape
+ * at all collide as full cubes, the same as states that aren't in the table.
+ */
+@Log4j2
+public class BlockCollisionShapes {
+
+    // Large enough to not cut off the boxes of any block
+    private static final AxisAlignedBB QUERY_BB = new AxisAlignedBB(-1, -1, -1, 2, 2, 2);
+
+    private static volatile Map<IBlockState, BlockCollisionShape> shapes = Collections.emptyMap();
+
+    /**
+     * Builds the shape of every state of every registered block. Must be called after block registration, before
+     * the physics threads collide anything.
+     */
+    public static void build() {
+        Map<IBlockState, BlockCollisionShape> newShapes = new IdentityHashMap<>();
+        int partialShapes = 0;
+        for (Block block : Block.REGISTRY) {
+            // The states of this block that are stored with the same metadata
+            TIntObjectHashMap<List<IBlockState>> statesByMeta = new TIntObjectHashMap<>();
+            for (IBlockState state : block.getBlockState().getValidStates()) {
+                int meta;
+                try {
+                    meta = block.getMetaFromState(state);
+                } catch (Exception e) {
+                    // Give the state a group of its own, so that it isn't merged with anything
+                    meta = -1 - statesByMeta.size();
+                }
+                List<IBlockState> sameMeta = statesByMeta.get(meta);
+                if (sameMeta == null) {
+                    sameMeta = new ArrayList<>();
+                    statesByMeta.put(meta, sameMeta);
+                }
+                sameMeta.add(state);
+            }
+
+            for (List<IBlockState> sameMeta : statesByMeta.valueCollection()) {
+                BlockCollisionShape shape = createShape(sameMeta);
+                if (!shape.isFullCube() && !shape.isEmpty()) {
+                    partialShapes += sameMeta.size();
+                }
+                for (IBlockState state : sameMeta) {
+                    newShapes.put(state, shape);
+                }
+            }
+        }
+        shapes = newShapes;
+        log.debug("Built the collision shapes of {} block states, {} of them aren't full cubes.", newShapes.size(),
+            partialShapes);
+    }
+
+    /**
+     * @return The collision shape of the state, or {@link BlockCollisionShape#FULL_CUBE} if it isn't known
+     */
+    @Nonnull
+    public static BlockCollisionShape getShape(IBlockState state) {
+        BlockCollisionShape shape = shapes.get(state);
+        return shape != null ? shape : BlockCollisionShape.FULL_CUBE;
+    }
+
+    /**
+     * The union of the collision boxes of the given states.
+     */
+    private static BlockCollisionShape createShape(List<IBlockState> states) {
+        List<AxisAlignedBB> boxes = new ArrayList<>();
+        for (IBlockState state : states) {
+            try {
+                // The state is already the actual state, and there is no world to get it from anyways
+                state.addCollisionBoxToList(null, BlockPos.ORIGIN, QUERY_BB, boxes, null, true);
+            } catch (Exception e) {
+                // This block needs a world to know its shape
+                return BlockCollisionShape.FULL_CUBE;
+            }
+        }
+        return BlockCollisionShape.fromBoxes(boxes);
+    }
+
+}
@@ -1,18 +1,26 @@
 package org.valkyrienskies.mod.common.collision;
 
 import net.minecraft.block.state.IBlockState;
+import org.joml.Vector3dc;
 
+/**
+ * The result of a collision between a ship block and a world block. These are mutable so that {@link
+ * ShipCollisionTask} can reuse them between physics ticks.
+ */
 public class CollisionInformationHolder {
 
-    protected final PhysPolygonCollider collider;
-    protected final int inWorldX, inWorldY, inWorldZ, inLocalX, inLocalY, inLocalZ;
-    protected final IBlockState inWorldState, inLocalState;
+    protected int inWorldX, inWorldY, inWorldZ, inLocalX, inLocalY, inLocalZ;
+    protected IBlockState inWorldState, inLocalState;
 
-    public CollisionInformationHolder(PhysPolygonCollider collider, int inWorldX, int inWorldY,
-        int inWorldZ, int inLocalX, int inLocalY, int inLocalZ, IBlockState inWorldState,
-        IBlockState inLocalState) {
-        this.collider = collider;
+    // The axis the collision is resolved along, and the penetration along that axis.
+    protected Vector3dc collisionNormal;
+    protected double penetrationDistance;
+    // The deepest vertex of the upper block, and of the lower block, along the collision normal.
+    protected double topContactX, topContactY, topContactZ;
+    protected double bottomContactX, bottomContactY, bottomContactZ;
 
+    void setBlocks(int inWorldX, int inWorldY, int inWorldZ, int inLocalX, int inLocalY, int inLocalZ,
+        IBlockState inWorldState, IBlockState inLocalState) {
         this.inWorldX = inWorldX;
         this.inWorldY = inWorldY;
         this.inWorldZ = inWorldZ;
@@ -24,4 +32,19 @@ public class CollisionInformationHolder {
         this.inWorldState = inWorldState;
         this.inLocalState = inLocalState;
     }
+
+    void setCollision(Vector3dc collisionNormal, double penetrationDistance, double topContactX,
+        double topContactY, double topContactZ, double bottomContactX, double bottomContactY,
+        double bottomContactZ) {
+        this.collisionNormal = collisionNormal;
+        this.penetrationDistance = penetrationDistance;
+
+        this.topContactX = topContactX;
+        this.topContactY = topContactY;
+        this.topContactZ = topContactZ;
+
+        this.bottomContactX = bottomContactX;
+        this.bottomContactY = bottomContactY;
+        this.bottomContactZ = bottomContactZ;
+    }
 }
@@ -0,0 +1,253 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix4dc;
+import org.joml.Vector3dc;
+
+/**
+ * An allocation free replacement for running {@link EntityPolygonCollider} on the bounding box of an entity and
+ * a block box of a ship. The block box is transformed into global coordinates and swept against the entity box
+ * with the separating axis theorem, using the same axes, the same vertex order and the same choice of the
+ * minimum distance axis as the {@link Polygon} based code, so the responses are the same.
+ * <p>
+ * All the intermediate data lives in flat arrays owned by this object, so one instance should be reused for
+ * every block box an entity is checked against. Not thread safe.
+ */
+public class EntityBoxCollider {
+
+    private static final int VERTEX_COUNT = 8;
+
+    // The x, y, z of the corners of each box, in the same order as Polygon.getCornersForAABB()
+    private final double[] entityVertices;
+    private final double[] blockVertices;
+    // The entity box projected onto the last axes, they only change when the entity box does
+    private Vector3dc[] projectedAxes;
+    private double[] entityMins;
+    private double[] entityMaxs;
+
+    // The results of the last call to collide()
+    private Vector3dc[] collisionAxes;
+    private double[] penetrationDistances;
+    private double[] velocityDots;
+    private boolean[] initiallyColliding;
+    private int minDistanceIndex;
+
+    public EntityBoxCollider() {
+        this.entityVertices = new double[VERTEX_COUNT * 3];
+        this.blockVertices = new double[VERTEX_COUNT * 3];
+        this.projectedAxes = null;
+        this.entityMins = new double[15];
+        this.entityMaxs = new double[15];
+        this.collisionAxes = null;
+        this.penetrationDistances = new double[15];
+        this.velocityDots = new double[15];
+        this.initiallyColliding = new boolean[15];
+        this.minDistanceIndex = 0;
+    }
+
+    /**
+     * Sets the bounding box of the entity, in global coordinates, that the next calls to {@link #collide} use.
+     */
+    public void setEntityBox(AxisAlignedBB entityBB) {
+        setCorners(entityVertices, entityBB.minX, entityBB.minY, entityBB.minZ, entityBB.maxX, entityBB.maxY,
+            entityBB.maxZ);
+        projectedAxes = null;
+    }
+
+    /**
+     * Checks if the entity box moving by the given velocity collides with a block box of a ship.
+     *
+     * @param subspaceToGlobal The transform of the ship, from subspace to global coordinates
+     * @param axes             The potential separating axes, see ShipTransformationManager.normals
+     * @return True if the boxes collide, in which case the penetration along every axis can be read from this
+     * collider.
+     */
+    public boolean collide(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+        Matrix4dc subspaceToGlobal, Vector3dc[] axes, double velX, double velY, double velZ) {
+        setCorners(blockVertices, minX, minY, minZ, maxX, maxY, maxZ);
+        transformCorners(blockVertices, subspaceToGlobal);
+        if (penetrationDistances.length < axes.length) {
+            penetrationDistances = new double[axes.length];
+            velocityDots = new double[axes.length];
+            initiallyColliding = new boolean[axes.length];
+        }
+        projectEntity(axes);
+
+        collisionAxes = axes;
+        // Does the same as EntityCollisionObject.generateCollision() along every axis, stop early if any of them
+        // separates the boxes.
+        boolean originallySeparated = false;
+        for (int i = 0; i < axes.length; i++) {
+            Vector3dc axis = axes[i];
+            double velDot = -dot(axis, velX, velY, velZ);
+            double blockMin = Double.POSITIVE_INFINITY, blockMax = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < VERTEX_COUNT * 3; v += 3) {
+                double blockDot = dot(axis, blockVertices, v);
+                blockMin = Math.min(blockMin, blockDot);
+                blockMax = Math.max(blockMax, blockDot);
+            }
+            double movMaxFixMin = entityMins[i] - blockMax;
+            double movMinFixMax = entityMaxs[i] - blockMin;
+
+            boolean collidedBeforeMoving = !(movMaxFixMin > 0 || movMinFixMax < 0);
+            if (velDot > 0) {
+                movMaxFixMin -= velDot;
+            } else {
+                movMinFixMax -= velDot;
+            }
+            if (movMaxFixMin > 0 || movMinFixMax < 0) {
+                return false;
+            }
+            // Set the penetration to be the smaller distance
+            double penetrationDistance;
+            if (collidedBeforeMoving || velDot == 0D) {
+                if (Math.abs(movMaxFixMin) < Math.abs(movMinFixMax)) {
+                    penetrationDistance = movMaxFixMin;
+                } else {
+                    penetrationDistance = movMinFixMax;
+                }
+            } else {
+                if (Math.signum(velDot) != Math.signum(movMinFixMax)) {
+                    penetrationDistance = movMinFixMax;
+                } else {
+                    penetrationDistance = movMaxFixMin;
+                }
+            }
+            penetrationDistances[i] = penetrationDistance;
+            velocityDots[i] = velDot;
+            initiallyColliding[i] = collidedBeforeMoving;
+            if (!collidedBeforeMoving) {
+                originallySeparated = true;
+            }
+        }
+
+        minDistanceIndex = 0;
+        double minDistance = 420;
+        for (int i = 0; i < axes.length; i++) {
+            if (originallySeparated) {
+                // Take the axis the entity went through the least, relative to its velocity
+                double distance = Math.abs((penetrationDistances[i] - velocityDots[i]) / velocityDots[i]);
+                if (distance < minDistance && !initiallyColliding[i]) {
+                    minDistanceIndex = i;
+                    minDistance = distance;
+                }
+            } else {
+                if (Math.abs(penetrationDistances[i]) < minDistance) {
+                    minDistanceIndex = i;
+                    minDistance = Math.abs(penetrationDistances[i]);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The axis the entity should be pushed out along, after a successful {@link #collide} call
+     */
+    public int getMinDistanceIndex() {
+        return minDistanceIndex;
+    }
+
+    public Vector3dc getCollisionAxis(int axisIndex) {
+        return collisionAxes[axisIndex];
+    }
+
+    public double getPenetrationDistance(int axisIndex) {
+        return penetrationDistances[axisIndex];
+    }
+
+    /**
+     * The response along an axis is the axis scaled by -penetration, the same as
+     * {@link org.valkyrienskies.mod.common.ships.entity_interaction.EntityCollisionObject#getResponse()}.
+     */
+    public double getResponseX(int axisIndex) {
+        return collisionAxes[axisIndex].x() * -penetrationDistances[axisIndex];
+    }
+
+    public double getResponseY(int axisIndex) {
+        return collisionAxes[axisIndex].y() * -penetrationDistances[axisIndex];
+    }
+
+    public double getResponseZ(int axisIndex) {
+        return collisionAxes[axisIndex].z() * -penetrationDistances[axisIndex];
+    }
+
+    /**
+     * Does the same as {@link Polygon#getEnclosedAABB()} of a {@link Polygon} made from bb and transform, without
+     * creating the polygon.
+     */
+    public static AxisAlignedBB getEnclosedAABB(AxisAlignedBB bb, Matrix4dc transform) {
+        double mnX = Double.POSITIVE_INFINITY, mnY = Double.POSITIVE_INFINITY, mnZ = Double.POSITIVE_INFINITY;
+        double mxX = Double.NEGATIVE_INFINITY, mxY = Double.NEGATIVE_INFINITY, mxZ = Double.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < VERTEX_COUNT; corner++) {
+            double x = (corner & 4) == 0 ? bb.minX : bb.maxX;
+            double y = (corner & 1) == 0 ? bb.minY : bb.maxY;
+            double z = (corner & 2) == 0 ? bb.minZ : bb.maxZ;
+            double tx = transform.m00() * x + transform.m10() * y + transform.m20() * z + transform.m30();
+            double ty = transform.m01() * x + transform.m11() * y + transform.m21() * z + transform.m31();
+            double tz = transform.m02() * x + transform.m12() * y + transform.m22() * z + transform.m32();
+            mnX = Math.min(mnX, tx);
+            mnY = Math.min(mnY, ty);
+            mnZ = Math.min(mnZ, tz);
+            mxX = Math.max(mxX, tx);
+            mxY = Math.max(mxY, ty);
+            mxZ = Math.max(mxZ, tz);
+        }
+        return new AxisAlignedBB(mnX, mnY, mnZ, mxX, mxY, mxZ);
+    }
+
+    private void projectEntity(Vector3dc[] axes) {
+        if (projectedAxes == axes) {
+            return;
+        }
+        if (entityMins.length < axes.length) {
+            entityMins = new double[axes.length];
+            entityMaxs = new double[axes.length];
+        }
+        for (int i = 0; i < axes.length; i++) {
+            double entityMin = Double.POSITIVE_INFINITY, entityMax = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < VERTEX_COUNT * 3; v += 3) {
+                double entityDot = dot(axes[i], entityVertices, v);
+                entityMin = Math.min(entityMin, entityDot);
+                entityMax = Math.max(entityMax, entityDot);
+            }
+            entityMins[i] = entityMin;
+            entityMaxs[i] = entityMax;
+        }
+        projectedAxes = axes;
+    }
+
+    private static void setCorners(double[] vertices, double minX, double minY, double minZ, double maxX,
+        double maxY, double maxZ) {
+        int index = 0;
+        for (int dx = 0; dx <= 1; dx++) {
+            for (int dz = 0; dz <= 1; dz++) {
+                for (int dy = 0; dy <= 1; dy++) {
+                    vertices[index++] = dx == 0 ? minX : maxX;
+                    vertices[index++] = dy == 0 ? minY : maxY;
+                    vertices[index++] = dz == 0 ? minZ : maxZ;
+                }
+            }
+        }
+    }
+
+    private static void transformCorners(double[] vertices, Matrix4dc m) {
+        for (int v = 0; v < VERTEX_COUNT * 3; v += 3) {
+            double x = vertices[v];
+            double y = vertices[v + 1];
+            double z = vertices[v + 2];
+            vertices[v] = m.m00() * x + m.m10() * y + m.m20() * z + m.m30();
+            vertices[v + 1] = m.m01() * x + m.m11() * y + m.m21() * z + m.m31();
+            vertices[v + 2] = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+        }
+    }
+
+    private static double dot(Vector3dc axis, double[] vertices, int index) {
+        return dot(axis, vertices[index], vertices[index + 1], vertices[index + 2]);
+    }
+
+    private static double dot(Vector3dc axis, double x, double y, double z) {
+        return axis.x() * x + axis.y() * y + axis.z() * z;
+    }
+
+}
@@ -0,0 +1,241 @@
+package org.valkyrienskies.mod.common.collision;
+
+import org.joml.Matrix4dc;
+import org.joml.Vector3dc;
+
+/**
+ * An allocation free replacement for running {@link PhysPolygonCollider} and {@link
+ * PolygonCollisionPointFinder} on two block boxes, either unit cubes or the boxes of a {@link
+ * BlockCollisionShape}. The box of the ship block is transformed into global coordinates and tested
+ * against the world block box with the separating axis theorem, using the same axes, the same vertex
+ * order and the same tie breaking as the {@link Polygon} based code.
+ * <p>
+ * All the intermediate data lives in flat double arrays owned by this object, so one instance should be
+ * created per {@link ShipCollisionTask} and reused for every block pair that task checks. Not thread
+ * safe.
+ */
+public class PhysBoxCollider {
+
+    private static final int VERTEX_COUNT = 8;
+
+    // The x, y, z of the corners of each box, in the same order as Polygon.getCornersForAABB()
+    private final double[] shipVertices;
+    private final double[] worldVertices;
+    // The penetration distance along each separating axis
+    private double[] penetrationDistances;
+
+    // The results of the last call to collide()
+    private Vector3dc collisionNormal;
+    private double penetrationDistance;
+    private double topContactX, topContactY, topContactZ;
+    private double bottomContactX, bottomContactY, bottomContactZ;
+
+    public PhysBoxCollider() {
+        this.shipVertices = new double[VERTEX_COUNT * 3];
+        this.worldVertices = new double[VERTEX_COUNT * 3];
+        this.penetrationDistances = new double[15];
+    }
+
+    /**
+     * Checks if the ship block at local position collides with the world block at world position.
+     *
+     * @param subspaceToGlobal The physics transform of the ship, from subspace to global coordinates.
+     * @param axes             The potential separating axes, see ShipTransformationManager.normals
+     * @return True if the blocks collide, in which case the collision normal, penetration and contact
+     * points of this collider are updated.
+     */
+    public boolean collide(int localX, int localY, int localZ, int worldX, int worldY, int worldZ,
+        Matrix4dc subspaceToGlobal, Vector3dc[] axes) {
+        setCorners(shipVertices, localX, localY, localZ, localX + 1, localY + 1, localZ + 1);
+        setCorners(worldVertices, worldX, worldY, worldZ, worldX + 1, worldY + 1, worldZ + 1);
+        return collideCorners(subspaceToGlobal, axes);
+    }
+
+    /**
+     * Checks if a box of a ship block collides with a box of a world block, for the blocks that aren't full cubes.
+     * The boxes are in the coordinates of their blocks, see {@link BlockCollisionShape}.
+     *
+     * @param shipShape  The shape of the ship block
+     * @param shipBox    The index of the box in shipShape
+     * @param worldShape The shape of the world block
+     * @param worldBox   The index of the box in worldShape
+     * @return True if the boxes collide, in which case the collision normal, penetration and contact points of
+     * this collider are updated.
+     */
+    public boolean collide(int localX, int localY, int localZ, BlockCollisionShape shipShape, int shipBox,
+        int worldX, int worldY, int worldZ, BlockCollisionShape worldShape, int worldBox,
+        Matrix4dc subspaceToGlobal, Vector3dc[] axes) {
+        setCorners(shipVertices, localX + shipShape.getMinX(shipBox), localY + shipShape.getMinY(shipBox),
+            localZ + shipShape.getMinZ(shipBox), localX + shipShape.getMaxX(shipBox),
+            localY + shipShape.getMaxY(shipBox), localZ + shipShape.getMaxZ(shipBox));
+        setCorners(worldVertices, worldX + worldShape.getMinX(worldBox), worldY + worldShape.getMinY(worldBox),
+            worldZ + worldShape.getMinZ(worldBox), worldX + worldShape.getMaxX(worldBox),
+            worldY + worldShape.getMaxY(worldBox), worldZ + worldShape.getMaxZ(worldBox));
+        return collideCorners(subspaceToGlobal, axes);
+    }
+
+    private boolean collideCorners(Matrix4dc subspaceToGlobal, Vector3dc[] axes) {
+        transformCorners(shipVertices, subspaceToGlobal);
+
+        if (penetrationDistances.length < axes.length) {
+            penetrationDistances = new double[axes.length];
+        }
+
+        // Find the penetration along every axis, stop early if any of them separates the boxes.
+        for (int i = 0; i < axes.length; i++) {
+            Vector3dc axis = axes[i];
+            double shipMin = Double.POSITIVE_INFINITY, shipMax = Double.NEGATIVE_INFINITY;
+            double worldMin = Double.POSITIVE_INFINITY, worldMax = Double.NEGATIVE_INFINITY;
+            for (int v = 0; v < VERTEX_COUNT * 3; v += 3) {
+                double shipDot = dot(axis, shipVertices, v);
+                double worldDot = dot(axis, worldVertices, v);
+                shipMin = Math.min(shipMin, shipDot);
+                shipMax = Math.max(shipMax, shipDot);
+                worldMin = Math.min(worldMin, worldDot);
+                worldMax = Math.max(worldMax, worldDot);
+            }
+            double movMaxFixMin = shipMin - worldMax;
+            double movMinFixMax = shipMax - worldMin;
+            if (movMaxFixMin > 0 || movMinFixMax < 0) {
+                return false;
+            }
+            if (Math.abs(movMaxFixMin) > Math.abs(movMinFixMax)) {
+                penetrationDistances[i] = movMinFixMax;
+            } else {
+                penetrationDistances[i] = movMaxFixMin;
+            }
+        }
+
+        // Prefer the second axis (the world Y axis), unless the penetration along it is too deep.
+        int collisionAxisIndex = 1;
+        if (penetrationDistances[1] > WorldPhysicsCollider.AXIS_TOLERANCE
+            || penetrationDistances[1] < -WorldPhysicsCollider.AXIS_TOLERANCE) {
+            // Take the collision response closest to 0
+            collisionAxisIndex = 0;
+            double minDistance = 420;
+            for (int i = 0; i < axes.length; i++) {
+                if (Math.abs(penetrationDistances[i]) < minDistance) {
+                    collisionAxisIndex = i;
+                    minDistance = Math.abs(penetrationDistances[i]);
+                }
+            }
+        }
+
+        collisionNormal = axes[collisionAxisIndex];
+        penetrationDistance = penetrationDistances[collisionAxisIndex];
+        findContactPoints();
+        return true;
+    }
+
+    /**
+     * Does the same thing as {@link PolygonCollisionPointFinder#getPointsOfCollisionForPolygons(PhysCollisionObject)}.
+     */
+    private void findContactPoints() {
+        double centerDifferenceDot = dot(collisionNormal, centerX(shipVertices) - centerX(worldVertices),
+            centerY(shipVertices) - centerY(worldVertices), centerZ(shipVertices) - centerZ(worldVertices));
+        final double[] topVertices;
+        final double[] bottomVertices;
+        if (centerDifferenceDot > 0) {
+            // Then the ship block is the bottom
+            topVertices = worldVertices;
+            bottomVertices = shipVertices;
+        } else {
+            // Then the world block is the bottom
+            topVertices = shipVertices;
+            bottomVertices = worldVertices;
+        }
+
+        double minDot = Double.POSITIVE_INFINITY;
+        int topPointIndex = 0;
+        double maxDot = Double.NEGATIVE_INFINITY;
+        int bottomPointIndex = 0;
+        for (int v = 0; v < VERTEX_COUNT * 3; v += 3) {
+            double topDot = dot(collisionNormal, topVertices, v);
+            if (topDot < minDot) {
+                minDot = topDot;
+                topPointIndex = v;
+            }
+            double bottomDot = dot(collisionNormal, bottomVertices, v);
+            if (bottomDot > maxDot) {
+                maxDot = bottomDot;
+                bottomPointIndex = v;
+            }
+        }
+
+        topContactX = topVertices[topPointIndex];
+        topContactY = topVertices[topPointIndex + 1];
+        topContactZ = topVertices[topPointIndex + 2];
+        bottomContactX = bottomVertices[bottomPointIndex];
+        bottomContactY = bottomVertices[bottomPointIndex + 1];
+        bottomContactZ = bottomVertices[bottomPointIndex + 2];
+    }
+
+    /**
+     * @return How deep the boxes of the last successful {@link #collide} call overlap along the collision normal
+     */
+    public double getPenetrationDepth() {
+        return Math.abs(penetrationDistance);
+    }
+
+    /**
+     * Copies the results of the last successful {@link #collide} call into the given holder.
+     */
+    public void writeCollisionInformation(CollisionInformationHolder holder) {
+        holder.setCollision(collisionNormal, penetrationDistance, topContactX, topContactY, topContactZ,
+            bottomContactX, bottomContactY, bottomContactZ);
+    }
+
+    private static void setCorners(double[] vertices, double minX, double minY, double minZ, double maxX,
+        double maxY, double maxZ) {
+        int index = 0;
+        for (int dx = 0; dx <= 1; dx++) {
+            for (int dz = 0; dz <= 1; dz++) {
+                for (int dy = 0; dy <= 1; dy++) {
+                    vertices[index++] = dx == 0 ? minX : maxX;
+                    vertices[index++] = dy == 0 ? minY : maxY;
+                    vertices[index++] = dz == 0 ? minZ : maxZ;
+                }
+            }
+        }
+    }
+
+    private static void transformCorners(double[] vertices, Matrix4dc m) {
+        for (int v = 0; v < VERTEX_COUNT * 3; v += 3) {
+            double x = vertices[v];
+            double y = vertices[v + 1];
+            double z = vertices[v + 2];
+            vertices[v] = m.m00() * x + m.m10() * y + m.m20() * z + m.m30();
+            vertices[v + 1] = m.m01() * x + m.m11() * y + m.m21() * z + m.m31();
+            vertices[v + 2] = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+        }
+    }
+
+    private static double dot(Vector3dc axis, double[] vertices, int index) {
+        return dot(axis, vertices[index], vertices[index + 1], vertices[index + 2]);
+    }
+
+    private static double dot(Vector3dc axis, double x, double y, double z) {
+        return axis.x() * x + axis.y() * y + axis.z() * z;
+    }
+
+    private static double centerX(double[] vertices) {
+        return center(vertices, 0);
+    }
+
+    private static double centerY(double[] vertices) {
+        return center(vertices, 1);
+    }
+
+    private static double centerZ(double[] vertices) {
+        return center(vertices, 2);
+    }
+
+    private static double center(double[] vertices, int offset) {
+        double sum = 0;
+        for (int v = offset; v < VERTEX_COUNT * 3; v += 3) {
+            sum += vertices[v];
+        }
+        return sum * (1.0 / VERTEX_COUNT);
+    }
+
+}
@@ -1,14 +1,14 @@
 package org.valkyrienskies.mod.common.collision;
 
 import net.minecraft.block.state.IBlockState;
-import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.joml.Matrix4dc;
 import org.joml.Vector3d;
+import org.joml.Vector3dc;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
-import org.valkyrienskies.mod.common.util.VSIterationUtils;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
 import org.valkyrienskies.mod.common.util.datastructures.IBitOctreeProvider;
 import valkyrienwarfare.api.TransformType;
@@ -25,20 +25,24 @@ public class ShipCollisionTask implements Callable<Void> {
     private final int taskStartIndex;
     private final int tasksToCheck;
     private final MutableBlockPos mutablePos;
-    private final MutableBlockPos inLocalPos;
     private final Vector3d inWorld;
     private final List<CollisionInformationHolder> collisionInformationGenerated;
+    private final List<CollisionInformationHolder> unusedHolders;
+    private final PhysBoxCollider boxCollider;
     private IBlockState inWorldState;
+    private BlockCollisionShape inWorldShape;
     // public TIntArrayList foundPairs = new TIntArrayList();
 
     public ShipCollisionTask(WorldPhysicsCollider toTask, int taskStartIndex) {
         this.taskStartIndex = taskStartIndex;
         this.toTask = toTask;
         this.mutablePos = new MutableBlockPos();
-        this.inLocalPos = new MutableBlockPos();
         this.inWorld = new Vector3d();
         this.collisionInformationGenerated = new ArrayList<>();
+        this.unusedHolders = new ArrayList<>();
+        this.boxCollider = new PhysBoxCollider();
         this.inWorldState = null;
+        this.inWorldShape = null;
 
         int size = toTask.getCachedPotentialHitSize();
         if (taskStartIndex + MAX_TASKS_TO_CHECK > size + 1) {
@@ -77,6 +81,11 @@ public class ShipCollisionTask implements Callable<Void> {
     private void processNumber(int integer) {
         SpatialDetector.setPosWithRespectTo(integer, toTask.getCenterPotentialHit(), mutablePos);
         inWorldState = toTask.getParent().getCachedSurroundingChunks().getBlockState(mutablePos);
+        inWorldShape = BlockCollisionShapes.getShape(inWorldState);
+        if (inWorldShape.isEmpty()) {
+            // Nothing to collide with, like an open fence gate
+            return;
+        }
 
         inWorld.x = mutablePos.getX() + .5;
         inWorld.y = mutablePos.getY() + .5;
@@ -89,15 +98,22 @@ public class ShipCollisionTask implements Callable<Void> {
         int midY = MathHelper.floor(inWorld.y + .5D);
         int midZ = MathHelper.floor(inWorld.z + .5D);
 
-        // Check the 27 possible positions
-        VSIterationUtils.expand3d(midX, midY, midZ, (x, y, z) -> checkPosition(x, y, z, integer));
+        // Check the 27 possible positions. Not using VSIterationUtils.expand3d() because the lambda would
+        // be allocated for every hit.
+        for (int x = midX - 1; x <= midX + 1; x++) {
+            for (int y = midY - 1; y <= midY + 1; y++) {
+                for (int z = midZ - 1; z <= midZ + 1; z++) {
+                    checkPosition(x, y, z, integer);
+                }
+            }
+        }
     }
 
     public void checkPosition(int x, int y, int z, int positionHash) {
-        if (!toTask.getParent().getChunkClaim().containsChunk(x >> 4, z >> 4)) {
+        final Chunk chunkIn = toTask.getParent().getClaimedChunkCache().getCachedChunk(x >> 4, z >> 4);
+        if (chunkIn == null) {
             return;
         }
-        final Chunk chunkIn = toTask.getParent().getChunkAt(x >> 4, z >> 4);
         y = Math.max(0, Math.min(y, 255));
 
         ExtendedBlockStorage storage = chunkIn.storageArrays[y >> 4];
@@ -106,50 +122,79 @@ public class ShipCollisionTask implements Callable<Void> {
             IBitOctree octree = provider.getBitOctree();
 
             if (octree.get(x & 15, y & 15, z & 15)) {
-                IBlockState inLocalState = chunkIn.getBlockState(x, y, z);
-                // Only if you want to stop short
-                // foundPairs.add(positionHash);
-                // foundPairs.add(x);
-                // foundPairs.add(y);
-                // foundPairs.add(z);
-
-                inLocalPos.setPos(x, y, z);
-
-                AxisAlignedBB inLocalBB = new AxisAlignedBB(inLocalPos.getX(), inLocalPos.getY(),
-                    inLocalPos.getZ(),
-                    inLocalPos.getX() + 1, inLocalPos.getY() + 1, inLocalPos.getZ() + 1);
-                AxisAlignedBB inGlobalBB = new AxisAlignedBB(mutablePos.getX(), mutablePos.getY(),
-                    mutablePos.getZ(),
-                    mutablePos.getX() + 1, mutablePos.getY() + 1, mutablePos.getZ() + 1);
-
-                // This changes the box bounding box to the real bounding box, not sure if this
-                // is better or worse for this mod
-                // List<AxisAlignedBB> colBB = worldObj.getCollisionBoxes(inLocalBB);
-                // inLocalBB = colBB.get(0);
-
-                Polygon shipInWorld = new Polygon(inLocalBB,
-                    toTask.getParent().getShipTransformationManager().getCurrentPhysicsTransform(),
-                    TransformType.SUBSPACE_TO_GLOBAL);
-                Polygon worldPoly = new Polygon(inGlobalBB);
-
-                // TODO: Remove the normals crap
-                PhysPolygonCollider collider = new PhysPolygonCollider(shipInWorld, worldPoly,
-                    toTask.getParent().getShipTransformationManager().normals);
-
-                if (!collider.seperated) {
-                    // return handleActualCollision(collider, mutablePos, inLocalPos, inWorldState,
-                    // inLocalState);
-                    CollisionInformationHolder holder = new CollisionInformationHolder(collider,
-                        mutablePos.getX(),
-                        mutablePos.getY(), mutablePos.getZ(), inLocalPos.getX(), inLocalPos.getY(),
-                        inLocalPos.getZ(), inWorldState, inLocalState);
-
-                    collisionInformationGenerated.add(holder);
+                IBlockState inLocalState = storage.get(x & 15, y & 15, z & 15);
+                BlockCollisionShape inLocalShape = BlockCollisionShapes.getShape(inLocalState);
+                Matrix4dc subspaceToGlobal = toTask.getParent().getShipTransformationManager()
+                    .getCurrentPhysicsTransform().getSubspaceToGlobal();
+                Vector3dc[] axes = toTask.getParent().getShipTransformationManager().normals;
+
+                if (inLocalShape.isFullCube() && inWorldShape.isFullCube()) {
+                    // Most blocks are full cubes, which don't need to look at the boxes
+                    if (boxCollider.collide(x, y, z, mutablePos.getX(), mutablePos.getY(), mutablePos.getZ(),
+                        subspaceToGlobal, axes)) {
+                        addCollision(x, y, z, inLocalState);
+                    }
+                    return;
+                }
+                // Only the deepest pair of boxes pushes the blocks apart. Stairs and fences have several boxes, and a
+                // collision for every pair would push back as hard as that many full blocks.
+                CollisionInformationHolder deepest = null;
+                double deepestPenetration = 0;
+                for (int localBox = 0; localBox < inLocalShape.getBoxCount(); localBox++) {
+                    for (int worldBox = 0; worldBox < inWorldShape.getBoxCount(); worldBox++) {
+                        if (boxCollider.collide(x, y, z, inLocalShape, localBox, mutablePos.getX(),
+                            mutablePos.getY(), mutablePos.getZ(), inWorldShape, worldBox, subspaceToGlobal, axes)
+                            && (deepest == null || boxCollider.getPenetrationDepth() > deepestPenetration)) {
+                            if (deepest == null) {
+                                deepest = obtainCollisionInformationHolder();
+                            }
+                            writeCollision(deepest, x, y, z, inLocalState);
+                            deepestPenetration = boxCollider.getPenetrationDepth();
+                        }
+                    }
+                }
+                if (deepest != null) {
+                    collisionInformationGenerated.add(deepest);
                 }
             }
         }
     }
 
+    /**
+     * Stores the collision the box collider just found between the ship block at x, y, z and the world block.
+     */
+    private void addCollision(int x, int y, int z, IBlockState inLocalState) {
+        CollisionInformationHolder holder = obtainCollisionInformationHolder();
+        writeCollision(holder, x, y, z, inLocalState);
+        collisionInformationGenerated.add(holder);
+    }
+
+    private void writeCollision(CollisionInformationHolder holder, int x, int y, int z, IBlockState inLocalState) {
+        holder.setBlocks(mutablePos.getX(), mutablePos.getY(), mutablePos.getZ(), x, y, z,
+            inWorldState, inLocalState);
+        boxCollider.writeCollisionInformation(holder);
+    }
+
+    /**
+     * Takes a holder from the pool of holders freed by {@link #clearCollisionInformation()}, or creates a
+     * new one if the pool is empty.
+     */
+    private CollisionInformationHolder obtainCollisionInformationHolder() {
+        if (unusedHolders.isEmpty()) {
+            return new CollisionInformationHolder();
+        }
+        return unusedHolders.remove(unusedHolders.size() - 1);
+    }
+
+    /**
+     * Clears the collision information generated by this task, keeping the holders to be reused by the
+     * next physics tick.
+     */
+    public void clearCollisionInformation() {
+        unusedHolders.addAll(collisionInformationGenerated);
+        collisionInformationGenerated.clear();
+    }
+
     public WorldPhysicsCollider getToTask() {
         return toTask;
     }
@@ -0,0 +1,196 @@
+package org.valkyrienskies.mod.common.collision;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.world.ChunkCache;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctreeProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Remembers the solid blocks of every world chunk section inside the collision box of a ship, so that
+ * {@link WorldPhysicsCollider} doesn't have to walk the octree of every section each time it updates its
+ * collision cache.
+ * <p>
+ * When the box moves, sections that left it are dropped and only the newly exposed sections are scanned.
+ * A section that stayed in the box is only scanned again if its storage was replaced, or if the
+ * modification count of its {@link IBitOctree} changed, which happens whenever a block in it changes
+ * solidity.
+ * <p>
+ * Every section also keeps the potential hits {@link WorldPhysicsCollider} found in it, which stay until the
+ * section is scanned again or {@link #invalidateHits()} is called.
+ * <p>
+ * Only used by the physics thread.
+ */
+public class WorldCollisionSectionCache {
+
+    private final TLongObjectHashMap<Section> sections;
+    // The sections inside the box given to the last update() call
+    private final List<Section> sectionsInRange;
+
+    public WorldCollisionSectionCache() {
+        this.sections = new TLongObjectHashMap<>();
+        this.sectionsInRange = new ArrayList<>();
+    }
+
+    /**
+     * Brings the cache up to date for the given box of block positions (inclusive).
+     *
+     * @return The non-empty sections that intersect the box. The returned list is reused by the next call.
+     */
+    public List<Section> update(ChunkCache cache, int minX, int minY, int minZ, int maxX, int maxY,
+        int maxZ) {
+        int chunkMinX = minX >> 4;
+        int chunkMaxX = maxX >> 4;
+        int storageMinY = Math.max(minY, 0) >> 4;
+        int storageMaxY = Math.min(maxY, 255) >> 4;
+        int chunkMinZ = minZ >> 4;
+        int chunkMaxZ = maxZ >> 4;
+
+        // Drop the sections that left the box
+        TLongObjectIterator<Section> iterator = sections.iterator();
+        while (iterator.hasNext()) {
+            iterator.advance();
+            Section section = iterator.value();
+            if (section.chunkX < chunkMinX || section.chunkX > chunkMaxX || section.storageY < storageMinY
+                || section.storageY > storageMaxY || section.chunkZ < chunkMinZ
+                || section.chunkZ > chunkMaxZ) {
+                iterator.remove();
+            }
+        }
+
+        sectionsInRange.clear();
+        for (int chunkX = chunkMinX; chunkX <= chunkMaxX; chunkX++) {
+            for (int chunkZ = chunkMinZ; chunkZ <= chunkMaxZ; chunkZ++) {
+                Chunk chunk = getChunkFromCache(cache, chunkX, chunkZ);
+                for (int storageY = storageMinY; storageY <= storageMaxY; storageY++) {
+                    long key = getSectionKey(chunkX, storageY, chunkZ);
+                    ExtendedBlockStorage storage = chunk == null ? null : chunk.storageArrays[storageY];
+                    if (storage == null) {
+                        sections.remove(key);
+                        continue;
+                    }
+                    Section section = sections.get(key);
+                    if (section == null) {
+                        section = new Section(chunkX, storageY, chunkZ);
+                        sections.put(key, section);
+                    }
+                    section.updateIfChanged(storage);
+                    if (!section.solidBlocks.isEmpty()) {
+                        sectionsInRange.add(section);
+                    }
+                }
+            }
+        }
+        return sectionsInRange;
+    }
+
+    public void clear() {
+        sections.clear();
+        sectionsInRange.clear();
+    }
+
+    /**
+     * Marks the potential hits of every section as outdated, for when the ship moved too far from where they were
+     * found.
+     */
+    public void invalidateHits() {
+        sections.forEachValue(section -> {
+            section.hitsUpToDate = false;
+            return true;
+        });
+    }
+
+    private static Chunk getChunkFromCache(ChunkCache cache, int chunkX, int chunkZ) {
+        int arrayChunkX = chunkX - cache.chunkX;
+        int arrayChunkZ = chunkZ - cache.chunkZ;
+        if (arrayChunkX < 0 || arrayChunkZ < 0 || arrayChunkX > cache.chunkArray.length - 1
+            || arrayChunkZ > cache.chunkArray[0].length - 1) {
+            return null;
+        }
+        return cache.chunkArray[arrayChunkX][arrayChunkZ];
+    }
+
+    private static long getSectionKey(int chunkX, int storageY, int chunkZ) {
+        return ((chunkX & 0x3FFFFFFL) << 38) | ((chunkZ & 0x3FFFFFFL) << 12) | (storageY & 0xFFFL);
+    }
+
+    /**
+     * The solid blocks of one 16x16x16 chunk section.
+     */
+    public static class Section {
+
+        final int chunkX, storageY, chunkZ;
+        // Block positions relative to the section, packed as x | y << 4 | z << 8
+        final TIntList solidBlocks;
+        // The solid blocks the ship may collide with, packed the same way
+        final TIntList hits;
+        private ExtendedBlockStorage scannedStorage;
+        private int scannedModificationCount;
+        private boolean hitsUpToDate;
+
+        Section(int chunkX, int storageY, int chunkZ) {
+            this.chunkX = chunkX;
+            this.storageY = storageY;
+            this.chunkZ = chunkZ;
+            this.solidBlocks = new TIntArrayList();
+            this.hits = new TIntArrayList();
+            this.scannedStorage = null;
+            this.hitsUpToDate = false;
+        }
+
+        public int getMinX() {
+            return chunkX << 4;
+        }
+
+        public int getMinY() {
+            return storageY << 4;
+        }
+
+        public int getMinZ() {
+            return chunkZ << 4;
+        }
+
+        public TIntList getSolidBlocks() {
+            return solidBlocks;
+        }
+
+        public TIntList getHits() {
+            return hits;
+        }
+
+        /**
+         * @return False if the hits have to be found again, because the section changed or they were invalidated
+         */
+        public boolean areHitsUpToDate() {
+            return hitsUpToDate;
+        }
+
+        /**
+         * Call after replacing the contents of {@link #getHits()}.
+         */
+        public void setHitsUpToDate() {
+            hitsUpToDate = true;
+        }
+
+        private void updateIfChanged(ExtendedBlockStorage storage) {
+            IBitOctree octree = ((IBitOctreeProvider) storage.data).getBitOctree();
+            if (storage == scannedStorage && octree.getModificationCount() == scannedModificationCount) {
+                return;
+            }
+            scannedStorage = storage;
+            scannedModificationCount = octree.getModificationCount();
+            solidBlocks.clear();
+            hitsUpToDate = false;
+
+            // The octree skips the empty parts of the section
+            octree.forEachSetBitInBox(0, 0, 0, 15, 15, 15, solidBlocks::add);
+        }
+    }
+}
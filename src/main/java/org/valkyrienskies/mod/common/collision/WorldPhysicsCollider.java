@@ -13,8 +13,6 @@ import net.minecraft.world.ChunkCache;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
-import org.apache.commons.lang3.tuple.ImmutableTriple;
-import org.apache.commons.lang3.tuple.Triple;
 import org.joml.Vector3d;
 import org.joml.Vector3dc;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
@@ -26,8 +24,6 @@ import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import valkyrienwarfare.api.TransformType;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Consumer;
 
 /**
  * Handles the task of finding and processing collisions between a PhysicsObject and the game
@@ -52,24 +48,30 @@ public class WorldPhysicsCollider {
     public static final double COEFFICIENT_OF_RESTITUTION = .52D;
     // The radius which the algorithm will search for a nearby block to collide with
     public static final double COLLISION_RANGE_CHECK = .65D;
-    // If true, will use the octree assisted algorithm for finding collisions,
-    // (Approx. O(log(n)^3)).
-    // If false then this class uses the much slower iterative approach O(n^3).
-    public static final boolean USE_OCTREE_COLLISION = true;
     // How likely it is for the collision tasks to shuffle every physics tick
     // ie. (.50D => 50% chance to shuffle, .30D => 30% chance, etc.)
     public static final double COLLISION_TASK_SHUFFLE_FREQUENCY = .50D;
     // Greater coefficients result in more friction
     public static final double KINETIC_FRICTION_COEFFICIENT = .15D;
+    // How far the ship may move before the potential hits of every section have to be found again. The hits are
+    // found this much further out, so a larger margin means more potential hits to check every physics tick.
+    public static final double HIT_CACHE_MARGIN = 1D;
     private final MutableBlockPos mutablePos;
-    // Use ThreadLocalRandom because its much faster than Random.
-    private final ThreadLocalRandom rand;
+    // Owned by this ship and seeded from its UUID, so that the collisions of a ship don't depend on the
+    // other ships or on the thread running it
+    private final Random rand;
     private final Collection<ShipCollisionTask> tasks;
     private final PhysicsCalculations calculator;
     private final World worldObj;
     private final PhysicsObject parent;
     private final TIntList cachedPotentialHits;
     private final TIntArrayList cachedHitsToRemove;
+    // The solid world blocks near the ship, used to avoid walking the same octrees every cache update
+    private final WorldCollisionSectionCache sectionCache;
+    // The physics transform, grown ship bounding box and ship blocks the cached hits were found with
+    private ShipTransform hitTransform;
+    private AxisAlignedBB hitShipBB;
+    private long hitShipBlocksVersion;
     // Ensures this always updates the first tick after creation
     private double ticksSinceCacheUpdate;
     private boolean updateCollisionTasksCache;
@@ -81,12 +83,27 @@ public class WorldPhysicsCollider {
         this.worldObj = parent.getWorld();
         this.cachedPotentialHits = new TIntArrayList();
         this.cachedHitsToRemove = new TIntArrayList();
-        this.rand = ThreadLocalRandom.current();
+        this.sectionCache = new WorldCollisionSectionCache();
+        this.rand = new Random(getRandomSeed(parent.getUuid()));
         this.mutablePos = new MutableBlockPos();
         this.tasks = new ArrayList<>();
         this.ticksSinceCacheUpdate = 25D;
         this.updateCollisionTasksCache = true;
         this.centerPotentialHit = null;
+        this.hitTransform = null;
+        this.hitShipBB = null;
+    }
+
+    /**
+     * Restarts the random numbers used to shuffle the collisions from the given seed. Only used to make runs
+     * outside of the game repeatable, ships are already seeded from their UUID.
+     */
+    public void setRandomSeed(long seed) {
+        rand.setSeed(seed);
+    }
+
+    private static long getRandomSeed(UUID shipID) {
+        return shipID.getMostSignificantBits() ^ shipID.getLeastSignificantBits();
     }
 
     public void tickUpdatingTheCollisionCache() {
@@ -100,6 +117,7 @@ public class WorldPhysicsCollider {
             .isNeedsCollisionCacheUpdate()) {
             updatePotentialCollisionCache();
             updateCollisionTasksCache = true;
+            parent.setNeedsCollisionCacheUpdate(false);
         }
     }
 
@@ -120,63 +138,43 @@ public class WorldPhysicsCollider {
     }
 
     public void processCollisionTask(ShipCollisionTask task) {
-        MutableBlockPos inWorldPos = new MutableBlockPos();
-        MutableBlockPos inLocalPos = new MutableBlockPos();
-
         Iterator<CollisionInformationHolder> collisionIterator = task
             .getCollisionInformationIterator();
 
         while (collisionIterator.hasNext()) {
             CollisionInformationHolder info = collisionIterator.next();
-            inWorldPos.setPos(info.inWorldX, info.inWorldY, info.inWorldZ);
-            inLocalPos.setPos(info.inLocalX, info.inLocalY, info.inLocalZ);
-            handleActualCollision(info.collider, inWorldPos, inLocalPos, info.inWorldState,
-                info.inLocalState);
+            handleActualCollision(info);
         }
 
-        /*
-         * for (CollisionInformationHolder info :
-         * task.getCollisionInformationGenerated()) { inWorldPos.setPos(info.inWorldX,
-         * info.inWorldY, info.inWorldZ); inLocalPos.setPos(info.inLocalX,
-         * info.inLocalY, info.inLocalZ); handleActualCollision(info.collider,
-         * inWorldPos, inLocalPos, info.inWorldState, info.inLocalState); }
-         */
-
-        task.getCollisionInformationGenerated().clear();
+        task.clearCollisionInformation();
     }
 
 
-    // Takes the collision data along all axes generated prior, and creates the
-    // ideal value that is to be followed
-    private boolean handleActualCollision(PhysPolygonCollider collider, BlockPos inWorldPos,
-        BlockPos inLocalPos,
-        IBlockState inWorldState, IBlockState inLocalState) {
-        PhysCollisionObject toCollideWith = collider.collisions[1];
-
-        if (toCollideWith.penetrationDistance > AXIS_TOLERANCE
-            || toCollideWith.penetrationDistance < -AXIS_TOLERANCE) {
-            toCollideWith = collider.collisions[collider.minDistanceIndex];
-        }
-
-        Vector3dc[] collisionPoints = PolygonCollisionPointFinder
-            .getPointsOfCollisionForPolygons(toCollideWith);
+    // Takes the collision data generated prior along the chosen axis, and applies the impulses at the
+    // points of collision
+    private void handleActualCollision(CollisionInformationHolder info) {
+        // TODO: We're oversolving for the collision here, but it prevents things going through eachother.
+        // The top and bottom contact points are each applied twice, same as PolygonCollisionPointFinder.
+        final int collisionPointsCount = 4;
+        double impulseApplied = 1.0 / collisionPointsCount;
 
-        double impulseApplied = 1.0 / collisionPoints.length;;
+        Vector3dc axis = info.collisionNormal;
+        Vector3d offsetVector = axis.mul(info.penetrationDistance, new Vector3d());
+        Vector3d inBody = new Vector3d();
 
-        for (Vector3dc collisionPos : collisionPoints) {
-            Vector3d inBody = new Vector3d(
-                    collisionPos.x() - parent.getShipTransform().getPosX(),
-                    collisionPos.y() - parent.getShipTransform().getPosY(),
-                    collisionPos.z() - parent.getShipTransform().getPosZ());
+        for (int i = 0; i < collisionPointsCount; i++) {
+            if (i % 2 == 0) {
+                inBody.set(info.topContactX, info.topContactY, info.topContactZ);
+            } else {
+                inBody.set(info.bottomContactX, info.bottomContactY, info.bottomContactZ);
+            }
+            inBody.sub(parent.getShipTransform().getPosX(), parent.getShipTransform().getPosY(),
+                parent.getShipTransform().getPosZ());
             Vector3d momentumAtPoint = calculator
                 .getVelocityAtPoint(inBody);
-            Vector3dc axis = toCollideWith.collision_normal;
-            Vector3d offsetVector = toCollideWith.getResponse();
             calculateCollisionImpulseForce(inBody, momentumAtPoint, axis, offsetVector, false,
                 false, impulseApplied);
         }
-
-        return false;
     }
 
     // Finally, the end of all this spaghetti code! This step takes all of the math
@@ -318,7 +316,7 @@ public class WorldPhysicsCollider {
         // This is being used to occasionally offset the collision cache update, in the
         // hopes this will prevent multiple ships from all updating
         // in the same tick
-        if (Math.random() > .5) {
+        if (rand.nextDouble() > .5) {
             ticksSinceCacheUpdate -= .05D;
         }
         int oldSize = cachedPotentialHits.size();
@@ -348,12 +346,6 @@ public class WorldPhysicsCollider {
             return;
         }
 
-        int chunkMinX = min.getX() >> 4;
-        int chunkMaxX = (max.getX() >> 4) + 1;
-        int chunkMinZ = min.getZ() >> 4;
-        int chunkMaxZ = (max.getZ() >> 4) + 1;
-        // long startTime = System.nanoTime();
-
         int minX = min.getX();
         int minY = min.getY();
         int minZ = min.getZ();
@@ -361,280 +353,218 @@ public class WorldPhysicsCollider {
         int maxY = max.getY();
         int maxZ = max.getZ();
 
-        // More multithreading!
-        if (parent.getBlockPositions().size() > 100) {
-            List<Triple<Integer, Integer, TIntList>> tasks = new ArrayList<>();
+        // Cast to double to avoid overflow errors
+        double size = ((double) ((maxX >> 4) - (minX >> 4) + 1)) * ((double) ((maxZ >> 4) - (minZ >> 4) + 1));
+        if (size > 300000) {
+            // Sanity check; don't execute the rest of the code because we'll just freeze the physics thread.
+            sectionCache.clear();
+            return;
+        }
 
-            for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
-                for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
-                    tasks.add(new ImmutableTriple<>(chunkX, chunkZ, new TIntArrayList()));
-                }
+        // Only the sections that entered the box, or had blocks changed, get scanned again.
+        List<WorldCollisionSectionCache.Section> sections = sectionCache
+            .update(cache, minX, minY, minZ, maxX, maxY, maxZ);
+
+        if (!areCachedHitsValid(currentPhysicsTransform, shipBB)) {
+            sectionCache.invalidateHits();
+            hitTransform = currentPhysicsTransform;
+            hitShipBB = shipBB.grow(HIT_CACHE_MARGIN);
+            hitShipBlocksVersion = getShipBlocksVersion();
+        }
+        // Only find the hits of the sections that are new, changed, or were invalidated
+        List<WorldCollisionSectionCache.Section> outdatedSections = new ArrayList<>();
+        for (WorldCollisionSectionCache.Section section : sections) {
+            if (!section.areHitsUpToDate()) {
+                outdatedSections.add(section);
             }
+        }
 
-            Consumer<Triple<Integer, Integer, TIntList>> consumer = i -> { // i is a Tuple<Integer, Integer>
-                // updateCollisionCacheParrallel(cache, cachedPotentialHits, i.getFirst(),
-                // i.getSecond(), minX, minY, minZ, maxX, maxY, maxZ);
-                updateCollisionCacheSequential(cache, i.getLeft(), i.getMiddle(), minX, minY, minZ,
-                    maxX, maxY, maxZ,
-                    shipBB, i.getRight());
-            };
+        // More multithreading!
+        if (parent.getBlockPositions().size() > 100) {
             try {
-                tasks.parallelStream().forEach(consumer);
+                outdatedSections.parallelStream().forEach(this::updateCollisionCacheForSection);
             } catch (Exception e) {
                 e.printStackTrace();
             }
-
-            tasks.forEach(task -> cachedPotentialHits.addAll(task.getRight()));
         } else {
-            // Cast to double to avoid overflow errors
-            double size = ((double) (chunkMaxX - chunkMinX)) * ((double) (chunkMaxZ - chunkMinZ));
-            if (size > 300000) {
-                // Sanity check; don't execute the rest of the code because we'll just freeze the physics thread.
-                return;
-            }
-            // TODO: VS thread freezes here.
-            for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
-                for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
-                    updateCollisionCacheSequential(cache, chunkX, chunkZ, minX, minY, minZ, maxX,
-                        maxY, maxZ, shipBB, cachedPotentialHits);
+            outdatedSections.forEach(this::updateCollisionCacheForSection);
+        }
+
+        for (WorldCollisionSectionCache.Section section : sections) {
+            TIntList hits = section.getHits();
+            for (int i = 0; i < hits.size(); i++) {
+                int packed = hits.get(i);
+                int x = section.getMinX() + (packed & 15);
+                int y = section.getMinY() + ((packed >> 4) & 15);
+                int z = section.getMinZ() + ((packed >> 8) & 15);
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ) {
+                    cachedPotentialHits.add(SpatialDetector.getHashWithRespectTo(x, y, z, centerPotentialHit));
                 }
             }
         }
     }
 
-    private void updateCollisionCacheSequential(ChunkCache cache, int chunkX, int chunkZ, int minX,
-        int minY, int minZ,
-        int maxX, int maxY, int maxZ, AxisAlignedBB shipBB, TIntList output) {
-        int arrayChunkX = chunkX - cache.chunkX;
-        int arrayChunkZ = chunkZ - cache.chunkZ;
-
-        if (!(arrayChunkX < 0 || arrayChunkZ < 0 || arrayChunkX > cache.chunkArray.length - 1
-            || arrayChunkZ > cache.chunkArray[0].length - 1)
-            && cache.chunkArray[arrayChunkX][arrayChunkZ] != null) {
-
-            Vector3d temp1 = new Vector3d();
-            Vector3d temp2 = new Vector3d();
-            Vector3d temp3 = new Vector3d();
-
-            Chunk chunk = cache.chunkArray[arrayChunkX][arrayChunkZ];
-            for (int storageY = minY >> 4; storageY <= maxY >> 4; storageY++) {
-                ExtendedBlockStorage extendedblockstorage = chunk.storageArrays[storageY];
-                if (extendedblockstorage != null) {
-                    int minStorageX = chunkX << 4;
-                    int minStorageY = storageY << 4;
-                    int minStorageZ = chunkZ << 4;
-
-                    int maxStorageX = minStorageX + 16;
-                    int maxStorageY = minStorageY + 16;
-                    int maxStorageZ = minStorageZ + 16;
-
-                    IBitOctreeProvider provider = (IBitOctreeProvider) extendedblockstorage.data;
-                    IBitOctree octree = provider.getBitOctree();
-
-                    if (USE_OCTREE_COLLISION) {
-                        for (int levelThree = 0; levelThree < 8; levelThree++) {
-                            int levelThreeIndex = octree.getOctreeLevelThreeIndex(levelThree);
-                            if (octree.getAtIndex(levelThreeIndex)) {
-                                for (int levelTwo = 0; levelTwo < 8; levelTwo++) {
-                                    int levelTwoIndex = octree
-                                        .getOctreeLevelTwoIndex(levelThreeIndex, levelTwo);
-                                    if (octree.getAtIndex(levelTwoIndex)) {
-                                        for (int levelOne = 0; levelOne < 8; levelOne++) {
-                                            int levelOneIndex = octree
-                                                .getOctreeLevelOneIndex(levelTwoIndex, levelOne);
-                                            if (octree.getAtIndex(levelOneIndex)) {
-
-                                                int baseX =
-                                                    ((levelThree % 2) * 8) + ((levelTwo % 2) * 4)
-                                                        + ((levelOne % 2) * 2);
-                                                int baseY = (((levelThree >> 1) % 2) * 8) + (
-                                                    ((levelTwo >> 1) % 2) * 4)
-                                                    + (((levelOne >> 1) % 2) * 2);
-                                                int baseZ = (((levelThree >> 2) % 2) * 8) + (
-                                                    ((levelTwo >> 2) % 2) * 4)
-                                                    + (((levelOne >> 2) % 2) * 2);
-
-                                                int x = baseX + minStorageX;
-                                                int y = baseY + minStorageY;
-                                                int z = baseZ + minStorageZ;
-
-                                                if (x >= minX && x <= maxX && y >= minY && y <= maxY
-                                                    && z >= minZ
-                                                    && z <= maxZ) {
-                                                    checkForCollision(x, y, z, extendedblockstorage,
-                                                        octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x, y, z + 1,
-                                                        extendedblockstorage, octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x, y + 1, z,
-                                                        extendedblockstorage, octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x, y + 1, z + 1,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y, z,
-                                                        extendedblockstorage, octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y, z + 1,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y + 1, z,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y + 1, z + 1,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    } else {
-                        for (int x = minStorageX; x < maxStorageX; x++) {
-                            for (int y = minStorageY; y < maxStorageY; y++) {
-                                for (int z = minStorageZ; z < maxStorageZ; z++) {
-                                    checkForCollision(x, y, z, extendedblockstorage, octree, temp1,
-                                        temp2, temp3,
-                                        shipBB, output);
-                                }
-                            }
-                        }
-                    }
-                }
+    /**
+     * The hits were found HIT_CACHE_MARGIN further out than needed, so they're still all of the potential hits as
+     * long as the ship blocks didn't change, the ship bounding box is still in the grown one they were found with,
+     * and no point near the ship moved further than HIT_CACHE_MARGIN since. The transform is affine, so the point
+     * that moved the furthest is one of the corners of the box around the ship blocks.
+     */
+    private boolean areCachedHitsValid(ShipTransform currentPhysicsTransform, AxisAlignedBB shipBB) {
+        if (hitTransform == null || getShipBlocksVersion() != hitShipBlocksVersion) {
+            return false;
+        }
+        if (shipBB.minX < hitShipBB.minX || shipBB.minY < hitShipBB.minY || shipBB.minZ < hitShipBB.minZ
+            || shipBB.maxX > hitShipBB.maxX || shipBB.maxY > hitShipBB.maxY || shipBB.maxZ > hitShipBB.maxZ) {
+            return false;
+        }
+        AxisAlignedBB subspaceBB = parent.getBlockPositions().makeAABB();
+        if (subspaceBB == null) {
+            return false;
+        }
+        subspaceBB = subspaceBB.expand(1, 1, 1).grow(RANGE_CHECK + HIT_CACHE_MARGIN);
+        Vector3d before = new Vector3d();
+        Vector3d after = new Vector3d();
+        for (int corner = 0; corner < 8; corner++) {
+            before.set((corner & 1) == 0 ? subspaceBB.minX : subspaceBB.maxX,
+                (corner & 2) == 0 ? subspaceBB.minY : subspaceBB.maxY,
+                (corner & 4) == 0 ? subspaceBB.minZ : subspaceBB.maxZ);
+            after.set(before);
+            hitTransform.transformPosition(before, TransformType.SUBSPACE_TO_GLOBAL);
+            currentPhysicsTransform.transformPosition(after, TransformType.SUBSPACE_TO_GLOBAL);
+            if (before.distanceSquared(after) > HIT_CACHE_MARGIN * HIT_CACHE_MARGIN) {
+                return false;
             }
         }
+        return true;
     }
 
-    private void checkForCollision(int x, int y, int z, ExtendedBlockStorage storage,
-        IBitOctree octree, Vector3d inLocal,
-        Vector3d inBody,
-        Vector3d speedInBody, AxisAlignedBB shipBB, TIntList output) {
-        if (octree.get(x & 15, y & 15, z & 15)) {
-            inLocal.x = x + .5D;
-            inLocal.y = y + .5D;
-            inLocal.z = z + .5D;
-            // TODO: Something
-            // parent.coordTransform.fromGlobalToLocal(inLocal);
-            if (inLocal.x > shipBB.minX && inLocal.x < shipBB.maxX && inLocal.y > shipBB.minY
-                && inLocal.y < shipBB.maxY
-                && inLocal.z > shipBB.minZ && inLocal.z < shipBB.maxZ) {
-                parent.getShipTransformationManager().getCurrentPhysicsTransform()
-                    .transformPosition(inLocal, TransformType.GLOBAL_TO_SUBSPACE);
-
-                inLocal.sub(parent.getCenterCoord(), inBody);
-                // parent.physicsProcessor.setVectorToVelocityAtPoint(inBody, speedInBody);
-                // speedInBody.multiply(-parent.physicsProcessor.getPhysicsTimeDeltaPerGameTick());
-
-                // TODO: This isnt ideal, but we do gain a lot of performance.
-                speedInBody.zero();
-
-                // double RANGE_CHECK = 1;
-
-                int minX, minY, minZ, maxX, maxY, maxZ;
-                if (speedInBody.x > 0) {
-                    minX = MathHelper.floor(inLocal.x - RANGE_CHECK);
-                    maxX = MathHelper.floor(inLocal.x + RANGE_CHECK + speedInBody.x);
-                } else {
-                    minX = MathHelper.floor(inLocal.x - RANGE_CHECK + speedInBody.x);
-                    maxX = MathHelper.floor(inLocal.x + RANGE_CHECK);
+    /**
+     * @return A number that changes whenever a ship block changes solidity, or a ship chunk section is added or
+     * replaced
+     */
+    private long getShipBlocksVersion() {
+        long version = 0;
+        for (Chunk chunk : parent.getClaimedChunkCache()) {
+            for (ExtendedBlockStorage storage : chunk.storageArrays) {
+                if (storage != null) {
+                    IBitOctree octree = ((IBitOctreeProvider) storage.getData()).getBitOctree();
+                    version += System.identityHashCode(storage) * 31L + octree.getModificationCount();
                 }
+            }
+        }
+        return version;
+    }
 
-                if (speedInBody.y > 0) {
-                    minY = MathHelper.floor(inLocal.y - RANGE_CHECK);
-                    maxY = MathHelper.floor(inLocal.y + RANGE_CHECK + speedInBody.y);
-                } else {
-                    minY = MathHelper.floor(inLocal.y - RANGE_CHECK + speedInBody.y);
-                    maxY = MathHelper.floor(inLocal.y + RANGE_CHECK);
-                }
+    /**
+     * Finds the solid blocks of the section that the ship may collide with while it stays near hitTransform.
+     */
+    private void updateCollisionCacheForSection(WorldCollisionSectionCache.Section section) {
+        Vector3d temp1 = new Vector3d();
+        Vector3d temp2 = new Vector3d();
+        Vector3d temp3 = new Vector3d();
+
+        TIntList solidBlocks = section.getSolidBlocks();
+        TIntList hits = section.getHits();
+        hits.clear();
+        for (int i = 0; i < solidBlocks.size(); i++) {
+            int packed = solidBlocks.get(i);
+            int x = section.getMinX() + (packed & 15);
+            int y = section.getMinY() + ((packed >> 4) & 15);
+            int z = section.getMinZ() + ((packed >> 8) & 15);
+
+            if (checkForCollision(x, y, z, temp1, temp2, temp3)) {
+                hits.add(packed);
+            }
+        }
+        section.setHitsUpToDate();
+    }
 
-                if (speedInBody.z > 0) {
-                    minZ = MathHelper.floor(inLocal.z - RANGE_CHECK);
-                    maxZ = MathHelper.floor(inLocal.z + RANGE_CHECK + speedInBody.z);
-                } else {
-                    minZ = MathHelper.floor(inLocal.z - RANGE_CHECK + speedInBody.z);
-                    maxZ = MathHelper.floor(inLocal.z + RANGE_CHECK);
-                }
+    /**
+     * @return True if the world block at x, y, z is within RANGE_CHECK + HIT_CACHE_MARGIN of a solid ship block,
+     * with the ship at hitTransform
+     */
+    private boolean checkForCollision(int x, int y, int z, Vector3d inLocal, Vector3d inBody,
+        Vector3d speedInBody) {
+        inLocal.x = x + .5D;
+        inLocal.y = y + .5D;
+        inLocal.z = z + .5D;
+        // TODO: Something
+        // parent.coordTransform.fromGlobalToLocal(inLocal);
+        if (inLocal.x > hitShipBB.minX && inLocal.x < hitShipBB.maxX && inLocal.y > hitShipBB.minY
+            && inLocal.y < hitShipBB.maxY
+            && inLocal.z > hitShipBB.minZ && inLocal.z < hitShipBB.maxZ) {
+            hitTransform.transformPosition(inLocal, TransformType.GLOBAL_TO_SUBSPACE);
+
+            inLocal.sub(parent.getCenterCoord(), inBody);
+            // parent.physicsProcessor.setVectorToVelocityAtPoint(inBody, speedInBody);
+            // speedInBody.multiply(-parent.physicsProcessor.getPhysicsTimeDeltaPerGameTick());
+
+            // TODO: This isnt ideal, but we do gain a lot of performance.
+            speedInBody.zero();
+
+            final double rangeCheck = RANGE_CHECK + HIT_CACHE_MARGIN;
+
+            int minX, minY, minZ, maxX, maxY, maxZ;
+            if (speedInBody.x > 0) {
+                minX = MathHelper.floor(inLocal.x - rangeCheck);
+                maxX = MathHelper.floor(inLocal.x + rangeCheck + speedInBody.x);
+            } else {
+                minX = MathHelper.floor(inLocal.x - rangeCheck + speedInBody.x);
+                maxX = MathHelper.floor(inLocal.x + rangeCheck);
+            }
 
-                minY = Math.min(255, Math.max(minY, 0));
-                maxY = Math.min(255, Math.max(maxY, 0));
-
-                // int localX = MathHelper.floor(inLocal.X);
-                // int localY = MathHelper.floor(inLocal.Y);
-                // int localZ = MathHelper.floor(inLocal.Z);
-
-                // tooTiredToName(localX, localY, localZ, x, y, z);
-                // if (false)
-                // maxX = Math.min(maxX, minX << 4);
-                // maxZ = Math.min(maxZ, minZ << 4);
-
-                Chunk chunkIn00 = parent.getChunkClaim().containsChunk(minX >> 4, minZ >> 4) ? parent.getChunkAt(minX >> 4, minZ >> 4) : null;
-                Chunk chunkIn01 = parent.getChunkClaim().containsChunk(minX >> 4, maxZ >> 4) ? parent.getChunkAt(minX >> 4, maxZ >> 4) : null;
-                Chunk chunkIn10 = parent.getChunkClaim().containsChunk(maxX >> 4, minZ >> 4) ? parent.getChunkAt(maxX >> 4, minZ >> 4) : null;
-                Chunk chunkIn11 = parent.getChunkClaim().containsChunk(maxX >> 4, maxZ >> 4) ? parent.getChunkAt(maxX >> 4, maxZ >> 4) : null;
-
-                breakThisLoop:
-                for (int localX = minX; localX < maxX; localX++) {
-                    for (int localZ = minZ; localZ < maxZ; localZ++) {
-                        Chunk theChunk;
-                        if (localX >> 4 == minX >> 4) {
-                            if (localZ >> 4 == minZ >> 4) {
-                                theChunk = chunkIn00;
-                            } else {
-                                theChunk = chunkIn01;
-                            }
-                        } else {
-                            if (localZ >> 4 == minZ >> 4) {
-                                theChunk = chunkIn10;
-                            } else {
-                                theChunk = chunkIn11;
-                            }
-                        }
-                        if (theChunk == null) {
-                            // No collision here
-                            continue;
-                        }
-                        for (int localY = minY; localY < maxY; localY++) {
-                            boolean result = checkForCollisionFast(theChunk, localX, localY,
-                                localZ, x, y, z, output);
-                            if (result) {
-                                break breakThisLoop;
-                            }
-
-                            /*
-                             * if (false) // TODO: This code isn't thread safe. try { boolean result =
-                             * tooTiredToName(localX, localY, localZ, x, y, z); if (result) { break
-                             * breakThisLoop; } } catch (Exception e) { e.printStackTrace(); }
-                             */
+            if (speedInBody.y > 0) {
+                minY = MathHelper.floor(inLocal.y - rangeCheck);
+                maxY = MathHelper.floor(inLocal.y + rangeCheck + speedInBody.y);
+            } else {
+                minY = MathHelper.floor(inLocal.y - rangeCheck + speedInBody.y);
+                maxY = MathHelper.floor(inLocal.y + rangeCheck);
+            }
+
+            if (speedInBody.z > 0) {
+                minZ = MathHelper.floor(inLocal.z - rangeCheck);
+                maxZ = MathHelper.floor(inLocal.z + rangeCheck + speedInBody.z);
+            } else {
+                minZ = MathHelper.floor(inLocal.z - rangeCheck + speedInBody.z);
+                maxZ = MathHelper.floor(inLocal.z + rangeCheck);
+            }
+
+            minY = Math.min(255, Math.max(minY, 0));
+            maxY = Math.min(255, Math.max(maxY, 0));
+
+            // The box only spans a few blocks, so at most 2 chunks and 2 storages along each axis. The max
+            // coordinates are exclusive.
+            for (int chunkX = minX >> 4; chunkX <= (maxX - 1) >> 4; chunkX++) {
+                for (int chunkZ = minZ >> 4; chunkZ <= (maxZ - 1) >> 4; chunkZ++) {
+                    Chunk chunk = parent.getClaimedChunkCache().getCachedChunk(chunkX, chunkZ);
+                    if (chunk == null) {
+                        // No collision here
+                        continue;
+                    }
+                    for (int storageY = minY >> 4; storageY <= (maxY - 1) >> 4; storageY++) {
+                        if (checkForCollisionFast(chunk, storageY, minX - (chunkX << 4), minY - (storageY << 4),
+                            minZ - (chunkZ << 4), maxX - 1 - (chunkX << 4), maxY - 1 - (storageY << 4),
+                            maxZ - 1 - (chunkZ << 4))) {
+                            return true;
                         }
                     }
                 }
             }
         }
+        return false;
     }
 
-    private boolean checkForCollisionFast(final Chunk chunk, final int localX, final int localY,
-        final int localZ,
-        final int x, final int y, final int z, final TIntList output) {
-        if (chunk.storageArrays[localY >> 4] != null) {
-            IBitOctreeProvider provider = (IBitOctreeProvider) chunk.storageArrays[localY >> 4]
-                .getData();
-            IBitOctree octreeInLocal = provider.getBitOctree();
-            if (octreeInLocal.get(localX & 15, localY & 15, localZ & 15)) {
-                int hash = SpatialDetector.getHashWithRespectTo(x, y, z, centerPotentialHit);
-                // Sometimes we end up adding to the hits array in multiple threads at once,
-                // crashing the physics.
-                try {
-                    output.add(hash);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                return true;
-                // break outermostloop;
-            }
-            // }
+    /**
+     * @return True if the given box, in the coordinates of the storage and clamped to it, has a solid block
+     */
+    private static boolean checkForCollisionFast(final Chunk chunk, final int storageY, final int minX,
+        final int minY, final int minZ, final int maxX, final int maxY, final int maxZ) {
+        ExtendedBlockStorage storage = chunk.storageArrays[storageY];
+        if (storage != null) {
+            IBitOctree octreeInLocal = ((IBitOctreeProvider) storage.getData()).getBitOctree();
+            return octreeInLocal.hasSetBitInBox(Math.max(minX, 0), Math.max(minY, 0), Math.max(minZ, 0),
+                Math.min(maxX, 15), Math.min(maxY, 15), Math.min(maxZ, 15));
         }
         return false;
     }
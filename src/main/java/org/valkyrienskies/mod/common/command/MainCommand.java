@@ -115,6 +115,14 @@ public class MainCommand implements Runnable {
                 double ticksPerSecondTwoDecimals = Math.floor(ticksPerSecond * 100) / 100;
                 sender.sendMessage(new TextComponentString(
                     "Player world: " + ticksPerSecondTwoDecimals + " physics ticks per second"));
+                sender.sendMessage(new TextComponentString(
+                    worldPhysicsThread.getSleepingShipCount() + " ships asleep, "
+                        + worldPhysicsThread.getShipsFallenAsleep() + " fell asleep and "
+                        + worldPhysicsThread.getShipsWokenUp() + " woke up since the world loaded"));
+                sender.sendMessage(new TextComponentString(
+                    worldPhysicsThread.getSubsteppedShipCount() + " ships substepped, "
+                        + worldPhysicsThread.getLongStepShipCount() + " ships on steps of up to "
+                        + worldPhysicsThread.getStepStretch() + " physics ticks"));
             }
         }
     }
@@ -56,6 +56,66 @@ public class VSConfig extends VSConfigTemplate {
     @RangeInt(min = 2)
     public static int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors() - 2);
 
+    @Name("Parallel Physics Islands")
+    @Comment({
+        "When true, ships whose bounding boxes can't touch each other are split into islands,",
+        "and each island runs its whole physics tick on a separate thread.",
+        "When false, every ship is ticked one after another on the physics thread.",
+        "Default is false."
+    })
+    public static boolean parallelPhysicsIslands = false;
+
+    @Name("Ship Sleep Ticks")
+    @Comment({
+            "The number of physics ticks in a row a ship has to spend at rest before it falls asleep.",
+            "Sleeping ships are skipped by the physics tick until a block change, an entity, a pilot",
+            "or one of their force blocks wakes them up. 0 disables sleeping.",
+            "Default is 100 physics ticks, one second."
+    })
+    @RangeInt(min = 0)
+    public static int shipSleepTicks = 100;
+
+    @Name("Ship Sleep Linear Velocity")
+    @Comment({
+            "A ship is at rest while it moves slower than this many blocks per second.",
+            "Default is 0.1."
+    })
+    public static double shipSleepLinearVelocity = .1;
+
+    @Name("Ship Sleep Angular Velocity")
+    @Comment({
+            "A ship is at rest while it rotates slower than this many radians per second.",
+            "Default is 0.05."
+    })
+    public static double shipSleepAngularVelocity = .05;
+
+    @Name("Physics Step Max Displacement")
+    @Comment({
+            "Ships whose fastest point would move more blocks than this in one physics tick are",
+            "split into several shorter steps, so they don't go through thin walls.",
+            "Default is 0.25 blocks."
+    })
+    @RangeDouble(min = .01)
+    public static double maxPhysicsStepDisplacement = .25;
+
+    @Name("Physics Max Substeps")
+    @Comment({
+            "The most steps a fast ship can be split into in one physics tick.",
+            "Default is 8."
+    })
+    @RangeInt(min = 1, max = 64)
+    public static int maxPhysicsSubsteps = 8;
+
+    @Name("Physics Max Step Time")
+    @Comment({
+            "When the physics thread falls behind, slow ships take a longer step every few physics ticks",
+            "instead of a step every tick. This is the most seconds such a step can simulate.",
+            "Set it to the time simulated each physics tick to never lengthen steps.",
+            "Default is 0.05 seconds, one game tick."
+    })
+    @RangeDouble(min = 0)
+    public static double maxPhysicsStepTime = .05;
+
     @Name("Max Detected Ship Size")
     @Comment({
             "The largest size ship a physics infuser will attempt to make.",
@@ -64,6 +124,15 @@ public class VSConfig extends VSConfigTemplate {
     })
     public static int maxDetectedShipSize = 15000;
 
+    @Name("Unloaded Ship Block Cache Size")
+    @Comment({
+            "How many unloaded ships keep their block positions in memory.",
+            "The block positions of the other unloaded ships are read back from disk when they start loading.",
+            "Default is 64."
+    })
+    @RangeInt(min = 0)
+    public static int unloadedShipBlockCacheSize = 64;
+
     @Name("Gravity Vector X")
     public static double gravityVecX = 0;
 
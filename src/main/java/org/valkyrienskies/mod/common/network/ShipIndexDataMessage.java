@@ -40,6 +40,10 @@ public class ShipIndexDataMessage implements IMessage {
         shipsToUnload.add(toUnload);
     }
 
+    public boolean isEmpty() {
+        return indexedData.isEmpty() && shipsToLoad.isEmpty() && shipsToUnload.isEmpty();
+    }
+
     public void setDimensionID(int dimensionID) {
         this.dimensionID = dimensionID;
     }
@@ -0,0 +1,157 @@
+package org.valkyrienskies.mod.common.network;
+
+import lombok.Getter;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Quaterniond;
+import org.joml.Quaterniondc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import valkyrienwarfare.api.TransformType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * The transform and bounding box of a ship in the quantized form sent by {@link ShipTransformUpdateMessage}. The
+ * server keeps the last state it sent for every ship and the client keeps the last state it received, so that
+ * updates can be sent as deltas between them.
+ * <p>
+ * Immutable.
+ */
+public final class ShipTransformStreamState {
+
+    // Positions are sent in 1/4096ths of a block
+    static final double POSITION_SCALE = 4096;
+    // Bounding boxes are sent in 1/16ths of a block, relative to the ship position
+    static final double AABB_SCALE = 16;
+    // Bits per quaternion component in the smallest three encoding
+    private static final int ROTATION_BITS = 18;
+    private static final long ROTATION_MAX = (1L << ROTATION_BITS) - 1;
+    private static final double SQRT_2 = Math.sqrt(2);
+
+    @Getter
+    final int sequence;
+    final long posX, posY, posZ;
+    // A smallest three quaternion, see packRotation()
+    final long rotation;
+    @Nonnull
+    final Vector3dc centerCoord;
+    // minX, minY, minZ, maxX, maxY, maxZ relative to the position
+    @Nonnull
+    final int[] aabb;
+
+    ShipTransformStreamState(int sequence, long posX, long posY, long posZ, long rotation,
+        @Nonnull Vector3dc centerCoord, @Nonnull int[] aabb) {
+        this.sequence = sequence;
+        this.posX = posX;
+        this.posY = posY;
+        this.posZ = posZ;
+        this.rotation = rotation;
+        this.centerCoord = centerCoord;
+        this.aabb = aabb;
+    }
+
+    /**
+     * Quantizes the given transform and bounding box.
+     *
+     * @param previous The last state sent for this ship, or null if none was
+     * @return previous if quantizing gave the same state as previous, otherwise a new state with the next sequence
+     * number.
+     */
+    @Nonnull
+    public static ShipTransformStreamState fromTransform(@Nonnull ShipTransform transform,
+        @Nonnull AxisAlignedBB shipBB, @Nullable ShipTransformStreamState previous) {
+        long posX = Math.round(transform.getPosX() * POSITION_SCALE);
+        long posY = Math.round(transform.getPosY() * POSITION_SCALE);
+        long posZ = Math.round(transform.getPosZ() * POSITION_SCALE);
+        long rotation = packRotation(transform.rotationQuaternion(TransformType.SUBSPACE_TO_GLOBAL));
+
+        // Round the bounding box outwards from the quantized position so that it never shrinks
+        double quantizedX = posX / POSITION_SCALE;
+        double quantizedY = posY / POSITION_SCALE;
+        double quantizedZ = posZ / POSITION_SCALE;
+        int[] aabb = new int[] {
+            (int) Math.floor((shipBB.minX - quantizedX) * AABB_SCALE),
+            (int) Math.floor((shipBB.minY - quantizedY) * AABB_SCALE),
+            (int) Math.floor((shipBB.minZ - quantizedZ) * AABB_SCALE),
+            (int) Math.ceil((shipBB.maxX - quantizedX) * AABB_SCALE),
+            (int) Math.ceil((shipBB.maxY - quantizedY) * AABB_SCALE),
+            (int) Math.ceil((shipBB.maxZ - quantizedZ) * AABB_SCALE)
+        };
+
+        if (previous != null && previous.posX == posX && previous.posY == posY && previous.posZ == posZ
+            && previous.rotation == rotation && previous.centerCoord.equals(transform.getCenterCoord())
+            && Arrays.equals(previous.aabb, aabb)) {
+            return previous;
+        }
+        int sequence = previous == null ? 0 : previous.sequence + 1;
+        return new ShipTransformStreamState(sequence, posX, posY, posZ, rotation,
+            new Vector3d(transform.getCenterCoord()), aabb);
+    }
+
+    @Nonnull
+    public ShipTransform toShipTransform() {
+        return new ShipTransform(posX / POSITION_SCALE, posY / POSITION_SCALE, posZ / POSITION_SCALE,
+            unpackRotation(rotation), centerCoord);
+    }
+
+    @Nonnull
+    public AxisAlignedBB toAABB() {
+        double x = posX / POSITION_SCALE;
+        double y = posY / POSITION_SCALE;
+        double z = posZ / POSITION_SCALE;
+        return new AxisAlignedBB(x + aabb[0] / AABB_SCALE, y + aabb[1] / AABB_SCALE, z + aabb[2] / AABB_SCALE,
+            x + aabb[3] / AABB_SCALE, y + aabb[4] / AABB_SCALE, z + aabb[5] / AABB_SCALE);
+    }
+
+    /**
+     * Packs a unit quaternion into 56 bits: the index of its largest component in the lowest 2 bits, followed by the
+     * other three components at {@link #ROTATION_BITS} bits each. The largest component is recovered from the other
+     * three, and its sign doesn't matter because q and -q are the same rotation.
+     */
+    static long packRotation(@Nonnull Quaterniondc rotation) {
+        double[] components = new double[] {rotation.x(), rotation.y(), rotation.z(), rotation.w()};
+        int largest = 0;
+        for (int i = 1; i < 4; i++) {
+            if (Math.abs(components[i]) > Math.abs(components[largest])) {
+                largest = i;
+            }
+        }
+        double sign = components[largest] < 0 ? -1 : 1;
+
+        long packed = largest;
+        int shift = 2;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) {
+                continue;
+            }
+            // The other components are within [-1/sqrt(2), 1/sqrt(2)], map them to [0, ROTATION_MAX]
+            double normalized = (components[i] * sign * SQRT_2 + 1) / 2;
+            long quantized = Math.max(0, Math.min(ROTATION_MAX, Math.round(normalized * ROTATION_MAX)));
+            packed |= quantized << shift;
+            shift += ROTATION_BITS;
+        }
+        return packed;
+    }
+
+    @Nonnull
+    static Quaterniond unpackRotation(long packed) {
+        int largest = (int) (packed & 3);
+        double[] components = new double[4];
+        double sumOfSquares = 0;
+        int shift = 2;
+        for (int i = 0; i < 4; i++) {
+            if (i == largest) {
+                continue;
+            }
+            long quantized = (packed >>> shift) & ROTATION_MAX;
+            components[i] = ((double) quantized / ROTATION_MAX * 2 - 1) / SQRT_2;
+            sumOfSquares += components[i] * components[i];
+            shift += ROTATION_BITS;
+        }
+        components[largest] = Math.sqrt(Math.max(0, 1 - sumOfSquares));
+        return new Quaterniond(components[0], components[1], components[2], components[3]).normalize();
+    }
+}
@@ -0,0 +1,189 @@
+package org.valkyrienskies.mod.common.network;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.Getter;
+import net.minecraft.network.PacketBuffer;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.util.JOML;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * The update of one ship in a {@link ShipTransformUpdateMessage}. It is either a keyframe, which holds the whole
+ * {@link ShipTransformStreamState}, or a delta against the state with the previous sequence number, which only holds
+ * what changed:
+ * <pre>
+ * uuid       16 bytes
+ * flags      1 byte
+ * sequence   varint
+ * position   3 zigzag varlongs, absolute in keyframes and relative to the previous state otherwise
+ * rotation   7 bytes, smallest three quaternion
+ * center     3 doubles
+ * aabb       6 zigzag varints
+ * </pre>
+ * Everything after the sequence is only present if its flag is set.
+ */
+public class ShipTransformUpdate {
+
+    private static final int KEYFRAME = 1;
+    private static final int POSITION = 1 << 1;
+    private static final int ROTATION = 1 << 2;
+    private static final int CENTER = 1 << 3;
+    private static final int AABB = 1 << 4;
+
+    @Getter
+    private final UUID shipID;
+    private final int flags;
+    private final int sequence;
+    private final long posX, posY, posZ;
+    private final long rotation;
+    @Nullable
+    private final Vector3dc centerCoord;
+    @Nullable
+    private final int[] aabb;
+
+    private ShipTransformUpdate(UUID shipID, int flags, int sequence, long posX, long posY, long posZ,
+        long rotation, @Nullable Vector3dc centerCoord, @Nullable int[] aabb) {
+        this.shipID = shipID;
+        this.flags = flags;
+        this.sequence = sequence;
+        this.posX = posX;
+        this.posY = posY;
+        this.posZ = posZ;
+        this.rotation = rotation;
+        this.centerCoord = centerCoord;
+        this.aabb = aabb;
+    }
+
+    /**
+     * Encodes an update from previous to state. The returned buffer is only read from afterwards, so it can be
+     * shared by the messages of every player watching the ship.
+     *
+     * @param previous The state every receiver already has, or null to encode a keyframe. Must have the sequence
+     *                 number right before the one of state.
+     */
+    @Nonnull
+    public static ByteBuf encode(@Nonnull UUID shipID, @Nullable ShipTransformStreamState previous,
+        @Nonnull ShipTransformStreamState state) {
+        if (previous != null && previous.sequence != state.sequence - 1) {
+            throw new IllegalArgumentException("Can't encode a delta from sequence " + previous.sequence
+                + " to sequence " + state.sequence);
+        }
+        int flags;
+        if (previous == null) {
+            flags = KEYFRAME | POSITION | ROTATION | CENTER | AABB;
+        } else {
+            flags = 0;
+            if (previous.posX != state.posX || previous.posY != state.posY || previous.posZ != state.posZ) {
+                flags |= POSITION;
+            }
+            if (previous.rotation != state.rotation) {
+                flags |= ROTATION;
+            }
+            if (!previous.centerCoord.equals(state.centerCoord)) {
+                flags |= CENTER;
+            }
+            if (!Arrays.equals(previous.aabb, state.aabb)) {
+                flags |= AABB;
+            }
+        }
+
+        PacketBuffer buffer = new PacketBuffer(Unpooled.buffer(32));
+        buffer.writeUniqueId(shipID);
+        buffer.writeByte(flags);
+        buffer.writeVarInt(state.sequence);
+        if ((flags & POSITION) != 0) {
+            long baseX = previous == null ? 0 : previous.posX;
+            long baseY = previous == null ? 0 : previous.posY;
+            long baseZ = previous == null ? 0 : previous.posZ;
+            buffer.writeVarLong(zigZag(state.posX - baseX));
+            buffer.writeVarLong(zigZag(state.posY - baseY));
+            buffer.writeVarLong(zigZag(state.posZ - baseZ));
+        }
+        if ((flags & ROTATION) != 0) {
+            buffer.writeMedium((int) (state.rotation >>> 32));
+            buffer.writeInt((int) state.rotation);
+        }
+        if ((flags & CENTER) != 0) {
+            JOML.writeToByteBuf(state.centerCoord, buffer);
+        }
+        if ((flags & AABB) != 0) {
+            for (int value : state.aabb) {
+                buffer.writeVarInt(zigZag(value));
+            }
+        }
+        return buffer;
+    }
+
+    @Nonnull
+    public static ShipTransformUpdate read(@Nonnull PacketBuffer buffer) {
+        UUID shipID = buffer.readUniqueId();
+        int flags = buffer.readUnsignedByte();
+        int sequence = buffer.readVarInt();
+        long posX = 0, posY = 0, posZ = 0;
+        if ((flags & POSITION) != 0) {
+            posX = unZigZag(buffer.readVarLong());
+            posY = unZigZag(buffer.readVarLong());
+            posZ = unZigZag(buffer.readVarLong());
+        }
+        long rotation = 0;
+        if ((flags & ROTATION) != 0) {
+            rotation = ((long) buffer.readUnsignedMedium() << 32) | buffer.readUnsignedInt();
+        }
+        Vector3dc centerCoord = null;
+        if ((flags & CENTER) != 0) {
+            centerCoord = JOML.readFromByteBuf(buffer);
+        }
+        int[] aabb = null;
+        if ((flags & AABB) != 0) {
+            aabb = new int[6];
+            for (int i = 0; i < 6; i++) {
+                aabb[i] = unZigZag(buffer.readVarInt());
+            }
+        }
+        return new ShipTransformUpdate(shipID, flags, sequence, posX, posY, posZ, rotation, centerCoord, aabb);
+    }
+
+    /**
+     * @param previous The last state received for this ship, or null if none was
+     * @return The state after this update, or null if this is a delta that doesn't apply to previous. In that case the
+     * receiver has to wait for the next keyframe.
+     */
+    @Nullable
+    public ShipTransformStreamState applyTo(@Nullable ShipTransformStreamState previous) {
+        if ((flags & KEYFRAME) != 0) {
+            return new ShipTransformStreamState(sequence, posX, posY, posZ, rotation, centerCoord, aabb);
+        }
+        if (previous == null || previous.sequence != sequence - 1) {
+            return null;
+        }
+        boolean hasPosition = (flags & POSITION) != 0;
+        return new ShipTransformStreamState(sequence,
+            hasPosition ? previous.posX + posX : previous.posX,
+            hasPosition ? previous.posY + posY : previous.posY,
+            hasPosition ? previous.posZ + posZ : previous.posZ,
+            (flags & ROTATION) != 0 ? rotation : previous.rotation,
+            centerCoord != null ? centerCoord : previous.centerCoord,
+            aabb != null ? aabb : previous.aabb);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
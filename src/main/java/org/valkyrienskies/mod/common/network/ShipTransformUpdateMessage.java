@@ -0,0 +1,63 @@
+package org.valkyrienskies.mod.common.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.PacketBuffer;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends the transforms of the ships a player is watching, encoded by {@link ShipTransformUpdate}. The full ShipData is
+ * only sent by {@link ShipIndexDataMessage} when a player starts watching a ship or when something other than the
+ * transform changed.
+ */
+public class ShipTransformUpdateMessage implements IMessage {
+
+    // Encoded updates, shared between the messages of every player watching the same ship. Never modified.
+    private final List<ByteBuf> encodedUpdates;
+    final List<ShipTransformUpdate> updates;
+    int dimensionID;
+
+    public ShipTransformUpdateMessage() {
+        this.encodedUpdates = new ArrayList<>();
+        this.updates = new ArrayList<>();
+        this.dimensionID = -1;
+    }
+
+    /**
+     * @param encodedUpdate A buffer made by {@link ShipTransformUpdate#encode}, it is copied from but never modified.
+     */
+    public void addEncodedUpdate(ByteBuf encodedUpdate) {
+        encodedUpdates.add(encodedUpdate);
+    }
+
+    public boolean isEmpty() {
+        return encodedUpdates.isEmpty();
+    }
+
+    public void setDimensionID(int dimensionID) {
+        this.dimensionID = dimensionID;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        PacketBuffer packetBuffer = new PacketBuffer(buf);
+        dimensionID = packetBuffer.readInt();
+        int numberOfUpdates = packetBuffer.readVarInt();
+        for (int i = 0; i < numberOfUpdates; i++) {
+            updates.add(ShipTransformUpdate.read(packetBuffer));
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        PacketBuffer packetBuffer = new PacketBuffer(buf);
+        packetBuffer.writeInt(dimensionID);
+        packetBuffer.writeVarInt(encodedUpdates.size());
+        for (ByteBuf encodedUpdate : encodedUpdates) {
+            // Don't move the reader index, the same buffer is written into the messages of other players
+            packetBuffer.writeBytes(encodedUpdate, encodedUpdate.readerIndex(), encodedUpdate.readableBytes());
+        }
+    }
+}
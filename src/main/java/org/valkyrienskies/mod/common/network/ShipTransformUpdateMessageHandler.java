@@ -0,0 +1,34 @@
+package org.valkyrienskies.mod.common.network;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.IThreadListener;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+import org.valkyrienskies.mod.client.better_portals_compatibility.ClientWorldTracker;
+import org.valkyrienskies.mod.common.ships.ship_world.WorldClientShipManager;
+import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+
+public class ShipTransformUpdateMessageHandler implements IMessageHandler<ShipTransformUpdateMessage, IMessage> {
+
+    @Override
+    @SuppressWarnings("Convert2Lambda")
+    // Why do you not use a lambda? Because lambdas are compiled and this causes NoClassDefFound
+    // errors. DON'T USE A LAMBDA
+    public IMessage onMessage(ShipTransformUpdateMessage message, MessageContext ctx) {
+        IThreadListener mainThread = Minecraft.getMinecraft();
+        mainThread.addScheduledTask(new Runnable() {
+            @Override
+            public void run() {
+                World world = ClientWorldTracker.getWorldFor(message.dimensionID);
+                WorldClientShipManager shipManager = (WorldClientShipManager) ValkyrienUtils.getPhysObjWorld(world);
+                for (ShipTransformUpdate update : message.updates) {
+                    shipManager.onTransformUpdate(update);
+                }
+            }
+        });
+
+        return null;
+    }
+}
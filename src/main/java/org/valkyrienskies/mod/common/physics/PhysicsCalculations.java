@@ -3,6 +3,7 @@ package org.valkyrienskies.mod.common.physics;
 import lombok.Getter;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.joml.*;
@@ -12,6 +13,7 @@ import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.collision.WorldPhysicsCollider;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.util.multithreaded.PhysicsStepController;
 import valkyrienwarfare.api.TransformType;
 
 import java.lang.Math;
@@ -43,6 +45,33 @@ public class PhysicsCalculations {
     @Getter
     private final Vector3d angularVelocity;
 
+    // Whether a force provider, torque provider or physics controller pushed the ship this physics tick
+    private boolean blockForcesActive;
+    // The number of physics ticks in a row the ship spent at rest
+    private int ticksAtRest;
+    /**
+     * Sleeping ships are left out of the physics tick until something wakes them up, see {@link
+     * #updateSleepState(double)}.
+     */
+    @Getter
+    private volatile boolean sleeping;
+    private volatile boolean wakeUpRequested;
+    /**
+     * The number of steps the ship took in the latest physics tick, 0 if it waits for a longer step to end. See
+     * {@link #planPhysicsSteps(PhysicsStepController, double)}.
+     */
+    @Getter
+    private volatile int physicsSteps;
+    /**
+     * The time simulated by each of the latest {@link #physicsSteps}.
+     */
+    @Getter
+    private volatile double physicsStepTimeDelta;
+    // The physics ticks left before the latest longer step ends
+    private int ticksUntilNextStep;
+    // Spreads the longer steps of the slow ships over different physics ticks
+    private final int stepPhase;
+
     public PhysicsCalculations(PhysicsObject parent) {
         this.parent = parent;
         this.worldCollision = new WorldPhysicsCollider(this);
@@ -55,6 +84,14 @@ public class PhysicsCalculations {
 
         this.physCenterOfMass = new Vector3d();
         this.torque = new Vector3d();
+        this.blockForcesActive = false;
+        this.ticksAtRest = 0;
+        this.sleeping = false;
+        this.wakeUpRequested = false;
+        this.physicsSteps = 1;
+        this.physicsStepTimeDelta = VSConfig.timeSimulatedPerPhysicsTick;
+        this.ticksUntilNextStep = 0;
+        this.stepPhase = parent.getShipData().getUuid().hashCode();
 
         generatePhysicsTransform();
     }
@@ -76,6 +113,7 @@ public class PhysicsCalculations {
     }
 
     public void rawPhysTickPreCol(double physTickTimeDelta) {
+        blockForcesActive = false;
         updatePhysSpeedAndIters(physTickTimeDelta);
         updatePhysCenterOfMass();
         calculateFramedMOITensor();
@@ -109,8 +147,7 @@ public class PhysicsCalculations {
         getParent().getShipTransformationManager().updatePreviousPhysicsTransform();
         getParent().getShipTransformationManager().setCurrentPhysicsTransform(finalPhysTransform);
         // Save a copy of linear and angular velocity in parent's ShipData
-        getParent().getShipData().getPhysicsData().setAngularVelocity(new Vector3d(angularVelocity));
-        getParent().getShipData().getPhysicsData().setLinearVelocity(new Vector3d(linearVelocity));
+        getParent().getShipData().getPhysicsData().setVelocities(linearVelocity, angularVelocity);
     }
 
     // If the ship is moving at these speeds, its likely something in the physics
@@ -176,7 +213,14 @@ public class PhysicsCalculations {
     private void calculateForces() {
         applyAirDrag();
         applyGravity();
+        applyBlockForces();
+    }
 
+    /**
+     * Applies the forces and torques of the physics controllers, force providers and torque providers in the ship,
+     * and sets {@link #blockForcesActive} if any of them did something.
+     */
+    private void applyBlockForces() {
         Vector3d blockForce = new Vector3d();
         Vector3d inBodyWO = new Vector3d();
         Vector3d crossVector = new Vector3d();
@@ -187,10 +231,16 @@ public class PhysicsCalculations {
             Queue<IPhysicsBlockController> nodesPriorityQueue = new PriorityQueue<>(
                     parent.getPhysicsControllersInShip());
 
+            Vector3dc linearVelocityBefore = new Vector3d(linearVelocity);
+            Vector3dc angularVelocityBefore = new Vector3d(angularVelocity);
             while (nodesPriorityQueue.size() > 0) {
                 IPhysicsBlockController controller = nodesPriorityQueue.poll();
                 controller.onPhysicsTick(parent, this, this.getPhysicsTimeDeltaPerPhysTick());
             }
+            if (!linearVelocity.equals(linearVelocityBefore) || !angularVelocity.equals(angularVelocityBefore)
+                || torque.lengthSquared() > EPSILON) {
+                blockForcesActive = true;
+            }
 
             SortedMap<IBlockTorqueProvider, List<BlockPos>> torqueProviders = new TreeMap<>();
 
@@ -207,6 +257,9 @@ public class PhysicsCalculations {
                         BlockPhysicsDetails.getForceFromState(state, mutablePos, worldObj,
                                 getPhysicsTimeDeltaPerPhysTick(),
                                 getParent(), blockForce);
+                        if (blockForce.lengthSquared() > EPSILON) {
+                            blockForcesActive = true;
+                        }
 
                         Vector3dc otherPosition = ((IBlockForceProvider) blockAt)
                                 .getCustomBlockForcePosition(worldObj,
@@ -248,6 +301,9 @@ public class PhysicsCalculations {
                     Vector3dc torqueVector = torqueProviderBlock
                             .getTorqueInGlobal(this, pos);
                     if (torqueVector != null) {
+                        if (torqueVector.lengthSquared() > EPSILON) {
+                            blockForcesActive = true;
+                        }
                         torque.add(torqueVector);
                     }
                 }
@@ -257,6 +313,112 @@ public class PhysicsCalculations {
         convertTorqueToVelocity();
     }
 
+    /**
+     * Wakes the ship up at its next physics tick. Can be called from any thread.
+     */
+    public void wakeUp() {
+        wakeUpRequested = true;
+    }
+
+    /**
+     * Called by the physics thread before every physics tick of a ship with physics enabled. A sleeping ship only
+     * runs its physics controllers, force providers and torque providers, and wakes up once one of them does
+     * something.
+     *
+     * @return True if the ship is asleep, and should be left out of this physics tick
+     */
+    public boolean updateSleepState(double physTickTimeDelta) {
+        if (wakeUpRequested || parent.isShipAligningToGrid()) {
+            wakeUpRequested = false;
+            sleeping = false;
+            ticksAtRest = 0;
+            return false;
+        }
+        if (!sleeping) {
+            return false;
+        }
+        blockForcesActive = false;
+        updatePhysSpeedAndIters(physTickTimeDelta);
+        calculateFramedMOITensor();
+        applyBlockForces();
+        // A sleeping ship doesn't move, the forces only decide whether it wakes up
+        getLinearVelocity().zero();
+        getAngularVelocity().zero();
+        if (blockForcesActive) {
+            sleeping = false;
+            ticksAtRest = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called by the physics thread after every physics tick of an awake ship. Puts the ship to sleep once it spent
+     * {@link VSConfig#shipSleepTicks} physics ticks in a row below the sleep velocities, with nothing in the ship
+     * pushing it.
+     *
+     * @return True if the ship fell asleep
+     */
+    public boolean updateRestState() {
+        double maxLinearVelocity = VSConfig.shipSleepLinearVelocity;
+        double maxAngularVelocity = VSConfig.shipSleepAngularVelocity;
+        boolean atRest = VSConfig.shipSleepTicks > 0 && !blockForcesActive && !parent.isShipAligningToGrid()
+            && getLinearVelocity().lengthSquared() < maxLinearVelocity * maxLinearVelocity
+            && getAngularVelocity().lengthSquared() < maxAngularVelocity * maxAngularVelocity;
+        // A longer step counts for every physics tick it covers
+        ticksAtRest = atRest ? ticksAtRest + 1 + ticksUntilNextStep : 0;
+        if (!atRest || ticksAtRest < VSConfig.shipSleepTicks) {
+            return false;
+        }
+        ticksAtRest = 0;
+        ticksUntilNextStep = 0;
+        sleeping = true;
+        getLinearVelocity().zero();
+        getAngularVelocity().zero();
+        getParent().getShipData().getPhysicsData().setVelocities(new Vector3d(), new Vector3d());
+        return true;
+    }
+
+    /**
+     * Called by the physics thread before every physics tick of an awake ship. Decides how many steps the ship takes
+     * this physics tick, and the time each of them simulates, from how fast the ship moves. The ship then runs
+     * {@link #rawPhysTickPreCol(double)} to {@link #rawPhysTickPostCol()} once for every step.
+     *
+     * @return The number of steps, 0 if the ship is still covered by an earlier longer step
+     */
+    public int planPhysicsSteps(PhysicsStepController stepController, double physTickTimeDelta) {
+        if (ticksUntilNextStep > 0 && !parent.isShipAligningToGrid()) {
+            ticksUntilNextStep--;
+            physicsSteps = 0;
+            return 0;
+        }
+        ticksUntilNextStep = 0;
+        double maxPointSpeed = getMaxPointSpeed();
+        int substeps = stepController.getSubsteps(maxPointSpeed, physTickTimeDelta);
+        if (substeps > 1 || parent.isShipAligningToGrid()) {
+            physicsSteps = substeps;
+            physicsStepTimeDelta = physTickTimeDelta / substeps;
+        } else {
+            int stepLength = stepController.getStepLength(maxPointSpeed, physTickTimeDelta, stepPhase);
+            physicsSteps = 1;
+            physicsStepTimeDelta = physTickTimeDelta * stepLength;
+            ticksUntilNextStep = stepLength - 1;
+        }
+        return physicsSteps;
+    }
+
+    /**
+     * @return The speed of the point of the ship bounding box farthest from the center of mass, in blocks per second
+     */
+    private double getMaxPointSpeed() {
+        AxisAlignedBB shipBB = parent.getShipBB();
+        double halfX = (shipBB.maxX - shipBB.minX) / 2;
+        double halfY = (shipBB.maxY - shipBB.minY) / 2;
+        double halfZ = (shipBB.maxZ - shipBB.minZ) / 2;
+        double radius = Math.sqrt(halfX * halfX + halfY * halfY + halfZ * halfZ);
+        return getLinearVelocity().length() + getAngularVelocity().length() * radius;
+    }
+
     private void applyGravity() {
         if (VSConfig.doGravity) {
             addForceAtPoint(new Vector3d(),
@@ -3,8 +3,10 @@ package org.valkyrienskies.mod.common.ships;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
-import com.googlecode.cqengine.query.Query;
-import com.googlecode.cqengine.resultset.ResultSet;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import lombok.extern.log4j.Log4j2;
 import mcp.MethodsReturnNonnullByDefault;
 import net.minecraft.util.math.BlockPos;
@@ -12,66 +14,85 @@ import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 import org.valkyrienskies.mod.common.config.VSConfig;
 
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
 import org.valkyrienskies.mod.common.ships.interpolation.ITransformInterpolator;
 import org.valkyrienskies.mod.common.ships.ship_world.IPhysObjectWorld;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
-import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
-import org.valkyrienskies.mod.common.util.cqengine.UpdatableHashIndex;
-import org.valkyrienskies.mod.common.util.cqengine.UpdatableUniqueIndex;
 
+import javax.annotation.Nullable;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-import static com.googlecode.cqengine.query.QueryFactory.equal;
-
 /**
  * A class that keeps track of ship data
+ * <p>
+ * Ships are indexed by UUID, name and the center of their chunk claim. Writers change the indexes under a lock. Readers
+ * iterate over an immutable snapshot of the ships, which is only rebuilt by the first iteration after a change, so
+ * every change made during a tick costs a single rebuild. Lookups by UUID, name or chunk read the snapshot when it's up
+ * to date, and the indexes under the lock when it isn't, so they never rebuild it.
+ * <p>
+ * Every claim stays inside of the region the {@link ShipChunkAllocator} reserved around its center, so a chunk is
+ * looked up by the center of its region, and then checked against the claim of the ship found there. Growing and
+ * shrinking a claim doesn't change the indexes, so the snapshot only costs O(ships) to rebuild, no matter how many
+ * chunks the ships claim.
  */
 @MethodsReturnNonnullByDefault
 @Log4j2
 @SuppressWarnings("WeakerAccess")
 public class QueryableShipData implements Iterable<ShipData> {
 
+    // Guards the indexes below
+    private final transient Object writeLock = new Object();
     // Where every ship data instance is stored, regardless if the corresponding PhysicsObject is
     // loaded in the World or not.
-    private ConcurrentUpdatableIndexedCollection<ShipData> allShips;
+    private final transient Map<UUID, ShipData> shipsByID;
+    private final transient Map<String, ShipData> shipsByName;
+    // By the center of their chunk claim, as a chunk long
+    private final transient TLongObjectMap<ShipData> shipsByClaim;
+    // Null whenever the indexes changed since it was built
+    @Nullable
+    private transient volatile Snapshot snapshot;
+    private final transient List<BiConsumer<Iterable<ShipData>, Iterable<ShipData>>> updateListeners;
 
     public QueryableShipData() {
-        this(new ConcurrentUpdatableIndexedCollection<>());
+        this(null);
     }
 
     @JsonCreator // This tells Jackson to pass in allShips when serializing
     // The default thing that is passed in will be 'null' if none exists
-    public QueryableShipData(
-        @JsonProperty("allShips") ConcurrentUpdatableIndexedCollection<ShipData> ships) {
-
-        if (ships == null) {
-            ships = new ConcurrentUpdatableIndexedCollection<>();
-        }
-
-        this.allShips = ships;
-
-        // For every ship data, set the 'owner' field to us -- kinda hacky but what can I do
-        // I don't want to serialize a billion references to this
-        // This probably only needs to be done once per world, so this is fine
-        this.allShips.forEach(data -> {
-            try {
-                Field owner = ShipData.class.getDeclaredField("owner");
-                owner.setAccessible(true);
-                owner.set(data, this.allShips);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                e.printStackTrace();
-                throw new RuntimeException(e);
-            }
-        });
+    public QueryableShipData(@JsonProperty("allShips") @Nullable Collection<ShipData> ships) {
+        this.shipsByID = new LinkedHashMap<>();
+        this.shipsByName = new HashMap<>();
+        this.shipsByClaim = new TLongObjectHashMap<>();
+        this.snapshot = null;
+        this.updateListeners = new CopyOnWriteArrayList<>();
 
-        this.allShips.addIndex(UpdatableHashIndex.onAttribute(ShipData.NAME));
-        this.allShips.addIndex(UpdatableUniqueIndex.onAttribute(ShipData.UUID));
-        this.allShips.addIndex(UpdatableUniqueIndex.onAttribute(ShipData.CHUNKS));
+        if (ships != null) {
+            for (ShipData ship : ships) {
+                // For every ship data, set the 'owner' field to us -- kinda hacky but what can I do
+                // I don't want to serialize a billion references to this
+                // This probably only needs to be done once per world, so this is fine
+                setOwner(ship, this);
+                index(ship);
+            }
+        }
+    }
 
+    private static void setOwner(ShipData data, QueryableShipData owner) {
+        try {
+            Field ownerField = ShipData.class.getDeclaredField("owner");
+            ownerField.setAccessible(true);
+            ownerField.set(data, owner);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
     }
 
     /**
@@ -81,23 +102,32 @@ public class QueryableShipData implements Iterable<ShipData> {
         return ValkyrienUtils.getQueryableData(world);
     }
 
-    /**
-     * @deprecated Do not use -- thinking of better API choices
-     */
-    @Deprecated
-    public ConcurrentUpdatableIndexedCollection<ShipData> getAllShips() {
-        return allShips;
-    }
-
     /**
      * Retrieves a list of all ships.
      */
+    @JsonProperty("allShips")
     public List<ShipData> getShips() {
-        return ImmutableList.copyOf(allShips);
+        return getSnapshot().ships;
     }
 
     public Optional<ShipData> getShipFromChunk(int chunkX, int chunkZ) {
-        return getShipFromChunk(ChunkPos.asLong(chunkX, chunkZ));
+        if (!ShipChunkAllocator.isChunkInShipyard(chunkX, chunkZ)) {
+            return Optional.empty();
+        }
+        long claimCenter = ShipChunkAllocator.getClaimCenter(chunkX, chunkZ);
+        ShipData ship;
+        Snapshot current = snapshot;
+        if (current != null) {
+            ship = current.shipsByClaim.get(claimCenter);
+        } else {
+            synchronized (writeLock) {
+                ship = shipsByClaim.get(claimCenter);
+            }
+        }
+        if (ship == null || !ship.getChunkClaim().containsChunk(chunkX, chunkZ)) {
+            return Optional.empty();
+        }
+        return Optional.of(ship);
     }
 
     public Optional<ShipData> getShipFromBlock(BlockPos pos) {
@@ -105,56 +135,76 @@ public class QueryableShipData implements Iterable<ShipData> {
     }
 
     public Optional<ShipData> getShipFromChunk(long chunkLong) {
-        Query<ShipData> query = equal(ShipData.CHUNKS, chunkLong);
-        try (ResultSet<ShipData> resultSet = allShips.retrieve(query)) {
-            if (resultSet.size() > 1) {
-                throw new IllegalStateException(
-                    "How the heck did we get 2 or more ships both managing the chunk at "
-                        + chunkLong);
-            }
-            if (resultSet.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(resultSet.uniqueResult());
-            }
-        }
+        return getShipFromChunk(VSChunkClaim.getChunkX(chunkLong), VSChunkClaim.getChunkZ(chunkLong));
     }
 
     public Optional<ShipData> getShip(UUID uuid) {
-        Query<ShipData> query = equal(ShipData.UUID, uuid);
-        try (ResultSet<ShipData> resultSet = allShips.retrieve(query)) {
-            if (resultSet.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(resultSet.uniqueResult());
-            }
+        Snapshot current = snapshot;
+        if (current != null) {
+            return Optional.ofNullable(current.shipsByID.get(uuid));
+        }
+        synchronized (writeLock) {
+            return Optional.ofNullable(shipsByID.get(uuid));
         }
     }
 
     public Optional<ShipData> getShipFromName(String name) {
-        Query<ShipData> query = equal(ShipData.NAME, name);
-        try (ResultSet<ShipData> shipDataResultSet = allShips.retrieve(query)) {
-            if (shipDataResultSet.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(shipDataResultSet.uniqueResult());
-            }
+        Snapshot current = snapshot;
+        if (current != null) {
+            return Optional.ofNullable(current.shipsByName.get(name));
+        }
+        synchronized (writeLock) {
+            return Optional.ofNullable(shipsByName.get(name));
         }
     }
 
     public void removeShip(UUID uuid) {
-        getShip(uuid).ifPresent(ship -> allShips.remove(ship));
+        getShip(uuid).ifPresent(this::removeShip);
     }
 
     public void removeShip(ShipData data) {
-        allShips.remove(data);
+        synchronized (writeLock) {
+            if (!unindex(data)) {
+                return;
+            }
+        }
+        fireUpdate(Collections.singletonList(data), Collections.emptyList());
+    }
+
+    /**
+     * Changes the chunks claimed by ship. The indexes only have the center of the claim, so they stay as they are.
+     */
+    public void updateChunkClaim(ShipData ship, Consumer<VSChunkClaim> claimUpdater) {
+        claimUpdater.accept(ship.getChunkClaim());
+        ship.markDirty();
+    }
+
+    /**
+     * Adds a ShipData read from disk, replacing the ShipData with the same UUID if there is one.
+     */
+    public void addSavedShip(ShipData ship) {
+        setOwner(ship, this);
+        ShipData replaced;
+        List<ShipData> removed;
+        synchronized (writeLock) {
+            replaced = shipsByID.get(ship.getUuid());
+            if (replaced != null) {
+                unindex(replaced);
+            }
+            index(ship);
+        }
+        removed = replaced == null ? Collections.emptyList() : Collections.singletonList(replaced);
+        fireUpdate(removed, Collections.singletonList(ship));
     }
 
     public void addShip(ShipData ship) {
         if (VSConfig.showAnnoyingDebugOutput) {
             System.out.println(ship.getName());
         }
-        allShips.add(ship);
+        synchronized (writeLock) {
+            index(ship);
+        }
+        fireUpdate(Collections.emptyList(), Collections.singletonList(ship));
     }
 
     /**
@@ -179,19 +229,36 @@ public class QueryableShipData implements Iterable<ShipData> {
             // old.get().setName(ship.getName());
             old.get().setPhysicsEnabled(ship.isPhysicsEnabled());
             // Update inertia data
-            old.get().getInertiaData().setGameMoITensor(ship.getInertiaData().getGameMoITensor());
-            old.get().getInertiaData().setGameTickMass(ship.getInertiaData().getGameTickMass());
-            old.get().getInertiaData().setGameTickCenterOfMass(ship.getInertiaData().getGameTickCenterOfMass());
+            old.get().getInertiaData().set(ship.getInertiaData());
+            // The server grows and shrinks the chunk claim as the ship is built
+            if (!old.get().getChunkClaim().equals(ship.getChunkClaim())) {
+                TLongSet oldChunks = old.get().getChunkClaim().getClaimedChunks();
+                TLongSet newChunks = ship.getChunkClaim().getClaimedChunks();
+                TLongSet claimed = new TLongHashSet(newChunks);
+                claimed.removeAll(oldChunks);
+                TLongSet released = new TLongHashSet(oldChunks);
+                released.removeAll(newChunks);
+
+                updateChunkClaim(old.get(), claim -> claim.updateChunkClaims(claimed, released));
+                if (physicsObject != null) {
+                    physicsObject.onChunkClaimChanged(claimed, released);
+                    ValkyrienUtils.getPhysObjWorld(world).onShipChunkClaimChanged(physicsObject);
+                }
+            }
             return old.get();
         } else {
-            this.allShips.add(ship);
+            addShip(ship);
             return ship;
         }
     }
 
+    /**
+     * @param updateListener Called with the removed and the added ships whenever ships are added, removed or
+     *                       replaced, on the thread that changed them.
+     */
     public void registerUpdateListener(
         BiConsumer<Iterable<ShipData>, Iterable<ShipData>> updateListener) {
-        allShips.registerUpdateListener(updateListener);
+        updateListeners.add(updateListener);
     }
 
     /**
@@ -201,7 +268,20 @@ public class QueryableShipData implements Iterable<ShipData> {
      * @param newData The new data object(s)
      */
     public void updateShipData(Iterable<ShipData> oldData, Iterable<ShipData> newData) {
-        this.allShips.update(oldData, newData);
+        List<ShipData> removed = new ArrayList<>();
+        List<ShipData> added = new ArrayList<>();
+        synchronized (writeLock) {
+            for (ShipData ship : oldData) {
+                if (unindex(ship)) {
+                    removed.add(ship);
+                }
+            }
+            for (ShipData ship : newData) {
+                index(ship);
+                added.add(ship);
+            }
+        }
+        fireUpdate(removed, added);
     }
 
     /**
@@ -214,12 +294,115 @@ public class QueryableShipData implements Iterable<ShipData> {
         this.updateShipData(Collections.singleton(oldData), Collections.singleton(newData));
     }
 
+    /**
+     * Called by {@link ShipData#setName(String)}.
+     */
+    void onShipRenamed(ShipData ship, @Nullable String oldName) {
+        synchronized (writeLock) {
+            if (shipsByID.get(ship.getUuid()) != ship) {
+                return;
+            }
+            if (oldName != null && shipsByName.get(oldName) == ship) {
+                shipsByName.remove(oldName);
+            }
+            if (ship.getName() != null) {
+                shipsByName.put(ship.getName(), ship);
+            }
+            snapshot = null;
+        }
+    }
+
     @Override
     public Iterator<ShipData> iterator() {
-        return allShips.iterator();
+        return getShips().iterator();
     }
 
     public Stream<ShipData> stream() {
-        return allShips.stream();
+        return getShips().stream();
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (writeLock) {
+                current = snapshot;
+                if (current == null) {
+                    current = new Snapshot(shipsByID, shipsByName, shipsByClaim);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Must hold writeLock.
+     */
+    private void index(ShipData ship) {
+        if (shipsByID.containsKey(ship.getUuid())) {
+            throw new IllegalStateException("There already is a ship with the UUID of " + ship);
+        }
+        long claimCenter = getClaimCenter(ship);
+        if (shipsByClaim.containsKey(claimCenter)) {
+            throw new IllegalStateException(
+                "How the heck did we get 2 or more ships both managing the chunk claim at " + ship.getChunkClaim());
+        }
+        shipsByID.put(ship.getUuid(), ship);
+        if (ship.getName() != null) {
+            shipsByName.put(ship.getName(), ship);
+        }
+        shipsByClaim.put(claimCenter, ship);
+        snapshot = null;
+    }
+
+    /**
+     * Must hold writeLock.
+     *
+     * @return True if ship was indexed
+     */
+    private boolean unindex(ShipData ship) {
+        if (shipsByID.get(ship.getUuid()) != ship) {
+            return false;
+        }
+        shipsByID.remove(ship.getUuid());
+        if (ship.getName() != null && shipsByName.get(ship.getName()) == ship) {
+            shipsByName.remove(ship.getName());
+        }
+        long claimCenter = getClaimCenter(ship);
+        if (shipsByClaim.get(claimCenter) == ship) {
+            shipsByClaim.remove(claimCenter);
+        }
+        snapshot = null;
+        return true;
+    }
+
+    private static long getClaimCenter(ShipData ship) {
+        ChunkPos center = ship.getChunkClaim().getCenterPos();
+        return ShipChunkAllocator.getClaimCenter(center.x, center.z);
+    }
+
+    private void fireUpdate(Iterable<ShipData> removed, Iterable<ShipData> added) {
+        for (BiConsumer<Iterable<ShipData>, Iterable<ShipData>> listener : updateListeners) {
+            listener.accept(removed, added);
+        }
+    }
+
+    /**
+     * An immutable copy of the indexes.
+     */
+    private static class Snapshot {
+
+        final List<ShipData> ships;
+        final Map<UUID, ShipData> shipsByID;
+        final Map<String, ShipData> shipsByName;
+        final TLongObjectMap<ShipData> shipsByClaim;
+
+        Snapshot(Map<UUID, ShipData> shipsByID, Map<String, ShipData> shipsByName,
+            TLongObjectMap<ShipData> shipsByClaim) {
+            this.ships = ImmutableList.copyOf(shipsByID.values());
+            this.shipsByID = new HashMap<>(shipsByID);
+            this.shipsByName = new HashMap<>(shipsByName);
+            this.shipsByClaim = new TLongObjectHashMap<>(shipsByClaim);
+        }
     }
 }
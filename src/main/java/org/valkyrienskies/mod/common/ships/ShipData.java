@@ -2,9 +2,6 @@ package org.valkyrienskies.mod.common.ships;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.googlecode.cqengine.attribute.Attribute;
-import com.googlecode.cqengine.attribute.MultiValueAttribute;
-import com.googlecode.cqengine.query.option.QueryOptions;
 import lombok.*;
 import net.minecraft.util.math.AxisAlignedBB;
 import org.joml.Vector3d;
@@ -13,7 +10,6 @@ import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
 import org.valkyrienskies.mod.common.ships.physics_data.ShipPhysicsData;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.ships.ship_world.IPhysObjectWorld;
-import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
 import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSet;
 import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSetAABB;
 import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSet;
@@ -22,11 +18,8 @@ import org.valkyrienskies.mod.common.util.jackson.annotations.PacketIgnore;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Set;
 import java.util.UUID;
-
-import static com.googlecode.cqengine.query.QueryFactory.attribute;
-import static com.googlecode.cqengine.query.QueryFactory.nullableAttribute;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * One of these objects will represent a ship. You can obtain a physics object for that ship (if one
@@ -40,7 +33,13 @@ public class ShipData {
      * The {@link QueryableShipData} that manages this
      */
     @Getter(AccessLevel.NONE)
-    private final transient ConcurrentUpdatableIndexedCollection<ShipData> owner;
+    private final transient QueryableShipData owner;
+
+    /**
+     * Whether this changed since it was last saved, see {@link #markDirty()}
+     */
+    @Getter(AccessLevel.NONE)
+    private final transient AtomicBoolean dirty = new AtomicBoolean(true);
 
     // region Data Fields
 
@@ -54,7 +53,8 @@ public class ShipData {
 
     /**
      * Do not use this for anything client side! Contains all of the non-air block positions on the ship.
-     * This is used for generating AABBs and deconstructing the ship.
+     * This is used for generating AABBs and deconstructing the ship. Null on the server while the ship is unloaded and
+     * its block positions are paged out to disk.
      */
     @PacketIgnore
     @Nullable
@@ -64,6 +64,7 @@ public class ShipData {
 
     /**
      * Do not use this for anything client side! Contains all the positions of force producing blocks on the ship.
+     * Null whenever {@link #blockPositions} is.
      */
     @PacketIgnore
     @Nullable
@@ -71,19 +72,15 @@ public class ShipData {
     @JsonDeserialize(as = SmallBlockPosSet.class)
     public IBlockPosSet activeForcePositions;
 
-    @Setter
     private ShipTransform shipTransform;
 
-    @Setter
     private ShipTransform prevTickShipTransform;
 
-    @Setter
     private AxisAlignedBB shipBB;
 
     /**
      * Whether or not physics are enabled on this physo
      */
-    @Setter
     private boolean physicsEnabled;
 
     /**
@@ -103,7 +100,7 @@ public class ShipData {
 
     // endregion
 
-    private ShipData(@NonNull ConcurrentUpdatableIndexedCollection<ShipData> owner,
+    private ShipData(@NonNull QueryableShipData owner,
                     ShipPhysicsData physicsData, @Nonnull ShipInertiaData inertiaData, @NonNull ShipTransform shipTransform, @NonNull ShipTransform prevTickShipTransform, @NonNull AxisAlignedBB shipBB,
                     boolean physicsEnabled, @NonNull VSChunkClaim chunkClaim, @NonNull UUID uuid, @NonNull String name) {
         this.owner = owner;
@@ -122,7 +119,27 @@ public class ShipData {
         this.activeForcePositions = new SmallBlockPosSet(chunkClaim.getCenterPos().getXStart(), chunkClaim.getCenterPos().getZStart());
     }
 
-    public static ShipData createData(ConcurrentUpdatableIndexedCollection<ShipData> owner,
+    /**
+     * Copies everything that can change, shares the immutable transforms and bounding box.
+     */
+    private ShipData(ShipData toCopy) {
+        this.owner = toCopy.owner;
+        // The physics thread keeps publishing the velocities while this runs
+        this.physicsData = toCopy.physicsData.copy();
+        this.inertiaData = new ShipInertiaData();
+        this.inertiaData.set(toCopy.inertiaData);
+        this.blockPositions = toCopy.blockPositions == null ? null : toCopy.blockPositions.copy();
+        this.activeForcePositions = toCopy.activeForcePositions == null ? null : toCopy.activeForcePositions.copy();
+        this.shipTransform = toCopy.shipTransform;
+        this.prevTickShipTransform = toCopy.prevTickShipTransform;
+        this.shipBB = toCopy.shipBB;
+        this.physicsEnabled = toCopy.physicsEnabled;
+        this.chunkClaim = toCopy.chunkClaim.copy();
+        this.uuid = toCopy.uuid;
+        this.name = toCopy.name;
+    }
+
+    public static ShipData createData(QueryableShipData owner,
         String name, VSChunkClaim chunkClaim, UUID shipID,
         ShipTransform shipTransform,
         AxisAlignedBB aabb) {
@@ -134,23 +151,73 @@ public class ShipData {
     // region Setters
 
     public ShipData setName(String name) {
+        String oldName = this.name;
         this.name = name;
-        owner.updateObjectIndices(this, NAME);
+        owner.onShipRenamed(this, oldName);
+        markDirty();
         return this;
     }
 
-    // endregion
+    public void setShipTransform(ShipTransform shipTransform) {
+        if (!shipTransform.equals(this.shipTransform)) {
+            this.shipTransform = shipTransform;
+            markDirty();
+        }
+    }
+
+    public void setPrevTickShipTransform(ShipTransform prevTickShipTransform) {
+        if (!prevTickShipTransform.equals(this.prevTickShipTransform)) {
+            this.prevTickShipTransform = prevTickShipTransform;
+            markDirty();
+        }
+    }
 
-    // region Attributes
+    public void setShipBB(AxisAlignedBB shipBB) {
+        if (!shipBB.equals(this.shipBB)) {
+            this.shipBB = shipBB;
+            markDirty();
+        }
+    }
 
-    public static final Attribute<ShipData, String> NAME = nullableAttribute(ShipData::getName);
-    public static final Attribute<ShipData, UUID> UUID = attribute(ShipData::getUuid);
-    public static final Attribute<ShipData, Long> CHUNKS = new MultiValueAttribute<ShipData, Long>() {
-        @Override
-        public Set<Long> getValues(ShipData physo, QueryOptions queryOptions) {
-            return physo.getChunkClaim().getClaimedChunks();
+    public void setPhysicsEnabled(boolean physicsEnabled) {
+        if (physicsEnabled != this.physicsEnabled) {
+            this.physicsEnabled = physicsEnabled;
+            markDirty();
         }
-    };
+    }
+
+    /**
+     * Must be called from the game thread, the block positions and chunk claim are only changed from there.
+     *
+     * @return A copy of this that later changes to this don't affect, so that it can be serialized on another thread.
+     */
+    public ShipData createSnapshot() {
+        return new ShipData(this);
+    }
+
+    /**
+     * Marks this as changed since it was last saved. The setters of this class already do this, anything that
+     * changes the block positions, inertia data or chunk claim must call this itself.
+     */
+    public void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * @return True if this changed since it was last saved
+     */
+    public boolean isDirty() {
+        return dirty.get();
+    }
+
+    /**
+     * Marks this as saved.
+     *
+     * @return True if this changed since it was last saved
+     */
+    public boolean clearDirty() {
+        return dirty.getAndSet(false);
+    }
 
     // endregion
 }
@@ -21,8 +21,11 @@ public class ShipDataMethods {
 
     /**
      * Updates the physics data/force positions of shipData.
+     *
+     * @return False if the block positions of shipData are paged out, then nothing was changed. The change has to be
+     * replayed once they're read back.
      */
-    public void onSetBlockState(@Nonnull ShipData shipData, @Nonnull BlockPos pos,  @Nonnull IBlockState oldState, @Nonnull IBlockState newState) {
+    public boolean onSetBlockState(@Nonnull ShipData shipData, @Nonnull BlockPos pos,  @Nonnull IBlockState oldState, @Nonnull IBlockState newState) {
         if (shipData == null || newState == null || oldState == null || pos == null) {
             throw new IllegalArgumentException("One of the arguments of this function was null!\nArgs are " + shipData + ", " + newState + ", " + oldState + ", " + pos);
         }
@@ -33,6 +36,10 @@ public class ShipDataMethods {
                     + ", but this ISN'T a part of the ship " + shipData);
         }
 
+        if (shipData.blockPositions == null) {
+            return false;
+        }
+
         if (newState.equals(Blocks.AIR.getDefaultState())) {
             shipData.getBlockPositions().remove(pos);
         } else {
@@ -46,5 +53,7 @@ public class ShipDataMethods {
         }
 
         centerOfMassProvider.onSetBlockState(shipData.getInertiaData(), pos, oldState, newState);
+        shipData.markDirty();
+        return true;
     }
 }
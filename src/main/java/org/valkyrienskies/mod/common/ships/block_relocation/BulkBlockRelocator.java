@@ -0,0 +1,166 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves blocks by a whole number of blocks one 16x16x16 section at a time, instead of one block at a time like {@link
+ * MoveBlocks#copyBlockToPos(World, BlockPos, BlockPos, org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject)}.
+ * <p>
+ * A section that lines up with an empty section at the destination has its palette data copied as is, which needs an
+ * offset that is a multiple of 16 along every axis. Any other section is split into the parts that land in each of
+ * the (up to 8) destination sections, and each part is copied block by block straight between the two section
+ * storages, without going through the world. Once everything is copied, {@link #finish()} rebuilds the height map and
+ * sky light of every destination chunk once, and sends each of them to its watchers as a single chunk packet.
+ */
+public class BulkBlockRelocator {
+
+    private final World world;
+    private final BlockPos offset;
+    // The chunks blocks were copied into
+    private final TLongObjectHashMap<Chunk> destinationChunks;
+
+    /**
+     * @param offset Added to the position of every block moved
+     */
+    public BulkBlockRelocator(@Nonnull World world, @Nonnull BlockPos offset) {
+        this.world = world;
+        this.offset = offset;
+        this.destinationChunks = new TLongObjectHashMap<>();
+    }
+
+    /**
+     * Copies every non air block and tile entity of sourceChunk.
+     */
+    public void relocateChunk(@Nonnull Chunk sourceChunk) {
+        for (int storageIndex = 0; storageIndex < sourceChunk.storageArrays.length; storageIndex++) {
+            relocateSection(sourceChunk, storageIndex);
+        }
+        // Copy the tile entities once their blocks are in place
+        List<BlockPos> tilePositions = new ArrayList<>(sourceChunk.getTileEntityMap().keySet());
+        for (BlockPos oldPos : tilePositions) {
+            MoveBlocks.copyTileEntityToPos(world, oldPos, oldPos.add(offset), null);
+        }
+    }
+
+    /**
+     * Copies the non air blocks of a section of sourceChunk, without their tile entities.
+     */
+    public void relocateSection(@Nonnull Chunk sourceChunk, int storageIndex) {
+        ExtendedBlockStorage source = sourceChunk.storageArrays[storageIndex];
+        if (source == Chunk.NULL_BLOCK_STORAGE || source.isEmpty()) {
+            return;
+        }
+        int destinationX = (sourceChunk.x << 4) + offset.getX();
+        int destinationY = (storageIndex << 4) + offset.getY();
+        int destinationZ = (sourceChunk.z << 4) + offset.getZ();
+
+        if ((destinationX & 15) == 0 && (destinationY & 15) == 0 && (destinationZ & 15) == 0
+            && destinationY >= 0 && destinationY < 256) {
+            Chunk destinationChunk = getDestinationChunk(destinationX >> 4, destinationZ >> 4);
+            int destinationIndex = destinationY >> 4;
+            ExtendedBlockStorage destination = destinationChunk.storageArrays[destinationIndex];
+            if (destination == Chunk.NULL_BLOCK_STORAGE || destination.isEmpty()) {
+                // The section lines up with an empty section, so copy its palette data as is
+                byte[] blockIds = new byte[4096];
+                NibbleArray data = new NibbleArray();
+                NibbleArray blockIdExtension = source.getData().getDataForNBT(blockIds, data);
+                ExtendedBlockStorage copy = new ExtendedBlockStorage(destinationY, world.provider.hasSkyLight());
+                copy.getData().setDataFromNBT(blockIds, data, blockIdExtension);
+                copy.recalculateRefCounts();
+                destinationChunk.storageArrays[destinationIndex] = copy;
+                return;
+            }
+        }
+
+        // Otherwise the section is spread over up to 8 destination sections, copy the part that lands in each
+        for (int sectionX = destinationX >> 4; sectionX <= (destinationX + 15) >> 4; sectionX++) {
+            for (int sectionZ = destinationZ >> 4; sectionZ <= (destinationZ + 15) >> 4; sectionZ++) {
+                for (int sectionY = Math.max(destinationY >> 4, 0); sectionY <= Math.min((destinationY + 15) >> 4,
+                    15); sectionY++) {
+                    copySectionPart(source, destinationX, destinationY, destinationZ, sectionX, sectionY, sectionZ);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the non air blocks of source that land in the destination section at sectionX, sectionY, sectionZ when
+     * the minimum corner of source is moved to destinationX, destinationY, destinationZ.
+     */
+    private void copySectionPart(ExtendedBlockStorage source, int destinationX, int destinationY, int destinationZ,
+        int sectionX, int sectionY, int sectionZ) {
+        // The part of source that lands in the destination section, in the coordinates of source
+        int minX = Math.max((sectionX << 4) - destinationX, 0);
+        int minY = Math.max((sectionY << 4) - destinationY, 0);
+        int minZ = Math.max((sectionZ << 4) - destinationZ, 0);
+        int maxX = Math.min((sectionX << 4) + 15 - destinationX, 15);
+        int maxY = Math.min((sectionY << 4) + 15 - destinationY, 15);
+        int maxZ = Math.min((sectionZ << 4) + 15 - destinationZ, 15);
+
+        ExtendedBlockStorage destination = null;
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                for (int y = minY; y <= maxY; y++) {
+                    IBlockState state = source.get(x, y, z);
+                    if (state.getBlock() == Blocks.AIR) {
+                        continue;
+                    }
+                    if (destination == null) {
+                        Chunk destinationChunk = getDestinationChunk(sectionX, sectionZ);
+                        if (destinationChunk.storageArrays[sectionY] == Chunk.NULL_BLOCK_STORAGE) {
+                            destinationChunk.storageArrays[sectionY] = new ExtendedBlockStorage(sectionY << 4,
+                                world.provider.hasSkyLight());
+                        }
+                        destination = destinationChunk.storageArrays[sectionY];
+                    }
+                    destination.set((destinationX + x) & 15, (destinationY + y) & 15, (destinationZ + z) & 15,
+                        state);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the height map and sky light of every chunk blocks were copied into, and sends each of them to the
+     * players watching it.
+     */
+    public void finish() {
+        destinationChunks.forEachValue(chunk -> {
+            chunk.generateSkylightMap();
+            chunk.markDirty();
+            if (world instanceof WorldServer) {
+                PlayerChunkMapEntry entry = ((WorldServer) world).getPlayerChunkMap().getEntry(chunk.x, chunk.z);
+                if (entry != null && entry.isSentToPlayers()) {
+                    entry.sendPacket(new SPacketChunkData(chunk, 65535));
+                }
+            }
+            return true;
+        });
+        destinationChunks.clear();
+    }
+
+    private Chunk getDestinationChunk(int chunkX, int chunkZ) {
+        long chunkLong = ChunkPos.asLong(chunkX, chunkZ);
+        Chunk chunk = destinationChunks.get(chunkLong);
+        if (chunk == null) {
+            chunk = world.getChunk(chunkX, chunkZ);
+            destinationChunks.put(chunkLong, chunk);
+        }
+        return chunk;
+    }
+}
@@ -46,6 +46,7 @@ public class MoveBlocks {
         // If this block is force block, then add it to the activeForcePositions list of the ship.
         if (physicsObject != null && BlockPhysicsDetails.isBlockProvidingForce(newState)) {
             physicsObject.getShipData().activeForcePositions.add(newPos);
+            physicsObject.getShipData().markDirty();
         }
 
         // Now that we've copied the block to the position, copy the tile entity
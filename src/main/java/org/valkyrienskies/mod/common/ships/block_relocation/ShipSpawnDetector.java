@@ -7,7 +7,6 @@ import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.world.World;
 import org.valkyrienskies.mod.common.config.VSConfig;
 
@@ -33,8 +32,6 @@ public class ShipSpawnDetector extends SpatialDetector {
             .forEach(blacklist::add);
     }
 
-    private final MutableBlockPos mutablePos = new MutableBlockPos();
-
     ShipSpawnDetector(BlockPos start, World worldIn, int maximum, boolean checkCorners) {
         super(start, worldIn, maximum, checkCorners);
         // syncWithConfig();
@@ -42,9 +39,7 @@ public class ShipSpawnDetector extends SpatialDetector {
     }
 
     @Override
-    public boolean isValidExpansion(int x, int y, int z) {
-        mutablePos.setPos(x, y, z);
-        IBlockState state = cache.getBlockState(mutablePos);
+    protected boolean isValidExpansion(IBlockState state) {
         if (state.getBlock() == Blocks.BEDROCK) {
             cleanHouse = true;
             return false;
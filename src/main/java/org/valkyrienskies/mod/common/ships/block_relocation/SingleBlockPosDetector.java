@@ -1,5 +1,6 @@
 package org.valkyrienskies.mod.common.ships.block_relocation;
 
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
@@ -16,8 +17,9 @@ public class SingleBlockPosDetector extends SpatialDetector {
     }
 
     @Override
-    public boolean isValidExpansion(int x, int y, int z) {
-        return x == firstBlock.getX() && y == firstBlock.getY() && z == firstBlock.getZ();
+    protected boolean isValidExpansion(IBlockState state) {
+        // The first block is always found, nothing else is
+        return false;
     }
 
 }
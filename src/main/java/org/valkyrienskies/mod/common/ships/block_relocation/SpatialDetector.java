@@ -1,17 +1,25 @@
 package org.valkyrienskies.mod.common.ships.block_relocation;
 
 import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.set.hash.TIntHashSet;
 import java.util.ArrayList;
 import java.util.List;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.MutableBlockPos;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
 /**
- * Used to efficiently detect a connected set of blocks TODO: Incorporate a scanline technique to
- * improve detection speed
+ * Used to efficiently detect a connected set of blocks.
+ * <p>
+ * The detection volume is every chunk within 128 blocks of the start along x and z. It is kept as a bitset per 16x16x16
+ * section, created the first time the fill reaches that section, and blocks are read straight from the section storage.
+ * The fill itself is a scanline fill: it fills whole spans of valid blocks along the x axis at once, then looks for
+ * unfound blocks in the rows next to each span.
  *
  * @author thebest108
  */
@@ -20,25 +28,39 @@ public abstract class SpatialDetector {
     public static final int maxRange = 512;
     public static final int maxRangeHalved = maxRange / 2;
     public static final int maxRangeSquared = maxRange * maxRange;
+    // How far from the start along x and z blocks can be detected, rounded up to whole chunks
+    private static final int detectionRadius = 128;
+
     public final TIntHashSet foundSet = new TIntHashSet(250);
     public final BlockPos firstBlock;
-    public final MutableBlockPos tempPos = new MutableBlockPos();
-    public final ChunkCache cache;
     public final World worldObj;
     public final int maxSize;
     public final boolean corners;
-    public TIntHashSet nextQueue = new TIntHashSet();
-    // public int totalCalls = 0;
     public boolean cleanHouse = false;
 
+    // The world position of the local (0, 0, 0) of the detection volume
+    private final int originX, originZ;
+    private final int sizeX, sizeZ;
+    // Indexed by sectionIndex(), null until the fill reaches that section
+    private final DetectionSection[] sections;
+    // Packed local positions of the blocks spans still have to be filled from
+    private final TIntArrayList seeds = new TIntArrayList();
+    private int foundCount = 0;
+
     public SpatialDetector(BlockPos start, World worldIn, int maximum, boolean checkCorners) {
         firstBlock = start;
         worldObj = worldIn;
         maxSize = maximum;
         corners = checkCorners;
-        BlockPos minPos = new BlockPos(start.getX() - 128, 0, start.getZ() - 128);
-        BlockPos maxPos = new BlockPos(start.getX() + 128, 255, start.getZ() + 128);
-        cache = new ChunkCache(worldIn, minPos, maxPos, 0);
+        int minChunkX = (start.getX() - detectionRadius) >> 4;
+        int minChunkZ = (start.getZ() - detectionRadius) >> 4;
+        int maxChunkX = (start.getX() + detectionRadius) >> 4;
+        int maxChunkZ = (start.getZ() + detectionRadius) >> 4;
+        originX = minChunkX << 4;
+        originZ = minChunkZ << 4;
+        sizeX = (maxChunkX - minChunkX + 1) << 4;
+        sizeZ = (maxChunkZ - minChunkZ + 1) << 4;
+        sections = new DetectionSection[(sizeX >> 4) * (sizeZ >> 4) * 16];
     }
 
     public static int getHashWithRespectTo(int realX, int realY, int realZ, BlockPos start) {
@@ -88,106 +110,172 @@ public abstract class SpatialDetector {
     }
 
     protected void calculateSpatialOccupation() {
-        nextQueue
-            .add(firstBlock.getY() + maxRange * maxRangeHalved + maxRangeSquared * maxRangeHalved);
-        MutableBlockPos inRealWorld = new MutableBlockPos();
-        int hash;
-        while (!nextQueue.isEmpty() && !cleanHouse) {
-            TIntIterator queueIter = nextQueue.iterator();
-            foundSet.addAll(nextQueue);
-            nextQueue = new TIntHashSet();
-            while (queueIter.hasNext()) {
-                hash = queueIter.next();
-                setPosWithRespectTo(hash, firstBlock, inRealWorld);
-                if (corners) {
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() - 1,
-                        hash - maxRange - 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash - maxRange - 1);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() + 1,
-                        hash - maxRange - 1 + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash - maxRange - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash - maxRange);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash - maxRange + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() - 1,
-                        hash - maxRange + 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash - maxRange + 1);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() + 1,
-                        hash - maxRange + 1 + maxRangeSquared);
-
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ() - 1,
-                        hash - 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash - 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ() + 1,
-                        hash - 1 + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ() - 1,
-                        hash + 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash + 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ() + 1,
-                        hash + 1 + maxRangeSquared);
-
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() - 1,
-                        hash + maxRange - 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash + maxRange - 1);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() - 1,
-                        inRealWorld.getZ() + 1,
-                        hash + maxRange - 1 + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash + maxRange - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash + maxRange);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash + maxRange + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() - 1,
-                        hash + maxRange + 1 - maxRangeSquared);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash + maxRange + 1);
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY() + 1,
-                        inRealWorld.getZ() + 1,
-                        hash + maxRange + 1 + maxRangeSquared);
-                } else {
-                    tryExpanding(inRealWorld.getX() + 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash + maxRange);
-                    tryExpanding(inRealWorld.getX() - 1, inRealWorld.getY(), inRealWorld.getZ(),
-                        hash - maxRange);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() + 1, inRealWorld.getZ(),
-                        hash + 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY() - 1, inRealWorld.getZ(),
-                        hash - 1);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() + 1,
-                        hash + maxRangeSquared);
-                    tryExpanding(inRealWorld.getX(), inRealWorld.getY(), inRealWorld.getZ() - 1,
-                        hash - maxRangeSquared);
+        int startX = firstBlock.getX() - originX;
+        int startY = firstBlock.getY();
+        int startZ = firstBlock.getZ() - originZ;
+        if (!isInVolume(startX, startY, startZ)) {
+            return;
+        }
+        // The first block is always found, even if it isn't a valid expansion itself
+        markFound(startX, startY, startZ);
+        fillSpan(startX, startY, startZ);
+        while (!seeds.isEmpty() && !cleanHouse && foundCount < maxSize) {
+            int seed = seeds.removeAt(seeds.size() - 1);
+            int x = seed & 511;
+            int y = (seed >>> 9) & 255;
+            int z = seed >>> 17;
+            if (isFound(x, y, z)) {
+                // Another span already went through this block
+                continue;
+            }
+            markFound(x, y, z);
+            fillSpan(x, y, z);
+        }
+        copyToFoundSet();
+    }
+
+    /**
+     * @return True if blocks with this state can be added to the detected set. Called at most once for each block
+     * next to a found block.
+     */
+    protected abstract boolean isValidExpansion(IBlockState state);
+
+    /**
+     * Extends the span through the already found local block (x, y, z) along the x axis as far as it goes, then queues
+     * the start of every run of unfound valid blocks touching the span in the neighbouring rows.
+     */
+    private void fillSpan(int x, int y, int z) {
+        int minX = x;
+        while (foundCount < maxSize && isValid(minX - 1, y, z) && !isFound(minX - 1, y, z)) {
+            minX--;
+            markFound(minX, y, z);
+        }
+        int maxX = x;
+        while (foundCount < maxSize && isValid(maxX + 1, y, z) && !isFound(maxX + 1, y, z)) {
+            maxX++;
+            markFound(maxX, y, z);
+        }
+
+        if (corners) {
+            for (int yOffset = -1; yOffset <= 1; yOffset++) {
+                for (int zOffset = -1; zOffset <= 1; zOffset++) {
+                    if (yOffset != 0 || zOffset != 0) {
+                        scanRow(minX - 1, maxX + 1, y + yOffset, z + zOffset);
+                    }
+                }
+            }
+        } else {
+            scanRow(minX, maxX, y + 1, z);
+            scanRow(minX, maxX, y - 1, z);
+            scanRow(minX, maxX, y, z + 1);
+            scanRow(minX, maxX, y, z - 1);
+        }
+    }
+
+    private void scanRow(int fromX, int toX, int y, int z) {
+        if (y < 0 || y >= 256 || z < 0 || z >= sizeZ) {
+            return;
+        }
+        boolean inRun = false;
+        for (int x = fromX; x <= toX && !cleanHouse; x++) {
+            if (isValid(x, y, z) && !isFound(x, y, z)) {
+                if (!inRun) {
+                    seeds.add(x | (y << 9) | (z << 17));
+                    inRun = true;
                 }
+            } else {
+                inRun = false;
+            }
+        }
+    }
+
+    private boolean isInVolume(int x, int y, int z) {
+        return x >= 0 && x < sizeX && y >= 0 && y < 256 && z >= 0 && z < sizeZ;
+    }
+
+    private boolean isValid(int x, int y, int z) {
+        if (!isInVolume(x, y, z)) {
+            return false;
+        }
+        DetectionSection section = getSection(x, y, z);
+        int index = indexInSection(x, y, z);
+        long bit = 1L << index;
+        if ((section.checked[index >>> 6] & bit) == 0) {
+            section.checked[index >>> 6] |= bit;
+            IBlockState state = section.storage == Chunk.NULL_BLOCK_STORAGE ? Blocks.AIR.getDefaultState()
+                : section.storage.get(x & 15, y & 15, z & 15);
+            if (isValidExpansion(state)) {
+                section.valid[index >>> 6] |= bit;
             }
         }
+        return (section.valid[index >>> 6] & bit) != 0;
+    }
+
+    private boolean isFound(int x, int y, int z) {
+        if (!isInVolume(x, y, z)) {
+            return false;
+        }
+        int index = indexInSection(x, y, z);
+        return (getSection(x, y, z).found[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private void markFound(int x, int y, int z) {
+        int index = indexInSection(x, y, z);
+        getSection(x, y, z).found[index >>> 6] |= 1L << index;
+        foundCount++;
+    }
+
+    private DetectionSection getSection(int x, int y, int z) {
+        int sectionIndex = ((x >> 4) * (sizeZ >> 4) + (z >> 4)) * 16 + (y >> 4);
+        DetectionSection section = sections[sectionIndex];
+        if (section == null) {
+            Chunk chunk = worldObj.getChunk((originX + x) >> 4, (originZ + z) >> 4);
+            section = new DetectionSection(chunk.getBlockStorageArray()[y >> 4]);
+            sections[sectionIndex] = section;
+        }
+        return section;
     }
 
-    protected void tryExpanding(int x, int y, int z, int hash) {
-        if (isValidExpansion(x, y, z)) {
-            // totalCalls++;
-            if (!foundSet.contains(hash) && (foundSet.size() + nextQueue.size() < maxSize)) {
-                nextQueue.add(hash);
+    private static int indexInSection(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+
+    private void copyToFoundSet() {
+        foundSet.ensureCapacity(foundCount);
+        for (int sectionIndex = 0; sectionIndex < sections.length; sectionIndex++) {
+            DetectionSection section = sections[sectionIndex];
+            if (section == null) {
+                continue;
+            }
+            int sectionX = originX + ((sectionIndex / 16 / (sizeZ >> 4)) << 4);
+            int sectionY = (sectionIndex % 16) << 4;
+            int sectionZ = originZ + (((sectionIndex / 16) % (sizeZ >> 4)) << 4);
+            for (int word = 0; word < 64; word++) {
+                long bits = section.found[word];
+                while (bits != 0) {
+                    int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    foundSet.add(getHashWithRespectTo(sectionX + (index & 15), sectionY + (index >>> 8),
+                        sectionZ + ((index >>> 4) & 15), firstBlock));
+                }
             }
         }
     }
 
-    public abstract boolean isValidExpansion(int x, int y, int z);
-}
\ No newline at end of file
+    /**
+     * The state of the fill within one 16x16x16 section, as bitsets indexed the same way as the section storage.
+     */
+    private static final class DetectionSection {
+
+        // Chunk.NULL_BLOCK_STORAGE if the section is empty
+        final ExtendedBlockStorage storage;
+        final long[] found = new long[64];
+        // The blocks isValidExpansion() was called for, and the ones it returned true for
+        final long[] checked = new long[64];
+        final long[] valid = new long[64];
+
+        DetectionSection(ExtendedBlockStorage storage) {
+            this.storage = storage;
+        }
+    }
+}
@@ -14,7 +14,9 @@ import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The ClaimedChunkCacheController is a chunk cache controller used by the {@link PhysicsObject}. It
@@ -39,7 +41,8 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
     public ClaimedChunkCacheController(PhysicsObject parent) {
         this.world = parent.getWorld();
         this.parent = parent;
-        this.claimedChunks = new HashMap<>();
+        // Read by the physics thread while the game thread grows and shrinks the claim
+        this.claimedChunks = new ConcurrentHashMap<>();
         loadChunksIntoCache();
     }
 
@@ -60,6 +63,17 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
         return claimedChunks.get(chunkPos);
     }
 
+    /**
+     * Like {@link #getChunkAt(int, int)}, but returns null instead of throwing when the chunk isn't claimed. Safe to
+     * use from the physics thread, which can race with the game thread growing and shrinking the claim.
+     *
+     * @return The cached chunk, or null if there isn't one
+     */
+    @Nullable
+    public Chunk getCachedChunk(int chunkX, int chunkZ) {
+        return claimedChunks.get(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
     /**
      * Retrieves a chunk from cache from its absolute position.
      *
@@ -105,21 +119,7 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
                     }
                 }
 
-                // Do this to get it re-integrated into the world
-                if (!world.isRemote) {
-                    // Inject the entry into the player chunk map.
-                    PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
-                    PlayerChunkMapEntry entry = map.getOrCreateEntry(x, z);
-                    // Very important! We must update the chunk field of the entry to prevent old chunk objects from living on.
-                    // If this entry already existed and we forget, then we will corrupt the entry by having different chunks
-                    // in the world vs in the entries!
-                    entry.chunk = chunk;
-                    entry.sentToPlayers = true;
-                    entry.players = parent.getWatchingPlayers();
-                }
-
-                chunk.tileEntities.forEach(parent::onSetTileEntity);
-
+                integrateChunk(chunk);
                 setChunkAt(x, z, chunk);
             } catch (Exception e) {
                 e.printStackTrace();
@@ -127,6 +127,56 @@ public class ClaimedChunkCacheController implements Iterable<Chunk> {
         });
     }
 
+    /**
+     * Re-integrates chunk into the world as a part of this ship.
+     */
+    private void integrateChunk(Chunk chunk) {
+        // Do this to get it re-integrated into the world. Headless worlds (see the benchmarks)
+        // have no player chunk map.
+        if (world instanceof WorldServer) {
+            // Inject the entry into the player chunk map.
+            PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
+            PlayerChunkMapEntry entry = map.getOrCreateEntry(chunk.x, chunk.z);
+            // Very important! We must update the chunk field of the entry to prevent old chunk objects from living on.
+            // If this entry already existed and we forget, then we will corrupt the entry by having different chunks
+            // in the world vs in the entries!
+            entry.chunk = chunk;
+            entry.sentToPlayers = true;
+            entry.players = parent.getWatchingPlayers();
+        }
+
+        chunk.tileEntities.forEach(parent::onSetTileEntity);
+    }
+
+    /**
+     * Adds a chunk the ship is about to claim to the cache. Must be called before the chunk is added to the {@link
+     * VSChunkClaim}, so that anything that sees the chunk in the claim can also find it in the cache.
+     */
+    public void addChunk(@Nonnull Chunk chunk) {
+        integrateChunk(chunk);
+        claimedChunks.put(ChunkPos.asLong(chunk.x, chunk.z), chunk);
+    }
+
+    /**
+     * Removes a chunk the ship no longer claims from the cache. Must be called after the chunk was removed from the
+     * {@link VSChunkClaim}. On the server this also removes the PlayerChunkMapEntry of the chunk, which queues the
+     * chunk to be saved and unloaded.
+     *
+     * @return The chunk that was removed, or null if it wasn't cached
+     */
+    @Nullable
+    public Chunk removeChunk(int chunkX, int chunkZ) {
+        Chunk chunk = claimedChunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+        if (chunk != null && world instanceof WorldServer) {
+            PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
+            PlayerChunkMapEntry entry = map.getEntry(chunkX, chunkZ);
+            if (entry != null) {
+                map.removeEntry(entry);
+            }
+        }
+        return chunk;
+    }
+
     public void deleteShipChunksFromWorld() {
         PlayerChunkMap map = ((WorldServer) world).getPlayerChunkMap();
 
@@ -6,6 +6,11 @@ import lombok.extern.log4j.Log4j2;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
+import java.io.File;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * <p />
  * This class allocates chunks for usage in ships. Chunks in these ship chunks, (oftentimes referred
@@ -18,6 +23,9 @@ import net.minecraft.util.math.ChunkPos;
  * <p />
  * The coordinate of the center of chunks allocated * for ship # N would be ({@link #CHUNK_X_START},
  * {@link #CHUNK_Z_START} + N*{@link #MAX_CHUNK_LENGTH}).
+ * <p />
+ * Claims of ships that are gone are freed with {@link #freeChunkClaim(VSChunkClaim)}, and handed out again right
+ * away. The lowest free claim is always used first, so the shipyard stays as small as the number of ships allows.
  */
 @Log4j2
 @NonNull
@@ -29,13 +37,29 @@ public class ShipChunkAllocator {
      */
     public static final int MAX_CHUNK_LENGTH = 3200; // Who even really cares tbh
     public static final int MAX_CHUNK_RADIUS = (MAX_CHUNK_LENGTH / 2) - 1;
+    /**
+     * The number of chunks claimed around every chunk that has ship blocks in it, so that blocks placed at the edge of
+     * a ship always land in a claimed chunk.
+     */
+    public static final int CLAIM_MARGIN = 1;
     public static final int CHUNK_X_START = 320000;
     public static final int CHUNK_Z_START = 0;
+    // Region files are 32 x 32 chunks. Both the claims and the starting coordinates are multiples of that, so every
+    // region file of the shipyard belongs to a single claim.
+    private static final int REGION_SIZE_BITS = 5;
+    private static final Pattern REGION_FILE_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.mca");
 
     @Getter
     private int lastChunkX = CHUNK_X_START;
+    /**
+     * The center z of the last claim that was ever allocated, claims past this were never used.
+     */
     @Getter
     private int lastChunkZ = CHUNK_Z_START;
+    // The claims ready to be handed out again, as the claim numbers N described above
+    private final TreeSet<Integer> freeClaims = new TreeSet<>();
+    // The claims freed by older versions, which still have chunks with blocks in region files
+    private final TreeSet<Integer> claimsToWipe = new TreeSet<>();
 
     /**
      * Determines whether or not a chunk is in the shipyard
@@ -66,11 +90,93 @@ public class ShipChunkAllocator {
     }
 
     /**
-     * This finds the next empty chunkSet for use, currently only increases the xPos to get new
-     * positions
+     * This finds the next empty chunkSet for use, reusing the lowest freed claim if there is one and otherwise
+     * increasing the zPos to get new positions
      */
     public VSChunkClaim allocateNextChunkClaim() {
+        Integer freeClaim = freeClaims.pollFirst();
+        if (freeClaim != null) {
+            return new VSChunkClaim(new ChunkPos(CHUNK_X_START, getClaimCenterZ(freeClaim)));
+        }
         return new VSChunkClaim(new ChunkPos(lastChunkX, lastChunkZ += MAX_CHUNK_LENGTH));
     }
 
+    /**
+     * Frees the claim of a ship that is gone, so that it's handed out to the next ship. The claimed chunks must have
+     * been emptied, like destroying a ship does, or never added to the world. A new ship replaces them with chunks of
+     * its own, and the chunks it doesn't claim are left empty.
+     */
+    public void freeChunkClaim(VSChunkClaim claim) {
+        ChunkPos center = claim.getCenterPos();
+        int claimNumber = (center.z - CHUNK_Z_START) / MAX_CHUNK_LENGTH;
+        if (center.x != CHUNK_X_START || getClaimCenterZ(claimNumber) != center.z || center.z > lastChunkZ
+            || claimNumber <= 0) {
+            log.error("Tried to free the chunk claim {}, but it wasn't allocated here", claim);
+            return;
+        }
+        if (claimsToWipe.contains(claimNumber) || !freeClaims.add(claimNumber)) {
+            log.error("Tried to free the chunk claim {} twice", claim);
+        }
+    }
+
+    /**
+     * Deletes the region files of the claims that older versions freed without emptying their chunks, and makes the
+     * claims available again. Must only be called when the world is loaded, before any of the chunks of those claims
+     * could have been loaded.
+     *
+     * @param regionDirectory The directory the region files of the world are in
+     */
+    public void wipeFreedClaims(File regionDirectory) {
+        if (claimsToWipe.isEmpty()) {
+            return;
+        }
+        boolean wipedAll = true;
+        File[] regionFiles = regionDirectory.listFiles();
+        if (regionFiles != null) {
+            for (File regionFile : regionFiles) {
+                Matcher matcher = REGION_FILE_NAME.matcher(regionFile.getName());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int regionX = Integer.parseInt(matcher.group(1));
+                int regionZ = Integer.parseInt(matcher.group(2));
+                if (claimsToWipe.contains(getClaimNumber(regionX, regionZ)) && !regionFile.delete()) {
+                    log.error("Failed to delete the region file {} of a freed ship chunk claim", regionFile);
+                    wipedAll = false;
+                }
+            }
+        }
+        if (wipedAll) {
+            freeClaims.addAll(claimsToWipe);
+            claimsToWipe.clear();
+        }
+    }
+
+    /**
+     * @return The center of the claim region the chunk is in, as a chunk long. Only says which claim the chunk could
+     * belong to, the claim has to be asked whether it actually claims the chunk.
+     */
+    public static long getClaimCenter(int chunkX, int chunkZ) {
+        int claimNumber = Math.floorDiv(chunkZ - CHUNK_Z_START + MAX_CHUNK_LENGTH / 2, MAX_CHUNK_LENGTH);
+        return ChunkPos.asLong(CHUNK_X_START, getClaimCenterZ(claimNumber));
+    }
+
+    private static int getClaimCenterZ(int claimNumber) {
+        return CHUNK_Z_START + claimNumber * MAX_CHUNK_LENGTH;
+    }
+
+    /**
+     * @return The number of the claim whose chunks are in the region file, or -1 if they aren't in any claim
+     */
+    private static int getClaimNumber(int regionX, int regionZ) {
+        int minChunkX = regionX << REGION_SIZE_BITS;
+        int minChunkZ = regionZ << REGION_SIZE_BITS;
+        if (minChunkX < CHUNK_X_START - MAX_CHUNK_LENGTH / 2 || minChunkX >= CHUNK_X_START + MAX_CHUNK_LENGTH / 2) {
+            return -1;
+        }
+        // The claim whose center is nearest, claim N spans from its center - MAX_CHUNK_LENGTH / 2
+        int claimNumber = Math.floorDiv(minChunkZ - CHUNK_Z_START + MAX_CHUNK_LENGTH / 2, MAX_CHUNK_LENGTH);
+        return claimNumber > 0 ? claimNumber : -1;
+    }
+
 }
@@ -4,6 +4,7 @@ import lombok.Getter;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.ChunkCache;
+import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraft.world.gen.ChunkProviderServer;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 
@@ -24,9 +25,9 @@ public class SurroundingChunkCacheController {
         BlockPos min = new BlockPos(cacheBB.minX, Math.max(cacheBB.minY, 0), cacheBB.minZ);
         BlockPos max = new BlockPos(cacheBB.maxX, Math.min(cacheBB.maxY, 255), cacheBB.maxZ);
 
-        if (!physicsObject.getWorld().isRemote) {
-            ChunkProviderServer serverChunkProvider = (ChunkProviderServer) physicsObject.getWorld()
-                .getChunkProvider();
+        IChunkProvider chunkProvider = physicsObject.getWorld().getChunkProvider();
+        if (chunkProvider instanceof ChunkProviderServer) {
+            ChunkProviderServer serverChunkProvider = (ChunkProviderServer) chunkProvider;
 
             int chunkMinX = min.getX() >> 4;
             int chunkMaxX = max.getX() >> 4;
@@ -1,54 +1,81 @@
 package org.valkyrienskies.mod.common.ships.chunk_claims;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
-import com.google.common.collect.ImmutableSet;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.Streams;
-import lombok.Value;
+import gnu.trove.TCollections;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
-import javax.annotation.concurrent.Immutable;
 import java.beans.ConstructorProperties;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 /**
  * This stores the chunk claims for a PhysicsObject; not the chunks themselves.
+ * <p>
+ * The claimed chunks are kept in a primitive set that is copied on every change, so the physics thread can read
+ * the claim while the game thread grows or shrinks it. Claims only change when a ship is spawned or when its blocks
+ * reach the edge of the claim, so the copies are rare.
  *
  * @author tri0de
  */
-@Immutable
-
-@Value
+@EqualsAndHashCode
 public final class VSChunkClaim implements Iterable<ChunkPos> {
 
+    @Getter
     private final ChunkPos centerPos;
-    private final Set<Long> claimedChunks;
+    // Never modified after being published
+    @JsonIgnore
+    private volatile TLongSet claimedChunks;
 
     public VSChunkClaim(ChunkPos centerPos) {
         this.centerPos = centerPos;
-        this.claimedChunks = new HashSet<>();
+        this.claimedChunks = new TLongHashSet();
+    }
+
+    /**
+     * @return A copy of this claim that later changes to this claim don't affect. Cheap, the copy shares the current
+     * set of claimed chunks since that set never changes.
+     */
+    public VSChunkClaim copy() {
+        VSChunkClaim copy = new VSChunkClaim(centerPos);
+        copy.claimedChunks = claimedChunks;
+        return copy;
     }
 
     @JsonCreator // This annotation tells Jackson to use this constructor for the class
     // The below annotation says which JSON properties correspond to which constructor arguments
     @ConstructorProperties({"centerPos", "claimedChunks"})
-    private VSChunkClaim(ChunkPos centerPos, Set<Long> claimedChunks) {
+    private VSChunkClaim(ChunkPos centerPos, long[] claimedChunks) {
         this.centerPos = centerPos;
-        this.claimedChunks = claimedChunks;
+        this.claimedChunks = new TLongHashSet(claimedChunks);
+    }
+
+    // Jackson writes the claimed chunks as a plain array of chunk longs
+    @JsonProperty("claimedChunks")
+    private long[] getClaimedChunksArray() {
+        return claimedChunks.toArray();
     }
 
     public void writeToNBT(NBTTagCompound toSave) {
         toSave.setLong("centerPos", getChunkPos(centerPos.x, centerPos.z));
+        TLongSet claimedChunks = this.claimedChunks;
         // Using an int array instead of a long array because there is no nbt.setLongArray().
         int[] chunkPositions = new int[claimedChunks.size() * 2];
         int i = 0;
-        for (Long chunkPos : claimedChunks) {
+        TLongIterator iterator = claimedChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunkPos = iterator.next();
             chunkPositions[i] = getChunkX(chunkPos);
             chunkPositions[i + 1] = getChunkZ(chunkPos);
             i += 2;
@@ -56,6 +83,20 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
         toSave.setIntArray("claimedChunks", chunkPositions);
     }
 
+    /**
+     * @return A read only view of the chunk longs currently claimed. Later changes to the claim won't show up in it.
+     */
+    public TLongSet getClaimedChunks() {
+        return TCollections.unmodifiableSet(claimedChunks);
+    }
+
+    /**
+     * @return The number of chunks claimed
+     */
+    public int size() {
+        return claimedChunks.size();
+    }
+
     /**
      * Checks if a chunk is contained within this {@link VSChunkClaim}
      *
@@ -81,14 +122,58 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
         return containsChunk(pos.getX() >> 4, pos.getZ() >> 4);
     }
 
-    public boolean addChunkClaim(int chunkX, int chunkZ) {
+    /**
+     * @return True if the chunk is inside of the region the {@link ShipChunkAllocator} reserved for this claim, claims
+     * must never grow outside of it.
+     */
+    public boolean canClaimChunk(int chunkX, int chunkZ) {
+        return Math.abs(chunkX - centerPos.x) <= ShipChunkAllocator.MAX_CHUNK_RADIUS
+            && Math.abs(chunkZ - centerPos.z) <= ShipChunkAllocator.MAX_CHUNK_RADIUS;
+    }
+
+    public synchronized boolean addChunkClaim(int chunkX, int chunkZ) {
         long chunkPos = getChunkPos(chunkX, chunkZ);
-        return claimedChunks.add(chunkPos);
+        if (claimedChunks.contains(chunkPos)) {
+            return false;
+        }
+        TLongSet copy = new TLongHashSet(claimedChunks);
+        copy.add(chunkPos);
+        claimedChunks = copy;
+        return true;
+    }
+
+    /**
+     * Claims every chunk in the rectangle between the two corners (inclusive), with a single copy of the claim.
+     */
+    public synchronized void addChunkClaims(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        TLongSet copy = new TLongHashSet(claimedChunks);
+        for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                copy.add(getChunkPos(chunkX, chunkZ));
+            }
+        }
+        claimedChunks = copy;
+    }
+
+    /**
+     * Adds and removes the given chunk longs, with a single copy of the claim.
+     */
+    public synchronized void updateChunkClaims(TLongSet toAdd, TLongSet toRemove) {
+        TLongSet copy = new TLongHashSet(claimedChunks);
+        copy.addAll(toAdd);
+        copy.removeAll(toRemove);
+        claimedChunks = copy;
     }
 
-    public boolean removeChunkClaim(int chunkX, int chunkZ) {
+    public synchronized boolean removeChunkClaim(int chunkX, int chunkZ) {
         long chunkPos = getChunkPos(chunkX, chunkZ);
-        return claimedChunks.remove(chunkPos);
+        if (!claimedChunks.contains(chunkPos)) {
+            return false;
+        }
+        TLongSet copy = new TLongHashSet(claimedChunks);
+        copy.remove(chunkPos);
+        claimedChunks = copy;
+        return true;
     }
 
     @Override
@@ -100,11 +185,6 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
         return new BlockPos(centerPos.getXStart(), 128, centerPos.getZStart());
     }
 
-    private ImmutableSet<Long> calculateChunkLongs() {
-        return claimedChunks.stream()
-            .collect(ImmutableSet.toImmutableSet());
-    }
-
     /**
      * @return A stream of the {@link ChunkPos} of every chunk inside of this claim.
      */
@@ -117,7 +197,11 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
      * @param consumer BiConsumer&lt;x, z&gt;
      */
     public void forEach(BiConsumer<Integer, Integer> consumer) {
-        this.forEach(pos -> consumer.accept(pos.x, pos.z));
+        TLongIterator iterator = claimedChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunkPos = iterator.next();
+            consumer.accept(getChunkX(chunkPos), getChunkZ(chunkPos));
+        }
     }
 
     @Override
@@ -126,7 +210,7 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
     }
 
     class ChunkPosIterator implements Iterator<ChunkPos> {
-        Iterator<Long> chunkLongsIterator = claimedChunks.iterator();
+        TLongIterator chunkLongsIterator = claimedChunks.iterator();
 
         @Override
         public boolean hasNext() {
@@ -145,12 +229,17 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
         }
     }
 
-    // Helper functions, not meant to be exposed outside of VSChunkClaim
-    private static int getChunkX(long chunkPos) {
+    /**
+     * @return The x coordinate of a chunk long made by {@link ChunkPos#asLong(int, int)}
+     */
+    public static int getChunkX(long chunkPos) {
         return (int) (chunkPos & 4294967295L);
     }
 
-    private static int getChunkZ(long chunkPos) {
+    /**
+     * @return The z coordinate of a chunk long made by {@link ChunkPos#asLong(int, int)}
+     */
+    public static int getChunkZ(long chunkPos) {
         return (int) ((chunkPos >> 32) & 4294967295L);
     }
 
@@ -0,0 +1,88 @@
+package org.valkyrienskies.mod.common.ships.entity_interaction;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.world.World;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.entity.EntityShipMovementData;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The entities of a world that {@link EntityDraggable} has to move with ships. Those are the entities that touched a
+ * ship in the last {@link VSConfig#ticksToStickToShip} ticks, and the ones still carrying velocity a ship added to
+ * them.
+ * <p>
+ * An entity is added when its {@link EntityShipMovementData} changes into one of those states, which happens as it
+ * moves against a ship. It is dropped by {@link #forEachDraggedEntity(World, Consumer)} once it's out of them. The
+ * entities that never go near a ship are never visited.
+ * <p>
+ * Only used by the game thread.
+ */
+public class DraggedEntityTracker {
+
+    // Added velocity below this is dropped along with the entity
+    private static final double MIN_ADDED_VELOCITY = 1e-4;
+    private static final double MIN_ADDED_YAW_VELOCITY = 1e-4;
+
+    private final List<Entity> draggedEntities;
+
+    public DraggedEntityTracker() {
+        this.draggedEntities = new ArrayList<>();
+    }
+
+    /**
+     * @return True if the entity with this movement data has to be moved with a ship
+     */
+    public static boolean isBeingDragged(@Nonnull EntityShipMovementData movementData) {
+        if (movementData.getLastTouchedShip() != null
+            && movementData.getTicksSinceTouchedShip() < VSConfig.ticksToStickToShip) {
+            return true;
+        }
+        return movementData.getAddedLinearVelocity().lengthSquared() > MIN_ADDED_VELOCITY * MIN_ADDED_VELOCITY
+            || Math.abs(movementData.getAddedYawVelocity()) > MIN_ADDED_YAW_VELOCITY;
+    }
+
+    /**
+     * Called whenever the movement data of entity changes. Adds the entity if it's now being dragged.
+     */
+    public void onMovementDataChanged(@Nonnull Entity entity) {
+        IDraggable draggable = EntityDraggable.getDraggableFromEntity(entity);
+        if (!draggable.isInDraggedEntityTracker() && isBeingDragged(draggable.getEntityShipMovementData())) {
+            draggable.setInDraggedEntityTracker(true);
+            draggedEntities.add(entity);
+        }
+    }
+
+    /**
+     * Runs action for every entity being dragged, and drops the entities that aren't anymore. Doesn't allocate.
+     *
+     * @param world The world of this tracker, entities that left it are dropped
+     */
+    public void forEachDraggedEntity(@Nonnull World world, @Nonnull Consumer<Entity> action) {
+        int i = 0;
+        while (i < draggedEntities.size()) {
+            Entity entity = draggedEntities.get(i);
+            IDraggable draggable = EntityDraggable.getDraggableFromEntity(entity);
+            if (entity.isDead || entity.world != world || !entity.isAddedToWorld()
+                || !isBeingDragged(draggable.getEntityShipMovementData())) {
+                // Swap in the last entity, the order doesn't matter
+                draggedEntities.set(i, draggedEntities.get(draggedEntities.size() - 1));
+                draggedEntities.remove(draggedEntities.size() - 1);
+                draggable.setInDraggedEntityTracker(false);
+                continue;
+            }
+            action.accept(entity);
+            i++;
+        }
+    }
+
+    /**
+     * @return The number of entities being dragged
+     */
+    public int size() {
+        return draggedEntities.size();
+    }
+}
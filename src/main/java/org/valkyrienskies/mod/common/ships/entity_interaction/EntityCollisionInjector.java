@@ -14,17 +14,17 @@ import net.minecraft.util.EnumParticleTypes;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
-import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
 import net.minecraft.world.chunk.Chunk;
 import org.apache.commons.lang3.tuple.Triple;
+import org.joml.Matrix4dc;
 import org.joml.Vector3d;
 import org.joml.Vector3dc;
 import org.valkyrienskies.mod.common.collision.*;
-import org.valkyrienskies.mod.common.entity.EntityShipMovementData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
 import org.valkyrienskies.mod.common.util.JOML;
 import org.valkyrienskies.mod.common.util.VSMath;
 import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
@@ -35,16 +35,39 @@ import valkyrienwarfare.api.TransformType;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class EntityCollisionInjector {
 
     private static final double errorSignificance = .001D;
+    // Entities colliding with a ship faster than this many blocks per tick wake it up
+    private static final double IMPACT_WAKE_SPEED = .5D;
+    // Reused by every call to alterEntityMovement() on a thread, so that colliding entities with ships doesn't
+    // create garbage for every block box
+    private static final ThreadLocal<CollisionScratch> SCRATCH = ThreadLocal.withInitial(CollisionScratch::new);
 
     // Returns false if game should use default collision
     @Nullable
     public static IntermediateMovementVariableStorage alterEntityMovement(Entity entity,
         MoverType type, double dx, double dy, double dz) {
+        CollisionScratch scratch = SCRATCH.get();
+        if (scratch.inUse) {
+            // A block collision moved another entity, don't overwrite the boxes of the outer call
+            scratch = new CollisionScratch();
+        }
+        scratch.inUse = true;
+        try {
+            return alterEntityMovement(entity, dx, dy, dz, scratch);
+        } finally {
+            scratch.clear();
+            scratch.inUse = false;
+        }
+    }
+
+    @Nullable
+    private static IntermediateMovementVariableStorage alterEntityMovement(Entity entity, double dx, double dy,
+        double dz, CollisionScratch scratch) {
         final double origDx = dx;
         final double origDy = dy;
         final double origDz = dz;
@@ -52,15 +75,15 @@ public class EntityCollisionInjector {
         final double origPosY = entity.posY;
         final double origPosZ = entity.posZ;
         boolean isLiving = entity instanceof EntityLivingBase;
-        Vec3d velocity = new Vec3d(dx, dy, dz);
-        EntityPolygon playerBeforeMove = new EntityPolygon(entity.getEntityBoundingBox(), entity);
-        List<Polygon> colPolys = getCollidingPolygonsAndDoBlockCols(entity, velocity);
+        final EntityBoxCollider collider = scratch.collider;
+        collider.setEntityBox(entity.getEntityBoundingBox());
+        collectCollidingBoxesAndDoBlockCols(entity, dx, dy, dz, scratch);
 
         PhysicsObject worldBelow = null;
-        IDraggable draggable = EntityDraggable.getDraggableFromEntity(entity);
-        final EntityShipMovementData lastTickEntityShipMovementData = draggable.getEntityShipMovementData();
 
-        Vector3d total = new Vector3d();
+        double totalX = 0;
+        double totalY = 0;
+        double totalZ = 0;
 
         // Used to reset the player position after collision processing, effectively
         // using the player to integrate their velocity
@@ -77,20 +100,7 @@ public class EntityCollisionInjector {
             final List<PhysicsObject> collidingShips = ((IHasShipManager) entity.getEntityWorld()).getManager()
                     .getNearbyPhysObjects(base.getEntityBoundingBox());
             final Iterable<Triple<PhysicsObject, BlockPos, IBlockState>> ladderCollisions = getLadderCollisions(base, collidingShips);
-            // For now, just ignore the y component. I may or may not use it later.
-
-            final float forward = ((EntityLivingBase) entity).moveForward;
-            final float strafe = ((EntityLivingBase) entity).moveStrafing;
-
-            final double f1 = Math.sin(Math.toRadians(entity.rotationYaw));
-            final double f2 = Math.cos(Math.toRadians(entity.rotationYaw));
-            final double intendedXVel = strafe * f2 - forward * f1;
-            final double intendedYVel = 0;
-            final double intendedZVel = forward * f2 + strafe * f1;
-
-            final Vector3dc originalVelocityDirection = new Vector3d(intendedXVel, intendedYVel, intendedZVel).normalize();
             final World world = entity.world;
-            final Polygon playerPolygon = new Polygon(base.getEntityBoundingBox());
 
             for (final Triple<PhysicsObject, BlockPos, IBlockState> ladderCollision : ladderCollisions) {
                 final IBlockState ladderState = ladderCollision.getRight();
@@ -103,14 +113,27 @@ public class EntityCollisionInjector {
 
                 // We need the EnumFacing of the ladder for the code to work. If we couldn't find it then just give up :/
                 if (ladderFacing != null) {
+                    // For now, just ignore the y component. I may or may not use it later.
+                    final float forward = base.moveForward;
+                    final float strafe = base.moveStrafing;
+
+                    final double f1 = Math.sin(Math.toRadians(entity.rotationYaw));
+                    final double f2 = Math.cos(Math.toRadians(entity.rotationYaw));
+                    final double intendedXVel = strafe * f2 - forward * f1;
+                    final double intendedYVel = 0;
+                    final double intendedZVel = forward * f2 + strafe * f1;
+
+                    final Vector3dc originalVelocityDirection = new Vector3d(intendedXVel, intendedYVel, intendedZVel).normalize();
+                    final Polygon playerPolygon = new Polygon(base.getEntityBoundingBox());
+
                     final Vector3d ladderNormal = JOML.convertDouble(ladderFacing.getDirectionVec());
                     final ShipTransform shipTransform = ladderCollision.getLeft().getShipTransform();
                     // Grow the ladder BB by a small margin (makes the ladder experience better imo)
                     final AxisAlignedBB ladderBB = ladderCollision.getRight().getBoundingBox(world, ladderCollision.getMiddle()).offset(ladderCollision.getMiddle()).grow(.4);
                     final Polygon ladderPoly = new Polygon(ladderBB, shipTransform.getSubspaceToGlobal());
                     // Determine if the player is actually colliding with the ladder
-                    final PhysPolygonCollider collider = new PhysPolygonCollider(playerPolygon, ladderPoly, ladderCollision.getLeft().getShipTransformationManager().normals);
-                    collider.processData();
+                    final PhysPolygonCollider ladderCollider = new PhysPolygonCollider(playerPolygon, ladderPoly, ladderCollision.getLeft().getShipTransformationManager().normals);
+                    ladderCollider.processData();
 
                     shipTransform.transformDirection(ladderNormal, TransformType.SUBSPACE_TO_GLOBAL);
 
@@ -140,7 +163,7 @@ public class EntityCollisionInjector {
                         if (isPlayerSneakingOnLadder && dy < 0) {
                             dy = 0;
                         }
-                        if (!collider.seperated && isPlayerGoingTowardsLadder) {
+                        if (!ladderCollider.seperated && isPlayerGoingTowardsLadder) {
                             dy = .2;
                         }
                     } else {
@@ -156,96 +179,98 @@ public class EntityCollisionInjector {
         }
         // endregion
 
-        final Vector3dc velVec = new Vector3d(dx, dy, dz);
-
-        for (Polygon poly : colPolys) {
-            if (poly instanceof ShipPolygon) {
-                ShipPolygon shipPoly = (ShipPolygon) poly;
-                try {
-
-                    EntityPolygonCollider fast = new EntityPolygonCollider(playerBeforeMove,
-                        shipPoly, shipPoly.normals, velVec.add(total, new Vector3d()));
-                    if (!fast.arePolygonsSeparated()) {
-                        // fastCollisions.add(fast);
-                        worldBelow = shipPoly.shipFrom;
-
-                        Vector3d response = fast.getCollisions()[fast.getMinDistanceIndex()]
-                            .getResponse();
-                        // TODO: Add more potential yResponses
-                        double stepSquared = entity.stepHeight * entity.stepHeight;
-                        // Do not do stair stepping if the player is on a ladder.
-                        boolean isStep = isLiving && entity.onGround && !isPlayerOnLadder;
-                        if (response.y >= 0
-                            && VSMath.canStandOnNormal(
-                            fast.getCollisionAxes()[fast.getMinDistanceIndex()])) {
-                            Vector3d slowButStopped = new Vector3d(0,
-                                -fast.getCollisions()[fast.getMinDistanceIndex()]
-                                    .getCollisionPenetrationDistance() / fast
-                                    .getCollisionAxes()[fast.getMinDistanceIndex()].y(), 0);
-
-                            response = slowButStopped;
-                        }
-                        if (isStep) {
-                            EntityLivingBase living = (EntityLivingBase) entity;
-                            if (Math.abs(living.moveForward) > .01
-                                || Math.abs(living.moveStrafing) > .01) {
-                                for (int i = 3; i < 6; i++) {
-                                    Vector3d tempResponse = fast.getCollisions()[i].getResponse();
-                                    if (tempResponse.y > 0
-                                        && VSMath.canStandOnNormal(
-                                        fast.getCollisions()[i].getCollisionNormal())
-                                        && tempResponse.lengthSquared() < stepSquared) {
-                                        if (tempResponse.lengthSquared() < .1) {
-                                            // Too small to be a real step, let it through
-                                            response = tempResponse;
-                                        } else {
-                                            // System.out.println("Try Stepping!");
-                                            AxisAlignedBB axisalignedbb = entity
-                                                .getEntityBoundingBox()
-                                                .offset(tempResponse.x, tempResponse.y,
-                                                    tempResponse.z);
-                                            entity.setEntityBoundingBox(axisalignedbb);
-                                            // I think this correct, but it may create more problems than it solves
-                                            response.zero();
-                                            entity.resetPositionToBB();
-                                        }
-                                        // entity.moveEntity(x, y, z);
-                                        // response = tempResponse;
-                                    }
-                                }
-                            }
-                        }
+        final double velX = dx;
+        final double velY = dy;
+        final double velZ = dz;
+        final boolean isFastImpact = velX * velX + velY * velY + velZ * velZ > IMPACT_WAKE_SPEED * IMPACT_WAKE_SPEED;
+
+        for (int i = 0; i < scratch.boxCount; i++) {
+            final PhysicsObject ship = scratch.boxShips[i];
+            final ShipTransformationManager transformationManager = ship.getShipTransformationManager();
+            final int box = i * 6;
+            final boolean collided = collider.collide(scratch.boxes[box], scratch.boxes[box + 1],
+                scratch.boxes[box + 2], scratch.boxes[box + 3], scratch.boxes[box + 4], scratch.boxes[box + 5],
+                transformationManager.getCurrentTickTransform().getSubspaceToGlobal(), transformationManager.normals,
+                velX + totalX, velY + totalY, velZ + totalZ);
+            if (!collided) {
+                continue;
+            }
+            worldBelow = ship;
+            if (isFastImpact) {
+                // Walking around on a ship doesn't wake it up, but hitting it does
+                worldBelow.wakeUp();
+            }
 
-                        // total.add(response);
-                        if (Math.abs(response.x) > .01D) {
-                            total.x += response.x;
-                        }
-                        if (Math.abs(response.y) > .01D) {
-                            total.y += response.y;
-                        }
-                        if (Math.abs(response.z) > .01D) {
-                            total.z += response.z;
+            final int minDistanceIndex = collider.getMinDistanceIndex();
+            double responseX = collider.getResponseX(minDistanceIndex);
+            double responseY = collider.getResponseY(minDistanceIndex);
+            double responseZ = collider.getResponseZ(minDistanceIndex);
+            // TODO: Add more potential yResponses
+            double stepSquared = entity.stepHeight * entity.stepHeight;
+            // Do not do stair stepping if the player is on a ladder.
+            boolean isStep = isLiving && entity.onGround && !isPlayerOnLadder;
+            if (responseY >= 0 && VSMath.canStandOnNormal(collider.getCollisionAxis(minDistanceIndex))) {
+                responseX = 0;
+                responseY = -collider.getPenetrationDistance(minDistanceIndex)
+                    / collider.getCollisionAxis(minDistanceIndex).y();
+                responseZ = 0;
+            }
+            if (isStep) {
+                EntityLivingBase living = (EntityLivingBase) entity;
+                if (Math.abs(living.moveForward) > .01
+                    || Math.abs(living.moveStrafing) > .01) {
+                    for (int axis = 3; axis < 6; axis++) {
+                        double tempResponseX = collider.getResponseX(axis);
+                        double tempResponseY = collider.getResponseY(axis);
+                        double tempResponseZ = collider.getResponseZ(axis);
+                        double tempResponseLengthSquared = tempResponseX * tempResponseX
+                            + tempResponseY * tempResponseY + tempResponseZ * tempResponseZ;
+                        if (tempResponseY > 0
+                            && VSMath.canStandOnNormal(collider.getCollisionAxis(axis))
+                            && tempResponseLengthSquared < stepSquared) {
+                            if (tempResponseLengthSquared < .1) {
+                                // Too small to be a real step, let it through
+                                responseX = tempResponseX;
+                                responseY = tempResponseY;
+                                responseZ = tempResponseZ;
+                            } else {
+                                AxisAlignedBB axisalignedbb = entity
+                                    .getEntityBoundingBox()
+                                    .offset(tempResponseX, tempResponseY, tempResponseZ);
+                                entity.setEntityBoundingBox(axisalignedbb);
+                                // I think this correct, but it may create more problems than it solves
+                                responseX = 0;
+                                responseY = 0;
+                                responseZ = 0;
+                                entity.resetPositionToBB();
+                            }
                         }
-
-                        entity.posX += response.x;
-                        entity.posY += response.y;
-                        entity.posZ += response.z;
-
-                        posOffestX += response.x;
-                        posOffestY += response.y;
-                        posOffestZ += response.z;
-
-                        AxisAlignedBB axisalignedbb = entity.getEntityBoundingBox()
-                            .offset(response.x, response.y, response.z);
-                        entity.setEntityBoundingBox(axisalignedbb);
-                        entity.resetPositionToBB();
-
                     }
-                } catch (Exception e) {
-                    // Do nothing
                 }
             }
 
+            if (Math.abs(responseX) > .01D) {
+                totalX += responseX;
+            }
+            if (Math.abs(responseY) > .01D) {
+                totalY += responseY;
+            }
+            if (Math.abs(responseZ) > .01D) {
+                totalZ += responseZ;
+            }
+
+            entity.posX += responseX;
+            entity.posY += responseY;
+            entity.posZ += responseZ;
+
+            posOffestX += responseX;
+            posOffestY += responseY;
+            posOffestZ += responseZ;
+
+            AxisAlignedBB axisalignedbb = entity.getEntityBoundingBox()
+                .offset(responseX, responseY, responseZ);
+            entity.setEntityBoundingBox(axisalignedbb);
+            entity.resetPositionToBB();
         }
 
         AxisAlignedBB axisalignedbb = entity.getEntityBoundingBox()
@@ -257,14 +282,13 @@ public class EntityCollisionInjector {
             return null;
         }
 
-        dx += total.x;
-        dy += total.y;
-        dz += total.z;
+        dx += totalX;
+        dy += totalY;
+        dz += totalZ;
 
         boolean alreadyOnGround = entity.onGround && (dy == origDy) && origDy < 0;
-        Vector3d original = new Vector3d(origDx, origDy, origDz);
-        Vector3d newMov = new Vector3d(dx - origDx, dy - origDy, dz - origDz);
-        entity.collidedHorizontally = original.dot(newMov) < 0;
+        // The movement was pushed back against its direction
+        entity.collidedHorizontally = origDx * (dx - origDx) + origDy * (dy - origDy) + origDz * (dz - origDz) < 0;
         entity.collidedVertically = isDifSignificant(dy, origDy);
         entity.onGround = entity.collidedVertically && origDy < 0 || alreadyOnGround;
         entity.collided = entity.collidedHorizontally || entity.collidedVertically;
@@ -274,7 +298,7 @@ public class EntityCollisionInjector {
         double motionYBefore = entity.motionY;
         float oldFallDistance = entity.fallDistance;
 
-        Vector3d dxyz = new Vector3d(dx, dy, dz);;
+        Vector3d dxyz = new Vector3d(dx, dy, dz);
         Vector3d origDxyz = new Vector3d(origDx, origDy, origDz);
         Vector3d origPosXyz = new Vector3d(origPosX, origPosY, origPosZ);
 
@@ -430,15 +454,13 @@ public class EntityCollisionInjector {
     }
 
     /*
-     * This method generates an arrayList of Polygons that the player is colliding
-     * with
+     * Adds the block boxes of every ship the entity could collide with to the scratch, in ship coordinates, then
+     * does the block collisions of the entity with those ships.
      */
-    public static ArrayList<Polygon> getCollidingPolygonsAndDoBlockCols(Entity entity,
-        Vec3d velocity) {
-        ArrayList<Polygon> collisions = new ArrayList<Polygon>();
+    private static void collectCollidingBoxesAndDoBlockCols(Entity entity, double velX, double velY, double velZ,
+        CollisionScratch scratch) {
         AxisAlignedBB entityBB = entity.getEntityBoundingBox()
-            .offset(velocity.x, velocity.y, velocity.z).expand(1, 1,
-                1);
+            .offset(velX, velY, velZ).expand(1, 1, 1);
 
         List<PhysicsObject> ships = ((IHasShipManager) entity.getEntityWorld()).getManager()
             .getNearbyPhysObjects(entityBB);
@@ -446,11 +468,8 @@ public class EntityCollisionInjector {
         // and the Player
         for (PhysicsObject wrapper : ships) {
             try {
-                Polygon playerInLocal = new Polygon(entityBB,
-                    wrapper.getShipTransformationManager()
-                        .getCurrentTickTransform(),
-                    TransformType.GLOBAL_TO_SUBSPACE);
-                AxisAlignedBB bb = playerInLocal.getEnclosedAABB();
+                AxisAlignedBB bb = EntityBoxCollider.getEnclosedAABB(entityBB,
+                    wrapper.getShipTransformationManager().getCurrentTickTransform().getGlobalToSubspace());
 
                 if ((bb.maxX - bb.minX) * (bb.maxZ - bb.minZ) > 9898989) {
                     // This is too big, something went wrong here
@@ -464,13 +483,7 @@ public class EntityCollisionInjector {
                 }
 
                 for (AxisAlignedBB inLocal : collidingBBs) {
-                    ShipPolygon poly = new ShipPolygon(inLocal,
-                        wrapper.getShipTransformationManager()
-                            .getCurrentTickTransform(),
-                        TransformType.SUBSPACE_TO_GLOBAL,
-                        wrapper.getShipTransformationManager().normals,
-                        wrapper);
-                    collisions.add(poly);
+                    scratch.addBox(wrapper, inLocal);
                 }
 
             } catch (Exception e) {
@@ -483,12 +496,14 @@ public class EntityCollisionInjector {
             double posY = entity.posY;
             double posZ = entity.posZ;
 
-            Vector3d entityPos = new Vector3d(posX, posY, posZ);
-
-            wrapper.getShipTransformationManager().getCurrentTickTransform()
-                .transformPosition(entityPos, TransformType.GLOBAL_TO_SUBSPACE);
-
-            setEntityPositionAndUpdateBB(entity, entityPos.x, entityPos.y, entityPos.z);
+            Matrix4dc globalToSubspace = wrapper.getShipTransformationManager().getCurrentTickTransform()
+                .getGlobalToSubspace();
+            setEntityPositionAndUpdateBB(entity, globalToSubspace.m00() * posX + globalToSubspace.m10() * posY
+                    + globalToSubspace.m20() * posZ + globalToSubspace.m30(),
+                globalToSubspace.m01() * posX + globalToSubspace.m11() * posY + globalToSubspace.m21() * posZ
+                    + globalToSubspace.m31(),
+                globalToSubspace.m02() * posX + globalToSubspace.m12() * posY + globalToSubspace.m22() * posZ
+                    + globalToSubspace.m32());
 
             int entityChunkX = MathHelper.floor(entity.posX / 16.0D);
             int entityChunkZ = MathHelper.floor(entity.posZ / 16.0D);
@@ -515,8 +530,6 @@ public class EntityCollisionInjector {
             setEntityPositionAndUpdateBB(entity, posX, posY, posZ);
 
         }
-
-        return collisions;
     }
 
     public static void setEntityPositionAndUpdateBB(Entity entity, double x, double y, double z) {
@@ -553,6 +566,38 @@ public class EntityCollisionInjector {
 
     }
 
+    private static final class CollisionScratch {
+
+        final EntityBoxCollider collider = new EntityBoxCollider();
+        // The minX, minY, minZ, maxX, maxY, maxZ of the block boxes in ship coordinates, and the ship of each
+        double[] boxes = new double[6 * 32];
+        PhysicsObject[] boxShips = new PhysicsObject[32];
+        int boxCount = 0;
+        boolean inUse = false;
+
+        void addBox(PhysicsObject ship, AxisAlignedBB bb) {
+            if (boxCount == boxShips.length) {
+                boxes = Arrays.copyOf(boxes, boxes.length * 2);
+                boxShips = Arrays.copyOf(boxShips, boxShips.length * 2);
+            }
+            int box = boxCount * 6;
+            boxes[box] = bb.minX;
+            boxes[box + 1] = bb.minY;
+            boxes[box + 2] = bb.minZ;
+            boxes[box + 3] = bb.maxX;
+            boxes[box + 4] = bb.maxY;
+            boxes[box + 5] = bb.maxZ;
+            boxShips[boxCount] = ship;
+            boxCount++;
+        }
+
+        void clear() {
+            // Don't keep unloaded ships around
+            Arrays.fill(boxShips, 0, boxCount, null);
+            boxCount = 0;
+        }
+    }
+
     /**
      * Returns all the possible ladders that the entity could potentially climb with
      */
@@ -562,10 +607,10 @@ public class EntityCollisionInjector {
         final List<Triple<PhysicsObject, BlockPos, IBlockState>> ladderCollisions = new ArrayList<>();
         if (!isSpectator) {
             final AxisAlignedBB bb = entity.getEntityBoundingBox();
+            final BlockPos.MutableBlockPos tmp = new BlockPos.MutableBlockPos();
             for (PhysicsObject physicsObject : collidingShips) {
-                final Polygon playerPolyInShip = new Polygon(bb, physicsObject.getShipTransform(), TransformType.GLOBAL_TO_SUBSPACE);
-
-                final AxisAlignedBB playerPolyInShipBB = playerPolyInShip.getEnclosedAABB();
+                final AxisAlignedBB playerPolyInShipBB = EntityBoxCollider.getEnclosedAABB(bb,
+                    physicsObject.getShipTransform().getGlobalToSubspace());
 
                 int mX = MathHelper.floor(playerPolyInShipBB.minX);
                 int mY = MathHelper.floor(playerPolyInShipBB.minY);
@@ -574,10 +619,10 @@ public class EntityCollisionInjector {
                 for (int y2 = mY; (double) y2 < playerPolyInShipBB.maxY; ++y2) {
                     for (int x2 = mX; (double) x2 < playerPolyInShipBB.maxX; ++x2) {
                         for (int z2 = mZ; (double) z2 < playerPolyInShipBB.maxZ; ++z2) {
-                            BlockPos tmp = new BlockPos(x2, y2, z2);
+                            tmp.setPos(x2, y2, z2);
                             IBlockState state = world.getBlockState(tmp);
                             if (state.getBlock().isLadder(state, world, tmp, entity)) {
-                                ladderCollisions.add(Triple.of(physicsObject, tmp, state));
+                                ladderCollisions.add(Triple.of(physicsObject, tmp.toImmutable(), state));
                             }
                         }
                     }
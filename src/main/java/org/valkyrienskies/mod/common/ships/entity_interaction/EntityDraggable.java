@@ -24,16 +24,13 @@ import java.util.List;
 public class EntityDraggable {
 
     /**
-     * Moves entities such that they move with the ship below them.
+     * Moves entities such that they move with the ship below them. Only the entities in the {@link
+     * DraggedEntityTracker} of the world are visited, the others have nothing to move them.
      */
     public static void tickAddedVelocityForWorld(World world) {
         try {
-            for (int i = 0; i < world.loadedEntityList.size(); i++) {
-                Entity e = world.loadedEntityList.get(i);
-                if (!e.isDead) {
-                    addEntityVelocityFromShipBelow(e);
-                }
-            }
+            ValkyrienUtils.getPhysObjWorld(world).getDraggedEntities()
+                .forEachDraggedEntity(world, EntityDraggable::addEntityVelocityFromShipBelow);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -81,19 +78,20 @@ public class EntityDraggable {
             float prevYaw = entity.prevRotationYaw;
             float prevPitch = entity.prevRotationPitch;
 
-            Vector3dc oldPos = new Vector3d(entity.posX, entity.posY, entity.posZ);
+            double oldPosX = entity.posX;
+            double oldPosY = entity.posY;
+            double oldPosZ = entity.posZ;
 
             Matrix4d betweenTransform = ShipTransform.createTransform(
                     lastShipTouchedPlayer.getPrevTickShipTransform(), lastShipTouchedPlayer.getShipTransform());
 
             ValkyrienUtils.transformEntity(betweenTransform, entity);
 
-            Vector3dc newPos = new Vector3d(entity.posX, entity.posY, entity.posZ);
+            Vector3dc addedVel = new Vector3d(entity.posX - oldPosX, entity.posY - oldPosY, entity.posZ - oldPosZ);
 
             // Move the entity back to its old position, the added velocity will be used
             // afterwards
-            entity.setPosition(oldPos.x(), oldPos.y(), oldPos.z());
-            Vector3dc addedVel = newPos.sub(oldPos, new Vector3d());
+            entity.setPosition(oldPosX, oldPosY, oldPosZ);
 
             // Now compute the added yaw velocity
             entity.rotationYaw = rotYaw;
@@ -144,7 +142,7 @@ public class EntityDraggable {
                     yawDif = 0D;
                 }
             }
-            draggable.setEntityShipMovementData(oldEntityShipMovementData.withAddedLinearVelocity(addedVel.mul(1, new Vector3d())).withAddedYawVelocity(yawDif));
+            draggable.setEntityShipMovementData(oldEntityShipMovementData.withAddedLinearVelocity(addedVel).withAddedYawVelocity(yawDif));
         }
 
         // Now that we've determined the added velocity, move the entity forward by that amount
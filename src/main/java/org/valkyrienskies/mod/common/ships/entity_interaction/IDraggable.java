@@ -10,4 +10,11 @@ public interface IDraggable {
     EntityShipMovementData getEntityShipMovementData();
 
     void setEntityShipMovementData(@Nullable EntityShipMovementData entityShipMovementData);
+
+    /**
+     * @return True if this entity is in the {@link DraggedEntityTracker} of its world
+     */
+    boolean isInDraggedEntityTracker();
+
+    void setInDraggedEntityTracker(boolean inDraggedEntityTracker);
 }
@@ -2,15 +2,15 @@ package org.valkyrienskies.mod.common.ships.physics_data;
 
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
-import org.joml.Matrix3d;
-import org.joml.Vector3d;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
-import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
-import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
 
 public class BasicCenterOfMassProvider implements IPhysicsObjectCenterOfMassProvider {
 
     private static final double INERTIA_OFFSET = .4D;
+    // The mass of a block is spread as 1/9th at its center and 1/9th at each of the 8 points INERTIA_OFFSET away
+    // from it on every axis. Around the center that only adds this to the second moment along each axis.
+    private static final double BLOCK_MASS_SPREAD = 8D / 9D * INERTIA_OFFSET * INERTIA_OFFSET;
 
     @Override
     public void onSetBlockState(ShipInertiaData inertiaData, BlockPos pos, IBlockState oldState, IBlockState newState) {
@@ -20,75 +20,54 @@ public class BasicCenterOfMassProvider implements IPhysicsObjectCenterOfMassProv
             double deltaMass = newMass - oldMass;
             // Don't change anything if the mass is the same
             if (Math.abs(deltaMass) > .00001) {
-                double x = pos.getX() + .5;
-                double y = pos.getY() + .5;
-                double z = pos.getZ() + .5;
-
-                deltaMass /= 9;
-                addMassAt(inertiaData, x, y, z, deltaMass);
-                addMassAt(inertiaData, x + INERTIA_OFFSET, y + INERTIA_OFFSET, z + INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x + INERTIA_OFFSET, y + INERTIA_OFFSET, z - INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x + INERTIA_OFFSET, y - INERTIA_OFFSET, z + INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x + INERTIA_OFFSET, y - INERTIA_OFFSET, z - INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x - INERTIA_OFFSET, y + INERTIA_OFFSET, z + INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x - INERTIA_OFFSET, y + INERTIA_OFFSET, z - INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x - INERTIA_OFFSET, y - INERTIA_OFFSET, z + INERTIA_OFFSET, deltaMass);
-                addMassAt(inertiaData, x - INERTIA_OFFSET, y - INERTIA_OFFSET, z - INERTIA_OFFSET, deltaMass);
+                inertiaData.addMass(pos.getX() + .5, pos.getY() + .5, pos.getZ() + .5, deltaMass,
+                    BLOCK_MASS_SPREAD);
             }
         }
     }
 
-    /**
-     * Updates the center of mass and rotation inertia tensor matrix of the ShipInertiaData, using the rigid body
-     * inertia tensor equations. Reference http://www.kwon3d.com/theory/moi/triten.html eqs. 13 & 14.
-     */
-    private void addMassAt(ShipInertiaData inertiaData, double x, double y, double z, double addedMass) {
-        double[] gameMoITensor = new double[9];
-        Matrix3d transposed = inertiaData.getGameMoITensor().transpose(new Matrix3d());
-        transposed.get(gameMoITensor);
-
-        double gameTickMass = inertiaData.getGameTickMass();
-        Vector3d prevCenterOfMass = new Vector3d(inertiaData.getGameTickCenterOfMass());
-        if (gameTickMass > .0001D) {
-            Vector3d newCenterOfMass = inertiaData.getGameTickCenterOfMass().mul(gameTickMass, new Vector3d());
-            newCenterOfMass.add(x * addedMass, y * addedMass, z * addedMass);
-            newCenterOfMass.mul(1.0 / (gameTickMass + addedMass));
-            inertiaData.setGameTickCenterOfMass(newCenterOfMass);
-        } else {
-            inertiaData.setGameTickCenterOfMass(new Vector3d(x, y, z));
-            inertiaData.setGameMoITensor(new Matrix3d().zero());
+    @Override
+    public void onSectionAdded(ShipInertiaData inertiaData, BlockPos sectionOrigin, ExtendedBlockStorage section) {
+        if (section.isEmpty()) {
+            return;
         }
-
-        // This code is pretty awful in hindsight, but it gets the job done.
-        double cmShiftX = prevCenterOfMass.x - inertiaData.getGameTickCenterOfMass().x();
-        double cmShiftY = prevCenterOfMass.y - inertiaData.getGameTickCenterOfMass().y();
-        double cmShiftZ = prevCenterOfMass.z - inertiaData.getGameTickCenterOfMass().z();
-        double rx = x - inertiaData.getGameTickCenterOfMass().x();
-        double ry = y - inertiaData.getGameTickCenterOfMass().y();
-        double rz = z - inertiaData.getGameTickCenterOfMass().z();
-
-        gameMoITensor[0] = gameMoITensor[0] + (cmShiftY * cmShiftY + cmShiftZ * cmShiftZ) * gameTickMass
-                + (ry * ry + rz * rz) * addedMass;
-        gameMoITensor[1] = gameMoITensor[1] - cmShiftX * cmShiftY * gameTickMass - rx * ry * addedMass;
-        gameMoITensor[2] = gameMoITensor[2] - cmShiftX * cmShiftZ * gameTickMass - rx * rz * addedMass;
-        gameMoITensor[3] = gameMoITensor[1];
-        gameMoITensor[4] = gameMoITensor[4] + (cmShiftX * cmShiftX + cmShiftZ * cmShiftZ) * gameTickMass
-                + (rx * rx + rz * rz) * addedMass;
-        gameMoITensor[5] = gameMoITensor[5] - cmShiftY * cmShiftZ * gameTickMass - ry * rz * addedMass;
-        gameMoITensor[6] = gameMoITensor[2];
-        gameMoITensor[7] = gameMoITensor[5];
-        gameMoITensor[8] = gameMoITensor[8] + (cmShiftX * cmShiftX + cmShiftY * cmShiftY) * gameTickMass
-                + (rx * rx + ry * ry) * addedMass;
-
-
-        inertiaData.setGameMoITensor(new Matrix3d().set(gameMoITensor).transpose());
-
-        // Do this to avoid a mass of zero, which runs the risk of dividing by zero and
-        // crashing the program.
-        if (inertiaData.getGameTickMass() + addedMass < .0001) {
-            inertiaData.setGameTickMass(0);
-        } else {
-            inertiaData.setGameTickMass(inertiaData.getGameTickMass() + addedMass);
+        // Sum the moments in section coordinates, which are small enough to not lose any precision
+        double mass = 0;
+        double momentX = 0, momentY = 0, momentZ = 0;
+        double momentXX = 0, momentYY = 0, momentZZ = 0, momentXY = 0, momentXZ = 0, momentYZ = 0;
+        IBlockState lastState = null;
+        double lastMass = 0;
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    IBlockState state = section.get(x, y, z);
+                    if (state != lastState) {
+                        // Neighbouring blocks are usually the same, so skip looking their mass up again
+                        lastState = state;
+                        lastMass = BlockPhysicsDetails.getMassFromState(state);
+                    }
+                    if (Math.abs(lastMass) <= .00001) {
+                        continue;
+                    }
+                    double cx = x + .5;
+                    double cy = y + .5;
+                    double cz = z + .5;
+                    mass += lastMass;
+                    momentX += lastMass * cx;
+                    momentY += lastMass * cy;
+                    momentZ += lastMass * cz;
+                    momentXX += lastMass * (cx * cx + BLOCK_MASS_SPREAD);
+                    momentYY += lastMass * (cy * cy + BLOCK_MASS_SPREAD);
+                    momentZZ += lastMass * (cz * cz + BLOCK_MASS_SPREAD);
+                    momentXY += lastMass * cx * cy;
+                    momentXZ += lastMass * cx * cz;
+                    momentYZ += lastMass * cy * cz;
+                }
+            }
+        }
+        if (mass > 0) {
+            inertiaData.addMoments(sectionOrigin.getX(), sectionOrigin.getY(), sectionOrigin.getZ(), mass, momentX,
+                momentY, momentZ, momentXX, momentYY, momentZZ, momentXY, momentXZ, momentYZ);
         }
     }
 
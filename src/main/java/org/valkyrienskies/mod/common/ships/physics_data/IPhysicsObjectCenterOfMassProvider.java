@@ -2,6 +2,7 @@ package org.valkyrienskies.mod.common.ships.physics_data;
 
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
 
 import javax.annotation.ParametersAreNonnullByDefault;
@@ -14,4 +15,13 @@ public interface IPhysicsObjectCenterOfMassProvider {
     @ParametersAreNonnullByDefault
     void onSetBlockState(ShipInertiaData data, BlockPos pos, IBlockState oldState, IBlockState newState);
 
+    /**
+     * Adds every block of a section that used to be empty, the same as calling {@link #onSetBlockState} from air for
+     * each of them.
+     *
+     * @param sectionOrigin The position of the lowest corner of the section
+     */
+    @ParametersAreNonnullByDefault
+    void onSectionAdded(ShipInertiaData data, BlockPos sectionOrigin, ExtendedBlockStorage section);
+
 }
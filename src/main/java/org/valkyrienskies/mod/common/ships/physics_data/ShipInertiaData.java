@@ -1,22 +1,236 @@
 package org.valkyrienskies.mod.common.ships.physics_data;
 
-import lombok.Data;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import org.joml.Matrix3d;
 import org.joml.Matrix3dc;
 import org.joml.Vector3d;
 import org.joml.Vector3dc;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
- * Stores the data of the ship mas and inertia matrix.
+ * Stores the data of the ship mass and inertia matrix.
+ * <p>
+ * Only the sums of the masses (Σm), their first moments (Σmx, Σmy, Σmz) and their second moments (Σmxx, Σmxy, ...)
+ * are stored, so adding or removing a mass is a few additions. The center of mass and the inertia tensor around it
+ * are derived from the sums when they're read, and cached until the sums change. The moments are taken around a
+ * reference point near the ship blocks rather than the origin, because the shipyard coordinates are so large that
+ * their squares would lose most of the precision.
+ * <p>
+ * Written by the game thread, read by any thread.
  */
-@Data
 public class ShipInertiaData {
 
-    double gameTickMass = 0;
+    // Below this the ship has no mass, and the sums are reset to drop their rounding error
+    private static final double MIN_MASS = .0001;
+
+    private double referenceX, referenceY, referenceZ;
+    private double mass;
+    private double momentX, momentY, momentZ;
+    private double momentXX, momentYY, momentZZ, momentXY, momentXZ, momentYZ;
+
+    // Incremented after every change of the sums
+    private transient volatile int modificationCount;
+    private transient volatile DerivedInertia derived;
+
+    public ShipInertiaData() {
+        this.modificationCount = 0;
+        this.derived = null;
+    }
+
+    /**
+     * Reads the mass, center of mass and inertia tensor stored by older versions.
+     */
+    @JsonCreator
+    private ShipInertiaData(@JsonProperty("gameTickMass") @Nullable Double legacyMass,
+        @JsonProperty("gameTickCenterOfMass") @Nullable Vector3dc legacyCenterOfMass,
+        @JsonProperty("gameMoITensor") @Nullable Matrix3dc legacyMoITensor) {
+        this();
+        if (legacyMass != null && legacyCenterOfMass != null && legacyMoITensor != null) {
+            setFromTensor(legacyMass, legacyCenterOfMass, legacyMoITensor);
+        }
+    }
+
+    /**
+     * Adds a mass spread evenly around a point.
+     *
+     * @param spread The mean of the squared distance of the mass from the point along each axis, 0 for a point mass
+     */
+    public void addMass(double x, double y, double z, double addedMass, double spread) {
+        if (mass < MIN_MASS && addedMass > 0) {
+            moveReference(x, y, z);
+        }
+        double rx = x - referenceX;
+        double ry = y - referenceY;
+        double rz = z - referenceZ;
+        mass += addedMass;
+        momentX += addedMass * rx;
+        momentY += addedMass * ry;
+        momentZ += addedMass * rz;
+        momentXX += addedMass * (rx * rx + spread);
+        momentYY += addedMass * (ry * ry + spread);
+        momentZZ += addedMass * (rz * rz + spread);
+        momentXY += addedMass * rx * ry;
+        momentXZ += addedMass * rx * rz;
+        momentYZ += addedMass * ry * rz;
+        onMomentsChanged();
+    }
+
+    /**
+     * Adds the moments of many masses at once, taken around (originX, originY, originZ). Used to add whole sections
+     * of blocks, whose moments can be summed in section coordinates.
+     */
+    public void addMoments(double originX, double originY, double originZ, double addedMass, double addedMomentX,
+        double addedMomentY, double addedMomentZ, double addedMomentXX, double addedMomentYY, double addedMomentZZ,
+        double addedMomentXY, double addedMomentXZ, double addedMomentYZ) {
+        if (mass < MIN_MASS && addedMass > 0) {
+            moveReference(originX + addedMomentX / addedMass, originY + addedMomentY / addedMass,
+                originZ + addedMomentZ / addedMass);
+        }
+        // Shift the moments from the origin to the reference point
+        double ox = originX - referenceX;
+        double oy = originY - referenceY;
+        double oz = originZ - referenceZ;
+        mass += addedMass;
+        momentX += addedMomentX + addedMass * ox;
+        momentY += addedMomentY + addedMass * oy;
+        momentZ += addedMomentZ + addedMass * oz;
+        momentXX += addedMomentXX + 2 * ox * addedMomentX + addedMass * ox * ox;
+        momentYY += addedMomentYY + 2 * oy * addedMomentY + addedMass * oy * oy;
+        momentZZ += addedMomentZZ + 2 * oz * addedMomentZ + addedMass * oz * oz;
+        momentXY += addedMomentXY + ox * addedMomentY + oy * addedMomentX + addedMass * ox * oy;
+        momentXZ += addedMomentXZ + ox * addedMomentZ + oz * addedMomentX + addedMass * ox * oz;
+        momentYZ += addedMomentYZ + oy * addedMomentZ + oz * addedMomentY + addedMass * oy * oz;
+        onMomentsChanged();
+    }
+
+    /**
+     * Makes this a copy of other.
+     */
+    public void set(@Nonnull ShipInertiaData other) {
+        referenceX = other.referenceX;
+        referenceY = other.referenceY;
+        referenceZ = other.referenceZ;
+        mass = other.mass;
+        momentX = other.momentX;
+        momentY = other.momentY;
+        momentZ = other.momentZ;
+        momentXX = other.momentXX;
+        momentYY = other.momentYY;
+        momentZZ = other.momentZZ;
+        momentXY = other.momentXY;
+        momentXZ = other.momentXZ;
+        momentYZ = other.momentYZ;
+        onMomentsChanged();
+    }
+
+    public double getGameTickMass() {
+        return getDerived().mass;
+    }
+
     @Nonnull
-    Matrix3dc gameMoITensor = new Matrix3d();
+    public Vector3dc getGameTickCenterOfMass() {
+        return getDerived().centerOfMass;
+    }
+
+    /**
+     * @return The inertia tensor around the center of mass
+     */
     @Nonnull
-    Vector3dc gameTickCenterOfMass = new Vector3d();
+    public Matrix3dc getGameMoITensor() {
+        return getDerived().moITensor;
+    }
+
+    private void moveReference(double x, double y, double z) {
+        // Only called without mass, so the sums can just be cleared
+        referenceX = x;
+        referenceY = y;
+        referenceZ = z;
+        mass = 0;
+        momentX = momentY = momentZ = 0;
+        momentXX = momentYY = momentZZ = momentXY = momentXZ = momentYZ = 0;
+    }
+
+    private void onMomentsChanged() {
+        if (Math.abs(mass) < MIN_MASS) {
+            // Everything was removed, don't keep the rounding error around
+            mass = 0;
+            momentX = momentY = momentZ = 0;
+            momentXX = momentYY = momentZZ = momentXY = momentXZ = momentYZ = 0;
+        }
+        modificationCount++;
+    }
+
+    /**
+     * Sets the sums to those of the given mass, center of mass and inertia tensor.
+     */
+    private void setFromTensor(double newMass, Vector3dc centerOfMass, Matrix3dc moITensor) {
+        moveReference(centerOfMass.x(), centerOfMass.y(), centerOfMass.z());
+        if (newMass < MIN_MASS) {
+            onMomentsChanged();
+            return;
+        }
+        // The tensor is trace(S) * identity - S, where S are the second moments around the center of mass
+        double halfTrace = (moITensor.m00() + moITensor.m11() + moITensor.m22()) / 2;
+        mass = newMass;
+        momentXX = halfTrace - moITensor.m00();
+        momentYY = halfTrace - moITensor.m11();
+        momentZZ = halfTrace - moITensor.m22();
+        momentXY = -moITensor.m01();
+        momentXZ = -moITensor.m02();
+        momentYZ = -moITensor.m12();
+        onMomentsChanged();
+    }
+
+    private DerivedInertia getDerived() {
+        // Read the count first, a change that happens while deriving makes the next call derive again
+        int count = modificationCount;
+        DerivedInertia current = derived;
+        if (current != null && current.modificationCount == count) {
+            return current;
+        }
+        current = new DerivedInertia(count, current);
+        derived = current;
+        return current;
+    }
+
+    private class DerivedInertia {
+
+        final int modificationCount;
+        final double mass;
+        final Vector3dc centerOfMass;
+        final Matrix3dc moITensor;
+
+        DerivedInertia(int modificationCount, @Nullable DerivedInertia previous) {
+            this.modificationCount = modificationCount;
+            double totalMass = ShipInertiaData.this.mass;
+            if (totalMass < MIN_MASS) {
+                // Keep the last center of mass, so an emptied ship doesn't jump
+                this.mass = 0;
+                this.centerOfMass = previous != null ? previous.centerOfMass : new Vector3d();
+                this.moITensor = new Matrix3d().zero();
+                return;
+            }
+            double cx = momentX / totalMass;
+            double cy = momentY / totalMass;
+            double cz = momentZ / totalMass;
+            // The second moments around the center of mass
+            double sxx = momentXX - totalMass * cx * cx;
+            double syy = momentYY - totalMass * cy * cy;
+            double szz = momentZZ - totalMass * cz * cz;
+            double sxy = momentXY - totalMass * cx * cy;
+            double sxz = momentXZ - totalMass * cx * cz;
+            double syz = momentYZ - totalMass * cy * cz;
+
+            this.mass = totalMass;
+            this.centerOfMass = new Vector3d(referenceX + cx, referenceY + cy, referenceZ + cz);
+            // Matrix3d takes the columns, the tensor is symmetric anyways
+            this.moITensor = new Matrix3d(
+                syy + szz, -sxy, -sxz,
+                -sxy, sxx + szz, -syz,
+                -sxz, -syz, sxx + syy);
+        }
+    }
 }
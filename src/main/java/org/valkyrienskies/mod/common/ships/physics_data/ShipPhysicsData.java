@@ -21,4 +21,20 @@ public class ShipPhysicsData {
     @JsonSerialize(as = Vector3d.class)
     @JsonDeserialize(as = Vector3d.class)
     private Vector3dc angularVelocity;
+
+    /**
+     * Sets both velocities at once, so that {@link #copy()} never sees them from different physics ticks. Used by the
+     * physics thread.
+     */
+    public synchronized void setVelocities(Vector3dc linearVelocity, Vector3dc angularVelocity) {
+        this.linearVelocity = new Vector3d(linearVelocity);
+        this.angularVelocity = new Vector3d(angularVelocity);
+    }
+
+    /**
+     * @return A copy of this with both velocities from the same physics tick, safe to call from any thread.
+     */
+    public synchronized ShipPhysicsData copy() {
+        return new ShipPhysicsData(new Vector3d(linearVelocity), new Vector3d(angularVelocity));
+    }
 }
@@ -35,7 +35,7 @@ public class ShipTransformationManager {
         this.normals = createCollisionNormals(initialTransform);
     }
 
-    private static Vector3dc[] createCollisionNormals(ShipTransform transform) {
+    public static Vector3dc[] createCollisionNormals(ShipTransform transform) {
         // We edit a local array instead of normals to avoid data races.
         final Vector3dc[] newNormals = new Vector3dc[15];
         // Used to generate Normals for the Axis Aligned World
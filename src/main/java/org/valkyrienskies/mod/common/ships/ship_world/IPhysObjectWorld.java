@@ -3,6 +3,7 @@ package org.valkyrienskies.mod.common.ships.ship_world;
 import com.google.common.collect.ImmutableList;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.world.World;
+import org.valkyrienskies.mod.common.ships.entity_interaction.DraggedEntityTracker;
 import org.valkyrienskies.mod.common.util.multithreaded.CalledFromWrongThreadException;
 
 import javax.annotation.Nonnull;
@@ -33,6 +34,18 @@ public interface IPhysObjectWorld {
     @Nullable
     PhysicsObject getPhysObjectFromUUID(@Nonnull UUID shipID) throws CalledFromWrongThreadException;
 
+    /**
+     * Can be called from any thread.
+     * @return Null if no loaded PhysicsObject claims the given chunk.
+     */
+    @Nullable
+    PhysicsObject getPhysObjectManagingChunk(int chunkX, int chunkZ);
+
+    /**
+     * Must be called on the game thread after chunks were added to or removed from the claim of a loaded ship.
+     */
+    void onShipChunkClaimChanged(@Nonnull PhysicsObject ship);
+
     /**
      * @return A list of all the physics objects whose AABB intersect with toCheck.
      */
@@ -59,4 +72,11 @@ public interface IPhysObjectWorld {
      */
     void queueShipUnload(@Nonnull UUID shipID);
 
+    /**
+     * Must be called on the game thread.
+     * @return The entities of this world that have to be moved with ships.
+     */
+    @Nonnull
+    DraggedEntityTracker getDraggedEntities();
+
 }
@@ -0,0 +1,70 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.util.math.ChunkPos;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Maps every chunk claimed by a loaded ship to its {@link PhysicsObject}.
+ * <p>
+ * Reads are lock free and can happen on any thread. The map is copy on write: every change copies the
+ * current map, modifies the copy and then publishes it through a volatile field. Ships are loaded and
+ * unloaded rarely compared to how often this is read, so that trade is worth it.
+ */
+public class LoadedShipChunkMap {
+
+    // Never modified after being published
+    private volatile TLongObjectHashMap<PhysicsObject> chunkToShip;
+
+    public LoadedShipChunkMap() {
+        this.chunkToShip = new TLongObjectHashMap<>();
+    }
+
+    /**
+     * Thread safe, lock free.
+     *
+     * @return The loaded ship that claims the chunk, or null if there isn't one.
+     */
+    @Nullable
+    public PhysicsObject getShipManagingChunk(int chunkX, int chunkZ) {
+        return chunkToShip.get(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Maps all the chunks currently claimed by ship to ship.
+     */
+    public synchronized void addShip(@Nonnull PhysicsObject ship) {
+        TLongObjectHashMap<PhysicsObject> copy = new TLongObjectHashMap<>(chunkToShip);
+        for (ChunkPos chunkPos : ship.getChunkClaim()) {
+            copy.put(ChunkPos.asLong(chunkPos.x, chunkPos.z), ship);
+        }
+        chunkToShip = copy;
+    }
+
+    /**
+     * Removes every chunk mapped to ship, including the ones it no longer claims.
+     */
+    public synchronized void removeShip(@Nonnull PhysicsObject ship) {
+        TLongObjectHashMap<PhysicsObject> copy = new TLongObjectHashMap<>(chunkToShip);
+        copy.retainEntries((chunkLong, mappedShip) -> mappedShip != ship);
+        chunkToShip = copy;
+    }
+
+    /**
+     * Remaps ship to the chunks it currently claims, after its claim grew or shrank.
+     */
+    public synchronized void updateShip(@Nonnull PhysicsObject ship) {
+        TLongObjectHashMap<PhysicsObject> copy = new TLongObjectHashMap<>(chunkToShip);
+        copy.retainEntries((chunkLong, mappedShip) -> mappedShip != ship);
+        for (ChunkPos chunkPos : ship.getChunkClaim()) {
+            copy.put(ChunkPos.asLong(chunkPos.x, chunkPos.z), ship);
+        }
+        chunkToShip = copy;
+    }
+
+    public synchronized void clear() {
+        chunkToShip = new TLongObjectHashMap<>();
+    }
+}
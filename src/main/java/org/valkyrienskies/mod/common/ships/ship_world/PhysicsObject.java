@@ -1,5 +1,6 @@
 package org.valkyrienskies.mod.common.ships.ship_world;
 
+import gnu.trove.set.TLongSet;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Delegate;
@@ -9,7 +10,6 @@ import net.minecraft.network.play.server.SPacketUnloadChunk;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.ChunkCache;
@@ -30,7 +30,8 @@ import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
 import org.valkyrienskies.mod.common.ships.chunk_claims.ClaimedChunkCacheController;
 import org.valkyrienskies.mod.common.ships.chunk_claims.SurroundingChunkCacheController;
-import org.valkyrienskies.mod.common.ships.block_relocation.MoveBlocks;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.block_relocation.BulkBlockRelocator;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
 import valkyrienwarfare.api.IPhysicsEntity;
 import valkyrienwarfare.api.TransformType;
@@ -189,6 +190,13 @@ public class PhysicsObject implements IPhysicsEntity {
         this.setNeedsCollisionCacheUpdate(true);
     }
 
+    /**
+     * Wakes this ship up if its physics are sleeping. Can be called from any thread.
+     */
+    public void wakeUp() {
+        physicsCalculations.wakeUp();
+    }
+
     /**
      * @return the cachedSurroundingChunks
      */
@@ -244,8 +252,6 @@ public class PhysicsObject implements IPhysicsEntity {
 
         // Finally, copy all the blocks from the ship to the world
         if (!getBlockPositions().isEmpty()) {
-            MutableBlockPos newPos = new MutableBlockPos();
-
             ShipTransform currentTransform = getShipTransformationManager().getCurrentTickTransform();
             Vector3dc position = new Vector3d(currentTransform.getPosX(), currentTransform.getPosY(),
                     currentTransform.getPosZ());
@@ -255,11 +261,14 @@ public class PhysicsObject implements IPhysicsEntity {
                     Math.round(getCenterCoord().y() - position.y()),
                     Math.round(getCenterCoord().z() - position.z()));
 
-            for (BlockPos oldPos : this.getBlockPositions()) {
-                newPos.setPos(oldPos.getX() - centerDifference.getX(),
-                        oldPos.getY() - centerDifference.getY(), oldPos.getZ() - centerDifference.getZ());
-                MoveBlocks.copyBlockToPos(getWorld(), oldPos, newPos, null);
+            // The ship is aligned to the grid, so its blocks only need to be moved by a whole number of blocks.
+            // Move them a section at a time, with one chunk packet per world chunk.
+            BulkBlockRelocator relocator = new BulkBlockRelocator(getWorld(), new BlockPos(-centerDifference.getX(),
+                    -centerDifference.getY(), -centerDifference.getZ()));
+            for (Chunk chunk : getClaimedChunkCache()) {
+                relocator.relocateChunk(chunk);
             }
+            relocator.finish();
 
             // Just delete the tile entities in ship to prevent any dupe bugs.
             for (BlockPos oldPos : this.getBlockPositions()) {
@@ -343,6 +352,28 @@ public class PhysicsObject implements IPhysicsEntity {
         shipRenderer.updateChunk(chunk);
     }
 
+    /**
+     * Called on the client after the server changed the chunk claim of this ship. The claim must already contain
+     * the claimed chunks, and not contain the released ones.
+     */
+    public void onChunkClaimChanged(@Nonnull TLongSet claimed, @Nonnull TLongSet released) {
+        if (!world.isRemote) {
+            throw new IllegalStateException("The server changes claims through WorldServerShipManager");
+        }
+        // The chunks may not have arrived yet, in which case updateChunk() gets called again once they do.
+        claimed.forEach(chunkLong -> {
+            updateChunk(world.getChunk(VSChunkClaim.getChunkX(chunkLong), VSChunkClaim.getChunkZ(chunkLong)));
+            return true;
+        });
+        released.forEach(chunkLong -> {
+            int chunkX = VSChunkClaim.getChunkX(chunkLong);
+            int chunkZ = VSChunkClaim.getChunkZ(chunkLong);
+            claimedChunkCache.removeChunk(chunkX, chunkZ);
+            shipRenderer.removeChunk(chunkX, chunkZ);
+            return true;
+        });
+    }
+
     /**
      * A thread safe way of accessing tile entities within a ship. Not guaranteed to provide the most up to do tile.
      */
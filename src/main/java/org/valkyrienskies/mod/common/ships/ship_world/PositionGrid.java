@@ -0,0 +1,192 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Buckets objects into a coarse uniform grid over the x and z axes by their position, so that {@link
+ * WorldShipLoadingController} can find the players and ships near a position without looking at all of them.
+ * <p>
+ * Positions are updated incrementally with {@link #update(Object, double, double)}, an object only changes buckets
+ * when it moves into a different cell.
+ * <p>
+ * Not thread safe, only used by the game thread.
+ */
+public class PositionGrid<T> {
+
+    // 128 blocks, the ship loading distances are between 128 and 192 blocks so queries only touch a few cells
+    private static final int CELL_SIZE_BITS = 7;
+
+    private final TLongObjectHashMap<Set<T>> cells;
+    private final Map<T, Position> positions;
+
+    public PositionGrid() {
+        this.cells = new TLongObjectHashMap<>();
+        this.positions = new HashMap<>();
+    }
+
+    /**
+     * Adds object to the grid, or moves it if it already is in the grid.
+     */
+    public void update(@Nonnull T object, double x, double z) {
+        long cellKey = getCellKey(toCell(x), toCell(z));
+        Position position = positions.get(object);
+        if (position == null) {
+            positions.put(object, new Position(x, z, cellKey));
+            getOrCreateCell(cellKey).add(object);
+            return;
+        }
+        position.x = x;
+        position.z = z;
+        if (position.cellKey != cellKey) {
+            removeFromCell(object, position.cellKey);
+            getOrCreateCell(cellKey).add(object);
+            position.cellKey = cellKey;
+        }
+    }
+
+    /**
+     * @return True if object was in the grid
+     */
+    public boolean remove(@Nonnull T object) {
+        Position position = positions.remove(object);
+        if (position == null) {
+            return false;
+        }
+        removeFromCell(object, position.cellKey);
+        return true;
+    }
+
+    /**
+     * Removes every object that isn't in toKeep.
+     */
+    public void retainAll(@Nonnull Collection<?> toKeep) {
+        Iterator<Map.Entry<T, Position>> iterator = positions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<T, Position> entry = iterator.next();
+            if (!toKeep.contains(entry.getKey())) {
+                removeFromCell(entry.getKey(), entry.getValue().cellKey);
+                iterator.remove();
+            }
+        }
+    }
+
+    public boolean contains(@Nonnull T object) {
+        return positions.containsKey(object);
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        positions.clear();
+    }
+
+    /**
+     * Calls consumer for every object whose XZ distance to (x, z) is less than distance.
+     */
+    public void forEachWithinDistance(double x, double z, double distance, @Nonnull Consumer<T> consumer) {
+        findWithinDistance(x, z, distance, object -> {
+            consumer.accept(object);
+            return false;
+        });
+    }
+
+    /**
+     * @return True if there is an object whose XZ distance to (x, z) is less than distance.
+     */
+    public boolean anyWithinDistance(double x, double z, double distance) {
+        return findWithinDistance(x, z, distance, object -> true);
+    }
+
+    /**
+     * Visits the objects within distance of (x, z) until visitor returns true.
+     *
+     * @return True if visitor returned true
+     */
+    private boolean findWithinDistance(double x, double z, double distance, Predicate<T> visitor) {
+        int minCellX = toCell(x - distance);
+        int minCellZ = toCell(z - distance);
+        int maxCellX = toCell(x + distance);
+        int maxCellZ = toCell(z + distance);
+        double distanceSq = distance * distance;
+        long cellCount = ((long) maxCellX - minCellX + 1) * ((long) maxCellZ - minCellZ + 1);
+        if (cellCount > positions.size()) {
+            // Looking at every object is cheaper than looking at every cell of a query this big
+            for (Map.Entry<T, Position> entry : positions.entrySet()) {
+                double xDif = entry.getValue().x - x;
+                double zDif = entry.getValue().z - z;
+                if (xDif * xDif + zDif * zDif < distanceSq && visitor.test(entry.getKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                Set<T> cell = cells.get(getCellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (T object : cell) {
+                    Position position = positions.get(object);
+                    double xDif = position.x - x;
+                    double zDif = position.z - z;
+                    if (xDif * xDif + zDif * zDif < distanceSq && visitor.test(object)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private Set<T> getOrCreateCell(long cellKey) {
+        Set<T> cell = cells.get(cellKey);
+        if (cell == null) {
+            cell = new HashSet<>();
+            cells.put(cellKey, cell);
+        }
+        return cell;
+    }
+
+    private void removeFromCell(T object, long cellKey) {
+        Set<T> cell = cells.get(cellKey);
+        cell.remove(object);
+        if (cell.isEmpty()) {
+            cells.remove(cellKey);
+        }
+    }
+
+    private static int toCell(double coordinate) {
+        // Clamp so that huge or NaN positions don't overflow the cell math
+        if (!(coordinate > -1e9)) {
+            coordinate = -1e9;
+        } else if (coordinate > 1e9) {
+            coordinate = 1e9;
+        }
+        return ((int) Math.floor(coordinate)) >> CELL_SIZE_BITS;
+    }
+
+    private static long getCellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static class Position {
+
+        double x, z;
+        long cellKey;
+
+        Position(double x, double z, long cellKey) {
+            this.x = x;
+            this.z = z;
+            this.cellKey = cellKey;
+        }
+    }
+}
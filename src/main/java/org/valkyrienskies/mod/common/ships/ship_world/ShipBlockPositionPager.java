@@ -0,0 +1,234 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.ShipDataMethods;
+import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSet;
+import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSetAABB;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Drops the {@link ShipData#blockPositions} and {@link ShipData#activeForcePositions} of unloaded ships from memory,
+ * and reads them back from the {@link ShipDataStore} when the ships start loading.
+ * <p>
+ * Loaded ships always have their block positions. Of the unloaded ships, only the {@link
+ * VSConfig#unloadedShipBlockCacheSize} most recently used keep them, the others have them set to null once they're
+ * saved. Reads happen on the save thread, so they always see the latest save.
+ * <p>
+ * Block changes in ships that are paged out are queued, the block positions are read back and the changes are
+ * replayed on them in order. A ship whose block positions couldn't be read is tried again after {@link
+ * #RETRY_FAILED_READ_TICKS}.
+ * <p>
+ * Besides {@link #queueBlockChange}, only used by the game thread.
+ */
+class ShipBlockPositionPager {
+
+    static final int RETRY_FAILED_READ_TICKS = 20 * 30;
+
+    private final ShipDataStore store;
+    private final Executor ioExecutor;
+    // Unloaded ships that have their block positions, least recently used first
+    private final LinkedHashMap<UUID, ShipData> residentUnloadedShips;
+    private final Set<UUID> loadedShips;
+    private final Set<UUID> pagingIn;
+    // Ships whose block positions couldn't be read, they can't be loaded. By the tick they can be read again.
+    private final Map<UUID, Long> failedShips;
+    // Filled by the save thread, emptied by the game thread
+    private final Queue<PagedInBlocks> pagedIn;
+    // Filled by any thread, emptied by the game thread
+    private final Queue<BlockChange> queuedBlockChanges;
+    // The block changes whose ships are still being paged in, in the order they were made
+    private final List<BlockChange> waitingBlockChanges;
+    private long ticks;
+
+    ShipBlockPositionPager(@Nonnull ShipDataStore store, @Nonnull Executor ioExecutor) {
+        this.store = store;
+        this.ioExecutor = ioExecutor;
+        this.residentUnloadedShips = new LinkedHashMap<>(16, .75f, true);
+        this.loadedShips = new HashSet<>();
+        this.pagingIn = new HashSet<>();
+        this.failedShips = new HashMap<>();
+        this.pagedIn = new ConcurrentLinkedQueue<>();
+        this.queuedBlockChanges = new ConcurrentLinkedQueue<>();
+        this.waitingBlockChanges = new ArrayList<>();
+        this.ticks = 0;
+    }
+
+    /**
+     * @return True if the block positions of ship are in memory
+     */
+    boolean isResident(@Nonnull ShipData ship) {
+        return ship.blockPositions != null && ship.activeForcePositions != null;
+    }
+
+    /**
+     * @return True if the block positions of ship couldn't be read, and won't be read again for now
+     */
+    boolean hasFailed(@Nonnull ShipData ship) {
+        return failedShips.containsKey(ship.getUuid());
+    }
+
+    /**
+     * Starts reading the block positions of ship if they aren't in memory, or marks them as recently used if they
+     * are.
+     */
+    void requestPageIn(@Nonnull ShipData ship) {
+        if (isResident(ship)) {
+            residentUnloadedShips.get(ship.getUuid());
+            return;
+        }
+        UUID shipID = ship.getUuid();
+        Long retryTick = failedShips.get(shipID);
+        if (retryTick != null) {
+            if (ticks < retryTick) {
+                return;
+            }
+            failedShips.remove(shipID);
+        }
+        if (!pagingIn.add(shipID)) {
+            return;
+        }
+        ioExecutor.execute(() -> {
+            try {
+                ShipData stored = store.read(shipID);
+                if (stored == null || stored.blockPositions == null || stored.activeForcePositions == null) {
+                    throw new IOException("No block positions were saved for the ship " + shipID);
+                }
+                pagedIn.add(new PagedInBlocks(shipID, stored.blockPositions, stored.activeForcePositions));
+            } catch (IOException e) {
+                System.err.println("Failed to read the block positions of the ship " + shipID);
+                e.printStackTrace();
+                pagedIn.add(new PagedInBlocks(shipID, null, null));
+            }
+        });
+    }
+
+    /**
+     * Queues a block change of a ship whose block positions are paged out, it's replayed on them once they're read
+     * back. Thread safe.
+     */
+    void queueBlockChange(@Nonnull ShipData ship, @Nonnull BlockPos pos, @Nonnull IBlockState oldState,
+        @Nonnull IBlockState newState) {
+        queuedBlockChanges.add(new BlockChange(ship.getUuid(), pos.toImmutable(), oldState, newState));
+    }
+
+    /**
+     * Gives the ships whose block positions finished reading their block positions back, replays the block changes
+     * that were waiting for them, and pages out the least recently used unloaded ships if there are too many.
+     */
+    void tick(@Nonnull QueryableShipData queryableShipData) {
+        ticks++;
+        PagedInBlocks blocks;
+        while ((blocks = pagedIn.poll()) != null) {
+            pagingIn.remove(blocks.shipID);
+            if (blocks.blockPositions == null) {
+                failedShips.put(blocks.shipID, ticks + RETRY_FAILED_READ_TICKS);
+                continue;
+            }
+            Optional<ShipData> ship = queryableShipData.getShip(blocks.shipID);
+            if (ship.isPresent() && !isResident(ship.get())) {
+                ship.get().blockPositions = blocks.blockPositions;
+                ship.get().activeForcePositions = blocks.activeForcePositions;
+                if (!loadedShips.contains(blocks.shipID)) {
+                    residentUnloadedShips.put(blocks.shipID, ship.get());
+                }
+            }
+        }
+        // Before paging out, the replayed ships are dirty then so they're kept until the next save
+        replayBlockChanges(queryableShipData);
+        pageOutLeastRecentlyUsed();
+    }
+
+    void onShipLoaded(@Nonnull ShipData ship) {
+        loadedShips.add(ship.getUuid());
+        residentUnloadedShips.remove(ship.getUuid());
+    }
+
+    /**
+     * Called for ships that were unloaded, and for the ships read when the world loads.
+     */
+    void onShipUnloaded(@Nonnull ShipData ship) {
+        loadedShips.remove(ship.getUuid());
+        if (isResident(ship)) {
+            residentUnloadedShips.put(ship.getUuid(), ship);
+        }
+    }
+
+    void onShipRemoved(@Nonnull ShipData ship) {
+        loadedShips.remove(ship.getUuid());
+        residentUnloadedShips.remove(ship.getUuid());
+    }
+
+    private void replayBlockChanges(@Nonnull QueryableShipData queryableShipData) {
+        BlockChange queued;
+        while ((queued = queuedBlockChanges.poll()) != null) {
+            waitingBlockChanges.add(queued);
+        }
+        Iterator<BlockChange> iterator = waitingBlockChanges.iterator();
+        while (iterator.hasNext()) {
+            BlockChange change = iterator.next();
+            Optional<ShipData> ship = queryableShipData.getShip(change.shipID);
+            if (!ship.isPresent()) {
+                // The ship was destroyed in the meantime
+                iterator.remove();
+            } else if (isResident(ship.get())) {
+                ShipDataMethods.onSetBlockState(ship.get(), change.pos, change.oldState, change.newState);
+                iterator.remove();
+            } else {
+                requestPageIn(ship.get());
+            }
+        }
+    }
+
+    private void pageOutLeastRecentlyUsed() {
+        int toPageOut = residentUnloadedShips.size() - VSConfig.unloadedShipBlockCacheSize;
+        Iterator<ShipData> iterator = residentUnloadedShips.values().iterator();
+        while (toPageOut > 0 && iterator.hasNext()) {
+            ShipData ship = iterator.next();
+            // Only drop blocks that are saved, the others have to wait until the next save
+            if (!ship.isDirty() && store.contains(ship.getUuid())) {
+                ship.blockPositions = null;
+                ship.activeForcePositions = null;
+                iterator.remove();
+                toPageOut--;
+            }
+        }
+    }
+
+    private static class BlockChange {
+
+        final UUID shipID;
+        final BlockPos pos;
+        final IBlockState oldState;
+        final IBlockState newState;
+
+        BlockChange(UUID shipID, BlockPos pos, IBlockState oldState, IBlockState newState) {
+            this.shipID = shipID;
+            this.pos = pos;
+            this.oldState = oldState;
+            this.newState = newState;
+        }
+    }
+
+    private static class PagedInBlocks {
+
+        final UUID shipID;
+        // Both null if reading them failed
+        final IBlockPosSetAABB blockPositions;
+        final IBlockPosSet activeForcePositions;
+
+        PagedInBlocks(UUID shipID, IBlockPosSetAABB blockPositions, IBlockPosSet activeForcePositions) {
+            this.shipID = shipID;
+            this.blockPositions = blockPositions;
+            this.activeForcePositions = activeForcePositions;
+        }
+    }
+}
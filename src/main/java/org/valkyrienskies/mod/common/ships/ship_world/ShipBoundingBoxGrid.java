@@ -0,0 +1,198 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.util.math.AxisAlignedBB;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform grid over the x and z axes of the bounding boxes of the loaded ships, used to answer {@link
+ * IPhysObjectWorld#getNearbyPhysObjects(AxisAlignedBB)} without looking at every ship.
+ * <p>
+ * The grid doesn't follow the ships on its own. Ships must be added and removed as they are loaded and
+ * unloaded, and {@link #update(PhysicsObject)} must be called after a ship moved, which only touches the
+ * cells if the ship moved into different ones. Queries test the current bounding box of every candidate,
+ * so they never return a ship that doesn't intersect, but may miss a ship that moved into new cells
+ * since its last update.
+ * <p>
+ * Not thread safe, only used by the game thread.
+ */
+public class ShipBoundingBoxGrid {
+
+    // 64 blocks, most ships only touch 1-4 cells
+    private static final int CELL_SIZE_BITS = 6;
+    // Ships that span more cells than this are checked against every query instead, so that a ship
+    // with a broken bounding box can't fill the grid.
+    private static final int MAX_CELLS_PER_SHIP = 256;
+
+    private final TLongObjectHashMap<List<Entry>> cells;
+    // Every ship in the grid, oversized or not
+    private final Map<PhysicsObject, Entry> allShips;
+    private final List<Entry> oversizedShips;
+
+    public ShipBoundingBoxGrid() {
+        this.cells = new TLongObjectHashMap<>();
+        this.allShips = new IdentityHashMap<>();
+        this.oversizedShips = new ArrayList<>();
+    }
+
+    /**
+     * Moves the ship to the cells of its current bounding box, if they changed since it was added or last
+     * updated. Adds the ship if it isn't in the grid yet.
+     */
+    public void update(@Nonnull PhysicsObject ship) {
+        AxisAlignedBB shipBB = ship.getShipBB();
+        int minCellX = toCell(shipBB.minX);
+        int minCellZ = toCell(shipBB.minZ);
+        int maxCellX = toCell(shipBB.maxX);
+        int maxCellZ = toCell(shipBB.maxZ);
+        Entry old = allShips.get(ship);
+        if (old != null) {
+            if (old.minCellX == minCellX && old.minCellZ == minCellZ && old.maxCellX == maxCellX
+                && old.maxCellZ == maxCellZ) {
+                return;
+            }
+            removeEntry(old);
+        }
+
+        Entry entry = new Entry(ship, minCellX, minCellZ, maxCellX, maxCellZ);
+        allShips.put(ship, entry);
+        if (entry.isOversized()) {
+            oversizedShips.add(entry);
+            return;
+        }
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                long key = getCellKey(cellX, cellZ);
+                List<Entry> cell = cells.get(key);
+                if (cell == null) {
+                    cell = new ArrayList<>(2);
+                    cells.put(key, cell);
+                }
+                cell.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes the ship from the grid, does nothing if it isn't in it.
+     */
+    public void remove(@Nonnull PhysicsObject ship) {
+        Entry entry = allShips.remove(ship);
+        if (entry != null) {
+            removeEntry(entry);
+        }
+    }
+
+    public void clear() {
+        cells.clear();
+        allShips.clear();
+        oversizedShips.clear();
+    }
+
+    private void removeEntry(Entry entry) {
+        allShips.remove(entry.ship);
+        if (entry.isOversized()) {
+            oversizedShips.remove(entry);
+            return;
+        }
+        for (int cellX = entry.minCellX; cellX <= entry.maxCellX; cellX++) {
+            for (int cellZ = entry.minCellZ; cellZ <= entry.maxCellZ; cellZ++) {
+                long key = getCellKey(cellX, cellZ);
+                List<Entry> cell = cells.get(key);
+                if (cell != null) {
+                    cell.remove(entry);
+                    // Forget the cells nobody is in anymore
+                    if (cell.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Every ship in the grid whose current bounding box intersects toCheck
+     */
+    @Nonnull
+    public List<PhysicsObject> getNearby(@Nonnull AxisAlignedBB toCheck) {
+        List<PhysicsObject> nearby = new ArrayList<>();
+        int queryMinCellX = toCell(toCheck.minX);
+        int queryMinCellZ = toCell(toCheck.minZ);
+        int queryMaxCellX = toCell(toCheck.maxX);
+        int queryMaxCellZ = toCell(toCheck.maxZ);
+
+        long queryCellCount = (long) (queryMaxCellX - queryMinCellX + 1) * (queryMaxCellZ - queryMinCellZ + 1);
+        if (queryCellCount > allShips.size()) {
+            // Looking at every ship is cheaper than looking at every cell of a query this big
+            for (Entry entry : allShips.values()) {
+                if (toCheck.intersects(entry.ship.getShipBB())) {
+                    nearby.add(entry.ship);
+                }
+            }
+            return nearby;
+        }
+
+        for (int cellX = queryMinCellX; cellX <= queryMaxCellX; cellX++) {
+            for (int cellZ = queryMinCellZ; cellZ <= queryMaxCellZ; cellZ++) {
+                List<Entry> cell = cells.get(getCellKey(cellX, cellZ));
+                if (cell == null) {
+                    continue;
+                }
+                for (Entry entry : cell) {
+                    // A ship that spans several of the queried cells is only tested in the first of
+                    // them, so it isn't added twice.
+                    int firstCellX = Math.max(entry.minCellX, queryMinCellX);
+                    int firstCellZ = Math.max(entry.minCellZ, queryMinCellZ);
+                    if (cellX == firstCellX && cellZ == firstCellZ
+                        && toCheck.intersects(entry.ship.getShipBB())) {
+                        nearby.add(entry.ship);
+                    }
+                }
+            }
+        }
+
+        for (Entry entry : oversizedShips) {
+            if (toCheck.intersects(entry.ship.getShipBB())) {
+                nearby.add(entry.ship);
+            }
+        }
+        return nearby;
+    }
+
+    private static int toCell(double coordinate) {
+        // Clamp so that huge or NaN bounding boxes don't overflow the cell math
+        if (!(coordinate > -1e9)) {
+            coordinate = -1e9;
+        } else if (coordinate > 1e9) {
+            coordinate = 1e9;
+        }
+        return ((int) Math.floor(coordinate)) >> CELL_SIZE_BITS;
+    }
+
+    private static long getCellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static class Entry {
+
+        final PhysicsObject ship;
+        final int minCellX, minCellZ, maxCellX, maxCellZ;
+
+        Entry(PhysicsObject ship, int minCellX, int minCellZ, int maxCellX, int maxCellZ) {
+            this.ship = ship;
+            this.minCellX = minCellX;
+            this.minCellZ = minCellZ;
+            this.maxCellX = maxCellX;
+            this.maxCellZ = maxCellZ;
+        }
+
+        boolean isOversized() {
+            return (long) (maxCellX - minCellX + 1) * (maxCellZ - minCellZ + 1) > MAX_CELLS_PER_SHIP;
+        }
+    }
+}
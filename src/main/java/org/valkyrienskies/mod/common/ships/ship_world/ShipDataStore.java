@@ -0,0 +1,268 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.valkyrienskies.mod.common.ships.ShipData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Saves every {@link ShipData} of a world as its own record in an append only log file, so that a world save only has
+ * to write the ships that changed since the last save instead of all of them. Each record is
+ * <pre>
+ * uuid       16 bytes
+ * length     int, -1 if the ship was removed
+ * checksum   int, CRC32 of the data
+ * data       length bytes, the ShipData as serialized by the mapper
+ * </pre>
+ * and the latest record of a ship replaces the older ones. Only an index of where the latest records are is kept in
+ * memory, ships are read one at a time when asked for. Once most of the file is replaced records, it's rewritten with
+ * only the latest ones.
+ * <p>
+ * Thread safe, ships are written by the save thread while the game thread may read others.
+ */
+@Log4j2
+public class ShipDataStore implements Closeable {
+
+    private static final int HEADER_SIZE = 24;
+    private static final int REMOVED = -1;
+    // Don't bother compacting files smaller than this
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final File file;
+    private final ObjectMapper mapper;
+    // The latest record of every stored ship
+    private final Map<UUID, Record> index;
+    private RandomAccessFile logFile;
+    // The bytes of the file taken by the records in index
+    private long liveBytes;
+
+    private ShipDataStore(File file, ObjectMapper mapper) {
+        this.file = file;
+        this.mapper = mapper;
+        this.index = new HashMap<>();
+        this.liveBytes = 0;
+    }
+
+    /**
+     * Opens the store in file, creating it if it doesn't exist. Only the record headers are read.
+     */
+    @Nonnull
+    public static ShipDataStore open(@Nonnull File file, @Nonnull ObjectMapper mapper) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create the directory " + parent);
+        }
+        ShipDataStore store = new ShipDataStore(file, mapper);
+        store.logFile = new RandomAccessFile(file, "rw");
+        store.readIndex();
+        return store;
+    }
+
+    private void readIndex() throws IOException {
+        long length = logFile.length();
+        long position = 0;
+        while (position + HEADER_SIZE <= length) {
+            logFile.seek(position);
+            UUID shipID = new UUID(logFile.readLong(), logFile.readLong());
+            int dataLength = logFile.readInt();
+            if (dataLength < REMOVED || position + HEADER_SIZE + Math.max(dataLength, 0) > length) {
+                break;
+            }
+            removeFromIndex(shipID);
+            if (dataLength != REMOVED) {
+                addToIndex(shipID, new Record(position, dataLength));
+            }
+            position += HEADER_SIZE + Math.max(dataLength, 0);
+        }
+        if (position < length) {
+            // The game stopped while the last save was being written, drop what didn't make it
+            log.warn("Discarding {} bytes of incomplete ship data at the end of {}", length - position, file);
+            logFile.setLength(position);
+        }
+    }
+
+    /**
+     * @return A copy of the set of ships that have a record in this store
+     */
+    @Nonnull
+    public synchronized Set<UUID> getStoredShips() {
+        return new HashSet<>(index.keySet());
+    }
+
+    public synchronized boolean contains(@Nonnull UUID shipID) {
+        return index.containsKey(shipID);
+    }
+
+    /**
+     * @return The stored ShipData of shipID, or null if it isn't stored. The owner of the returned ShipData isn't set.
+     */
+    @Nullable
+    public synchronized ShipData read(@Nonnull UUID shipID) throws IOException {
+        Record record = index.get(shipID);
+        if (record == null) {
+            return null;
+        }
+        byte[] data = new byte[record.length];
+        logFile.seek(record.position + HEADER_SIZE - 4);
+        int checksum = logFile.readInt();
+        logFile.readFully(data);
+        if (checksum(data) != checksum) {
+            throw new IOException("The stored data of ship " + shipID + " in " + file + " is corrupt");
+        }
+        return mapper.readValue(data, ShipData.class);
+    }
+
+    /**
+     * Writes a new record for every ship in changed, and removes every ship in removed. The records are on disk when
+     * this returns. If this throws, none of them were written.
+     */
+    public synchronized void write(@Nonnull Collection<ShipData> changed, @Nonnull Collection<UUID> removed)
+        throws IOException {
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        long end = logFile.length();
+        Map<UUID, Record> written = new HashMap<>();
+        for (ShipData ship : changed) {
+            byte[] data = mapper.writeValueAsBytes(ship);
+            written.put(ship.getUuid(), new Record(end + out.size(), data.length));
+            writeRecord(out, ship.getUuid(), data);
+        }
+        for (UUID shipID : removed) {
+            if (index.containsKey(shipID)) {
+                written.put(shipID, null);
+                writeRecord(out, shipID, null);
+            }
+        }
+        out.flush();
+        try {
+            logFile.seek(end);
+            logFile.write(buffer.toByteArray());
+            logFile.getFD().sync();
+        } catch (IOException e) {
+            // Cut off what was written, a torn record would make readIndex() drop every record after it
+            try {
+                logFile.setLength(end);
+            } catch (IOException truncateException) {
+                e.addSuppressed(truncateException);
+            }
+            throw e;
+        }
+
+        // Only update the index once the records are on disk
+        for (Map.Entry<UUID, Record> entry : written.entrySet()) {
+            removeFromIndex(entry.getKey());
+            if (entry.getValue() != null) {
+                addToIndex(entry.getKey(), entry.getValue());
+            }
+        }
+        if (logFile.length() > MIN_COMPACTION_SIZE && liveBytes * 2 < logFile.length()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                // The records are written either way, the file is compacted by a later write
+                log.error("Failed to compact " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file with only the latest record of every stored ship. If this fails the store keeps using the
+     * old file.
+     */
+    private void compact() throws IOException {
+        File compacted = new File(file.getPath() + ".tmp");
+        Map<UUID, Record> compactedIndex = new HashMap<>();
+        try (RandomAccessFile out = new RandomAccessFile(compacted, "rw")) {
+            out.setLength(0);
+            for (Map.Entry<UUID, Record> entry : index.entrySet()) {
+                Record record = entry.getValue();
+                byte[] bytes = new byte[HEADER_SIZE + record.length];
+                logFile.seek(record.position);
+                logFile.readFully(bytes);
+                compactedIndex.put(entry.getKey(), new Record(out.getFilePointer(), record.length));
+                out.write(bytes);
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            Files.deleteIfExists(compacted.toPath());
+            throw e;
+        }
+        // Windows can't replace a file that is still open
+        logFile.close();
+        try {
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(compacted.toPath());
+            throw e;
+        } finally {
+            // Either the compacted file, or the old one that the index still points into
+            logFile = new RandomAccessFile(file, "rw");
+        }
+        index.clear();
+        index.putAll(compactedIndex);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        logFile.close();
+    }
+
+    private void addToIndex(UUID shipID, Record record) {
+        index.put(shipID, record);
+        liveBytes += HEADER_SIZE + record.length;
+    }
+
+    private void removeFromIndex(UUID shipID) {
+        Record old = index.remove(shipID);
+        if (old != null) {
+            liveBytes -= HEADER_SIZE + old.length;
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, UUID shipID, @Nullable byte[] data) throws IOException {
+        out.writeLong(shipID.getMostSignificantBits());
+        out.writeLong(shipID.getLeastSignificantBits());
+        if (data == null) {
+            out.writeInt(REMOVED);
+            out.writeInt(0);
+        } else {
+            out.writeInt(data.length);
+            out.writeInt(checksum(data));
+            out.write(data);
+        }
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+
+    private static class Record {
+
+        // Where the header of the record starts
+        final long position;
+        final int length;
+
+        Record(long position, int length) {
+            this.position = position;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import lombok.Getter;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.block_relocation.IRelocationAwareTile;
+import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
+import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Copies the blocks found by a {@link SpatialDetector} into the chunks of a new ship over several ticks:
+ * <ol>
+ * <li>The constructor snapshots the world sections that have ship blocks in them, and hands the snapshots to a
+ * background thread.</li>
+ * <li>The background thread builds the ship sections from the snapshots, and fills in the block positions, force
+ * positions and inertia of the ShipData.</li>
+ * <li>{@link #advance()} then creates the ship chunks from the ship sections once they're ready.</li>
+ * <li>Finally {@link #finish()} moves the ship blocks out of the world in a single tick. The ship blocks that
+ * changed in the world since the snapshot are copied again, the tile entities are copied, and then the ship blocks
+ * are removed from the world with one chunk packet per world chunk.</li>
+ * </ol>
+ * The ship blocks stay in the world, and can be changed by players, until the last step. Everything the ship gets
+ * from the world is read again in that same tick, so a block broken or a chest emptied while the ship was spawning
+ * isn't duplicated, and a block placed in the meantime isn't lost. Nothing is lost if the server stops while a ship
+ * is spawning either. The ShipData isn't added to the world until the job is done, so the ship doesn't take part in
+ * physics until all of its blocks are copied.
+ * <p>
+ * Only the detection and building the ship sections are taken off of the game thread. The last step has to be done in
+ * one tick for the reasons above, so it still costs the game thread time proportional to the size of the ship.
+ * <p>
+ * Besides the background step, only used by the game thread.
+ */
+class ShipSpawnJob {
+
+    private final World world;
+    @Getter
+    private final ShipData shipData;
+    // The offset from the world position of a ship block to its position in the ship chunks
+    private final BlockPos centerDifference;
+    // The world positions (BlockPos.toLong()) of the ship blocks, by the world chunk they're in
+    private final TLongObjectHashMap<TLongSet> blocksBySourceChunk;
+    private final CompletableFuture<TLongObjectHashMap<ExtendedBlockStorage[]>> shipSections;
+    // Made on the game thread once the ship sections are ready
+    @Getter
+    private TLongObjectHashMap<Chunk> shipChunks;
+    @Getter
+    private boolean failed;
+
+    ShipSpawnJob(@Nonnull World world, @Nonnull ShipData shipData, @Nonnull SpatialDetector detector,
+        @Nonnull BlockPos physicsInfuserPos) {
+        this.world = world;
+        this.shipData = shipData;
+        this.centerDifference = shipData.getChunkClaim().getRegionCenter().subtract(physicsInfuserPos);
+        this.blocksBySourceChunk = new TLongObjectHashMap<>();
+        this.shipChunks = null;
+        this.failed = false;
+
+        MutableBlockPos srcLocationPos = new MutableBlockPos();
+        TIntIterator blocksIterator = detector.foundSet.iterator();
+        while (blocksIterator.hasNext()) {
+            SpatialDetector.setPosWithRespectTo(blocksIterator.next(), detector.firstBlock, srcLocationPos);
+            // Check that we're copying a block from a valid position
+            if (srcLocationPos.getY() < 0 || srcLocationPos.getY() >= 256) {
+                throw new IllegalStateException("Incorrect block copy!\n" + srcLocationPos);
+            }
+            long chunkLong = ChunkPos.asLong(srcLocationPos.getX() >> 4, srcLocationPos.getZ() >> 4);
+            TLongSet blocks = blocksBySourceChunk.get(chunkLong);
+            if (blocks == null) {
+                blocks = new TLongHashSet();
+                blocksBySourceChunk.put(chunkLong, blocks);
+            }
+            blocks.add(srcLocationPos.toLong());
+        }
+
+        // The background thread can't read the world, so give it a copy of every section it needs
+        TLongObjectHashMap<SectionSnapshot[]> snapshots = new TLongObjectHashMap<>();
+        blocksBySourceChunk.forEachEntry((chunkLong, blocks) -> {
+            Chunk chunk = world.getChunk(VSChunkClaim.getChunkX(chunkLong), VSChunkClaim.getChunkZ(chunkLong));
+            SectionSnapshot[] sections = new SectionSnapshot[16];
+            blocks.forEach(posLong -> {
+                int storageIndex = BlockPos.fromLong(posLong).getY() >> 4;
+                if (sections[storageIndex] == null) {
+                    sections[storageIndex] = new SectionSnapshot(chunk.storageArrays[storageIndex]);
+                }
+                return true;
+            });
+            snapshots.put(chunkLong, sections);
+            return true;
+        });
+        this.shipSections = CompletableFuture.supplyAsync(() -> buildShipSections(snapshots));
+    }
+
+    /**
+     * @return True if the block at pos in the world is one of the blocks this job is copying.
+     */
+    boolean containsSourceBlock(@Nonnull BlockPos pos) {
+        TLongSet blocks = blocksBySourceChunk.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        return blocks != null && blocks.contains(pos.toLong());
+    }
+
+    /**
+     * Runs on a background thread. Copies the ship blocks out of the snapshots into new sections, and updates the
+     * ShipData with them. Nothing else can see the ShipData yet, so this is safe.
+     *
+     * @return The ship sections by the ship chunk they go in
+     */
+    private TLongObjectHashMap<ExtendedBlockStorage[]> buildShipSections(
+        TLongObjectHashMap<SectionSnapshot[]> snapshots) {
+        TLongObjectHashMap<ExtendedBlockStorage[]> shipSections = new TLongObjectHashMap<>();
+        MutableBlockPos pasteLocationPos = new MutableBlockPos();
+
+        blocksBySourceChunk.forEachEntry((chunkLong, blocks) -> {
+            SectionSnapshot[] sectionSnapshots = snapshots.get(chunkLong);
+            BlockStateContainer[] sourceSections = new BlockStateContainer[16];
+            blocks.forEach(posLong -> {
+                BlockPos srcLocationPos = BlockPos.fromLong(posLong);
+                int storageIndex = srcLocationPos.getY() >> 4;
+                if (sourceSections[storageIndex] == null) {
+                    sourceSections[storageIndex] = sectionSnapshots[storageIndex].restore();
+                }
+                IBlockState srcState = sourceSections[storageIndex]
+                    .get(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15);
+
+                pasteLocationPos.setPos(srcLocationPos.getX() + centerDifference.getX(),
+                    srcLocationPos.getY() + centerDifference.getY(), srcLocationPos.getZ() + centerDifference.getZ());
+                int newChunkStorageIndex = pasteLocationPos.getY() >> 4;
+                if (newChunkStorageIndex < 0 || newChunkStorageIndex >= 16) {
+                    throw new IllegalStateException("Incorrect block paste!\n" + pasteLocationPos);
+                }
+
+                // Add it to the ShipData block positions set
+                shipData.blockPositions.add(pasteLocationPos.getX(), pasteLocationPos.getY(), pasteLocationPos.getZ());
+
+                // Then paste that IBlockState into the new ship section
+                long newChunkPosLong = ChunkPos.asLong(pasteLocationPos.getX() >> 4, pasteLocationPos.getZ() >> 4);
+                ExtendedBlockStorage[] newSections = shipSections.get(newChunkPosLong);
+                if (newSections == null) {
+                    newSections = new ExtendedBlockStorage[16];
+                    shipSections.put(newChunkPosLong, newSections);
+                }
+                if (newSections[newChunkStorageIndex] == null) {
+                    newSections[newChunkStorageIndex] = new ExtendedBlockStorage(newChunkStorageIndex << 4, true);
+                }
+                newSections[newChunkStorageIndex].set(pasteLocationPos.getX() & 15, pasteLocationPos.getY() & 15,
+                    pasteLocationPos.getZ() & 15, srcState);
+
+                // If this block is force block, then add it to the activeForcePositions list of the ship.
+                if (BlockPhysicsDetails.isBlockProvidingForce(srcState)) {
+                    shipData.activeForcePositions.add(pasteLocationPos);
+                }
+                return true;
+            });
+            return true;
+        });
+
+        // Then add the mass of the new sections to the center of mass and inertia, a whole section at a time
+        IPhysicsObjectCenterOfMassProvider centerOfMassProvider = new BasicCenterOfMassProvider();
+        shipSections.forEachEntry((chunkLong, newSections) -> {
+            int chunkX = VSChunkClaim.getChunkX(chunkLong);
+            int chunkZ = VSChunkClaim.getChunkZ(chunkLong);
+            for (int i = 0; i < newSections.length; i++) {
+                if (newSections[i] != null) {
+                    centerOfMassProvider.onSectionAdded(shipData.getInertiaData(),
+                        new BlockPos(chunkX << 4, i << 4, chunkZ << 4), newSections[i]);
+                }
+            }
+            return true;
+        });
+        return shipSections;
+    }
+
+    /**
+     * Creates the ship chunks once the background thread has built the ship sections.
+     *
+     * @return True once the ship chunks are ready to be {@link #finish() finished}, or if the job failed.
+     */
+    boolean advance() {
+        if (shipChunks != null) {
+            return true;
+        }
+        if (!shipSections.isDone()) {
+            return false;
+        }
+        TLongObjectHashMap<ExtendedBlockStorage[]> sections;
+        try {
+            sections = shipSections.join();
+        } catch (CompletionException e) {
+            e.printStackTrace();
+            failed = true;
+            return true;
+        }
+        // Then create the ship chunks from the prepared sections
+        shipChunks = new TLongObjectHashMap<>();
+        sections.forEachEntry((chunkLong, newSections) -> {
+            Chunk chunk = new Chunk(world, VSChunkClaim.getChunkX(chunkLong), VSChunkClaim.getChunkZ(chunkLong));
+            for (int i = 0; i < newSections.length; i++) {
+                if (newSections[i] != null) {
+                    chunk.storageArrays[i] = newSections[i];
+                }
+            }
+            shipChunks.put(chunkLong, chunk);
+            return true;
+        });
+        return true;
+    }
+
+    /**
+     * Moves the ship blocks out of the world, must be called in the tick they are added to the world as a ship. The
+     * ship chunks are brought up to date with the ship blocks in the world, the tile entities are copied, and then
+     * the ship blocks are removed from the world.
+     *
+     * @return False if none of the ship blocks are left in the world, the world isn't changed then.
+     */
+    boolean finish() {
+        copyChangedBlocks();
+        if (shipData.blockPositions.isEmpty()) {
+            failed = true;
+            return false;
+        }
+        blocksBySourceChunk.forEachKey(sourceChunkLong -> {
+            copyTileEntities(sourceChunkLong);
+            return true;
+        });
+        removeBlocksFromWorld();
+        return true;
+    }
+
+    /**
+     * Copies the ship blocks that changed in the world since the snapshot into the ship chunks again, and updates
+     * the ShipData with them. Blocks that are air now are removed from the ship.
+     */
+    private void copyChangedBlocks() {
+        IPhysicsObjectCenterOfMassProvider centerOfMassProvider = new BasicCenterOfMassProvider();
+        MutableBlockPos pasteLocationPos = new MutableBlockPos();
+        IBlockState air = Blocks.AIR.getDefaultState();
+        blocksBySourceChunk.forEachEntry((chunkLong, blocks) -> {
+            Chunk sourceChunk = world.getChunk(VSChunkClaim.getChunkX(chunkLong), VSChunkClaim.getChunkZ(chunkLong));
+            blocks.forEach(posLong -> {
+                BlockPos srcLocationPos = BlockPos.fromLong(posLong);
+                IBlockState worldState = sourceChunk.getBlockState(srcLocationPos);
+                pasteLocationPos.setPos(srcLocationPos.getX() + centerDifference.getX(),
+                    srcLocationPos.getY() + centerDifference.getY(), srcLocationPos.getZ() + centerDifference.getZ());
+                // Every ship block got a section in buildShipSections()
+                ExtendedBlockStorage shipStorage = shipChunks
+                    .get(ChunkPos.asLong(pasteLocationPos.getX() >> 4, pasteLocationPos.getZ() >> 4))
+                    .storageArrays[pasteLocationPos.getY() >> 4];
+                IBlockState copiedState = shipStorage
+                    .get(pasteLocationPos.getX() & 15, pasteLocationPos.getY() & 15, pasteLocationPos.getZ() & 15);
+                if (worldState == copiedState) {
+                    return true;
+                }
+
+                shipStorage.set(pasteLocationPos.getX() & 15, pasteLocationPos.getY() & 15,
+                    pasteLocationPos.getZ() & 15, worldState);
+                if (worldState == air) {
+                    shipData.blockPositions.remove(pasteLocationPos);
+                } else {
+                    shipData.blockPositions.add(pasteLocationPos);
+                }
+                if (BlockPhysicsDetails.isBlockProvidingForce(copiedState)) {
+                    shipData.activeForcePositions.remove(pasteLocationPos);
+                }
+                if (BlockPhysicsDetails.isBlockProvidingForce(worldState)) {
+                    shipData.activeForcePositions.add(pasteLocationPos);
+                }
+                centerOfMassProvider.onSetBlockState(shipData.getInertiaData(), pasteLocationPos, copiedState,
+                    worldState);
+                return true;
+            });
+            return true;
+        });
+    }
+
+    /**
+     * Copies the tile entities of the ship blocks in a world chunk into the ship chunks.
+     */
+    private void copyTileEntities(long sourceChunkLong) {
+        TLongSet blocks = blocksBySourceChunk.get(sourceChunkLong);
+        Chunk sourceChunk = world
+            .getChunk(VSChunkClaim.getChunkX(sourceChunkLong), VSChunkClaim.getChunkZ(sourceChunkLong));
+        List<TileEntity> sourceTiles = new ArrayList<>(sourceChunk.getTileEntityMap().values());
+        for (TileEntity srcTile : sourceTiles) {
+            BlockPos srcLocationPos = srcTile.getPos();
+            if (!blocks.contains(srcLocationPos.toLong())) {
+                continue;
+            }
+            BlockPos pasteLocationPos = srcLocationPos.add(centerDifference);
+            TileEntity pasteTile;
+            if (srcTile instanceof IRelocationAwareTile) {
+                pasteTile = ((IRelocationAwareTile) srcTile).createRelocatedTile(pasteLocationPos, shipData);
+            } else {
+                NBTTagCompound tileEntNBT = srcTile.writeToNBT(new NBTTagCompound());
+                // Change the block position to be inside of the Ship
+                tileEntNBT.setInteger("x", pasteLocationPos.getX());
+                tileEntNBT.setInteger("y", pasteLocationPos.getY());
+                tileEntNBT.setInteger("z", pasteLocationPos.getZ());
+                pasteTile = TileEntity.create(world, tileEntNBT);
+            }
+
+            // Finally, add the new TileEntity to the new ship chunk.
+            if (pasteTile != null) {
+                shipChunks.get(ChunkPos.asLong(pasteLocationPos.getX() >> 4, pasteLocationPos.getZ() >> 4))
+                    .addTileEntity(pasteTile);
+            }
+        }
+    }
+
+    /**
+     * Deletes the ship blocks and tile entities from the world. Each world chunk gets its height map and sky light
+     * rebuilt once, and is sent to the players watching it as a single chunk packet.
+     */
+    private void removeBlocksFromWorld() {
+        IBlockState air = Blocks.AIR.getDefaultState();
+        blocksBySourceChunk.forEachEntry((chunkLong, blocks) -> {
+            int chunkX = VSChunkClaim.getChunkX(chunkLong);
+            int chunkZ = VSChunkClaim.getChunkZ(chunkLong);
+            Chunk chunkToSet = world.getChunk(chunkX, chunkZ);
+
+            blocks.forEach(posLong -> {
+                BlockPos srcLocationPos = BlockPos.fromLong(posLong);
+                ExtendedBlockStorage storage = chunkToSet.storageArrays[srcLocationPos.getY() >> 4];
+                if (storage != Chunk.NULL_BLOCK_STORAGE) {
+                    storage.set(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15,
+                        air);
+                }
+                return true;
+            });
+
+            // Delete the TileEntities of the ship blocks
+            List<BlockPos> tilePositions = new ArrayList<>(chunkToSet.getTileEntityMap().keySet());
+            for (BlockPos tilePos : tilePositions) {
+                if (blocks.contains(tilePos.toLong())) {
+                    world.removeTileEntity(tilePos);
+                }
+            }
+
+            chunkToSet.generateSkylightMap();
+            chunkToSet.markDirty();
+
+            if (world instanceof WorldServer) {
+                PlayerChunkMapEntry entry = ((WorldServer) world).getPlayerChunkMap().getEntry(chunkX, chunkZ);
+                if (entry != null && entry.isSentToPlayers()) {
+                    entry.sendPacket(new SPacketChunkData(chunkToSet, 65535));
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * A copy of the block states of a world section.
+     */
+    private static class SectionSnapshot {
+
+        final byte[] blockIds;
+        final NibbleArray data;
+        final NibbleArray blockIdExtension;
+
+        SectionSnapshot(ExtendedBlockStorage storage) {
+            this.blockIds = new byte[4096];
+            this.data = new NibbleArray();
+            if (storage != Chunk.NULL_BLOCK_STORAGE) {
+                this.blockIdExtension = storage.getData().getDataForNBT(blockIds, data);
+            } else {
+                this.blockIdExtension = null;
+            }
+        }
+
+        BlockStateContainer restore() {
+            BlockStateContainer container = new BlockStateContainer();
+            container.setDataFromNBT(blockIds, data, blockIdExtension);
+            return container;
+        }
+    }
+}
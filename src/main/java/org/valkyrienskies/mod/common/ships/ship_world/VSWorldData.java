@@ -1,5 +1,7 @@
 package org.valkyrienskies.mod.common.ships.ship_world;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonProperty.Access;
 import lombok.Getter;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
@@ -7,7 +9,12 @@ import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
 
 public class VSWorldData {
 
+    /**
+     * Ships are saved by {@link ShipDataStore}, they are only read from here to load worlds that saved all their ships
+     * with the rest of this.
+     */
     @Getter
+    @JsonProperty(access = Access.WRITE_ONLY)
     private final QueryableShipData queryableShipData = new QueryableShipData();
 
     @Getter
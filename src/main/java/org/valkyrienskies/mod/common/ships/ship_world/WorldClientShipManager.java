@@ -5,8 +5,12 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.world.World;
 import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.network.ShipTransformStreamState;
+import org.valkyrienskies.mod.common.network.ShipTransformUpdate;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.entity_interaction.DraggedEntityTracker;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.util.multithreaded.CalledFromWrongThreadException;
 
 import javax.annotation.Nonnull;
@@ -20,6 +24,11 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     private final Map<UUID, PhysicsObject> loadedShips;
     // Use LinkedHashSet as a queue because it preserves order and doesn't allow duplicates
     private final LinkedHashSet<UUID> loadQueue, unloadQueue;
+    private final ShipBoundingBoxGrid shipBoundingBoxGrid;
+    private final DraggedEntityTracker draggedEntities;
+    private final LoadedShipChunkMap loadedShipChunks;
+    // The last transform received for every ship, the server sends the next one as a delta against it
+    private final Map<UUID, ShipTransformStreamState> transformStreamStates;
     private ImmutableList<PhysicsObject> threadSafeLoadedShips;
 
     public WorldClientShipManager(World world) {
@@ -27,6 +36,10 @@ public class WorldClientShipManager implements IPhysObjectWorld {
         this.loadedShips = new HashMap<>();
         this.loadQueue = new LinkedHashSet<>();
         this.unloadQueue = new LinkedHashSet<>();
+        this.shipBoundingBoxGrid = new ShipBoundingBoxGrid();
+        this.draggedEntities = new DraggedEntityTracker();
+        this.loadedShipChunks = new LoadedShipChunkMap();
+        this.transformStreamStates = new HashMap<>();
         this.threadSafeLoadedShips = ImmutableList.of();
     }
 
@@ -42,6 +55,8 @@ public class WorldClientShipManager implements IPhysObjectWorld {
 
         for (PhysicsObject physicsObject : getAllLoadedPhysObj()) {
             physicsObject.onTick();
+            // The ship bounding box was updated by onTick()
+            shipBoundingBoxGrid.update(physicsObject);
         }
 
         // Update the thread safe ship list.
@@ -62,6 +77,8 @@ public class WorldClientShipManager implements IPhysObjectWorld {
             ShipData shipData = toLoadOptional.get();
             PhysicsObject physicsObject = new PhysicsObject(world, shipData);
             loadedShips.put(toLoadID, physicsObject);
+            loadedShipChunks.addShip(physicsObject);
+            shipBoundingBoxGrid.update(physicsObject);
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Successfully loaded " + shipData);
             }
@@ -76,6 +93,10 @@ public class WorldClientShipManager implements IPhysObjectWorld {
             PhysicsObject removedShip = loadedShips.get(toUnloadID);
             removedShip.unload();
             loadedShips.remove(toUnloadID);
+            loadedShipChunks.removeShip(removedShip);
+            shipBoundingBoxGrid.remove(removedShip);
+            // The server starts over with a keyframe if we watch this ship again
+            transformStreamStates.remove(toUnloadID);
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Successfully unloaded " + removedShip.getShipData());
             }
@@ -86,6 +107,41 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     @Override
     public void onWorldUnload() {
         loadedShips.clear();
+        loadedShipChunks.clear();
+        transformStreamStates.clear();
+        shipBoundingBoxGrid.clear();
+    }
+
+    /**
+     * Applies a transform update sent by the server. Deltas that don't follow the last state we received are dropped,
+     * the ship keeps its last transform until the next keyframe arrives.
+     */
+    public void onTransformUpdate(@Nonnull ShipTransformUpdate update) {
+        enforceGameThread();
+        UUID shipID = update.getShipID();
+        ShipTransformStreamState newState = update.applyTo(transformStreamStates.get(shipID));
+        if (newState == null) {
+            if (VSConfig.showAnnoyingDebugOutput) {
+                System.out.println("Dropped out of order transform update for ship " + shipID);
+            }
+            return;
+        }
+        transformStreamStates.put(shipID, newState);
+
+        ShipTransform newTransform = newState.toShipTransform();
+        AxisAlignedBB newAABB = newState.toAABB();
+        PhysicsObject physicsObject = loadedShips.get(shipID);
+        if (physicsObject != null) {
+            // Do not update the transform in ShipData, that will be done by PhysicsObject.tick()
+            physicsObject.getTransformInterpolator().onNewTransformPacket(newTransform, newAABB);
+        } else {
+            Optional<ShipData> shipData = QueryableShipData.get(world).getShip(shipID);
+            if (shipData.isPresent()) {
+                shipData.get().setPrevTickShipTransform(shipData.get().getShipTransform());
+                shipData.get().setShipTransform(newTransform);
+                shipData.get().setShipBB(newAABB);
+            }
+        }
     }
 
     @Nullable
@@ -95,17 +151,23 @@ public class WorldClientShipManager implements IPhysObjectWorld {
         return loadedShips.get(shipID);
     }
 
+    @Nullable
+    @Override
+    public PhysicsObject getPhysObjectManagingChunk(int chunkX, int chunkZ) {
+        return loadedShipChunks.getShipManagingChunk(chunkX, chunkZ);
+    }
+
+    @Override
+    public void onShipChunkClaimChanged(@Nonnull PhysicsObject ship) {
+        enforceGameThread();
+        loadedShipChunks.updateShip(ship);
+    }
+
     @Nonnull
     @Override
     public List<PhysicsObject> getNearbyPhysObjects(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException {
         enforceGameThread();
-        List<PhysicsObject> nearby = new ArrayList<>();
-        for (PhysicsObject physicsObject : getAllLoadedPhysObj()) {
-            if (toCheck.intersects(physicsObject.getShipBB())) {
-                nearby.add(physicsObject);
-            }
-        }
-        return nearby;
+        return shipBoundingBoxGrid.getNearby(toCheck);
     }
 
     @Nonnull
@@ -133,6 +195,12 @@ public class WorldClientShipManager implements IPhysObjectWorld {
         unloadQueue.add(shipID);
     }
 
+    @Nonnull
+    @Override
+    public DraggedEntityTracker getDraggedEntities() {
+        return draggedEntities;
+    }
+
     @Nonnull
     @Override
     public World getWorld() {
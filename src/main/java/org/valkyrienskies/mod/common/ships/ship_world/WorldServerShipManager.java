@@ -1,16 +1,18 @@
 package org.valkyrienskies.mod.common.ships.ship_world;
 
 import com.google.common.collect.ImmutableList;
-import gnu.trove.iterator.TIntIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import lombok.Getter;
 import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.init.Blocks;
-import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.tileentity.TileEntity;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.network.play.server.SPacketUnloadChunk;
 import net.minecraft.util.Tuple;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
@@ -18,22 +20,34 @@ import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.ChunkProviderServer;
 import org.valkyrienskies.mod.common.config.VSConfig;
-import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.ShipDataMethods;
+import org.valkyrienskies.mod.common.ships.entity_interaction.DraggedEntityTracker;
 import org.valkyrienskies.mod.common.ships.block_relocation.DetectorManager;
-import org.valkyrienskies.mod.common.ships.block_relocation.IRelocationAwareTile;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
-import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
-import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
 import org.valkyrienskies.mod.common.util.multithreaded.CalledFromWrongThreadException;
 import org.valkyrienskies.mod.common.util.multithreaded.VSThread;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class WorldServerShipManager implements IPhysObjectWorld {
 
+    // How far from a changed world block sleeping ships are woken up, in blocks
+    private static final double SLEEP_WAKE_DISTANCE = 2;
+
     @Getter
     private final WorldServer world;
     @Getter
@@ -42,9 +56,24 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     private final Map<UUID, PhysicsObject> loadedShips;
     // Use LinkedHashSet as a queue because it preserves order and doesn't allow duplicates
     private final LinkedHashSet<Tuple<BlockPos, ShipData>> spawnQueue;
+    // Ships whose blocks are being copied into their ship chunks, in the order they were queued
+    private final List<ShipSpawnJob> spawnJobs;
     private final LinkedHashSet<UUID> loadQueue, unloadQueue, backgroundLoadQueue;
+    // Loaded ships whose chunk claim may need to grow or shrink
+    private final LinkedHashSet<UUID> chunkClaimUpdateQueue;
+    // Ships that had blocks changed by other threads, handled at the start of the next tick
+    private final Queue<UUID> offThreadBlockChanges;
     private final Set<UUID> loadingInBackground;
+    private final ShipBoundingBoxGrid shipBoundingBoxGrid;
+    private final DraggedEntityTracker draggedEntities;
+    private final LoadedShipChunkMap loadedShipChunks;
     private ImmutableList<PhysicsObject> threadSafeLoadedShips;
+    private final ShipDataStore shipDataStore;
+    // Ships in shipDataStore that failed to load, they must not be removed from the store
+    private final Set<UUID> unreadableShips;
+    // Serializes and writes ship data, one save at a time and in order
+    private final ExecutorService shipDataSaveExecutor;
+    private final ShipBlockPositionPager blockPositionPager;
 
     public WorldServerShipManager(World world) {
         this.world = (WorldServer) world;
@@ -52,14 +81,109 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         this.loadingController = new WorldShipLoadingController(this);
         this.loadedShips = new HashMap<>();
         this.spawnQueue = new LinkedHashSet<>();
+        this.spawnJobs = new ArrayList<>();
         this.loadQueue = new LinkedHashSet<>();
         this.unloadQueue = new LinkedHashSet<>();
         this.backgroundLoadQueue = new LinkedHashSet<>();
+        this.chunkClaimUpdateQueue = new LinkedHashSet<>();
+        this.offThreadBlockChanges = new ConcurrentLinkedQueue<>();
         this.loadingInBackground = new HashSet<>();
+        this.shipBoundingBoxGrid = new ShipBoundingBoxGrid();
+        this.draggedEntities = new DraggedEntityTracker();
+        this.loadedShipChunks = new LoadedShipChunkMap();
         this.threadSafeLoadedShips = ImmutableList.of();
+        this.unreadableShips = new HashSet<>();
+        this.shipDataStore = openShipDataStore();
+        // None of the shipyard chunks are loaded yet, so the claims older versions freed can be wiped and reused
+        ValkyrienUtils.getShipChunkAllocator(world)
+            .wipeFreedClaims(new File(this.world.getChunkSaveLocation(), "region"));
+        this.shipDataSaveExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VS ship data save " + world.provider.getDimension());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.blockPositionPager = new ShipBlockPositionPager(shipDataStore, shipDataSaveExecutor);
+        // Nothing is loaded yet, the first tick pages out the blocks of every ship past the cache size
+        QueryableShipData.get(world).forEach(blockPositionPager::onShipUnloaded);
         this.physicsThread.start();
     }
 
+    /**
+     * Opens the ship data store of this world, and adds the ships saved in it to the QueryableShipData.
+     * <p>
+     * Ships aren't saved anywhere else, so if the store can't be opened the world isn't loaded at all. Otherwise the
+     * next save would drop every ship in it.
+     *
+     * @throws IllegalStateException If the store can't be opened
+     */
+    private ShipDataStore openShipDataStore() {
+        File file = new File(world.getChunkSaveLocation(), "valkyrienskies/ships.dat");
+        ShipDataStore store;
+        try {
+            store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open " + file + ", not loading the world so that its ships "
+                + "aren't lost", e);
+        }
+        QueryableShipData queryableShipData = QueryableShipData.get(world);
+        for (UUID shipID : store.getStoredShips()) {
+            try {
+                ShipData ship = store.read(shipID);
+                ship.clearDirty();
+                queryableShipData.addSavedShip(ship);
+            } catch (IOException e) {
+                System.err.println("Failed to read the saved data of the ship " + shipID);
+                e.printStackTrace();
+                unreadableShips.add(shipID);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Writes the ships that changed since the last save to the ship data store, and removes the ships that no longer
+     * exist from it. Called when the world is saved.
+     * <p>
+     * Only copies the changed ships on the game thread, they're serialized and written by the save thread.
+     */
+    public void saveShipData() {
+        enforceGameThread();
+        List<ShipData> changedShips = new ArrayList<>();
+        List<ShipData> snapshots = new ArrayList<>();
+        Set<UUID> existingShips = new HashSet<>(unreadableShips);
+        for (ShipData ship : QueryableShipData.get(world)) {
+            existingShips.add(ship.getUuid());
+            if (ship.clearDirty()) {
+                changedShips.add(ship);
+                snapshots.add(ship.createSnapshot());
+            }
+        }
+        shipDataSaveExecutor.execute(() -> {
+            // Found on the save thread, so that it sees the ships written by the saves before this one
+            Set<UUID> removedShips = shipDataStore.getStoredShips();
+            removedShips.removeAll(existingShips);
+            try {
+                for (ShipData snapshot : snapshots) {
+                    if (snapshot.blockPositions == null) {
+                        // Paged out, keep the block positions that are already saved
+                        ShipData stored = shipDataStore.read(snapshot.getUuid());
+                        if (stored == null) {
+                            throw new IOException("Lost the block positions of the ship " + snapshot.getUuid());
+                        }
+                        snapshot.blockPositions = stored.blockPositions;
+                        snapshot.activeForcePositions = stored.activeForcePositions;
+                    }
+                }
+                shipDataStore.write(snapshots, removedShips);
+            } catch (IOException e) {
+                System.err.println("Failed to save the data of " + snapshots.size() + " ships!");
+                e.printStackTrace();
+                // Try again next save
+                changedShips.forEach(ShipData::markDirty);
+            }
+        });
+    }
+
     private void enforceGameThread() {
         if (!world.isCallingFromMinecraftThread()) {
             throw new CalledFromWrongThreadException("Wrong thread calling code: " + Thread.currentThread());
@@ -69,6 +193,21 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     @Override
     public void onWorldUnload() {
         this.physicsThread.kill();
+        // Wait for the saves in progress to finish before closing the store
+        shipDataSaveExecutor.shutdown();
+        try {
+            if (!shipDataSaveExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Timed out waiting for ship data to finish saving!");
+            }
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+        try {
+            shipDataStore.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     @Override
@@ -77,17 +216,17 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         return loadedShips.get(shipID);
     }
 
+    @Nullable
+    @Override
+    public PhysicsObject getPhysObjectManagingChunk(int chunkX, int chunkZ) {
+        return loadedShipChunks.getShipManagingChunk(chunkX, chunkZ);
+    }
+
     @Nonnull
     @Override
     public List<PhysicsObject> getNearbyPhysObjects(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException {
         enforceGameThread();
-        List<PhysicsObject> nearby = new ArrayList<>();
-        for (PhysicsObject ship : getAllLoadedPhysObj()) {
-            if (toCheck.intersects(ship.getShipBB())) {
-                nearby.add(ship);
-            }
-        }
-        return nearby;
+        return shipBoundingBoxGrid.getNearby(toCheck);
     }
 
     public void tick() {
@@ -100,7 +239,11 @@ public class WorldServerShipManager implements IPhysObjectWorld {
                 physicsObject.destroyShip();
                 // Then remove the ship from the world, and the ship map.
                 QueryableShipData.get(world).removeShip(physicsObject.getShipData());
+                ValkyrienUtils.getShipChunkAllocator(world).freeChunkClaim(physicsObject.getShipData().getChunkClaim());
+                blockPositionPager.onShipRemoved(physicsObject.getShipData());
                 iterator.remove();
+                loadedShipChunks.removeShip(physicsObject);
+                shipBoundingBoxGrid.remove(physicsObject);
             }
         }
 
@@ -113,9 +256,15 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         // Then execute queued ship load and unload operations
         loadAndUnloadShips();
 
+        // Then grow and shrink the chunk claims of ships that had blocks changed
+        handleOffThreadBlockChanges();
+        updateChunkClaims();
+
         // Then tick all the loaded ships
         for (PhysicsObject ship : getAllLoadedPhysObj()) {
             ship.onTick();
+            // The ship bounding box was updated by onTick()
+            shipBoundingBoxGrid.update(ship);
         }
 
         // Finally, send the players updates about the ships.
@@ -126,14 +275,22 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     }
 
     private void spawnNewShips() {
+        // First start the queued ship spawns
         for (final Tuple<BlockPos, ShipData> spawnData : spawnQueue) {
             BlockPos physicsInfuserPos = spawnData.getFirst();
             ShipData toSpawn = spawnData.getSecond();
 
-            if (loadedShips.containsKey(toSpawn.getUuid())) {
+            if (loadedShips.containsKey(toSpawn.getUuid()) || isSpawning(toSpawn.getUuid())) {
                 throw new IllegalStateException("Tried spawning a ShipData that was already loaded?\n" + toSpawn);
             }
 
+            // The blocks of a ship being spawned are still in the world until the spawn finishes, don't copy them twice
+            if (isSpawningBlock(physicsInfuserPos)) {
+                System.err.println("Tried spawning a ship from blocks that are already being spawned!");
+                ValkyrienUtils.getShipChunkAllocator(world).freeChunkClaim(toSpawn.getChunkClaim());
+                continue;
+            }
+
             SpatialDetector detector =  DetectorManager.getDetectorFor(
                     DetectorManager.DetectorIDs.ShipSpawnerGeneral, physicsInfuserPos, world,
                     VSConfig.maxDetectedShipSize + 1, true);
@@ -154,162 +311,271 @@ public class WorldServerShipManager implements IPhysObjectWorld {
                 }
 
                  */
+                ValkyrienUtils.getShipChunkAllocator(world).freeChunkClaim(toSpawn.getChunkClaim());
                 continue; // Skip ship construction
             }
 
-            // Fill the chunk claims
-            int radius = 7;
+            spawnJobs.add(new ShipSpawnJob(world, toSpawn, detector, physicsInfuserPos));
+        }
+        spawnQueue.clear();
 
-            // TEMP CODE
-            // Eventually want to create mechanisms that control how many chunks are allocated to a ship
-            // But for now, lets just give them a bunch of chunks.
-            ChunkPos centerPos = toSpawn.getChunkClaim().getCenterPos();
-            for (int chunkX = -radius; chunkX <= radius; chunkX++) {
-                for (int chunkZ = -radius; chunkZ <= radius; chunkZ++) {
-                    toSpawn.getChunkClaim().addChunkClaim(centerPos.x + chunkX, centerPos.z + chunkZ);
+        // Then finish every ship whose blocks are ready. Finishing a ship has to happen in a single tick, see
+        // ShipSpawnJob, so it isn't spread over ticks.
+        Iterator<ShipSpawnJob> jobIterator = spawnJobs.iterator();
+        while (jobIterator.hasNext()) {
+            ShipSpawnJob job = jobIterator.next();
+            if (job.advance()) {
+                jobIterator.remove();
+                // The ship blocks can change in the world until the job is finished, so finish it right before the
+                // ship is loaded
+                if (job.isFailed() || !job.finish()) {
+                    System.err.println("Failed to spawn " + job.getShipData());
+                    ValkyrienUtils.getShipChunkAllocator(world).freeChunkClaim(job.getShipData().getChunkClaim());
+                } else {
+                    finishShipSpawn(job);
                 }
             }
+        }
+    }
 
-            // When copying the ship chunks we want to keep track of the inertia and center of mass.
-            IPhysicsObjectCenterOfMassProvider centerOfMassProvider = new BasicCenterOfMassProvider();
-
-            // Then create the ship chunks
-            MutableBlockPos srcLocationPos = new MutableBlockPos();
-            BlockPos centerDifference = toSpawn.getChunkClaim().getRegionCenter().subtract(physicsInfuserPos);
-
-            MutableBlockPos pasteLocationPos = new MutableBlockPos();
-
-            Map<Long, Chunk> copiedChunksMap = new HashMap<>();
-
-            // First, copy the blocks and tiles to the new chunks
-            TIntIterator blocksIterator = detector.foundSet.iterator();
-            while (blocksIterator.hasNext()) {
-                int hashedPos = blocksIterator.next();
-                SpatialDetector.setPosWithRespectTo(hashedPos, detector.firstBlock, srcLocationPos);
-                // Get the BlockPos from the hashedPos
-                pasteLocationPos.setPos(srcLocationPos.getX() + centerDifference.getX(), srcLocationPos.getY() + centerDifference.getY(), srcLocationPos.getZ() + centerDifference.getZ());
-
-                // Then add it to the ShipData block positions set
-                toSpawn.blockPositions.add(pasteLocationPos.getX(), pasteLocationPos.getY(), pasteLocationPos.getZ());
-
-                // Then create a chunk to accommodate this block (if one does not already exist).
-                int newChunkX = pasteLocationPos.getX() >> 4;
-                int newChunkZ = pasteLocationPos.getZ() >> 4;
+    private boolean isSpawning(UUID shipID) {
+        for (ShipSpawnJob job : spawnJobs) {
+            if (job.getShipData().getUuid().equals(shipID)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                long newChunkPosLong = ChunkPos.asLong(newChunkX, newChunkZ);
+    private boolean isSpawningBlock(BlockPos pos) {
+        for (ShipSpawnJob job : spawnJobs) {
+            if (job.containsSourceBlock(pos)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                if (!copiedChunksMap.containsKey(newChunkPosLong)) {
-                    Chunk chunk = new Chunk(world, newChunkX, newChunkZ);
-                    copiedChunksMap.put(newChunkPosLong, chunk);
-                }
+    /**
+     * Loads the ship of a finished spawn job, whose blocks were just moved out of the world.
+     */
+    private void finishShipSpawn(ShipSpawnJob job) {
+        ShipData toSpawn = job.getShipData();
+        TLongObjectHashMap<Chunk> copiedChunksMap = job.getShipChunks();
+
+        // First claim the chunks the ship blocks were copied into, plus a margin for blocks placed at the edges
+        int minChunkX = Integer.MAX_VALUE, minChunkZ = Integer.MAX_VALUE;
+        int maxChunkX = Integer.MIN_VALUE, maxChunkZ = Integer.MIN_VALUE;
+        for (Chunk copiedChunk : copiedChunksMap.valueCollection()) {
+            minChunkX = Math.min(minChunkX, copiedChunk.x);
+            minChunkZ = Math.min(minChunkZ, copiedChunk.z);
+            maxChunkX = Math.max(maxChunkX, copiedChunk.x);
+            maxChunkZ = Math.max(maxChunkZ, copiedChunk.z);
+        }
+        int margin = ShipChunkAllocator.CLAIM_MARGIN;
+        toSpawn.getChunkClaim().addChunkClaims(minChunkX - margin, minChunkZ - margin,
+            maxChunkX + margin, maxChunkZ + margin);
+
+        // Then inject the ship chunks into the world
+        toSpawn.getChunkClaim().forEach((x, z) -> {
+            long chunkLong = ChunkPos.asLong(x, z);
+            if (copiedChunksMap.containsKey(chunkLong)) {
+                injectChunkIntoWorldServer(copiedChunksMap.get(chunkLong), x, z);
+            } else {
+                injectChunkIntoWorldServer(new Chunk(world, x, z), x, z);
+            }
+        });
 
-                // Then copy the IBlockState & TileEntity to the new Chunk
-                // Get the old world Chunk
-                Chunk chunkToSet = world.getChunk(srcLocationPos);
+        // Add shipData to the ShipData storage
+        QueryableShipData.get(world).addShip(toSpawn);
 
-                // Get the new Chunk
-                Chunk newChunk = copiedChunksMap.get(newChunkPosLong);
+        // Finally, instantiate the PhysicsObject representation of this ShipData
+        PhysicsObject physicsObject = new PhysicsObject(world, toSpawn);
+        loadedShips.put(toSpawn.getUuid(), physicsObject);
+        blockPositionPager.onShipLoaded(toSpawn);
+        loadedShipChunks.addShip(physicsObject);
+        shipBoundingBoxGrid.update(physicsObject);
+    }
 
-                // Then get the old IBlockState, as efficiently as possible
-                int storageIndex = srcLocationPos.getY() >> 4;
-                // Check that we're placing the block in a valid position
-                if (storageIndex < 0 || storageIndex >= chunkToSet.storageArrays.length) {
-                    // Invalid position, abort!
-                    throw new IllegalStateException("Incorrect block copy!\n" + srcLocationPos);
+    /**
+     * Called before a block in a ship changes. Queues the chunk claim of the ship to be resized if the change may
+     * need it: a block placed near the edge of the claim, or a block removed, which may leave a chunk empty.
+     * <p>
+     * Called from inside Chunk.setBlockState(), so it must not throw. Changes made by other threads are queued
+     * for the next tick.
+     */
+    public void onShipBlockChanged(@Nonnull ShipData shipData, @Nonnull BlockPos pos, @Nonnull IBlockState newState) {
+        if (!world.isCallingFromMinecraftThread()) {
+            // Some mods change blocks from their own threads, we can't touch the ships from here
+            offThreadBlockChanges.add(shipData.getUuid());
+            return;
+        }
+        PhysicsObject ship = loadedShips.get(shipData.getUuid());
+        if (ship != null) {
+            ship.wakeUp();
+        }
+        if (newState.equals(Blocks.AIR.getDefaultState())) {
+            chunkClaimUpdateQueue.add(shipData.getUuid());
+            return;
+        }
+        VSChunkClaim claim = shipData.getChunkClaim();
+        int chunkX = pos.getX() >> 4;
+        int chunkZ = pos.getZ() >> 4;
+        int margin = ShipChunkAllocator.CLAIM_MARGIN;
+        for (int x = chunkX - margin; x <= chunkX + margin; x++) {
+            for (int z = chunkZ - margin; z <= chunkZ + margin; z++) {
+                if (!claim.containsChunk(x, z) && claim.canClaimChunk(x, z)) {
+                    chunkClaimUpdateQueue.add(shipData.getUuid());
+                    return;
                 }
+            }
+        }
+    }
 
-                IBlockState srcState = chunkToSet.storageArrays[storageIndex]
-                        .get(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15);
+    /**
+     * Called when a block of a ship whose block positions are paged out changes, which {@link
+     * ShipDataMethods#onSetBlockState} can't apply. The change is applied once the block positions are read back.
+     * <p>
+     * Called from inside Chunk.setBlockState(), so it must not throw. Thread safe.
+     */
+    public void onPagedOutShipBlockChanged(@Nonnull ShipData shipData, @Nonnull BlockPos pos,
+        @Nonnull IBlockState oldState, @Nonnull IBlockState newState) {
+        blockPositionPager.queueBlockChange(shipData, pos, oldState, newState);
+    }
 
-                // Then paste that IBlockState into the new ship chunk
-                int newChunkStorageIndex = pasteLocationPos.getY() >> 4;
+    /**
+     * Called when a block outside of the shipyard changes. Wakes up the ships near it, since they may have been resting
+     * on it.
+     */
+    public void onWorldBlockChanged(@Nonnull BlockPos pos) {
+        if (physicsThread.getSleepingShipCount() == 0 || !world.isCallingFromMinecraftThread()) {
+            return;
+        }
+        AxisAlignedBB nearBlock = new AxisAlignedBB(pos).grow(SLEEP_WAKE_DISTANCE);
+        for (PhysicsObject ship : shipBoundingBoxGrid.getNearby(nearBlock)) {
+            ship.wakeUp();
+        }
+    }
 
-                if (newChunk.storageArrays[newChunkStorageIndex] == Chunk.NULL_BLOCK_STORAGE) {
-                    newChunk.storageArrays[newChunkStorageIndex] = new ExtendedBlockStorage(newChunkStorageIndex << 4,
-                            true);
-                }
-                newChunk.storageArrays[newChunkStorageIndex]
-                        .set(pasteLocationPos.getX() & 15, pasteLocationPos.getY() & 15, pasteLocationPos.getZ() & 15, srcState);
+    /**
+     * Wakes up the ships that had blocks changed from other threads, and checks their chunk claims. We don't know
+     * what changed, so the claim is always checked.
+     */
+    private void handleOffThreadBlockChanges() {
+        UUID shipID;
+        while ((shipID = offThreadBlockChanges.poll()) != null) {
+            PhysicsObject ship = loadedShips.get(shipID);
+            if (ship != null) {
+                ship.wakeUp();
+            }
+            chunkClaimUpdateQueue.add(shipID);
+        }
+    }
 
-                // If this block is force block, then add it to the activeForcePositions list of the ship.
-                if (BlockPhysicsDetails.isBlockProvidingForce(srcState)) {
-                    toSpawn.activeForcePositions.add(pasteLocationPos);
-                }
+    private void updateChunkClaims() {
+        for (final UUID shipID : chunkClaimUpdateQueue) {
+            PhysicsObject ship = loadedShips.get(shipID);
+            if (ship != null) {
+                updateChunkClaim(ship);
+            }
+        }
+        chunkClaimUpdateQueue.clear();
+    }
 
-                // Also update the center of mass and inertia provider
-                centerOfMassProvider.onSetBlockState(toSpawn.getInertiaData(), pasteLocationPos, Blocks.AIR.getDefaultState(), srcState);
-
-                // Then copy the TileEntity (if there is one)
-                TileEntity srcTile = world.getTileEntity(srcLocationPos);
-                if (srcTile != null) {
-                    TileEntity pasteTile;
-                    if (srcTile instanceof IRelocationAwareTile) {
-                        pasteTile = ((IRelocationAwareTile) srcTile).createRelocatedTile(pasteLocationPos, toSpawn);
-                    } else {
-                        NBTTagCompound tileEntNBT = srcTile.writeToNBT(new NBTTagCompound());
-                        // Change the block position to be inside of the Ship
-                        tileEntNBT.setInteger("x", pasteLocationPos.getX());
-                        tileEntNBT.setInteger("y", pasteLocationPos.getY());
-                        tileEntNBT.setInteger("z", pasteLocationPos.getZ());
-                        pasteTile = TileEntity.create(world, tileEntNBT);
+    /**
+     * Resizes the claim of ship to the chunks that have blocks in them, plus {@link ShipChunkAllocator#CLAIM_MARGIN}
+     * chunks around them. The center chunk is never released.
+     */
+    private void updateChunkClaim(PhysicsObject ship) {
+        VSChunkClaim claim = ship.getChunkClaim();
+        int margin = ShipChunkAllocator.CLAIM_MARGIN;
+
+        TLongSet required = new TLongHashSet();
+        required.add(ChunkPos.asLong(claim.getCenterPos().x, claim.getCenterPos().z));
+        for (ChunkPos chunkPos : claim) {
+            Chunk chunk = ship.getChunkAt(chunkPos.x, chunkPos.z);
+            // Keep chunks we failed to load, we don't know what's in them
+            if (chunk != null && isChunkEmpty(chunk)) {
+                continue;
+            }
+            for (int x = chunkPos.x - margin; x <= chunkPos.x + margin; x++) {
+                for (int z = chunkPos.z - margin; z <= chunkPos.z + margin; z++) {
+                    if (claim.canClaimChunk(x, z)) {
+                        required.add(ChunkPos.asLong(x, z));
                     }
-
-                    // Finally, add the new TileEntity to the new ship chunk.
-                    newChunk.addTileEntity(pasteTile);
                 }
             }
+        }
 
-            // Then delete the copied blocks from the old chunks
-            blocksIterator = detector.foundSet.iterator();
-            while (blocksIterator.hasNext()) {
-                int hashedPos = blocksIterator.next();
-                SpatialDetector.setPosWithRespectTo(hashedPos, detector.firstBlock, srcLocationPos);
-
-                Chunk chunkToSet = world.getChunk(srcLocationPos);
-
-                // Then get the old IBlockState, as efficiently as possible
-                int storageIndex = srcLocationPos.getY() >> 4;
-                // Check that we're placing the block in a valid position
-                if (storageIndex < 0 || storageIndex >= chunkToSet.storageArrays.length) {
-                    // Invalid position, abort!
-                    throw new IllegalStateException("Incorrect block copy!\n" + srcLocationPos);
-                }
-
-                IBlockState srcState = chunkToSet.storageArrays[storageIndex]
-                        .get(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15);
-
-                // THIS IS TEMP because its extremely inefficient.
-                // Come up with a clever way to let clients figure this out in the future.
-                world.notifyBlockUpdate(srcLocationPos, srcState, Blocks.AIR.getDefaultState(), 3);
-
-                // Finally, delete the old IBlockState and TileEntity from the old Chunk
-                chunkToSet.storageArrays[storageIndex]
-                        .set(srcLocationPos.getX() & 15, srcLocationPos.getY() & 15, srcLocationPos.getZ() & 15, Blocks.AIR.getDefaultState());
-
-                // Delete the TileEntity at this pos (if there is one)
-                world.removeTileEntity(srcLocationPos);
+        TLongSet claimedChunks = claim.getClaimedChunks();
+        TLongSet toClaim = new TLongHashSet(required);
+        toClaim.removeAll(claimedChunks);
+        TLongSet toRelease = new TLongHashSet(claimedChunks);
+        toRelease.removeAll(required);
+        if (toClaim.isEmpty() && toRelease.isEmpty()) {
+            return;
+        }
+        if (VSConfig.showAnnoyingDebugOutput) {
+            System.out.println("Claiming " + toClaim.size() + " and releasing " + toRelease.size() + " chunks for "
+                + ship.getShipData());
+        }
 
-                chunkToSet.markDirty();
+        // Cache the new chunks before claiming them, anything that sees a chunk in the claim expects to find it in
+        // the cache.
+        ChunkProviderServer provider = world.getChunkProvider();
+        List<Chunk> newChunks = new ArrayList<>(toClaim.size());
+        toClaim.forEach(chunkLong -> {
+            int x = VSChunkClaim.getChunkX(chunkLong);
+            int z = VSChunkClaim.getChunkZ(chunkLong);
+            Chunk chunk = provider.getLoadedChunk(x, z);
+            if (chunk == null) {
+                chunk = new Chunk(world, x, z);
+                injectChunkIntoWorldServer(chunk, x, z);
             }
+            ship.getClaimedChunkCache().addChunk(chunk);
+            newChunks.add(chunk);
+            return true;
+        });
+
+        QueryableShipData.get(world).updateChunkClaim(ship.getShipData(),
+            chunkClaim -> chunkClaim.updateChunkClaims(toClaim, toRelease));
+        onShipChunkClaimChanged(ship);
+
+        // Send the new chunks to the players watching the ship, the claim itself gets to them with the next ShipData
+        // update.
+        for (Chunk chunk : newChunks) {
+            SPacketChunkData chunkData = new SPacketChunkData(chunk, 65535);
+            for (EntityPlayerMP player : ship.getWatchingPlayers()) {
+                player.connection.sendPacket(chunkData);
+            }
+        }
 
-            // Then inject the ship chunks into the world
-            toSpawn.getChunkClaim().forEach((x, z) -> {
-                long chunkLong = ChunkPos.asLong(x, z);
-                if (copiedChunksMap.containsKey(chunkLong)) {
-                    injectChunkIntoWorldServer(copiedChunksMap.get(chunkLong), x, z);
-                } else {
-                    injectChunkIntoWorldServer(new Chunk(world, x, z), x, z);
-                }
-            });
-
-            // Add shipData to the ShipData storage
-            QueryableShipData.get(world).addShip(toSpawn);
+        // Then remove the released chunks from the world, they are empty so there is nothing to copy.
+        toRelease.forEach(chunkLong -> {
+            int x = VSChunkClaim.getChunkX(chunkLong);
+            int z = VSChunkClaim.getChunkZ(chunkLong);
+            ship.getClaimedChunkCache().removeChunk(x, z);
+            SPacketUnloadChunk unloadPacket = new SPacketUnloadChunk(x, z);
+            for (EntityPlayerMP player : ship.getWatchingPlayers()) {
+                player.connection.sendPacket(unloadPacket);
+            }
+            return true;
+        });
+    }
 
-            // Finally, instantiate the PhysicsObject representation of this ShipData
-            PhysicsObject physicsObject = new PhysicsObject(world, toSpawn);
-            loadedShips.put(toSpawn.getUuid(), physicsObject);
+    private static boolean isChunkEmpty(Chunk chunk) {
+        for (ExtendedBlockStorage storage : chunk.storageArrays) {
+            if (storage != Chunk.NULL_BLOCK_STORAGE && !storage.isEmpty()) {
+                return false;
+            }
         }
-        spawnQueue.clear();
+        return true;
+    }
+
+    @Override
+    public void onShipChunkClaimChanged(@Nonnull PhysicsObject ship) {
+        enforceGameThread();
+        loadedShipChunks.updateShip(ship);
     }
 
     private void injectChunkIntoWorldServer(@Nonnull Chunk chunk, int x, int z) {
@@ -324,8 +590,11 @@ public class WorldServerShipManager implements IPhysObjectWorld {
 
     private void loadAndUnloadShips() {
         QueryableShipData queryableShipData = QueryableShipData.get(world);
+        blockPositionPager.tick(queryableShipData);
         // Load the ships that are required immediately.
-        for (final UUID toLoadID : loadQueue) {
+        Iterator<UUID> loadIterator = loadQueue.iterator();
+        while (loadIterator.hasNext()) {
+            final UUID toLoadID = loadIterator.next();
             Optional<ShipData> toLoadOptional = queryableShipData.getShip(toLoadID);
             if (!toLoadOptional.isPresent()) {
                 throw new IllegalStateException("No ship found for ID:\n" + toLoadID);
@@ -334,6 +603,17 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (loadedShips.containsKey(toLoadID)) {
                 throw new IllegalStateException("Tried loading a ShipData that was already loaded?\n" + toLoad);
             }
+            if (!blockPositionPager.isResident(toLoad)) {
+                // Load it once its block positions are read back from disk
+                blockPositionPager.requestPageIn(toLoad);
+                if (blockPositionPager.hasFailed(toLoad)) {
+                    // The pager already printed why, and reads them again if the ship is queued later
+                    loadIterator.remove();
+                    loadingInBackground.remove(toLoadID);
+                }
+                continue;
+            }
+            loadIterator.remove();
 
             // Remove this ship from the background loading set, if it is in it.
             loadingInBackground.remove(toLoadID);
@@ -346,8 +626,12 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (old != null) {
                 throw new IllegalStateException("How did we already have a ship loaded for " + toLoad);
             }
+            loadedShipChunks.addShip(physicsObject);
+            shipBoundingBoxGrid.update(physicsObject);
+            blockPositionPager.onShipLoaded(toLoad);
+            // Ships saved before claims were sized to their blocks claimed far more chunks than they use
+            chunkClaimUpdateQueue.add(toLoadID);
         }
-        loadQueue.clear();
 
         // Load ships that aren't required immediately in the background.
         for (final UUID toLoadID : backgroundLoadQueue) {
@@ -370,6 +654,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
 
             ShipData toLoad = toLoadOptional.get();
             loadingInBackground.add(toLoadID);
+            blockPositionPager.requestPageIn(toLoad);
 
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Attempting to load " + toLoad + " in the background.");
@@ -405,6 +690,9 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (!success) {
                 throw new IllegalStateException("How did we fail to unload " + physicsObject.getShipData());
             }
+            loadedShipChunks.removeShip(physicsObject);
+            shipBoundingBoxGrid.remove(physicsObject);
+            blockPositionPager.onShipUnloaded(physicsObject.getShipData());
         }
         unloadQueue.clear();
     }
@@ -442,6 +730,12 @@ public class WorldServerShipManager implements IPhysObjectWorld {
         this.unloadQueue.add(shipID);
     }
 
+    @Nonnull
+    @Override
+    public DraggedEntityTracker getDraggedEntities() {
+        return draggedEntities;
+    }
+
     /**
      * Thread safe way to queue a ship to be loaded in the background.
      */
@@ -462,7 +756,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (!shipDataOptional.isPresent()) {
                 throw new IllegalStateException("Ship data not present for:\n" + shipID);
             }
-            backgroundChunks.addAll(shipDataOptional.get().getChunkClaim().getClaimedChunks());
+            shipDataOptional.get().getChunkClaim().getClaimedChunks().forEach(backgroundChunks::add);
         }
         return backgroundChunks;
     }
@@ -1,150 +1,305 @@
 package org.valkyrienskies.mod.common.ships.ship_world;
 
+import gnu.trove.set.TLongSet;
+import io.netty.buffer.ByteBuf;
+import lombok.Value;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.play.server.SPacketChunkData;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
+import org.joml.Matrix3d;
+import org.joml.Matrix3dc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
 import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.network.ShipTransformStreamState;
+import org.valkyrienskies.mod.common.network.ShipTransformUpdate;
+import org.valkyrienskies.mod.common.network.ShipTransformUpdateMessage;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.network.ShipIndexDataMessage;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This class is responsible determining which ships will be loaded/unloaded.
  *
  * It also keeps track of which players are watching a ship, and sending update packets to players.
+ * <p>
+ * Players and ships are kept in {@link PositionGrid}s, so that every decision only looks at the players and ships
+ * near each other instead of every player for every ship.
  */
 class WorldShipLoadingController {
 
+    // Every this many transform updates a ship sends a keyframe instead of a delta
+    private static final int KEYFRAME_INTERVAL = 100;
+
     private final WorldServerShipManager shipManager;
-    private Map<ShipData, Set<EntityPlayerMP>> shipToWatchingPlayers;
+    private final Map<ShipData, Set<EntityPlayerMP>> shipToWatchingPlayers;
+    // The last transform sent to the players watching each ship
+    private final Map<UUID, ShipTransformStreamState> transformStreamStates;
+    // The non transform fields of the last ShipData sent to the players watching each ship
+    private final Map<UUID, ShipDataSnapshot> shipDataSnapshots;
+    private final PositionGrid<EntityPlayerMP> playerGrid;
+    // Every ship in the world, loaded or not
+    private final PositionGrid<ShipData> shipGrid;
+    // Ships added to or removed from trackedShipData since the last tick, in order
+    private final Queue<Runnable> shipGridUpdates;
+    private QueryableShipData trackedShipData;
 
     WorldShipLoadingController(WorldServerShipManager shipManager) {
         this.shipManager = shipManager;
         this.shipToWatchingPlayers = new HashMap<>();
+        this.transformStreamStates = new HashMap<>();
+        this.shipDataSnapshots = new HashMap<>();
+        this.playerGrid = new PositionGrid<>();
+        this.shipGrid = new PositionGrid<>();
+        this.shipGridUpdates = new ConcurrentLinkedQueue<>();
+        this.trackedShipData = null;
     }
 
     /**
      * Tells the WorldServerShipManager which ships to load/unload/load in background.
      */
     void determineLoadAndUnload() {
-        for (ShipData data : QueryableShipData.get(shipManager.getWorld())) {
-            ShipTransform transform = data.getShipTransform();
-            Vec3d shipPos = transform.getShipPositionVec3d();
+        updatePlayerGrid();
+        updateShipGrid();
+
+        // Unload the ships that no player is near
+        for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
+            Vec3d shipPos = ship.getShipData().getShipTransform().getShipPositionVec3d();
+            if (!playerGrid.anyWithinDistance(shipPos.x, shipPos.z, VSConfig.SHIP_LOADING_SETTINGS.unloadDistance)) {
+                shipManager.queueShipUnload(ship.getShipData().getUuid());
+            }
+        }
+
+        // Load the ships near players
+        Set<ShipData> toLoad = new LinkedHashSet<>();
+        Set<ShipData> toLoadBackground = new LinkedHashSet<>();
+        for (EntityPlayer player : shipManager.getWorld().playerEntities) {
+            shipGrid.forEachWithinDistance(player.posX, player.posZ, VSConfig.SHIP_LOADING_SETTINGS.loadDistance, toLoad::add);
+            shipGrid.forEachWithinDistance(player.posX, player.posZ, VSConfig.SHIP_LOADING_SETTINGS.loadBackgroundDistance, toLoadBackground::add);
+        }
+        toLoadBackground.removeAll(toLoad);
+        for (ShipData data : toLoad) {
             if (shipManager.getPhysObjectFromUUID(data.getUuid()) == null) {
-                if (existsPlayerWithinDistanceXZ(shipManager.getWorld(), shipPos, VSConfig.SHIP_LOADING_SETTINGS.loadDistance)) {
-                    shipManager.queueShipLoad(data.getUuid());
-                } else {
-                    if (existsPlayerWithinDistanceXZ(shipManager.getWorld(), shipPos, VSConfig.SHIP_LOADING_SETTINGS.loadBackgroundDistance)) {
-                        shipManager.queueShipLoadBackground(data.getUuid());
-                    }
-                }
-            } else {
-                if (!existsPlayerWithinDistanceXZ(shipManager.getWorld(), shipPos, VSConfig.SHIP_LOADING_SETTINGS.unloadDistance)) {
-                    shipManager.queueShipUnload(data.getUuid());
+                shipManager.queueShipLoad(data.getUuid());
+            }
+        }
+        for (ShipData data : toLoadBackground) {
+            if (shipManager.getPhysObjectFromUUID(data.getUuid()) == null) {
+                shipManager.queueShipLoadBackground(data.getUuid());
+            }
+        }
+    }
+
+    /**
+     * Moves the players in the player grid, and removes the ones that left the world.
+     */
+    private void updatePlayerGrid() {
+        List<EntityPlayer> players = shipManager.getWorld().playerEntities;
+        for (EntityPlayer player : players) {
+            playerGrid.update((EntityPlayerMP) player, player.posX, player.posZ);
+        }
+        if (playerGrid.size() != players.size()) {
+            playerGrid.retainAll(players);
+        }
+    }
+
+    /**
+     * Adds and removes the ships that were added to or removed from QueryableShipData, and moves the loaded ships.
+     * Ships that aren't loaded don't move, so they never have to be looked at again.
+     */
+    private void updateShipGrid() {
+        QueryableShipData queryableShipData = QueryableShipData.get(shipManager.getWorld());
+        if (queryableShipData != trackedShipData) {
+            // First tick, or the world data got replaced. Start over from the new ship data.
+            trackedShipData = queryableShipData;
+            shipGridUpdates.clear();
+            shipGrid.clear();
+            queryableShipData.registerUpdateListener((removed, added) -> {
+                // Ignore the ship data we don't track anymore
+                if (queryableShipData != trackedShipData) {
+                    return;
                 }
+                removed.forEach(data -> shipGridUpdates.add(() -> shipGrid.remove(data)));
+                added.forEach(data -> shipGridUpdates.add(() -> updateShipPosition(data)));
+            });
+            for (ShipData data : queryableShipData) {
+                updateShipPosition(data);
             }
         }
+
+        Runnable update;
+        while ((update = shipGridUpdates.poll()) != null) {
+            update.run();
+        }
+        for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
+            if (shipGrid.contains(ship.getShipData())) {
+                updateShipPosition(ship.getShipData());
+            }
+        }
+    }
+
+    private void updateShipPosition(ShipData data) {
+        ShipTransform transform = data.getShipTransform();
+        shipGrid.update(data, transform.getPosX(), transform.getPosZ());
     }
 
     /**
      * Send ship updates to clients.
      */
     void sendUpdatesToPlayers() {
-        // First get an updated watching players map
-        Map<ShipData, Set<EntityPlayerMP>> newWatching = updateWatchingPlayers();
-        // Then send updates to players based on the old watching map and new watching map
-        sendUpdatesPackets(shipToWatchingPlayers, newWatching);
-        // Then update the watching map
-        shipToWatchingPlayers = newWatching;
-        // Then update the watching player map of the ship chunks
+        updatePlayerGrid();
+        // First update the watching players map, and find out who started and stopped watching what
+        Map<ShipData, Set<EntityPlayerMP>> startedWatching = new HashMap<>();
+        Map<ShipData, Set<EntityPlayerMP>> stoppedWatching = new HashMap<>();
+        updateWatchingPlayers(startedWatching, stoppedWatching);
+        // Then send updates to players based on those changes
+        sendUpdatesPackets(startedWatching, stoppedWatching);
+        // Then update the watching player lists of the ship chunks
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
-            ship.getWatchingPlayers().clear();
-            ship.getWatchingPlayers().addAll(shipToWatchingPlayers.get(ship.getShipData()));
+            Set<EntityPlayerMP> stopped = stoppedWatching.get(ship.getShipData());
+            if (stopped != null) {
+                ship.getWatchingPlayers().removeAll(stopped);
+            }
+            Set<EntityPlayerMP> started = startedWatching.get(ship.getShipData());
+            if (started != null) {
+                ship.getWatchingPlayers().addAll(started);
+            }
         }
     }
 
     /**
-     * Determine which ships are watched by which players.
+     * Determine which ships are watched by which players, by only changing the watchers that started or stopped
+     * watching.
+     *
+     * @param startedWatching Filled with the players that started watching each ship
+     * @param stoppedWatching Filled with the players that stopped watching each ship, including every watcher of the
+     *                        ships that got unloaded
      */
-    private Map<ShipData, Set<EntityPlayerMP>> updateWatchingPlayers() {
-        Map<ShipData, Set<EntityPlayerMP>> newWatching = new HashMap<>();
-        // Copy the old watching to the new, making sure not to copy data from ships that got unloaded.
+    private void updateWatchingPlayers(Map<ShipData, Set<EntityPlayerMP>> startedWatching,
+        Map<ShipData, Set<EntityPlayerMP>> stoppedWatching) {
+        Set<ShipData> loadedShips = new HashSet<>();
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
-            ShipData shipData = ship.getShipData();
-            if (shipToWatchingPlayers.containsKey(shipData)) {
-                Set<EntityPlayerMP> oldWatchingPlayers = shipToWatchingPlayers.get(shipData);
-                Set<EntityPlayerMP> newWatchingPlayers = new HashSet<>();
-                // Do this to prevent players who left the game from propagating to future watching maps.
-                for (EntityPlayer player : shipManager.getWorld().playerEntities) {
-                    if (oldWatchingPlayers.contains(player)) {
-                        newWatchingPlayers.add((EntityPlayerMP) player);
-                    }
+            loadedShips.add(ship.getShipData());
+        }
+        // Nobody watches the ships that got unloaded
+        Iterator<Map.Entry<ShipData, Set<EntityPlayerMP>>> iterator = shipToWatchingPlayers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ShipData, Set<EntityPlayerMP>> entry = iterator.next();
+            if (!loadedShips.contains(entry.getKey())) {
+                if (!entry.getValue().isEmpty()) {
+                    stoppedWatching.put(entry.getKey(), entry.getValue());
                 }
-                newWatching.put(shipData, newWatchingPlayers);
-            } else {
-                newWatching.put(shipData, new HashSet<>());
+                iterator.remove();
             }
         }
 
-        // Remove players that aren't watching anymore, and add new watching players
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
+            ShipData shipData = ship.getShipData();
             Vec3d shipPos = ship.getShipTransform().getShipPositionVec3d();
-            // Remove players further than the unwatch distance
-            newWatching.get(ship.getShipData()).removeIf(watcher -> !isPlayerWithinDistanceXZ(watcher, shipPos, VSConfig.SHIP_LOADING_SETTINGS.unwatchDistance));
+            Set<EntityPlayerMP> watchers = shipToWatchingPlayers.computeIfAbsent(shipData, k -> new HashSet<>());
 
-            // Add players closer than the watch distance
-            for (EntityPlayer player : shipManager.getWorld().playerEntities) {
-                if (isPlayerWithinDistanceXZ(player, shipPos, VSConfig.SHIP_LOADING_SETTINGS.watchDistance)) {
-                    newWatching.get(ship.getShipData()).add((EntityPlayerMP) player);
+            // Remove players that left the world, or are further than the unwatch distance
+            Iterator<EntityPlayerMP> watcherIterator = watchers.iterator();
+            while (watcherIterator.hasNext()) {
+                EntityPlayerMP watcher = watcherIterator.next();
+                if (!playerGrid.contains(watcher) || !isPlayerWithinDistanceXZ(watcher, shipPos, VSConfig.SHIP_LOADING_SETTINGS.unwatchDistance)) {
+                    watcherIterator.remove();
+                    stoppedWatching.computeIfAbsent(shipData, k -> new HashSet<>()).add(watcher);
                 }
             }
-        }
 
-        return newWatching;
+            // Add players closer than the watch distance
+            playerGrid.forEachWithinDistance(shipPos.x, shipPos.z, VSConfig.SHIP_LOADING_SETTINGS.watchDistance, player -> {
+                if (watchers.add(player)) {
+                    startedWatching.computeIfAbsent(shipData, k -> new HashSet<>()).add(player);
+                }
+            });
+        }
     }
 
     /**
      * Send load/unload/update packets accordingly.
+     * <p>
+     * The full ShipData is only sent to players that just started watching a ship, or to every watcher when something
+     * other than the transform changed. Transforms are sent by {@link ShipTransformUpdateMessage}, as a delta against
+     * the transform sent the tick before. Each update is encoded once per ship and the same buffer is written into the
+     * packets of every watcher.
+     * <p>
+     * The connection is reliable and in order, so every player that watched a ship last tick has received the last
+     * transform sent for it, and we can use that as the base of the delta without waiting for acks.
      */
-    private void sendUpdatesPackets(Map<ShipData, Set<EntityPlayerMP>> oldWatching, Map<ShipData, Set<EntityPlayerMP>> newWatching) {
-        // First send the update packets
-        // Create a map for every player to the ship data updates it will receive
-        Map<EntityPlayerMP, List<ShipData>> updatesMap = new HashMap<>();
-        shipManager.getWorld().playerEntities.forEach((player) -> updatesMap.put((EntityPlayerMP) player, new ArrayList<>()));
+    private void sendUpdatesPackets(Map<ShipData, Set<EntityPlayerMP>> startedWatching, Map<ShipData, Set<EntityPlayerMP>> stoppedWatching) {
+        final int dimensionID = shipManager.getWorld().provider.getDimension();
+        Map<EntityPlayerMP, ShipIndexDataMessage> playerPacketMap = new HashMap<>();
+        Map<EntityPlayerMP, ShipTransformUpdateMessage> playerTransformPacketMap = new HashMap<>();
+        shipManager.getWorld().playerEntities.forEach((player) -> {
+            ShipIndexDataMessage indexDataMessage = new ShipIndexDataMessage();
+            indexDataMessage.setDimensionID(dimensionID);
+            playerPacketMap.put((EntityPlayerMP) player, indexDataMessage);
+            ShipTransformUpdateMessage transformUpdateMessage = new ShipTransformUpdateMessage();
+            transformUpdateMessage.setDimensionID(dimensionID);
+            playerTransformPacketMap.put((EntityPlayerMP) player, transformUpdateMessage);
+        });
 
+        Set<UUID> loadedShipIDs = new HashSet<>();
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
             ShipData shipData = ship.getShipData();
-            Set<EntityPlayerMP> currentWatchers = newWatching.get(shipData);
-            currentWatchers.forEach((player) -> updatesMap.get(player).add(shipData));
-        }
+            UUID shipID = shipData.getUuid();
+            loadedShipIDs.add(shipID);
+            Set<EntityPlayerMP> currentWatchers = shipToWatchingPlayers.get(shipData);
+            Set<EntityPlayerMP> newWatchers = startedWatching.getOrDefault(shipData, Collections.emptySet());
 
-        Map<EntityPlayerMP, ShipIndexDataMessage> playerPacketMap = new HashMap<>();
+            // First send the ShipData to the players that don't have the latest version
+            ShipDataSnapshot snapshot = new ShipDataSnapshot(shipData);
+            boolean shipDataChanged = !snapshot.equals(shipDataSnapshots.put(shipID, snapshot));
+            List<ShipData> toSend = Collections.singletonList(shipData);
+            for (EntityPlayerMP player : shipDataChanged ? currentWatchers : newWatchers) {
+                playerPacketMap.get(player).addData(toSend);
+            }
 
-        // Then send those updates
-        updatesMap.forEach((player, updates) -> {
-            ShipIndexDataMessage indexDataMessage = new ShipIndexDataMessage();
-            indexDataMessage.setDimensionID(shipManager.getWorld().provider.getDimension());
-            if (!updates.isEmpty()) {
-                indexDataMessage.addData(updates);
+            // Then send the transform
+            ShipTransformStreamState previousState = transformStreamStates.get(shipID);
+            ShipTransformStreamState state = ShipTransformStreamState
+                .fromTransform(shipData.getShipTransform(), shipData.getShipBB(), previousState);
+            transformStreamStates.put(shipID, state);
+            ByteBuf keyframe = null;
+            if (state != previousState) {
+                boolean sendKeyframe = previousState == null || state.getSequence() % KEYFRAME_INTERVAL == 0;
+                ByteBuf update = ShipTransformUpdate.encode(shipID, sendKeyframe ? null : previousState, state);
+                if (sendKeyframe) {
+                    keyframe = update;
+                }
+                for (EntityPlayerMP player : currentWatchers) {
+                    if (!newWatchers.contains(player)) {
+                        playerTransformPacketMap.get(player).addEncodedUpdate(update);
+                    }
+                }
             }
-            playerPacketMap.put(player, indexDataMessage);
-        });
+            if (!newWatchers.isEmpty()) {
+                if (keyframe == null) {
+                    keyframe = ShipTransformUpdate.encode(shipID, null, state);
+                }
+                for (EntityPlayerMP player : newWatchers) {
+                    playerTransformPacketMap.get(player).addEncodedUpdate(keyframe);
+                }
+            }
+        }
+        // Forget the ships that got unloaded, they start over with a keyframe if they're loaded again
+        transformStreamStates.keySet().retainAll(loadedShipIDs);
+        shipDataSnapshots.keySet().retainAll(loadedShipIDs);
 
         // Then send ship loads to the packets
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
             ShipData shipData = ship.getShipData();
-            Set<EntityPlayerMP> newWatchers = new HashSet<>(newWatching.get(shipData));
-            if (oldWatching.containsKey(shipData)) {
-                newWatchers.removeAll(oldWatching.get(shipData));
-            }
-            if (!newWatchers.isEmpty()) {
+            Set<EntityPlayerMP> newWatchers = startedWatching.get(shipData);
+            if (newWatchers != null) {
                 // First send the ship chunks to the new watchers
                 for (Chunk chunk : ship.getClaimedChunkCache()) {
                     SPacketChunkData data = new SPacketChunkData(chunk, 65535);
@@ -159,25 +314,27 @@ class WorldShipLoadingController {
         }
 
         // Then add ship unloads to the packets
-        for (ShipData shipData : oldWatching.keySet()) {
-            Set<EntityPlayerMP> removedWatchers = new HashSet<>(oldWatching.get(shipData));
-            if (newWatching.containsKey(shipData)) {
-                removedWatchers.removeAll(newWatching.get(shipData));
-            }
-            for (EntityPlayerMP player : removedWatchers) {
+        for (Map.Entry<ShipData, Set<EntityPlayerMP>> entry : stoppedWatching.entrySet()) {
+            ShipData shipData = entry.getKey();
+            for (EntityPlayerMP player : entry.getValue()) {
                 // Handles the case of players who left the world/dimension. Basically just prevents crashes with
                 // BetterPortals.
                 if (!playerPacketMap.containsKey(player)) {
                     playerPacketMap.put(player, new ShipIndexDataMessage());
-                    playerPacketMap.get(player).setDimensionID(shipManager.getWorld().provider.getDimension());
+                    playerPacketMap.get(player).setDimensionID(dimensionID);
                 }
                 playerPacketMap.get(player).addUnloadUUID(shipData.getUuid());
             }
         }
 
-        // Finally, send each player their update packet
+        // Finally, send each player their update packets. The ShipData has to arrive before the transforms.
         playerPacketMap.forEach((player, packet) -> {
-            if (!player.hasDisconnected()) {
+            if (!player.hasDisconnected() && !packet.isEmpty()) {
+                ValkyrienSkiesMod.physWrapperNetwork.sendTo(packet, player);
+            }
+        });
+        playerTransformPacketMap.forEach((player, packet) -> {
+            if (!player.hasDisconnected() && !packet.isEmpty()) {
                 ValkyrienSkiesMod.physWrapperNetwork.sendTo(packet, player);
             }
         });
@@ -193,15 +350,26 @@ class WorldShipLoadingController {
     }
 
     /**
-     * Returns true if there exists a player within world that is within distance of pos, only using XZ coordinates.
+     * The fields of a ShipData that clients need and that aren't sent by {@link ShipTransformUpdateMessage}.
      */
-    private static boolean existsPlayerWithinDistanceXZ(World world, Vec3d pos, double distance) {
-        for (EntityPlayer player : world.playerEntities) {
-            if (isPlayerWithinDistanceXZ(player, pos, distance)) {
-                return true;
-            }
+    @Value
+    private static class ShipDataSnapshot {
+
+        String name;
+        boolean physicsEnabled;
+        double mass;
+        Vector3dc centerOfMass;
+        Matrix3dc momentOfInertia;
+        TLongSet claimedChunks;
+
+        ShipDataSnapshot(ShipData shipData) {
+            this.name = shipData.getName();
+            this.physicsEnabled = shipData.isPhysicsEnabled();
+            this.mass = shipData.getInertiaData().getGameTickMass();
+            this.centerOfMass = new Vector3d(shipData.getInertiaData().getGameTickCenterOfMass());
+            this.momentOfInertia = new Matrix3d(shipData.getInertiaData().getGameMoITensor());
+            // A view of a set that is copied on write, so later claim changes won't show up in it
+            this.claimedChunks = shipData.getChunkClaim().getClaimedChunks();
         }
-        return false;
     }
-
 }
@@ -39,6 +39,11 @@ public abstract class TileEntityPilotableImpl extends TileEntity implements
     @Override
     public final void onPilotControlsMessage(PilotControlsMessage message, EntityPlayerMP sender) {
         if (sender.getUniqueID().equals(pilotPlayerEntity)) {
+            PhysicsObject parent = getParentPhysicsEntity();
+            if (parent != null) {
+                // The controls may be about to start the engines of a sleeping ship
+                parent.wakeUp();
+            }
             processControlMessage(message, sender);
         }
     }
@@ -66,9 +66,8 @@ public class ValkyrienUtils {
             return Optional.empty();
         }
 
-        return QueryableShipData.get(world)
-            .getShipFromChunk(pos.getX() >> 4, pos.getZ() >> 4)
-            .map(shipData -> getPhysObjWorld(world).getPhysObjectFromUUID(shipData.getUuid()));
+        return Optional.ofNullable(getPhysObjWorld(world)
+            .getPhysObjectManagingChunk(pos.getX() >> 4, pos.getZ() >> 4));
     }
 
     /**
@@ -160,7 +159,7 @@ public class ValkyrienUtils {
         ShipTransform initial = new ShipTransform(shipPosInitial, centerOfMassInitial);
         AxisAlignedBB axisAlignedBB = new AxisAlignedBB(shipPosInitial.x(), shipPosInitial.y(),
             shipPosInitial.z(), shipPosInitial.x(), shipPosInitial.y(), shipPosInitial.z());
-        return ShipData.createData(QueryableShipData.get(world).getAllShips(),
+        return ShipData.createData(QueryableShipData.get(world),
             name, chunkClaim, shipID, initial, axisAlignedBB);
     }
 
@@ -1,7 +0,0 @@
-package org.valkyrienskies.mod.common.util.cqengine;
-
-public interface UpdatableQueryEngineInternal<O> extends UpdatableQueryEngine<O> {
-
-    public boolean isMutable();
-
-}
@@ -42,6 +42,21 @@ public class FastMinMaxMap {
         clear();
     }
 
+    private FastMinMaxMap(FastMinMaxMap toCopy) {
+        this.backing = toCopy.backing.clone();
+        this.capacity = toCopy.capacity;
+        this.front = toCopy.front;
+        this.back = toCopy.back;
+        this.size = toCopy.size;
+    }
+
+    /**
+     * @return A copy of this map that later changes to this map don't affect
+     */
+    public FastMinMaxMap copy() {
+        return new FastMinMaxMap(this);
+    }
+
     public void increment(int key) throws IllegalArgumentException {
         int curValue = getValue(key);
         // Update the pointers
@@ -1,5 +1,7 @@
 package org.valkyrienskies.mod.common.util.datastructures;
 
+import gnu.trove.procedure.TIntProcedure;
+
 public interface IBitOctree {
 
     int BLOCKS_TOTAL = 4096;
@@ -19,4 +21,25 @@ public interface IBitOctree {
     int getOctreeLevelTwoIndex(int levelThreeIndex, int offset);
 
     int getOctreeLevelThreeIndex(int offset);
-}
\ No newline at end of file
+
+    /**
+     * @return A counter that is incremented every time a block bit of this octree changes. Comparing it
+     * against an older value is a cheap way to tell if any block in this octree changed since then.
+     */
+    int getModificationCount();
+
+    /**
+     * @return True if any block bit inside the given box is set. The box coordinates go from 0 to 15, inclusive.
+     */
+    boolean hasSetBitInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
+    /**
+     * Runs the procedure on every set block bit inside the given box, with the coordinates packed as
+     * {@code x | y << 4 | z << 8}. The box coordinates go from 0 to 15, inclusive. The order of the bits is not
+     * specified.
+     *
+     * @return False if the procedure returned false and stopped the iteration early, true otherwise
+     */
+    boolean forEachSetBitInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+        TIntProcedure procedure);
+}
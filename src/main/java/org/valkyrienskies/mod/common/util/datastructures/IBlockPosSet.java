@@ -28,6 +28,12 @@ public interface IBlockPosSet extends Set<BlockPos> {
 
     void clear();
 
+    /**
+     * @return A copy of this set that later changes to this set don't affect
+     */
+    @Nonnull
+    IBlockPosSet copy();
+
     /**
      * Fast way to iterate over all BlockPos in this Set that does not require us to create BlockPos objects.
      * Although this default implementation is still slow, it should be accelerated by the data structure.
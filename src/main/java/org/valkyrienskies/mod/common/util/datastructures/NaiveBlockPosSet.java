@@ -3,6 +3,7 @@ package org.valkyrienskies.mod.common.util.datastructures;
 import lombok.experimental.Delegate;
 import net.minecraft.util.math.BlockPos;
 
+import javax.annotation.Nonnull;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -19,6 +20,10 @@ public class NaiveBlockPosSet implements IBlockPosSet {
         this.blockPosSet = new HashSet<>();
     }
 
+    private NaiveBlockPosSet(Set<BlockPos> blockPosSet) {
+        this.blockPosSet = new HashSet<>(blockPosSet);
+    }
+
     @Override
     public boolean add(int x, int y, int z) {
         return blockPosSet.add(new BlockPos(x, y, z));
@@ -39,4 +44,10 @@ public class NaiveBlockPosSet implements IBlockPosSet {
         return true;
     }
 
+    @Nonnull
+    @Override
+    public NaiveBlockPosSet copy() {
+        return new NaiveBlockPosSet(blockPosSet);
+    }
+
 }
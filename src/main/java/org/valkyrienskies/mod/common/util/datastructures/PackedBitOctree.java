@@ -0,0 +1,214 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.procedure.TIntProcedure;
+
+/**
+ * An {@link IBitOctree} packed into 64 longs. Every long holds one 4x4x4 brick of blocks, and a summary long has a
+ * bit set for every brick that isn't empty. Bricks and the blocks inside of them use the same order, x in the lowest
+ * 2 bits, then y, then z, so the same masks pick the bricks of a box out of the summary and the blocks of a box out
+ * of a brick.
+ * <p>
+ * Setting a bit only touches its brick and the summary. The octree levels of {@link IBitOctree} are not stored, they
+ * are read from the bricks when asked for: level three nodes are groups of 8 bricks, level two nodes are single
+ * bricks, and level one nodes are 2x2x2 corners of a brick.
+ */
+public class PackedBitOctree implements IBitOctree {
+
+    private static final int BRICKS_TOTAL = 64;
+    // The bits of the bricks or blocks with the given x, y and z coordinate, where the coordinate goes from 0 to 3
+    private static final long X_COORD_MASK = 0x1111111111111111L;
+    private static final long Y_COORD_MASK = 0x000F000F000F000FL;
+    private static final long Z_COORD_MASK = 0x000000000000FFFFL;
+    // The bits of the coordinates from [min][max], inclusive
+    private static final long[][] X_RANGE_MASKS = createRangeMasks(X_COORD_MASK, 1);
+    private static final long[][] Y_RANGE_MASKS = createRangeMasks(Y_COORD_MASK, 4);
+    private static final long[][] Z_RANGE_MASKS = createRangeMasks(Z_COORD_MASK, 16);
+
+    private final long[] bricks;
+    private long brickSummary;
+    private int modificationCount;
+
+    public PackedBitOctree() {
+        bricks = new long[BRICKS_TOTAL];
+    }
+
+    @Override
+    public void set(int x, int y, int z, boolean bit) {
+        int brickIndex = getBrickIndex(x, y, z);
+        long oldBrick = bricks[brickIndex];
+        long newBrick;
+        if (bit) {
+            newBrick = oldBrick | (1L << getBitIndex(x, y, z));
+        } else {
+            newBrick = oldBrick & ~(1L << getBitIndex(x, y, z));
+        }
+        if (newBrick != oldBrick) {
+            bricks[brickIndex] = newBrick;
+            if (newBrick == 0) {
+                brickSummary &= ~(1L << brickIndex);
+            } else {
+                brickSummary |= 1L << brickIndex;
+            }
+            modificationCount++;
+        }
+    }
+
+    @Override
+    public boolean get(int x, int y, int z) {
+        return (bricks[getBrickIndex(x, y, z)] & (1L << getBitIndex(x, y, z))) != 0;
+    }
+
+    @Override
+    public boolean getAtIndex(int index) {
+        if (index < 0 || index >= BITS_TOTAL) {
+            throw new IllegalArgumentException("Tried accessing an element out of bounds!");
+        }
+        if (index < BLOCKS_TOTAL) {
+            return get(index & 15, (index >> 4) & 15, index >> 8);
+        }
+        // Undo the index math of the getOctreeLevel*Index() methods
+        int levelThreeOffset = (index - BLOCKS_TOTAL) / 73;
+        int levelThreeRemainder = (index - BLOCKS_TOTAL) % 73;
+        int size = 8;
+        int x = (levelThreeOffset & 1) << 3;
+        int y = ((levelThreeOffset >> 1) & 1) << 3;
+        int z = (levelThreeOffset >> 2) << 3;
+        if (levelThreeRemainder != 0) {
+            int levelTwoOffset = (levelThreeRemainder - 1) / 9;
+            int levelTwoRemainder = (levelThreeRemainder - 1) % 9;
+            size = 4;
+            x |= (levelTwoOffset & 1) << 2;
+            y |= ((levelTwoOffset >> 1) & 1) << 2;
+            z |= (levelTwoOffset >> 2) << 2;
+            if (levelTwoRemainder != 0) {
+                int levelOneOffset = levelTwoRemainder - 1;
+                size = 2;
+                x |= (levelOneOffset & 1) << 1;
+                y |= ((levelOneOffset >> 1) & 1) << 1;
+                z |= (levelOneOffset >> 2) << 1;
+            }
+        }
+        return hasSetBitInBox(x, y, z, x + size - 1, y + size - 1, z + size - 1);
+    }
+
+    @Override
+    public int getOctreeLevelOneIndex(int levelTwoIndex, int offset) {
+        return levelTwoIndex + offset + 1;
+    }
+
+    @Override
+    public int getOctreeLevelTwoIndex(int levelThreeIndex, int offset) {
+        return levelThreeIndex + (9 * offset) + 1;
+    }
+
+    @Override
+    public int getOctreeLevelThreeIndex(int offset) {
+        return BLOCKS_TOTAL + (73 * offset);
+    }
+
+    @Override
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    @Override
+    public boolean hasSetBitInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return false;
+        }
+        long bricksInBox = brickSummary
+            & getBoxMask(minX >> 2, minY >> 2, minZ >> 2, maxX >> 2, maxY >> 2, maxZ >> 2);
+        while (bricksInBox != 0) {
+            int brickIndex = Long.numberOfTrailingZeros(bricksInBox);
+            bricksInBox &= bricksInBox - 1;
+            if ((bricks[brickIndex] & getBlocksInBoxMask(brickIndex, minX, minY, minZ, maxX, maxY, maxZ)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean forEachSetBitInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+        TIntProcedure procedure) {
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return true;
+        }
+        long bricksInBox = brickSummary
+            & getBoxMask(minX >> 2, minY >> 2, minZ >> 2, maxX >> 2, maxY >> 2, maxZ >> 2);
+        while (bricksInBox != 0) {
+            int brickIndex = Long.numberOfTrailingZeros(bricksInBox);
+            bricksInBox &= bricksInBox - 1;
+            long blocks = bricks[brickIndex]
+                & getBlocksInBoxMask(brickIndex, minX, minY, minZ, maxX, maxY, maxZ);
+            int brickX = (brickIndex & 3) << 2;
+            int brickY = ((brickIndex >> 2) & 3) << 2;
+            int brickZ = (brickIndex >> 4) << 2;
+            while (blocks != 0) {
+                int bitIndex = Long.numberOfTrailingZeros(blocks);
+                blocks &= blocks - 1;
+                int x = brickX | (bitIndex & 3);
+                int y = brickY | ((bitIndex >> 2) & 3);
+                int z = brickZ | (bitIndex >> 4);
+                if (!procedure.execute(x | (y << 4) | (z << 8))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of set block bits
+     */
+    public int countSetBits() {
+        int count = 0;
+        long nonEmptyBricks = brickSummary;
+        while (nonEmptyBricks != 0) {
+            count += Long.bitCount(bricks[Long.numberOfTrailingZeros(nonEmptyBricks)]);
+            nonEmptyBricks &= nonEmptyBricks - 1;
+        }
+        return count;
+    }
+
+    /**
+     * The mask of the blocks of a brick that are inside the given box of blocks, the box must touch the brick.
+     */
+    private static long getBlocksInBoxMask(int brickIndex, int minX, int minY, int minZ, int maxX, int maxY,
+        int maxZ) {
+        int brickX = (brickIndex & 3) << 2;
+        int brickY = ((brickIndex >> 2) & 3) << 2;
+        int brickZ = (brickIndex >> 4) << 2;
+        return getBoxMask(Math.max(minX - brickX, 0), Math.max(minY - brickY, 0), Math.max(minZ - brickZ, 0),
+            Math.min(maxX - brickX, 3), Math.min(maxY - brickY, 3), Math.min(maxZ - brickZ, 3));
+    }
+
+    /**
+     * The mask of the bits inside the given box, with coordinates from 0 to 3 inclusive. Works for both the bricks
+     * of the summary and the blocks of a brick.
+     */
+    private static long getBoxMask(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return X_RANGE_MASKS[minX][maxX] & Y_RANGE_MASKS[minY][maxY] & Z_RANGE_MASKS[minZ][maxZ];
+    }
+
+    private static long[][] createRangeMasks(long coordMask, int coordShift) {
+        long[][] rangeMasks = new long[4][4];
+        for (int min = 0; min < 4; min++) {
+            long mask = 0;
+            for (int max = min; max < 4; max++) {
+                mask |= coordMask << (coordShift * max);
+                rangeMasks[min][max] = mask;
+            }
+        }
+        return rangeMasks;
+    }
+
+    private static int getBrickIndex(int x, int y, int z) {
+        return (x >> 2) | (y & 0x0C) | ((z & 0x0C) << 2);
+    }
+
+    private static int getBitIndex(int x, int y, int z) {
+        return (x & 3) | ((y & 3) << 2) | ((z & 3) << 4);
+    }
+
+}
@@ -144,6 +144,15 @@ public class SmallBlockPosSet implements IBlockPosSet {
         listValueToIndex.clear();
     }
 
+    @Nonnull
+    @Override
+    public SmallBlockPosSet copy() {
+        SmallBlockPosSet copy = new SmallBlockPosSet(centerX, centerZ);
+        copy.compressedBlockPosList.addAll(compressedBlockPosList);
+        copy.listValueToIndex.putAll(listValueToIndex);
+        return copy;
+    }
+
     @Nonnull
     private BlockPos decompress(int compressed) {
         int z = compressed >> 20;
@@ -51,6 +51,19 @@ public class SmallBlockPosSetAABB implements IBlockPosSetAABB {
         this.zMap = new FastMinMaxMap(zSize);
     }
 
+    private SmallBlockPosSetAABB(SmallBlockPosSetAABB toCopy) {
+        this.blockPosSet = toCopy.blockPosSet.copy();
+        this.centerX = toCopy.centerX;
+        this.centerY = toCopy.centerY;
+        this.centerZ = toCopy.centerZ;
+        this.xSize = toCopy.xSize;
+        this.ySize = toCopy.ySize;
+        this.zSize = toCopy.zSize;
+        this.xMap = toCopy.xMap.copy();
+        this.yMap = toCopy.yMap.copy();
+        this.zMap = toCopy.zMap.copy();
+    }
+
     @Nullable
     @Override
     public AxisAlignedBB makeAABB() {
@@ -125,6 +138,12 @@ public class SmallBlockPosSetAABB implements IBlockPosSetAABB {
         this.zMap.clear();
     }
 
+    @Nonnull
+    @Override
+    public SmallBlockPosSetAABB copy() {
+        return new SmallBlockPosSetAABB(this);
+    }
+
     @Override
     public void forEach(@Nonnull VSIterationUtils.IntTernaryConsumer action) {
         blockPosSet.forEach(action);
@@ -0,0 +1,208 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.valkyrienskies.mod.common.collision.ShipCollisionTask;
+import org.valkyrienskies.mod.common.collision.WorldPhysicsCollider;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Splits the ships ticked by a {@link VSThread} into islands. Two ships are in the same island if their
+ * expanded bounding boxes overlap, directly or through other ships. Ships in different islands cannot
+ * interact during a physics tick, so every island runs its whole pre-collision, collision and
+ * post-collision pipeline on its own fork-join worker.
+ * <p>
+ * Ships keep the order they were given in, the same load order the serial path ticks them in, and within an
+ * island the collision results are processed in the same order the serial path uses. Every ship shuffles its
+ * collisions with its own random numbers, seeded from its UUID. The result of a tick therefore doesn't depend on
+ * how the workers get scheduled, or on whether islands are used at all.
+ */
+public class PhysicsIslandScheduler {
+
+    // The same growth WorldPhysicsCollider applies to the ship AABB when it builds the collision cache.
+    private static final double ISLAND_AABB_EXPANSION = 3 + WorldPhysicsCollider.AABB_EXPANSION;
+    // Extra room for the distance a ship can move between two game ticks.
+    private static final double ISLAND_VELOCITY_MULTIPLIER = 5;
+
+    private final ForkJoinPool pool;
+
+    public PhysicsIslandScheduler(@Nonnull ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Runs one physics tick for the given ships, ticking each island in parallel. Every ship takes the steps
+     * planned by {@link org.valkyrienskies.mod.common.physics.PhysicsCalculations#planPhysicsSteps}.
+     */
+    public void tickIslands(List<PhysicsObject> shipsWithPhysics, double physTickTimeDelta) {
+        List<List<PhysicsObject>> islands = createIslands(shipsWithPhysics, physTickTimeDelta);
+        if (islands.isEmpty()) {
+            return;
+        }
+        List<ForkJoinTask<?>> islandTasks = new ArrayList<>(islands.size());
+        for (List<PhysicsObject> island : islands) {
+            islandTasks.add(pool.submit(() -> tickIsland(island)));
+        }
+        for (ForkJoinTask<?> islandTask : islandTasks) {
+            try {
+                islandTask.join();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Groups the ships into islands using a union-find over their expanded bounding boxes.
+     *
+     * @return The islands, ordered by the position of their first ship in ships. Ships within an island keep their
+     * order in ships as well.
+     */
+    static List<List<PhysicsObject>> createIslands(List<PhysicsObject> ships, double physTickTimeDelta) {
+        int shipCount = ships.size();
+        AxisAlignedBB[] expandedBBs = new AxisAlignedBB[shipCount];
+        for (int i = 0; i < shipCount; i++) {
+            PhysicsObject ship = ships.get(i);
+            double velocityScale = physTickTimeDelta * ISLAND_VELOCITY_MULTIPLIER;
+            expandedBBs[i] = ship.getShipBB()
+                .grow(ISLAND_AABB_EXPANSION)
+                .expand(ship.getPhysicsCalculations().getLinearVelocity().x * velocityScale,
+                    ship.getPhysicsCalculations().getLinearVelocity().y * velocityScale,
+                    ship.getPhysicsCalculations().getLinearVelocity().z * velocityScale);
+        }
+
+        int[] parents = groupOverlappingBoxes(expandedBBs);
+
+        // Because we always keep the smaller index as the root, iterating in order creates the islands in
+        // the order of their first ship.
+        List<List<PhysicsObject>> islands = new ArrayList<>();
+        int[] islandIndices = new int[shipCount];
+        for (int i = 0; i < shipCount; i++) {
+            int root = find(parents, i);
+            if (root == i) {
+                islandIndices[i] = islands.size();
+                islands.add(new ArrayList<>());
+            }
+            islands.get(islandIndices[root]).add(ships.get(i));
+        }
+        return islands;
+    }
+
+    /**
+     * Groups the boxes that overlap, directly or through other boxes, by sweeping over them in order of their
+     * min x. Only the boxes whose x range still reaches the current box get tested against it, so spread out ships
+     * don't cost a test for every pair.
+     *
+     * @return The union-find parents of the boxes, the root of every group is the lowest index in it
+     */
+    static int[] groupOverlappingBoxes(AxisAlignedBB[] boxes) {
+        int boxCount = boxes.length;
+        int[] parents = new int[boxCount];
+        Integer[] sweepOrder = new Integer[boxCount];
+        for (int i = 0; i < boxCount; i++) {
+            parents[i] = i;
+            sweepOrder[i] = i;
+        }
+        Arrays.sort(sweepOrder, Comparator.comparingDouble(index -> boxes[index].minX));
+
+        // The boxes before the current one in the sweep whose max x is past its min x
+        int[] activeBoxes = new int[boxCount];
+        int activeCount = 0;
+        for (int index : sweepOrder) {
+            AxisAlignedBB box = boxes[index];
+            int stillActive = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int other = activeBoxes[i];
+                if (boxes[other].maxX <= box.minX) {
+                    // Every box after this one in the sweep starts even further along x
+                    continue;
+                }
+                activeBoxes[stillActive++] = other;
+                if (boxes[other].intersects(box)) {
+                    union(parents, index, other);
+                }
+            }
+            activeCount = stillActive;
+            activeBoxes[activeCount++] = index;
+        }
+        return parents;
+    }
+
+    private static int find(int[] parents, int index) {
+        while (parents[index] != index) {
+            parents[index] = parents[parents[index]];
+            index = parents[index];
+        }
+        return index;
+    }
+
+    private static void union(int[] parents, int first, int second) {
+        int firstRoot = find(parents, first);
+        int secondRoot = find(parents, second);
+        if (firstRoot < secondRoot) {
+            parents[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            parents[firstRoot] = secondRoot;
+        }
+    }
+
+    /**
+     * Runs the same pipeline as {@link VSThread} does for all ships, but only for the ships of one island.
+     * Collision tasks are forked into the pool the island is running in, so a single big island still
+     * spreads its collision work over every worker.
+     */
+    private static void tickIsland(List<PhysicsObject> island) {
+        List<PhysicsObject> shipsTakingStep = new ArrayList<>(island.size());
+        for (int step = 0; PhysicsStepController.getShipsTakingStep(island, step, shipsTakingStep); step++) {
+            tickIslandStep(shipsTakingStep);
+        }
+    }
+
+    /**
+     * Runs one step of the given ships, each with its own {@link
+     * org.valkyrienskies.mod.common.physics.PhysicsCalculations#getPhysicsStepTimeDelta()}.
+     */
+    private static void tickIslandStep(List<PhysicsObject> island) {
+        List<ShipCollisionTask> collisionTasks = new ArrayList<>(island.size() * 2);
+        for (PhysicsObject ship : island) {
+            try {
+                ship.getPhysicsCalculations().rawPhysTickPreCol(
+                    ship.getPhysicsCalculations().getPhysicsStepTimeDelta());
+                ship.getPhysicsCalculations().getWorldCollision().tickUpdatingTheCollisionCache();
+                ship.getPhysicsCalculations().getWorldCollision().splitIntoCollisionTasks(collisionTasks);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        List<ForkJoinTask<Void>> forkedTasks = new ArrayList<>(collisionTasks.size());
+        for (ShipCollisionTask task : collisionTasks) {
+            forkedTasks.add(ForkJoinTask.adapt(task));
+        }
+        try {
+            ForkJoinTask.invokeAll(forkedTasks);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // Process the collisions in task order, exactly like the serial path.
+        for (ShipCollisionTask task : collisionTasks) {
+            task.getToTask().processCollisionTask(task);
+        }
+
+        for (PhysicsObject ship : island) {
+            try {
+                ship.getPhysicsCalculations().rawPhysTickPostCol();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
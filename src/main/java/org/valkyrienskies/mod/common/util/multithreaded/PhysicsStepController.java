@@ -0,0 +1,141 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import lombok.Getter;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+
+import java.util.List;
+
+/**
+ * Picks the time step of every ship ticked by a {@link VSThread}.
+ * <p>
+ * A ship whose fastest point would move more than {@link VSConfig#maxPhysicsStepDisplacement} blocks in one physics
+ * tick is split into several shorter steps, so that it can't pass through thin walls. When the physics thread takes
+ * longer than its budget, the step stretch goes up, and slow ships take one longer step every few physics ticks
+ * instead of a step every tick. The stretch never makes a step longer than {@link VSConfig#maxPhysicsStepTime}, or
+ * lets a ship move more than the max displacement in one step. Each ship has a phase, so that the longer steps of
+ * the slow ships end in different physics ticks instead of all of them stepping in the same tick.
+ * <p>
+ * Only used by the physics thread.
+ */
+public class PhysicsStepController {
+
+    // The weight of the latest tick in the average tick time
+    private static final double TICK_TIME_SMOOTHING = .1;
+    // Shorten the steps again once the average tick time is below this fraction of the budget
+    private static final double UNDER_BUDGET_FRACTION = .6;
+    // The physics ticks to wait after changing the stretch, so that the average can catch up
+    private static final int STRETCH_CHANGE_TICKS = 20;
+
+    private double averageTickTimeNano;
+    private int ticksSinceStretchChange;
+    // The physics ticks run so far
+    private long physicsTick;
+    /**
+     * The most physics ticks a single step of a slow ship can cover. 1 when the thread is within its budget.
+     */
+    @Getter
+    private int stepStretch;
+
+    public PhysicsStepController() {
+        this.averageTickTimeNano = 0;
+        this.ticksSinceStretchChange = 0;
+        this.stepStretch = 1;
+        this.physicsTick = 0;
+    }
+
+    /**
+     * Called before every physics tick, before the ships plan their steps.
+     */
+    public void onTickStarted() {
+        physicsTick++;
+    }
+
+    /**
+     * Called after every physics tick with the time the tick took, to adjust the step stretch.
+     *
+     * @param budgetNano The time a physics tick is allowed to take
+     */
+    public void onTickFinished(long tickTimeNano, long budgetNano, double physTickTimeDelta) {
+        averageTickTimeNano += (tickTimeNano - averageTickTimeNano) * TICK_TIME_SMOOTHING;
+        int maxStretch = getMaxStepStretch(physTickTimeDelta);
+        if (stepStretch > maxStretch) {
+            // The config changed
+            stepStretch = maxStretch;
+        }
+        if (++ticksSinceStretchChange < STRETCH_CHANGE_TICKS) {
+            return;
+        }
+        if (averageTickTimeNano > budgetNano && stepStretch < maxStretch) {
+            stepStretch++;
+            ticksSinceStretchChange = 0;
+        } else if (averageTickTimeNano < budgetNano * UNDER_BUDGET_FRACTION && stepStretch > 1) {
+            stepStretch--;
+            ticksSinceStretchChange = 0;
+        }
+    }
+
+    /**
+     * Sets the step stretch, for runs that script the load instead of measuring it.
+     */
+    public void setStepStretch(int stepStretch) {
+        this.stepStretch = Math.max(1, stepStretch);
+        this.ticksSinceStretchChange = 0;
+    }
+
+    /**
+     * @param maxPointSpeed     The speed of the fastest point of the ship, in blocks per second
+     * @param physTickTimeDelta The time simulated by a physics tick
+     * @return The number of steps the ship needs to take this physics tick, each simulating physTickTimeDelta divided
+     * by the number of steps
+     */
+    public int getSubsteps(double maxPointSpeed, double physTickTimeDelta) {
+        double displacement = maxPointSpeed * physTickTimeDelta;
+        if (!(displacement > VSConfig.maxPhysicsStepDisplacement)) {
+            return 1;
+        }
+        double substeps = Math.ceil(displacement / VSConfig.maxPhysicsStepDisplacement);
+        return (int) Math.min(substeps, VSConfig.maxPhysicsSubsteps);
+    }
+
+    /**
+     * @param maxPointSpeed     The speed of the fastest point of the ship, in blocks per second
+     * @param physTickTimeDelta The time simulated by a physics tick
+     * @param phase             Any number that stays the same for the ship
+     * @return The number of physics ticks the next step of the ship can cover. 1 unless the thread is over budget and
+     * the ship is slow.
+     */
+    public int getStepLength(double maxPointSpeed, double physTickTimeDelta, int phase) {
+        if (stepStretch <= 1) {
+            return 1;
+        }
+        double maxTicksForDisplacement = VSConfig.maxPhysicsStepDisplacement / (maxPointSpeed * physTickTimeDelta);
+        // Also covers a speed of 0, which gives infinity
+        int stepLength = Math.max(1, (int) Math.min(stepStretch, Math.floor(maxTicksForDisplacement)));
+        // Ends the step on a tick picked by the phase. Only the first of a run of longer steps is shortened, the ones
+        // after it start on such a tick and cover the whole length.
+        return stepLength - (int) Math.floorMod(physicsTick + phase, (long) stepLength);
+    }
+
+    /**
+     * Puts the ships that take more than step steps this physics tick into shipsTakingStep, in order. Ships with more
+     * steps run their extra steps after the others are done.
+     *
+     * @return False if no ship takes that many steps
+     */
+    public static boolean getShipsTakingStep(List<PhysicsObject> ships, int step,
+        List<PhysicsObject> shipsTakingStep) {
+        shipsTakingStep.clear();
+        for (PhysicsObject ship : ships) {
+            if (ship.getPhysicsCalculations().getPhysicsSteps() > step) {
+                shipsTakingStep.add(ship);
+            }
+        }
+        return !shipsTakingStep.isEmpty();
+    }
+
+    private static int getMaxStepStretch(double physTickTimeDelta) {
+        // Allow some error, so that .05 / .01 is still 5
+        return Math.max(1, (int) Math.floor(VSConfig.maxPhysicsStepTime / physTickTimeDelta + 1e-6));
+    }
+}
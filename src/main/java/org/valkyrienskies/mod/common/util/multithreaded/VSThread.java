@@ -1,6 +1,7 @@
 package org.valkyrienskies.mod.common.util.multithreaded;
 
 import com.google.common.collect.ImmutableList;
+import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
 import net.minecraft.client.Minecraft;
 import net.minecraft.server.MinecraftServer;
@@ -10,6 +11,7 @@ import net.minecraftforge.fml.relauncher.SideOnly;
 import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.collision.ShipCollisionTask;
+import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
 import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 
@@ -43,6 +45,22 @@ public class VSThread extends Thread {
     private Queue<Runnable> taskQueue;
     private ImmutableList<PhysicsObject> immutableShipsList;
     private final ConcurrentLinkedQueue<IPhysTimeTask> recurringTasks;
+    private final PhysicsIslandScheduler islandScheduler;
+    private final PhysicsStepController stepController;
+    // Sleeping ship statistics, only written by this thread
+    @Getter
+    private volatile int sleepingShipCount;
+    @Getter
+    private volatile long shipsFallenAsleep;
+    @Getter
+    private volatile long shipsWokenUp;
+    // Time step statistics of the latest physics tick, only written by this thread
+    @Getter
+    private volatile int substeppedShipCount;
+    @Getter
+    private volatile int longStepShipCount;
+    @Getter
+    private volatile int stepStretch;
 
     public VSThread(World host) {
         super("VS World Thread " + threadID);
@@ -54,6 +72,14 @@ public class VSThread extends Thread {
         this.taskQueue = new ConcurrentLinkedQueue<>();
         this.immutableShipsList = ImmutableList.of();
         this.recurringTasks = new ConcurrentLinkedQueue<>();
+        this.islandScheduler = new PhysicsIslandScheduler(ValkyrienSkiesMod.getPHYSICS_ISLANDS_POOL());
+        this.sleepingShipCount = 0;
+        this.shipsFallenAsleep = 0;
+        this.shipsWokenUp = 0;
+        this.stepController = new PhysicsStepController();
+        this.substeppedShipCount = 0;
+        this.longStepShipCount = 0;
+        this.stepStretch = 1;
         log.trace(this.getName() + " thread created.");
     }
 
@@ -91,6 +117,10 @@ public class VSThread extends Thread {
             runGameLoop();
             long endOfPhysicsTickTimeNano = System.nanoTime();
             long deltaPhysicsTickTimeNano = endOfPhysicsTickTimeNano - startOfPhysicsTickTimeNano;
+            // Lengthen the steps of slow ships if we can't keep up
+            stepController.onTickFinished(deltaPhysicsTickTimeNano, NS_PER_TICK,
+                VSConfig.timeSimulatedPerPhysicsTick);
+            stepStretch = stepController.getStepStretch();
 
             try {
                 long sleepTime = NS_PER_TICK - deltaPhysicsTickTimeNano;
@@ -155,30 +185,91 @@ public class VSThread extends Thread {
     // The whole time need to be careful the game thread isn't messing with these
     // values.
     private void physicsTick() {
+        stepController.onTickStarted();
 
         // Make a sublist of physics objects to process physics on.
         List<PhysicsObject> physicsEntitiesToDoPhysics = new ArrayList<>();
+        int sleepingShips = 0;
+        int substeppedShips = 0;
+        int longStepShips = 0;
         for (PhysicsObject physicsObject : immutableShipsList) {
-            if (physicsObject.isPhysicsEnabled() && physicsObject.getCachedSurroundingChunks() != null) {
-                physicsEntitiesToDoPhysics.add(physicsObject);
+            PhysicsCalculations calculations = physicsObject.getPhysicsCalculations();
+            if (!physicsObject.isPhysicsEnabled()) {
+                // Don't keep sleeping once physics get turned back on
+                if (calculations.isSleeping()) {
+                    calculations.wakeUp();
+                }
+                continue;
+            }
+            if (physicsObject.getCachedSurroundingChunks() == null) {
+                continue;
+            }
+            boolean wasSleeping = calculations.isSleeping();
+            if (calculations.updateSleepState(VSConfig.timeSimulatedPerPhysicsTick)) {
+                sleepingShips++;
+                continue;
+            }
+            if (wasSleeping) {
+                shipsWokenUp++;
+                if (VSConfig.showAnnoyingDebugOutput) {
+                    System.out.println(physicsObject.getShipData() + " woke up");
+                }
+            }
+            int steps = calculations.planPhysicsSteps(stepController, VSConfig.timeSimulatedPerPhysicsTick);
+            if (steps == 0) {
+                // Still covered by its last step
+                longStepShips++;
+                continue;
             }
+            if (steps > 1) {
+                substeppedShips++;
+            } else if (calculations.getPhysicsStepTimeDelta() > VSConfig.timeSimulatedPerPhysicsTick) {
+                longStepShips++;
+            }
+            physicsEntitiesToDoPhysics.add(physicsObject);
         }
 
         // Tick ship physics here
-        tickThePhysicsAndCollision(physicsEntitiesToDoPhysics);
+        if (VSConfig.parallelPhysicsIslands) {
+            islandScheduler.tickIslands(physicsEntitiesToDoPhysics, VSConfig.timeSimulatedPerPhysicsTick);
+        } else {
+            tickThePhysicsAndCollision(physicsEntitiesToDoPhysics);
+        }
+
+        for (PhysicsObject physicsObject : physicsEntitiesToDoPhysics) {
+            if (physicsObject.getPhysicsCalculations().updateRestState()) {
+                sleepingShips++;
+                shipsFallenAsleep++;
+                if (VSConfig.showAnnoyingDebugOutput) {
+                    System.out.println(physicsObject.getShipData() + " fell asleep");
+                }
+            }
+        }
+        sleepingShipCount = sleepingShips;
+        substeppedShipCount = substeppedShips;
+        longStepShipCount = longStepShips;
     }
 
     /**
-     * Ticks physics and collision for the List of PhysicsWrapperEntity passed in.
+     * Ticks physics and collision for the List of PhysicsWrapperEntity passed in, running as many steps as each ship
+     * planned.
      */
     private void tickThePhysicsAndCollision(List<PhysicsObject> shipsWithPhysics) {
-        double newPhysSpeed = VSConfig.timeSimulatedPerPhysicsTick;
+        List<PhysicsObject> shipsTakingStep = new ArrayList<>(shipsWithPhysics.size());
+        for (int step = 0; PhysicsStepController.getShipsTakingStep(shipsWithPhysics, step, shipsTakingStep);
+             step++) {
+            tickThePhysicsAndCollisionStep(shipsTakingStep);
+        }
+    }
+
+    private void tickThePhysicsAndCollisionStep(List<PhysicsObject> shipsWithPhysics) {
         List<ShipCollisionTask> collisionTasks = new ArrayList<>(
             shipsWithPhysics.size() * 2);
         for (PhysicsObject wrapper : shipsWithPhysics) {
             // Update the physics simulation
             try {
-                wrapper.getPhysicsCalculations().rawPhysTickPreCol(newPhysSpeed);
+                wrapper.getPhysicsCalculations().rawPhysTickPreCol(
+                    wrapper.getPhysicsCalculations().getPhysicsStepTimeDelta());
                 // Update the collision task if necessary
                 wrapper.getPhysicsCalculations().getWorldCollision()
                         .tickUpdatingTheCollisionCache();
@@ -0,0 +1,50 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BlockCollisionShapeTest {
+
+    private static final AxisAlignedBB FULL_BLOCK = new AxisAlignedBB(0, 0, 0, 1, 1, 1);
+    private static final AxisAlignedBB BOTTOM_SLAB = new AxisAlignedBB(0, 0, 0, 1, .5, 1);
+    private static final AxisAlignedBB FENCE_POST = new AxisAlignedBB(.375, 0, .375, .625, 1.5, .625);
+
+    @Test
+    public void testEmptyAndFullCube() {
+        assertThat(BlockCollisionShape.fromBoxes(Collections.emptyList()), sameInstance(BlockCollisionShape.EMPTY));
+        assertThat(BlockCollisionShape.fromBoxes(Collections.singletonList(FULL_BLOCK)),
+            sameInstance(BlockCollisionShape.FULL_CUBE));
+        // A slab merged with its double slab is a full cube
+        assertThat(BlockCollisionShape.fromBoxes(Arrays.asList(BOTTOM_SLAB, FULL_BLOCK)),
+            sameInstance(BlockCollisionShape.FULL_CUBE));
+        assertThat(BlockCollisionShape.EMPTY.isEmpty(), equalTo(true));
+        assertThat(BlockCollisionShape.FULL_CUBE.isEmpty(), equalTo(false));
+    }
+
+    @Test
+    public void testPartialShapes() {
+        BlockCollisionShape slab = BlockCollisionShape.fromBoxes(Collections.singletonList(BOTTOM_SLAB));
+        assertThat(slab.isFullCube(), equalTo(false));
+        assertThat(slab.getBoxCount(), equalTo(1));
+        assertThat(slab.getMaxY(0), equalTo(.5));
+
+        // Boxes sticking out of the block keep a full cube from being one
+        BlockCollisionShape tall = BlockCollisionShape.fromBoxes(Arrays.asList(FULL_BLOCK, FENCE_POST));
+        assertThat(tall.isFullCube(), equalTo(false));
+        assertThat(tall.getBoxCount(), equalTo(2));
+
+        // The same box from two states is only kept once
+        BlockCollisionShape posts = BlockCollisionShape.fromBoxes(Arrays.asList(FENCE_POST, FENCE_POST));
+        assertThat(posts.getBoxCount(), equalTo(1));
+        assertThat(posts.getMinX(0), equalTo(.375));
+        assertThat(posts.getMaxY(0), equalTo(1.5));
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.valkyrienskies.mod.common.ships.entity_interaction.EntityCollisionObject;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
+import valkyrienwarfare.api.TransformType;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EntityBoxColliderTest {
+
+    @ParameterizedTest
+    @MethodSource("entityBlockPairGenerator")
+    public void testMatchesPolygonCollider(ShipTransform transform, AxisAlignedBB blockBB, AxisAlignedBB entityBB,
+        Vector3dc velocity) {
+        Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+
+        ShipPolygon blockPoly = new ShipPolygon(blockBB, transform, TransformType.SUBSPACE_TO_GLOBAL, axes, null);
+        EntityPolygon entityPoly = new EntityPolygon(entityBB, null);
+        EntityPolygonCollider polygonCollider = new EntityPolygonCollider(entityPoly, blockPoly, axes, velocity);
+
+        EntityBoxCollider boxCollider = new EntityBoxCollider();
+        boxCollider.setEntityBox(entityBB);
+        boolean collided = boxCollider.collide(blockBB.minX, blockBB.minY, blockBB.minZ, blockBB.maxX,
+            blockBB.maxY, blockBB.maxZ, transform.getSubspaceToGlobal(), axes, velocity.x(), velocity.y(),
+            velocity.z());
+
+        assertThat(collided, equalTo(!polygonCollider.arePolygonsSeparated()));
+        if (!collided) {
+            return;
+        }
+
+        assertThat(boxCollider.getMinDistanceIndex(), equalTo(polygonCollider.getMinDistanceIndex()));
+        for (int i = 0; i < axes.length; i++) {
+            EntityCollisionObject expected = polygonCollider.getCollisions()[i];
+            Vector3d expectedResponse = expected.getResponse();
+            assertThat(boxCollider.getCollisionAxis(i), sameInstance(expected.getCollisionNormal()));
+            assertThat(boxCollider.getPenetrationDistance(i),
+                closeTo(expected.getCollisionPenetrationDistance(), 1e-9));
+            assertThat(boxCollider.getResponseX(i), closeTo(expectedResponse.x, 1e-9));
+            assertThat(boxCollider.getResponseY(i), closeTo(expectedResponse.y, 1e-9));
+            assertThat(boxCollider.getResponseZ(i), closeTo(expectedResponse.z, 1e-9));
+        }
+    }
+
+    private static Stream<Arguments> entityBlockPairGenerator() {
+        final int testIterations = 500;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return IntStream.range(0, testIterations)
+            .mapToObj(ignore -> {
+                // Mostly upright ships, like the ones entities walk on
+                Quaterniond rotation = new Quaterniond().rotateXYZ(random.nextDouble(-.3, .3),
+                    random.nextDouble(-Math.PI, Math.PI), random.nextDouble(-.3, .3));
+                ShipTransform transform = new ShipTransform(random.nextDouble(-1000, 1000),
+                    random.nextDouble(0, 255), random.nextDouble(-1000, 1000), rotation,
+                    new Vector3d(8, 64, 8));
+                int localX = random.nextInt(0, 16);
+                int localY = random.nextInt(56, 72);
+                int localZ = random.nextInt(0, 16);
+                // Slabs and full blocks
+                double blockHeight = random.nextBoolean() ? 1 : .5;
+                AxisAlignedBB blockBB = new AxisAlignedBB(localX, localY, localZ, localX + 1,
+                    localY + blockHeight, localZ + 1);
+
+                Vector3d onTop = new Vector3d(localX + .5, localY + blockHeight, localZ + .5);
+                transform.transformPosition(onTop, TransformType.SUBSPACE_TO_GLOBAL);
+                double feetX = onTop.x + random.nextDouble(-1, 1);
+                double feetY = onTop.y + random.nextDouble(-1, .5);
+                double feetZ = onTop.z + random.nextDouble(-1, 1);
+                AxisAlignedBB entityBB = new AxisAlignedBB(feetX - .3, feetY, feetZ - .3, feetX + .3, feetY + 1.8,
+                    feetZ + .3);
+                Vector3dc velocity = new Vector3d(random.nextDouble(-.3, .3), random.nextDouble(-.5, .1),
+                    random.nextDouble(-.3, .3));
+                return Arguments.arguments(transform, blockBB, entityBB, velocity);
+            });
+    }
+
+}
@@ -0,0 +1,125 @@
+package org.valkyrienskies.mod.common.collision;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
+import valkyrienwarfare.api.TransformType;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhysBoxColliderTest {
+
+    @ParameterizedTest
+    @MethodSource("blockPairGenerator")
+    public void testMatchesPolygonCollider(ShipTransform transform, int localX, int localY, int localZ,
+        int worldX, int worldY, int worldZ) {
+        Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+
+        Polygon shipInWorld = new Polygon(
+            new AxisAlignedBB(localX, localY, localZ, localX + 1, localY + 1, localZ + 1),
+            transform, TransformType.SUBSPACE_TO_GLOBAL);
+        Polygon worldPoly = new Polygon(
+            new AxisAlignedBB(worldX, worldY, worldZ, worldX + 1, worldY + 1, worldZ + 1));
+        PhysPolygonCollider polygonCollider = new PhysPolygonCollider(shipInWorld, worldPoly, axes);
+
+        PhysBoxCollider boxCollider = new PhysBoxCollider();
+        boolean collided = boxCollider.collide(localX, localY, localZ, worldX, worldY, worldZ,
+            transform.getSubspaceToGlobal(), axes);
+
+        assertThat(collided, equalTo(!polygonCollider.seperated));
+        if (!collided) {
+            return;
+        }
+
+        PhysCollisionObject expected = polygonCollider.collisions[1];
+        if (expected.penetrationDistance > WorldPhysicsCollider.AXIS_TOLERANCE
+            || expected.penetrationDistance < -WorldPhysicsCollider.AXIS_TOLERANCE) {
+            expected = polygonCollider.collisions[polygonCollider.minDistanceIndex];
+        }
+        Vector3dc[] expectedPoints = PolygonCollisionPointFinder.getPointsOfCollisionForPolygons(expected);
+
+        CollisionInformationHolder holder = new CollisionInformationHolder();
+        boxCollider.writeCollisionInformation(holder);
+
+        assertThat(holder.collisionNormal, sameInstance(expected.collision_normal));
+        assertThat(holder.penetrationDistance, closeTo(expected.penetrationDistance, 1e-9));
+        assertThat(holder.topContactX, closeTo(expectedPoints[0].x(), 1e-9));
+        assertThat(holder.topContactY, closeTo(expectedPoints[0].y(), 1e-9));
+        assertThat(holder.topContactZ, closeTo(expectedPoints[0].z(), 1e-9));
+        assertThat(holder.bottomContactX, closeTo(expectedPoints[1].x(), 1e-9));
+        assertThat(holder.bottomContactY, closeTo(expectedPoints[1].y(), 1e-9));
+        assertThat(holder.bottomContactZ, closeTo(expectedPoints[1].z(), 1e-9));
+    }
+
+    @ParameterizedTest
+    @MethodSource("blockPairGenerator")
+    public void testSlabsMatchPolygonCollider(ShipTransform transform, int localX, int localY, int localZ,
+        int worldX, int worldY, int worldZ) {
+        Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+        AxisAlignedBB bottomSlab = new AxisAlignedBB(0, 0, 0, 1, .5, 1);
+        AxisAlignedBB topSlab = new AxisAlignedBB(0, .5, 0, 1, 1, 1);
+        BlockCollisionShape shipShape = BlockCollisionShape.fromBoxes(Collections.singletonList(bottomSlab));
+        BlockCollisionShape worldShape = BlockCollisionShape.fromBoxes(Collections.singletonList(topSlab));
+
+        Polygon shipInWorld = new Polygon(bottomSlab.offset(localX, localY, localZ), transform,
+            TransformType.SUBSPACE_TO_GLOBAL);
+        Polygon worldPoly = new Polygon(topSlab.offset(worldX, worldY, worldZ));
+        PhysPolygonCollider polygonCollider = new PhysPolygonCollider(shipInWorld, worldPoly, axes);
+
+        PhysBoxCollider boxCollider = new PhysBoxCollider();
+        boolean collided = boxCollider.collide(localX, localY, localZ, shipShape, 0, worldX, worldY, worldZ,
+            worldShape, 0, transform.getSubspaceToGlobal(), axes);
+
+        assertThat(collided, equalTo(!polygonCollider.seperated));
+        if (!collided) {
+            return;
+        }
+
+        PhysCollisionObject expected = polygonCollider.collisions[1];
+        if (expected.penetrationDistance > WorldPhysicsCollider.AXIS_TOLERANCE
+            || expected.penetrationDistance < -WorldPhysicsCollider.AXIS_TOLERANCE) {
+            expected = polygonCollider.collisions[polygonCollider.minDistanceIndex];
+        }
+        CollisionInformationHolder holder = new CollisionInformationHolder();
+        boxCollider.writeCollisionInformation(holder);
+
+        assertThat(holder.collisionNormal, sameInstance(expected.collision_normal));
+        assertThat(holder.penetrationDistance, closeTo(expected.penetrationDistance, 1e-9));
+        assertThat(boxCollider.getPenetrationDepth(), closeTo(Math.abs(expected.penetrationDistance), 1e-9));
+    }
+
+    private static Stream<Arguments> blockPairGenerator() {
+        final int testIterations = 500;
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return IntStream.range(0, testIterations)
+            .mapToObj(ignore -> {
+                Quaterniond rotation = new Quaterniond().rotateXYZ(random.nextDouble(-Math.PI, Math.PI),
+                    random.nextDouble(-Math.PI, Math.PI), random.nextDouble(-Math.PI, Math.PI));
+                ShipTransform transform = new ShipTransform(random.nextDouble(-1000, 1000),
+                    random.nextDouble(0, 255), random.nextDouble(-1000, 1000), rotation,
+                    new Vector3d(8, 64, 8));
+                int localX = random.nextInt(0, 16);
+                int localY = random.nextInt(56, 72);
+                int localZ = random.nextInt(0, 16);
+                Vector3d inGlobal = new Vector3d(localX + .5, localY + .5, localZ + .5);
+                transform.transformPosition(inGlobal, TransformType.SUBSPACE_TO_GLOBAL);
+                int worldX = (int) Math.floor(inGlobal.x) + random.nextInt(-1, 2);
+                int worldY = (int) Math.floor(inGlobal.y) + random.nextInt(-1, 2);
+                int worldZ = (int) Math.floor(inGlobal.z) + random.nextInt(-1, 2);
+                return Arguments.arguments(transform, localX, localY, localZ, worldX, worldY, worldZ);
+            });
+    }
+
+}
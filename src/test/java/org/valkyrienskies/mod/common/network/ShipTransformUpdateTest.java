@@ -0,0 +1,67 @@
+package org.valkyrienskies.mod.common.network;
+
+import io.netty.buffer.ByteBuf;
+import net.minecraft.network.PacketBuffer;
+import org.joml.Quaterniond;
+import org.joml.Quaterniondc;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ShipTransformUpdateTest {
+
+    @Test
+    public void testPackRotation() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            Quaterniondc rotation = new Quaterniond()
+                .rotateXYZ(random.nextDouble() * 10, random.nextDouble() * 10, random.nextDouble() * 10);
+            Quaterniondc unpacked = ShipTransformStreamState
+                .unpackRotation(ShipTransformStreamState.packRotation(rotation));
+            // q and -q are the same rotation
+            double dot = Math.abs(rotation.dot(unpacked));
+            assertThat(1 - dot, lessThan(1e-8));
+        }
+    }
+
+    @Test
+    public void testDeltaRoundTrip() {
+        UUID shipID = UUID.randomUUID();
+        long rotation = ShipTransformStreamState.packRotation(new Quaterniond().rotateY(1));
+        ShipTransformStreamState first = new ShipTransformStreamState(0, 4096 * 100, 4096 * 64, -4096 * 30,
+            rotation, new Vector3d(8, 128, 8), new int[] {-16, -16, -16, 16, 16, 16});
+        ShipTransformStreamState second = new ShipTransformStreamState(1, 4096 * 100 + 7, 4096 * 64, -4096 * 30 - 3,
+            rotation, new Vector3d(8, 128, 8), new int[] {-16, -16, -16, 16, 16, 16});
+
+        ShipTransformStreamState keyframe = read(ShipTransformUpdate.encode(shipID, null, first)).applyTo(null);
+        assertNotNull(keyframe);
+        ShipTransformUpdate delta = read(ShipTransformUpdate.encode(shipID, first, second));
+        assertThat(delta.getShipID(), equalTo(shipID));
+        ShipTransformStreamState applied = delta.applyTo(keyframe);
+        assertNotNull(applied);
+
+        assertThat(applied.getSequence(), equalTo(1));
+        assertThat(applied.posX, equalTo(second.posX));
+        assertThat(applied.posY, equalTo(second.posY));
+        assertThat(applied.posZ, equalTo(second.posZ));
+        assertThat(applied.rotation, equalTo(second.rotation));
+        assertThat(applied.centerCoord, equalTo(second.centerCoord));
+        assertThat(applied.aabb, equalTo(second.aabb));
+
+        // A delta can't be applied to anything but the state right before it
+        assertNull(delta.applyTo(null));
+        assertNull(delta.applyTo(second));
+    }
+
+    private static ShipTransformUpdate read(ByteBuf encoded) {
+        return ShipTransformUpdate.read(new PacketBuffer(encoded.copy()));
+    }
+}
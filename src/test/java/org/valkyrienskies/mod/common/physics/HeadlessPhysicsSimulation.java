@@ -0,0 +1,357 @@
+package org.valkyrienskies.mod.common.physics;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.valkyrienskies.mod.common.collision.ShipCollisionTask;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.util.multithreaded.PhysicsStepController;
+import valkyrienwarfare.api.TransformType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs ships over synthetic terrain in a {@link HeadlessWorld}, without a Minecraft server. Ships are
+ * dropped on a grid above rolling stone hills, and then the game tick and physics tick are driven the
+ * same way {@link org.valkyrienskies.mod.common.util.multithreaded.VSThread} drives them, for a fixed
+ * number of physics ticks of {@link VSConfig#timeSimulatedPerPhysicsTick} each. Every ship takes the steps its
+ * {@link PhysicsStepController} plan gives it, so ships with a scripted speed can be used to check the substepping,
+ * and a scripted step stretch stands in for an overloaded physics thread.
+ * <p>
+ * Prints the time spent in every phase and the final transform of every ship, along with a hash of those
+ * transforms to compare runs. The collisions of every ship are shuffled with random numbers seeded from the
+ * seed argument and the ship index, so two runs with the same arguments give the same hash, collisions included.
+ * Runs with more than one thread do too.
+ * <p>
+ * Run with <code>./gradlew runHeadlessSimulation -PsimArgs="--ships=500 --steps=2000"</code>. The
+ * arguments are:
+ * <ul>
+ *     <li>ships: the number of ships (default 100)</li>
+ *     <li>steps: the number of physics ticks (default 1000)</li>
+ *     <li>template: box, hull or platform (default hull)</li>
+ *     <li>size: the width and length of the template (default 8)</li>
+ *     <li>threads: the threads used for collision tasks, 1 runs them inline (default 1)</li>
+ *     <li>speeds: comma separated x speeds in blocks per second, given to the ships in turn and held every physics
+ *     tick (default none, the ships just fall)</li>
+ *     <li>stretch: the step stretch to use, as if the physics thread were over budget (default 1)</li>
+ *     <li>seed: the seed of the collision shuffles (default 0)</li>
+ *     <li>quiet: don't print the transform of every ship</li>
+ * </ul>
+ */
+public class HeadlessPhysicsSimulation {
+
+    // Space between the edges of ships on the spawn grid
+    private static final int SHIP_SPACING = 8;
+    private static final int TERRAIN_BASE_HEIGHT = 56;
+    private static final int TERRAIN_HILL_HEIGHT = 6;
+    // Nothing collides with the terrain below this
+    private static final int TERRAIN_MIN_Y = 40;
+
+    private final HeadlessWorld world;
+    private final List<PhysicsObject> ships;
+    private final ExecutorService collisionExecutor;
+    private final int physicsTicksPerGameTick;
+    private final PhysicsStepController stepController;
+    // The x speed held by each ship, NaN for ships that move freely
+    private final double[] scriptedSpeeds;
+    // The steps taken by each ship, and the shortest and longest time they simulated
+    private final int[] stepCounts;
+    private final double[] minStepTimeDeltas, maxStepTimeDeltas;
+
+    // Nanoseconds spent in each phase
+    private long gameTickTime, preColTime, collisionCacheTime, collisionTasksTime, processCollisionTime,
+        postColTime;
+    // The collisions found with the world, over all the steps
+    private long collisionCount;
+
+    public HeadlessPhysicsSimulation(int shipCount, Map<BlockPos, IBlockState> template, int templateSize,
+        int threads, double[] speeds, int stepStretch, long seed) {
+        this.world = new HeadlessWorld();
+        this.ships = new ArrayList<>(shipCount);
+        this.collisionExecutor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        // Ships get a game tick every 50ms of simulated time
+        this.physicsTicksPerGameTick = Math.max(1,
+            (int) Math.round(.05D / VSConfig.timeSimulatedPerPhysicsTick));
+        this.stepController = new PhysicsStepController();
+        this.stepController.setStepStretch(stepStretch);
+        this.scriptedSpeeds = new double[shipCount];
+        this.stepCounts = new int[shipCount];
+        this.minStepTimeDeltas = new double[shipCount];
+        this.maxStepTimeDeltas = new double[shipCount];
+        for (int i = 0; i < shipCount; i++) {
+            scriptedSpeeds[i] = speeds.length == 0 ? Double.NaN : speeds[i % speeds.length];
+            minStepTimeDeltas[i] = Double.POSITIVE_INFINITY;
+        }
+
+        int gridWidth = (int) Math.ceil(Math.sqrt(shipCount));
+        int cellSize = templateSize + SHIP_SPACING;
+        int halfWorldSize = (gridWidth * cellSize) / 2 + cellSize;
+        generateTerrain(-halfWorldSize, -halfWorldSize, halfWorldSize, halfWorldSize);
+
+        double spawnY = TERRAIN_BASE_HEIGHT + TERRAIN_HILL_HEIGHT + 4;
+        for (int i = 0; i < shipCount; i++) {
+            double x = (i % gridWidth) * cellSize - halfWorldSize + cellSize;
+            double z = (i / gridWidth) * cellSize - halfWorldSize + cellSize;
+            PhysicsObject ship = world.createShip(new Vector3d(x, spawnY, z), template);
+            ship.getPhysicsCalculations().getWorldCollision().setRandomSeed(seed + i);
+            ships.add(ship);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArguments(args);
+        int shipCount = Integer.parseInt(options.getOrDefault("ships", "100"));
+        int steps = Integer.parseInt(options.getOrDefault("steps", "1000"));
+        int size = Integer.parseInt(options.getOrDefault("size", "8"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        String templateName = options.getOrDefault("template", "hull");
+        int stepStretch = Integer.parseInt(options.getOrDefault("stretch", "1"));
+        double[] speeds = options.containsKey("speeds")
+            ? Arrays.stream(options.get("speeds").split(",")).mapToDouble(Double::parseDouble).toArray()
+            : new double[0];
+        long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+        boolean quiet = options.containsKey("quiet");
+
+        Map<BlockPos, IBlockState> template = createTemplate(templateName, size);
+
+        long setupStart = System.nanoTime();
+        HeadlessPhysicsSimulation simulation = new HeadlessPhysicsSimulation(shipCount, template, size,
+            threads, speeds, stepStretch, seed);
+        long setupTime = System.nanoTime() - setupStart;
+        System.out.printf("Created %d ships of %d blocks (%s) in %.1f ms%n", shipCount, template.size(),
+            templateName, setupTime / 1e6);
+
+        long runStart = System.nanoTime();
+        simulation.run(steps);
+        long runTime = System.nanoTime() - runStart;
+
+        simulation.printReport(steps, runTime, quiet);
+        simulation.shutdown();
+    }
+
+    /**
+     * Runs the given number of physics ticks, with a game tick every {@link #physicsTicksPerGameTick}
+     * physics ticks.
+     */
+    public void run(int steps) throws InterruptedException {
+        List<PhysicsObject> shipsWithPhysics = new ArrayList<>(ships.size());
+        List<PhysicsObject> shipsTakingStep = new ArrayList<>(ships.size());
+        double physicsTimeDelta = VSConfig.timeSimulatedPerPhysicsTick;
+
+        for (int step = 0; step < steps; step++) {
+            if (step % physicsTicksPerGameTick == 0) {
+                long start = System.nanoTime();
+                for (PhysicsObject ship : ships) {
+                    world.tickShip(ship);
+                }
+                gameTickTime += System.nanoTime() - start;
+            }
+
+            stepController.onTickStarted();
+            shipsWithPhysics.clear();
+            for (int i = 0; i < ships.size(); i++) {
+                PhysicsObject ship = ships.get(i);
+                if (!ship.isPhysicsEnabled() || ship.getCachedSurroundingChunks() == null) {
+                    continue;
+                }
+                PhysicsCalculations calculations = ship.getPhysicsCalculations();
+                if (!Double.isNaN(scriptedSpeeds[i])) {
+                    calculations.getLinearVelocity().x = scriptedSpeeds[i];
+                }
+                int shipSteps = calculations.planPhysicsSteps(stepController, physicsTimeDelta);
+                if (shipSteps > 0) {
+                    stepCounts[i] += shipSteps;
+                    minStepTimeDeltas[i] = Math.min(minStepTimeDeltas[i], calculations.getPhysicsStepTimeDelta());
+                    maxStepTimeDeltas[i] = Math.max(maxStepTimeDeltas[i], calculations.getPhysicsStepTimeDelta());
+                    shipsWithPhysics.add(ship);
+                }
+            }
+
+            for (int shipStep = 0;
+                 PhysicsStepController.getShipsTakingStep(shipsWithPhysics, shipStep, shipsTakingStep); shipStep++) {
+                runStep(shipsTakingStep);
+            }
+        }
+    }
+
+    /**
+     * Runs one step of every ship in shipsTakingStep, the same way the physics thread does.
+     */
+    private void runStep(List<PhysicsObject> shipsTakingStep) throws InterruptedException {
+        List<ShipCollisionTask> collisionTasks = new ArrayList<>(shipsTakingStep.size() * 2);
+        long start = System.nanoTime();
+        for (PhysicsObject ship : shipsTakingStep) {
+            ship.getPhysicsCalculations().rawPhysTickPreCol(ship.getPhysicsCalculations().getPhysicsStepTimeDelta());
+        }
+        long end = System.nanoTime();
+        preColTime += end - start;
+
+        start = end;
+        for (PhysicsObject ship : shipsTakingStep) {
+            ship.getPhysicsCalculations().getWorldCollision().tickUpdatingTheCollisionCache();
+            ship.getPhysicsCalculations().getWorldCollision().splitIntoCollisionTasks(collisionTasks);
+        }
+        end = System.nanoTime();
+        collisionCacheTime += end - start;
+
+        start = end;
+        if (collisionExecutor != null) {
+            collisionExecutor.invokeAll(collisionTasks);
+        } else {
+            for (ShipCollisionTask task : collisionTasks) {
+                task.call();
+            }
+        }
+        end = System.nanoTime();
+        collisionTasksTime += end - start;
+
+        start = end;
+        for (ShipCollisionTask task : collisionTasks) {
+            collisionCount += task.getCollisionInformationGenerated().size();
+            task.getToTask().processCollisionTask(task);
+        }
+        end = System.nanoTime();
+        processCollisionTime += end - start;
+
+        start = end;
+        for (PhysicsObject ship : shipsTakingStep) {
+            ship.getPhysicsCalculations().rawPhysTickPostCol();
+        }
+        postColTime += System.nanoTime() - start;
+    }
+
+    public void printReport(int steps, long runTime, boolean quiet) {
+        System.out.printf("Ran %d physics ticks (%.2f simulated seconds) in %.1f ms, %.3f ms per tick%n",
+            steps, steps * VSConfig.timeSimulatedPerPhysicsTick, runTime / 1e6, runTime / 1e6 / steps);
+        printPhase("Game tick", gameTickTime, steps);
+        printPhase("Pre collision", preColTime, steps);
+        printPhase("Collision cache", collisionCacheTime, steps);
+        printPhase("Collision tasks", collisionTasksTime, steps);
+        printPhase("Process collisions", processCollisionTime, steps);
+        printPhase("Post collision", postColTime, steps);
+
+        for (int i = 0; i < ships.size(); i++) {
+            PhysicsObject ship = ships.get(i);
+            ShipTransform transform = ship.getShipTransformationManager().getCurrentPhysicsTransform();
+            Quaterniond rotation = transform.rotationQuaternion(TransformType.SUBSPACE_TO_GLOBAL);
+            if (!quiet) {
+                System.out.printf("%s: pos (%.4f, %.4f, %.4f) rot (%.5f, %.5f, %.5f, %.5f) physics %s, "
+                        + "%d steps of %.4f to %.4f s%n",
+                    ship.getName(), transform.getPosX(), transform.getPosY(), transform.getPosZ(),
+                    rotation.x, rotation.y, rotation.z, rotation.w,
+                    ship.isPhysicsEnabled() ? "on" : "off", stepCounts[i], minStepTimeDeltas[i],
+                    maxStepTimeDeltas[i]);
+            }
+        }
+        System.out.printf("%d collisions with the world%n", collisionCount);
+        System.out.printf("Final transform hash: %08x%n", getTransformHash());
+    }
+
+    /**
+     * @return A hash of the current physics transforms of all the ships, equal for runs that ended up in the exact
+     * same place
+     */
+    public int getTransformHash() {
+        int transformHash = 1;
+        for (PhysicsObject ship : ships) {
+            ShipTransform transform = ship.getShipTransformationManager().getCurrentPhysicsTransform();
+            Quaterniond rotation = transform.rotationQuaternion(TransformType.SUBSPACE_TO_GLOBAL);
+            transformHash = 31 * transformHash + Double.hashCode(transform.getPosX());
+            transformHash = 31 * transformHash + Double.hashCode(transform.getPosY());
+            transformHash = 31 * transformHash + Double.hashCode(transform.getPosZ());
+            transformHash = 31 * transformHash + rotation.hashCode();
+        }
+        return transformHash;
+    }
+
+    public long getCollisionCount() {
+        return collisionCount;
+    }
+
+    public void shutdown() {
+        if (collisionExecutor != null) {
+            collisionExecutor.shutdown();
+        }
+    }
+
+    private static void printPhase(String name, long time, int steps) {
+        System.out.printf("  %-20s %10.1f ms total %8.3f ms per tick%n", name, time / 1e6, time / 1e6 / steps);
+    }
+
+    /**
+     * Stone hills between {@link #TERRAIN_BASE_HEIGHT} and {@link #TERRAIN_BASE_HEIGHT} +
+     * {@link #TERRAIN_HILL_HEIGHT}.
+     */
+    private void generateTerrain(int minX, int minZ, int maxX, int maxZ) {
+        IBlockState stone = Blocks.STONE.getDefaultState();
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                double hill = (Math.sin(x / 11D) + Math.cos(z / 13D) + 2) / 4;
+                int height = TERRAIN_BASE_HEIGHT + (int) (hill * TERRAIN_HILL_HEIGHT);
+                for (int y = TERRAIN_MIN_Y; y <= height; y++) {
+                    world.setBlockStateDirect(x, y, z, stone);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name box (a solid block), hull (a hollow open top boat) or platform (a single layer)
+     * @param size The width and length of the template
+     */
+    static Map<BlockPos, IBlockState> createTemplate(String name, int size) {
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        switch (name) {
+            case "box":
+                return HeadlessWorld.createBoxTemplate(size, Math.max(1, size / 2), size, planks);
+            case "platform":
+                return HeadlessWorld.createBoxTemplate(size, 1, size, planks);
+            case "hull":
+                Map<BlockPos, IBlockState> hull = new HashMap<>();
+                int height = Math.max(2, size / 3);
+                for (int x = 0; x < size; x++) {
+                    for (int y = 0; y < height; y++) {
+                        for (int z = 0; z < size; z++) {
+                            boolean isWall = x == 0 || x == size - 1 || z == 0 || z == size - 1;
+                            if (y == 0 || isWall) {
+                                hull.put(new BlockPos(x, y, z), planks);
+                            }
+                        }
+                    }
+                }
+                return hull;
+            default:
+                throw new IllegalArgumentException("Unknown ship template " + name);
+        }
+    }
+
+    /**
+     * Parses arguments of the form --key=value, or --key for flags.
+     */
+    private static Map<String, String> parseArguments(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --key=value but got " + arg);
+            }
+            int split = arg.indexOf('=');
+            if (split == -1) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, split), arg.substring(split + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,45 @@
+package org.valkyrienskies.mod.common.physics;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class HeadlessPhysicsSimulationTest {
+
+    private static final int SHIPS = 4;
+    private static final int SIZE = 6;
+    // Long enough for the ships to fall onto the terrain and settle on it
+    private static final int STEPS = 300;
+
+    @Test
+    public void testRunsWithCollisionsAreRepeatable() throws InterruptedException {
+        HeadlessPhysicsSimulation first = runSimulation(1);
+        HeadlessPhysicsSimulation second = runSimulation(1);
+        HeadlessPhysicsSimulation threaded = runSimulation(2);
+
+        assertThat(first.getCollisionCount(), greaterThan(0L));
+        assertThat(second.getCollisionCount(), equalTo(first.getCollisionCount()));
+        assertThat(second.getTransformHash(), equalTo(first.getTransformHash()));
+        assertThat(threaded.getCollisionCount(), equalTo(first.getCollisionCount()));
+        assertThat(threaded.getTransformHash(), equalTo(first.getTransformHash()));
+    }
+
+    private static HeadlessPhysicsSimulation runSimulation(int threads) throws InterruptedException {
+        Map<BlockPos, IBlockState> template = HeadlessPhysicsSimulation.createTemplate("hull", SIZE);
+        HeadlessPhysicsSimulation simulation = new HeadlessPhysicsSimulation(SHIPS, template, SIZE, threads,
+            new double[0], 1, 0);
+        try {
+            simulation.run(STEPS);
+        } finally {
+            simulation.shutdown();
+        }
+        return simulation;
+    }
+
+}
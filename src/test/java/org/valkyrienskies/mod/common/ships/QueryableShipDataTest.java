@@ -0,0 +1,96 @@
+package org.valkyrienskies.mod.common.ships;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class QueryableShipDataTest {
+
+    private static ShipData createShip(QueryableShipData owner, String name, int chunkZ) {
+        ShipTransform transform = new ShipTransform(new Vector3d(1, 2, 3), new Vector3d(4, 5, 6));
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(320000, chunkZ));
+        claim.addChunkClaim(320000, chunkZ);
+        return ShipData.createData(owner, name, claim, UUID.randomUUID(), transform,
+            new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+    }
+
+    @Test
+    public void testQueries() {
+        QueryableShipData data = new QueryableShipData();
+        ShipData ship = createShip(data, "ship", 3200);
+        data.addShip(ship);
+        // Build the snapshot, so that the changes below have to invalidate it
+        assertThat(data.getShips(), contains(ship));
+
+        assertThat(data.getShip(ship.getUuid()), is(Optional.of(ship)));
+        assertThat(data.getShipFromName("ship"), is(Optional.of(ship)));
+        assertThat(data.getShipFromChunk(320000, 3200), is(Optional.of(ship)));
+
+        ship.setName("renamed");
+        assertThat(data.getShipFromName("ship"), is(Optional.empty()));
+        assertThat(data.getShipFromName("renamed"), is(Optional.of(ship)));
+
+        // In the region of the claim, but not claimed yet
+        assertThat(data.getShipFromChunk(320001, 3200), is(Optional.empty()));
+        data.updateChunkClaim(ship, claim -> claim.addChunkClaim(320001, 3200));
+        assertThat(data.getShipFromChunk(320001, 3200), is(Optional.of(ship)));
+        // The edges of the claim region
+        data.updateChunkClaim(ship, claim -> {
+            claim.addChunkClaim(318401, 1601);
+            claim.addChunkClaim(321599, 4799);
+        });
+        assertThat(data.getShipFromChunk(318401, 1601), is(Optional.of(ship)));
+        assertThat(data.getShipFromChunk(321599, 4799), is(Optional.of(ship)));
+        assertThat(data.getShipFromChunk(318400, 3200), is(Optional.empty()));
+        assertThat(data.getShipFromChunk(320000, 4800), is(Optional.empty()));
+
+        data.removeShip(ship);
+        assertThat(data.getShips(), is(empty()));
+        assertThat(data.getShip(ship.getUuid()), is(Optional.empty()));
+        assertThat(data.getShipFromChunk(320000, 3200), is(Optional.empty()));
+    }
+
+    @Test
+    public void testUpdateListener() {
+        QueryableShipData data = new QueryableShipData();
+        List<ShipData> removed = new ArrayList<>();
+        List<ShipData> added = new ArrayList<>();
+        data.registerUpdateListener((removedShips, addedShips) -> {
+            removedShips.forEach(removed::add);
+            addedShips.forEach(added::add);
+        });
+        ShipData ship = createShip(data, "ship", 3200);
+        data.addShip(ship);
+        data.removeShip(ship.getUuid());
+
+        assertThat(added, contains(ship));
+        assertThat(removed, contains(ship));
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+        QueryableShipData data = new QueryableShipData();
+        ShipData ship = createShip(data, "ship", 3200);
+        data.addShip(ship);
+
+        QueryableShipData read = mapper.readValue(mapper.writeValueAsBytes(data), QueryableShipData.class);
+        assertThat(read.getShips(), hasSize(1));
+        assertThat(read.getShipFromName("ship").map(ShipData::getUuid), is(Optional.of(ship.getUuid())));
+    }
+
+}
@@ -0,0 +1,115 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import net.minecraft.block.BlockPlanks;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that {@link BulkBlockRelocator} moves blocks to the same places as {@link MoveBlocks#copyBlockToPos}.
+ */
+public class BulkBlockRelocatorTest {
+
+    // The blocks moved are in the chunks 0 to 1 along x and z, and the sections 4 to 5
+    private static final int SIZE = 32;
+    private static final int MIN_Y = 64;
+
+    @Test
+    public void testAlignedOffset() {
+        assertSameAsMoveBlocks(new BlockPos(48, 16, -64), false);
+    }
+
+    @Test
+    public void testAlignedOffsetIntoUsedSections() {
+        assertSameAsMoveBlocks(new BlockPos(48, 16, -64), true);
+    }
+
+    @Test
+    public void testUnalignedOffset() {
+        assertSameAsMoveBlocks(new BlockPos(45, 3, -7), false);
+        assertSameAsMoveBlocks(new BlockPos(-37, -9, 50), true);
+    }
+
+    @Test
+    public void testOffsetOutOfTheWorld() {
+        // Partly below y 0, and partly above y 255
+        assertSameAsMoveBlocks(new BlockPos(37, -70, 50), false);
+        assertSameAsMoveBlocks(new BlockPos(40, 170, 5), false);
+    }
+
+    private static void assertSameAsMoveBlocks(BlockPos offset, boolean usedDestination) {
+        HeadlessWorld expectedWorld = new HeadlessWorld();
+        HeadlessWorld world = new HeadlessWorld();
+        Random random = new Random(42);
+        IBlockState[] states = {
+            Blocks.STONE.getDefaultState(),
+            Blocks.PLANKS.getDefaultState(),
+            Blocks.PLANKS.getDefaultState().withProperty(BlockPlanks.VARIANT, BlockPlanks.EnumType.SPRUCE),
+            Blocks.GLASS.getDefaultState()
+        };
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = MIN_Y; y < MIN_Y + SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    if (random.nextInt(3) == 0) {
+                        IBlockState state = states[random.nextInt(states.length)];
+                        expectedWorld.setBlockStateDirect(x, y, z, state);
+                        world.setBlockStateDirect(x, y, z, state);
+                    }
+                }
+            }
+        }
+        if (usedDestination) {
+            // Blocks already in the destination sections, where the moved blocks are air
+            for (int i = 0; i < 100; i++) {
+                BlockPos pos = new BlockPos(random.nextInt(SIZE), MIN_Y + random.nextInt(SIZE), random.nextInt(SIZE));
+                if (world.getBlockState(pos).getBlock() == Blocks.AIR) {
+                    BlockPos destination = pos.add(offset);
+                    if (destination.getY() >= 0 && destination.getY() < 256) {
+                        IBlockState state = Blocks.BRICK_BLOCK.getDefaultState();
+                        expectedWorld.setBlockStateDirect(destination.getX(), destination.getY(),
+                            destination.getZ(), state);
+                        world.setBlockStateDirect(destination.getX(), destination.getY(), destination.getZ(), state);
+                    }
+                }
+            }
+        }
+
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = MIN_Y; y < MIN_Y + SIZE; y++) {
+                for (int z = 0; z < SIZE; z++) {
+                    BlockPos pos = new BlockPos(x, y, z);
+                    // Only the non air blocks are moved, like the relocator does
+                    if (expectedWorld.getBlockState(pos).getBlock() != Blocks.AIR) {
+                        MoveBlocks.copyBlockToPos(expectedWorld, pos, pos.add(offset), null);
+                    }
+                }
+            }
+        }
+        BulkBlockRelocator relocator = new BulkBlockRelocator(world, offset);
+        for (int chunkX = 0; chunkX < SIZE >> 4; chunkX++) {
+            for (int chunkZ = 0; chunkZ < SIZE >> 4; chunkZ++) {
+                relocator.relocateChunk(world.getChunk(chunkX, chunkZ));
+            }
+        }
+
+        for (int x = -1; x <= SIZE; x++) {
+            for (int y = MIN_Y - 1; y <= MIN_Y + SIZE; y++) {
+                for (int z = -1; z <= SIZE; z++) {
+                    BlockPos destination = new BlockPos(x, y, z).add(offset);
+                    if (destination.getY() >= 0 && destination.getY() < 256) {
+                        assertThat(destination.toString(), world.getBlockState(destination),
+                            equalTo(expectedWorld.getBlockState(destination)));
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.set.hash.TIntHashSet;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.BlockPos.MutableBlockPos;
+import net.minecraft.world.ChunkCache;
+import net.minecraft.world.World;
+
+import java.util.function.Predicate;
+
+import static org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector.maxRange;
+import static org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector.maxRangeHalved;
+import static org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector.maxRangeSquared;
+
+/**
+ * The breadth first flood fill {@link SpatialDetector} used before it switched to a scanline fill, kept as the
+ * reference for {@link SpatialDetectorTest} and the baseline for SpatialDetectorBenchmark. Every found block looks up
+ * all of its neighbours through a {@link ChunkCache} and a hash set.
+ */
+class LegacySpatialDetector {
+
+    final TIntHashSet foundSet = new TIntHashSet(250);
+    private final BlockPos firstBlock;
+    private final ChunkCache cache;
+    private final int maxSize;
+    private final boolean corners;
+    private final Predicate<IBlockState> isValidExpansion;
+    private final MutableBlockPos mutablePos = new MutableBlockPos();
+    private TIntHashSet nextQueue = new TIntHashSet();
+
+    LegacySpatialDetector(BlockPos start, World worldIn, int maximum, boolean checkCorners,
+        Predicate<IBlockState> isValidExpansion) {
+        this.firstBlock = start;
+        this.maxSize = maximum;
+        this.corners = checkCorners;
+        this.isValidExpansion = isValidExpansion;
+        BlockPos minPos = new BlockPos(start.getX() - 128, 0, start.getZ() - 128);
+        BlockPos maxPos = new BlockPos(start.getX() + 128, 255, start.getZ() + 128);
+        this.cache = new ChunkCache(worldIn, minPos, maxPos, 0);
+        calculateSpatialOccupation();
+    }
+
+    private void calculateSpatialOccupation() {
+        nextQueue.add(firstBlock.getY() + maxRange * maxRangeHalved + maxRangeSquared * maxRangeHalved);
+        MutableBlockPos inRealWorld = new MutableBlockPos();
+        while (!nextQueue.isEmpty()) {
+            TIntIterator queueIter = nextQueue.iterator();
+            foundSet.addAll(nextQueue);
+            nextQueue = new TIntHashSet();
+            while (queueIter.hasNext()) {
+                int hash = queueIter.next();
+                SpatialDetector.setPosWithRespectTo(hash, firstBlock, inRealWorld);
+                for (int x = -1; x <= 1; x++) {
+                    for (int y = -1; y <= 1; y++) {
+                        for (int z = -1; z <= 1; z++) {
+                            int offsetCount = Math.abs(x) + Math.abs(y) + Math.abs(z);
+                            if (offsetCount == 0 || (!corners && offsetCount != 1)) {
+                                continue;
+                            }
+                            tryExpanding(inRealWorld.getX() + x, inRealWorld.getY() + y,
+                                inRealWorld.getZ() + z, hash + maxRange * x + y + maxRangeSquared * z);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void tryExpanding(int x, int y, int z, int hash) {
+        mutablePos.setPos(x, y, z);
+        if (isValidExpansion.test(cache.getBlockState(mutablePos))) {
+            if (!foundSet.contains(hash) && (foundSet.size() + nextQueue.size() < maxSize)) {
+                nextQueue.add(hash);
+            }
+        }
+    }
+}
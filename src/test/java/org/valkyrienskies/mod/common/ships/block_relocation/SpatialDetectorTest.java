@@ -0,0 +1,180 @@
+package org.valkyrienskies.mod.common.ships.block_relocation;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.block_relocation.DetectorManager.DetectorIDs;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Checks that the scanline fill of {@link SpatialDetector} finds the same blocks as the breadth first fill it
+ * replaced, {@link LegacySpatialDetector}.
+ */
+public class SpatialDetectorTest {
+
+    private static final BlockPos START = new BlockPos(0, 64, 0);
+
+    @Test
+    public void testDiagonalOnlyLinks() {
+        HeadlessWorld world = new HeadlessWorld();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        for (int i = 0; i < 10; i++) {
+            // Touching along a corner, and along an edge
+            world.setBlockStateDirect(i, 64 + i, i, planks);
+            world.setBlockStateDirect(-i, 64, i, planks);
+        }
+
+        assertThat(assertSameFoundSets(world, START, 1000, true).foundSet.size(), equalTo(19));
+        assertThat(assertSameFoundSets(world, START, 1000, false).foundSet.size(), equalTo(1));
+    }
+
+    @Test
+    public void testHollowShape() {
+        HeadlessWorld world = new HeadlessWorld();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        world.fill(0, 64, 0, 8, 72, 8, planks);
+        world.fill(1, 65, 1, 7, 71, 7, Blocks.AIR.getDefaultState());
+        // Floating inside of the shell, so it isn't connected to it
+        world.fill(3, 67, 3, 5, 69, 5, planks);
+        // A hole in the shell, and a block poking out of it
+        world.setBlockStateDirect(4, 72, 4, Blocks.AIR.getDefaultState());
+        world.setBlockStateDirect(4, 73, 5, planks);
+
+        for (boolean corners : new boolean[] {true, false}) {
+            assertSameFoundSets(world, START, 10000, corners);
+        }
+    }
+
+    @Test
+    public void testIrregularShapes() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            HeadlessWorld world = new HeadlessWorld();
+            IBlockState planks = Blocks.PLANKS.getDefaultState();
+            world.fill(-10, 60, -10, 10, 60, 10, Blocks.STONE.getDefaultState());
+            for (int x = -10; x <= 10; x++) {
+                for (int y = 61; y <= 80; y++) {
+                    for (int z = -10; z <= 10; z++) {
+                        if (random.nextInt(3) == 0) {
+                            world.setBlockStateDirect(x, y, z, planks);
+                        }
+                    }
+                }
+            }
+            world.setBlockStateDirect(START.getX(), START.getY(), START.getZ(), planks);
+
+            for (boolean corners : new boolean[] {true, false}) {
+                assertSameFoundSets(world, START, 100000, corners);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxSizeCap() {
+        HeadlessWorld world = new HeadlessWorld();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        world.fill(0, 64, 0, 9, 73, 9, planks);
+
+        for (boolean corners : new boolean[] {true, false}) {
+            // Only a cap below the size of the ship cuts it short
+            assertThat(assertSameFoundSets(world, START, 1001, corners).foundSet.size(), equalTo(1000));
+            assertThat(assertSameFoundSets(world, START, 1000, corners).foundSet.size(), equalTo(1000));
+
+            // The fills reach the cap in a different order, so only the number of blocks found is the same
+            for (int maxSize : new int[] {1, 2, 10, 999}) {
+                SpatialDetector detector = DetectorManager.getDetectorFor(DetectorIDs.ShipSpawnerGeneral, START,
+                    world, maxSize, corners);
+                LegacySpatialDetector legacy = new LegacySpatialDetector(START, world, maxSize, corners,
+                    detector::isValidExpansion);
+                assertThat(detector.foundSet.size(), equalTo(maxSize));
+                assertThat(legacy.foundSet.size(), equalTo(maxSize));
+            }
+        }
+    }
+
+    @Test
+    public void testAdjacentBedrock() {
+        HeadlessWorld world = new HeadlessWorld();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        world.fill(0, 64, 0, 4, 64, 4, planks);
+        // Separated from the ship by air
+        world.setBlockStateDirect(6, 64, 0, Blocks.BEDROCK.getDefaultState());
+
+        for (boolean corners : new boolean[] {true, false}) {
+            SpatialDetector detector = assertSameFoundSets(world, START, 1000, corners);
+            assertThat(detector.cleanHouse, equalTo(false));
+            assertThat(detector.foundSet.size(), equalTo(25));
+        }
+
+        // Only touching the ship along an edge
+        world.setBlockStateDirect(5, 63, 2, Blocks.BEDROCK.getDefaultState());
+        assertThat(assertSameFoundSets(world, START, 1000, true).cleanHouse, equalTo(true));
+        assertThat(assertSameFoundSets(world, START, 1000, false).cleanHouse, equalTo(false));
+
+        // Touching the ship along a face
+        world.setBlockStateDirect(5, 64, 2, Blocks.BEDROCK.getDefaultState());
+        for (boolean corners : new boolean[] {true, false}) {
+            SpatialDetector detector = assertSameFoundSets(world, START, 1000, corners);
+            assertThat(detector.cleanHouse, equalTo(true));
+            assertThat(detector.foundSet.size(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void testVolumeBoundary() {
+        HeadlessWorld world = new HeadlessWorld();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        // Lines running out of the detection volume along every axis
+        world.fill(-200, 64, 0, 200, 64, 0, planks);
+        world.fill(0, 64, -200, 0, 64, 200, planks);
+        world.fill(0, 0, 5, 0, 255, 5, planks);
+
+        for (boolean corners : new boolean[] {true, false}) {
+            SpatialDetector detector = assertSameFoundSets(world, START, 100000, corners);
+            // The volume is every chunk within 128 blocks of the start, so -128 to 143 along x and z
+            assertThat(detector.foundSet.size(), equalTo(272 + 271 + 255));
+        }
+
+        // A start whose volume is rounded to other chunks, -144 to 127 along x
+        BlockPos offsetStart = new BlockPos(-1, 64, 0);
+        for (boolean corners : new boolean[] {true, false}) {
+            assertSameFoundSets(world, offsetStart, 100000, corners);
+        }
+    }
+
+    /**
+     * Runs the ship spawn detector and the legacy fill from start, and checks that they find the same blocks and
+     * both did or didn't touch bedrock.
+     *
+     * @return The ship spawn detector
+     */
+    private static SpatialDetector assertSameFoundSets(HeadlessWorld world, BlockPos start, int maxSize,
+        boolean corners) {
+        SpatialDetector detector = DetectorManager.getDetectorFor(DetectorIDs.ShipSpawnerGeneral, start, world,
+            maxSize, corners);
+
+        // The legacy fill has no cleanHouse, so find out whether it touched bedrock through its predicate
+        boolean[] legacyCleanHouse = {false};
+        LegacySpatialDetector legacy = new LegacySpatialDetector(start, world, maxSize, corners, state -> {
+            if (state.getBlock() == Blocks.BEDROCK) {
+                legacyCleanHouse[0] = true;
+                return false;
+            }
+            return detector.isValidExpansion(state);
+        });
+        if (legacyCleanHouse[0]) {
+            legacy.foundSet.clear();
+        }
+
+        assertThat(detector.cleanHouse, equalTo(legacyCleanHouse[0]));
+        assertThat(detector.foundSet, equalTo(legacy.foundSet));
+        return detector;
+    }
+
+}
@@ -0,0 +1,81 @@
+package org.valkyrienskies.mod.common.ships.chunk_claims;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minecraft.util.math.ChunkPos;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShipChunkAllocatorTest {
+
+    @TempDir
+    File regionDirectory;
+
+    @Test
+    public void testFreedClaimsAreReused() {
+        ShipChunkAllocator allocator = new ShipChunkAllocator();
+        allocator.allocateNextChunkClaim();
+        VSChunkClaim second = allocator.allocateNextChunkClaim();
+        VSChunkClaim third = allocator.allocateNextChunkClaim();
+
+        allocator.freeChunkClaim(third);
+        allocator.freeChunkClaim(second);
+        // The lowest one first
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(second.getCenterPos()));
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(third.getCenterPos()));
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(new ChunkPos(320000, 12800)));
+    }
+
+    @Test
+    public void testClaimsFreedByOlderVersionsAreReusedOnceWiped() throws IOException {
+        ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+        // Three claims were allocated, and the second one was freed
+        ShipChunkAllocator allocator = mapper.readValue("{\"lastChunkX\":320000,\"lastChunkZ\":9600,"
+            + "\"freeClaims\":[],\"claimsToWipe\":[2]}", ShipChunkAllocator.class);
+
+        // The second claim spans the chunks z 4800 to 7999, which are the regions z 150 to 249
+        File center = createRegionFile(10000, 200);
+        File edge = createRegionFile(9950, 150);
+        File previousClaim = createRegionFile(10000, 149);
+        File nextClaim = createRegionFile(10000, 250);
+
+        // Not wiped yet, so it can't be reused
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(new ChunkPos(320000, 12800)));
+
+        allocator.wipeFreedClaims(regionDirectory);
+        assertFalse(center.exists());
+        assertFalse(edge.exists());
+        assertTrue(previousClaim.exists());
+        assertTrue(nextClaim.exists());
+
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(new ChunkPos(320000, 6400)));
+        assertThat(allocator.allocateNextChunkClaim().getCenterPos(), equalTo(new ChunkPos(320000, 16000)));
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+        ShipChunkAllocator allocator = new ShipChunkAllocator();
+        allocator.allocateNextChunkClaim();
+        allocator.freeChunkClaim(allocator.allocateNextChunkClaim());
+
+        ShipChunkAllocator read = mapper.readValue(mapper.writeValueAsBytes(allocator), ShipChunkAllocator.class);
+        assertThat(read.allocateNextChunkClaim().getCenterPos(), equalTo(new ChunkPos(320000, 6400)));
+        assertThat(read.allocateNextChunkClaim().getCenterPos(), equalTo(new ChunkPos(320000, 9600)));
+    }
+
+    private File createRegionFile(int regionX, int regionZ) throws IOException {
+        File file = new File(regionDirectory, "r." + regionX + "." + regionZ + ".mca");
+        assertTrue(file.createNewFile());
+        return file;
+    }
+
+}
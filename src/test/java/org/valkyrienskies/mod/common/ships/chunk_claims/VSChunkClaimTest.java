@@ -1,7 +1,81 @@
 package org.valkyrienskies.mod.common.ships.chunk_claims;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import net.minecraft.util.math.ChunkPos;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 public class VSChunkClaimTest {
 
+    @Test
+    public void testAddChunkClaims() {
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(100, 200));
+        claim.addChunkClaims(99, 199, 101, 202);
+
+        assertThat(claim.size(), equalTo(12));
+        assertTrue(claim.containsChunk(99, 199));
+        assertTrue(claim.containsChunk(101, 202));
+        assertFalse(claim.containsChunk(102, 202));
+        assertFalse(claim.containsChunk(101, 203));
+    }
+
+    @Test
+    public void testUpdateChunkClaims() {
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(0, 0));
+        claim.addChunkClaims(-1, -1, 1, 1);
+
+        TLongSet toAdd = new TLongHashSet(new long[] {ChunkPos.asLong(2, 0)});
+        TLongSet toRemove = new TLongHashSet(new long[] {ChunkPos.asLong(-1, -1), ChunkPos.asLong(-1, 0)});
+        claim.updateChunkClaims(toAdd, toRemove);
+
+        assertThat(claim.size(), equalTo(8));
+        assertTrue(claim.containsChunk(2, 0));
+        assertFalse(claim.containsChunk(-1, -1));
+        assertFalse(claim.containsChunk(-1, 0));
+    }
+
+    @Test
+    public void testClaimedChunksSnapshot() {
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(0, 0));
+        claim.addChunkClaim(0, 0);
+        TLongSet snapshot = claim.getClaimedChunks();
+
+        claim.addChunkClaim(1, 0);
+        claim.removeChunkClaim(0, 0);
+
+        // Changes to the claim must not show up in sets handed out before them
+        assertThat(snapshot.size(), equalTo(1));
+        assertTrue(snapshot.contains(ChunkPos.asLong(0, 0)));
+    }
+
+    @Test
+    public void testChunkLongCoordinates() {
+        long chunkLong = ChunkPos.asLong(-320000, 12345);
+        assertThat(VSChunkClaim.getChunkX(chunkLong), equalTo(-320000));
+        assertThat(VSChunkClaim.getChunkZ(chunkLong), equalTo(12345));
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+        VSChunkClaim expected = new VSChunkClaim(new ChunkPos(320000, 3200));
+        expected.addChunkClaims(319999, 3199, 320001, 3201);
+
+        byte[] serialized = mapper.writeValueAsBytes(expected);
+        VSChunkClaim actual = mapper.readValue(serialized, VSChunkClaim.class);
+
+        assertThat(actual, equalTo(expected));
+    }
+
     /*
     @Test
     public void testChunkLongs() {
@@ -0,0 +1,161 @@
+package org.valkyrienskies.mod.common.ships.entity_interaction;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.entity.EntityShipMovementData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DraggedEntityTrackerTest {
+
+    private static final EntityShipMovementData NOT_DRAGGED = new EntityShipMovementData(null, 0, new Vector3d(), 0);
+
+    private static List<Entity> getDraggedEntities(DraggedEntityTracker tracker, World world) {
+        List<Entity> visited = new ArrayList<>();
+        tracker.forEachDraggedEntity(world, visited::add);
+        return visited;
+    }
+
+    @Test
+    public void testOnlyDraggedEntitiesAreAdded() {
+        HeadlessWorld world = new HeadlessWorld();
+        DraggedEntityTracker tracker = new DraggedEntityTracker();
+        DraggableEntity still = new DraggableEntity(world);
+        DraggableEntity pushed = new DraggableEntity(world);
+
+        tracker.onMovementDataChanged(still);
+        assertThat(tracker.size(), equalTo(0));
+        assertThat(still.isInDraggedEntityTracker(), equalTo(false));
+
+        pushed.setEntityShipMovementData(NOT_DRAGGED.withAddedLinearVelocity(new Vector3d(0, 0, 1)));
+        tracker.onMovementDataChanged(pushed);
+        // Already in the tracker, so not added twice
+        tracker.onMovementDataChanged(pushed);
+        assertThat(tracker.size(), equalTo(1));
+        assertThat(pushed.isInDraggedEntityTracker(), equalTo(true));
+        assertThat(getDraggedEntities(tracker, world), contains(pushed));
+    }
+
+    @Test
+    public void testIsBeingDragged() {
+        HeadlessWorld world = new HeadlessWorld();
+        ShipData ship = world.createShip(new Vector3d(),
+            HeadlessWorld.createBoxTemplate(1, 1, 1, Blocks.PLANKS.getDefaultState())).getShipData();
+
+        assertThat(DraggedEntityTracker.isBeingDragged(NOT_DRAGGED), equalTo(false));
+        assertThat(DraggedEntityTracker.isBeingDragged(NOT_DRAGGED.withLastTouchedShip(ship)), equalTo(true));
+        assertThat(DraggedEntityTracker.isBeingDragged(NOT_DRAGGED.withLastTouchedShip(ship)
+            .withTicksSinceTouchedShip(VSConfig.ticksToStickToShip)), equalTo(false));
+        assertThat(DraggedEntityTracker.isBeingDragged(NOT_DRAGGED.withAddedYawVelocity(-1)), equalTo(true));
+        // Too little velocity left to be worth moving
+        assertThat(DraggedEntityTracker.isBeingDragged(NOT_DRAGGED.withAddedLinearVelocity(new Vector3d(1e-5, 0, 0))
+            .withAddedYawVelocity(1e-5)), equalTo(false));
+    }
+
+    @Test
+    public void testEntitiesNoLongerDraggedAreDropped() {
+        HeadlessWorld world = new HeadlessWorld();
+        HeadlessWorld otherWorld = new HeadlessWorld();
+        DraggedEntityTracker tracker = new DraggedEntityTracker();
+        List<DraggableEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            DraggableEntity entity = new DraggableEntity(world);
+            entity.setEntityShipMovementData(NOT_DRAGGED.withAddedYawVelocity(1));
+            tracker.onMovementDataChanged(entity);
+            entities.add(entity);
+        }
+        assertThat(getDraggedEntities(tracker, world), contains(entities.toArray()));
+
+        // Stopped, died, and changed worlds
+        entities.get(0).setEntityShipMovementData(NOT_DRAGGED);
+        entities.get(2).isDead = true;
+        entities.get(3).world = otherWorld;
+        assertThat(getDraggedEntities(tracker, world), containsInAnyOrder(entities.get(1), entities.get(4)));
+        assertThat(tracker.size(), equalTo(2));
+        for (int i : new int[] {0, 2, 3}) {
+            assertThat(entities.get(i).isInDraggedEntityTracker(), equalTo(false));
+        }
+
+        // Added back once it's dragged again
+        entities.get(0).setEntityShipMovementData(NOT_DRAGGED.withAddedYawVelocity(1));
+        tracker.onMovementDataChanged(entities.get(0));
+        assertThat(getDraggedEntities(tracker, world),
+            containsInAnyOrder(entities.get(0), entities.get(1), entities.get(4)));
+
+        // Entities that aren't in the world yet are dropped too
+        DraggableEntity notAdded = new DraggableEntity(world, false);
+        notAdded.setEntityShipMovementData(NOT_DRAGGED.withAddedYawVelocity(1));
+        tracker.onMovementDataChanged(notAdded);
+        assertThat(getDraggedEntities(tracker, world), not(hasItem(notAdded)));
+        assertThat(tracker.size(), equalTo(3));
+    }
+
+    /**
+     * What the entity mixins add to every entity in game.
+     */
+    private static class DraggableEntity extends Entity implements IDraggable {
+
+        private EntityShipMovementData movementData;
+        private boolean inDraggedEntityTracker;
+
+        DraggableEntity(World world) {
+            this(world, true);
+        }
+
+        DraggableEntity(World world, boolean addedToWorld) {
+            super(world);
+            this.movementData = NOT_DRAGGED;
+            this.inDraggedEntityTracker = false;
+            if (addedToWorld) {
+                onAddedToWorld();
+            }
+        }
+
+        @Nonnull
+        @Override
+        public EntityShipMovementData getEntityShipMovementData() {
+            return movementData;
+        }
+
+        @Override
+        public void setEntityShipMovementData(@Nullable EntityShipMovementData entityShipMovementData) {
+            this.movementData = entityShipMovementData;
+        }
+
+        @Override
+        public boolean isInDraggedEntityTracker() {
+            return inDraggedEntityTracker;
+        }
+
+        @Override
+        public void setInDraggedEntityTracker(boolean inDraggedEntityTracker) {
+            this.inDraggedEntityTracker = inDraggedEntityTracker;
+        }
+
+        @Override
+        protected void entityInit() {
+        }
+
+        @Override
+        protected void readEntityFromNBT(@Nonnull NBTTagCompound compound) {
+        }
+
+        @Override
+        protected void writeEntityToNBT(@Nonnull NBTTagCompound compound) {
+        }
+    }
+
+}
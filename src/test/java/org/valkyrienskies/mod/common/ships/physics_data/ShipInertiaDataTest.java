@@ -0,0 +1,124 @@
+package org.valkyrienskies.mod.common.ships.physics_data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.joml.Matrix3d;
+import org.joml.Matrix3dc;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.IOException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ShipInertiaDataTest {
+
+    private static final double EPSILON = 1e-6;
+    // Far out in the shipyard, like real ships
+    private static final double SHIPYARD_X = 5120000;
+    private static final double SHIPYARD_Z = 51200;
+
+    @Test
+    public void testPointMasses() {
+        ShipInertiaData data = new ShipInertiaData();
+        data.addMass(SHIPYARD_X + 1, 64, SHIPYARD_Z, 2, 0);
+        data.addMass(SHIPYARD_X - 1, 64, SHIPYARD_Z, 2, 0);
+
+        assertThat(data.getGameTickMass(), closeTo(4, EPSILON));
+        assertVector(data.getGameTickCenterOfMass(), new Vector3d(SHIPYARD_X, 64, SHIPYARD_Z));
+        // Two masses of 2 on the x axis, a distance of 1 from the center of mass
+        assertMatrix(data.getGameMoITensor(), new Matrix3d(0, 0, 0, 0, 4, 0, 0, 0, 4));
+
+        data.addMass(SHIPYARD_X, 65, SHIPYARD_Z, 4, 0);
+        assertVector(data.getGameTickCenterOfMass(), new Vector3d(SHIPYARD_X, 64.5, SHIPYARD_Z));
+        // Iyy = 4, Ixx = 8 * .5^2 = 2, Izz = 4 + 2, Ixy = 0 by symmetry
+        assertMatrix(data.getGameMoITensor(), new Matrix3d(2, 0, 0, 0, 4, 0, 0, 0, 6));
+    }
+
+    @Test
+    public void testRemovingEverythingLeavesNoMass() {
+        ShipInertiaData data = new ShipInertiaData();
+        for (int i = 0; i < 1000; i++) {
+            data.addMass(SHIPYARD_X + i * .37, 64 + i % 7, SHIPYARD_Z - i * .11, 500 + i, .1);
+        }
+        for (int i = 0; i < 1000; i++) {
+            data.addMass(SHIPYARD_X + i * .37, 64 + i % 7, SHIPYARD_Z - i * .11, -(500 + i), .1);
+        }
+        assertThat(data.getGameTickMass(), equalTo(0D));
+        assertMatrix(data.getGameMoITensor(), new Matrix3d().zero());
+
+        // New masses aren't affected by the old ones
+        data.addMass(SHIPYARD_X, 64, SHIPYARD_Z, 3, 0);
+        assertVector(data.getGameTickCenterOfMass(), new Vector3d(SHIPYARD_X, 64, SHIPYARD_Z));
+        assertMatrix(data.getGameMoITensor(), new Matrix3d().zero());
+    }
+
+    @Test
+    public void testMomentsMatchMasses() {
+        ShipInertiaData byMass = new ShipInertiaData();
+        double mass = 0, momentX = 0, momentY = 0, momentZ = 0;
+        double momentXX = 0, momentYY = 0, momentZZ = 0, momentXY = 0, momentXZ = 0, momentYZ = 0;
+        for (int i = 0; i < 50; i++) {
+            double x = i % 16 + .5, y = (i * 7) % 16 + .5, z = (i * 3) % 16 + .5, m = 10 + i;
+            byMass.addMass(SHIPYARD_X + x, y + 48, SHIPYARD_Z + z, m, 0);
+            mass += m;
+            momentX += m * x;
+            momentY += m * y;
+            momentZ += m * z;
+            momentXX += m * x * x;
+            momentYY += m * y * y;
+            momentZZ += m * z * z;
+            momentXY += m * x * y;
+            momentXZ += m * x * z;
+            momentYZ += m * y * z;
+        }
+        ShipInertiaData byMoments = new ShipInertiaData();
+        byMoments.addMoments(SHIPYARD_X, 48, SHIPYARD_Z, mass, momentX, momentY, momentZ, momentXX, momentYY,
+            momentZZ, momentXY, momentXZ, momentYZ);
+
+        assertThat(byMoments.getGameTickMass(), closeTo(byMass.getGameTickMass(), EPSILON));
+        assertVector(byMoments.getGameTickCenterOfMass(), byMass.getGameTickCenterOfMass());
+        assertMatrix(byMoments.getGameMoITensor(), byMass.getGameMoITensor());
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+        ShipInertiaData data = new ShipInertiaData();
+        data.addMass(SHIPYARD_X, 64, SHIPYARD_Z, 500, .1);
+        data.addMass(SHIPYARD_X + 3, 66, SHIPYARD_Z - 2, 200, .1);
+
+        ShipInertiaData read = mapper.readValue(mapper.writeValueAsBytes(data), ShipInertiaData.class);
+        assertThat(read.getGameTickMass(), closeTo(data.getGameTickMass(), EPSILON));
+        assertVector(read.getGameTickCenterOfMass(), data.getGameTickCenterOfMass());
+        assertMatrix(read.getGameMoITensor(), data.getGameMoITensor());
+
+        // Older versions stored the mass, center of mass and tensor
+        ObjectNode legacy = mapper.createObjectNode();
+        legacy.put("gameTickMass", data.getGameTickMass());
+        legacy.set("gameTickCenterOfMass", mapper.valueToTree(new Vector3d(data.getGameTickCenterOfMass())));
+        legacy.set("gameMoITensor", mapper.valueToTree(new Matrix3d(data.getGameMoITensor())));
+        ShipInertiaData readLegacy = mapper.treeToValue(legacy, ShipInertiaData.class);
+        assertThat(readLegacy.getGameTickMass(), closeTo(data.getGameTickMass(), EPSILON));
+        assertVector(readLegacy.getGameTickCenterOfMass(), data.getGameTickCenterOfMass());
+        assertMatrix(readLegacy.getGameMoITensor(), data.getGameMoITensor());
+    }
+
+    private static void assertVector(org.joml.Vector3dc actual, org.joml.Vector3dc expected) {
+        assertThat(actual.x(), closeTo(expected.x(), EPSILON));
+        assertThat(actual.y(), closeTo(expected.y(), EPSILON));
+        assertThat(actual.z(), closeTo(expected.z(), EPSILON));
+    }
+
+    private static void assertMatrix(Matrix3dc actual, Matrix3dc expected) {
+        double[] actualValues = actual.get(new double[9]);
+        double[] expectedValues = expected.get(new double[9]);
+        for (int i = 0; i < 9; i++) {
+            assertThat(actualValues[i], closeTo(expectedValues[i], EPSILON));
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraft.world.storage.WorldInfo;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.collision.BlockCollisionShapes;
+import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
+import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.VSMath;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctreeProvider;
+import org.valkyrienskies.mod.common.util.datastructures.PackedBitOctree;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link World} that keeps its chunks in memory and has no server, tick loop, lighting or saving.
+ * Used to run ships outside of Minecraft, for the tests, the benchmarks and {@link
+ * org.valkyrienskies.mod.common.physics.HeadlessPhysicsSimulation}.
+ * <p>
+ * Mixins aren't applied outside of the game, so the chunk sections of this world are given an {@link
+ * OctreeBlockStateContainer}, which keeps an {@link IBitOctree} up to date the same way
+ * MixinBlockStateContainer does. Blocks must be placed with {@link #setBlockStateDirect(int, int, int,
+ * IBlockState)} for this to work.
+ */
+public class HeadlessWorld extends World {
+
+    private static final Field STORAGE_DATA_FIELD;
+
+    static {
+        // Registers the vanilla blocks, must happen before anything touches Blocks
+        Bootstrap.register();
+        BlockCollisionShapes.build();
+        try {
+            STORAGE_DATA_FIELD = ExtendedBlockStorage.class.getDeclaredField("data");
+            STORAGE_DATA_FIELD.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final TLongObjectHashMap<Chunk> chunks;
+    private final ShipChunkAllocator chunkAllocator;
+    private final QueryableShipData allShips;
+    private final IPhysicsObjectCenterOfMassProvider centerOfMassProvider;
+    private int shipsCreated;
+
+    public HeadlessWorld() {
+        super(null, new WorldInfo(new WorldSettings(0, GameType.CREATIVE, false, false, WorldType.FLAT),
+            "headless"), new WorldProviderSurface(), new Profiler(), false);
+        this.chunks = new TLongObjectHashMap<>();
+        this.chunkAllocator = new ShipChunkAllocator();
+        this.allShips = new QueryableShipData();
+        this.centerOfMassProvider = new BasicCenterOfMassProvider();
+        this.shipsCreated = 0;
+        this.chunkProvider = createChunkProvider();
+    }
+
+    /**
+     * Writes the block state straight into the chunk section, creating it if necessary. Doesn't
+     * update lighting, height maps or neighbours.
+     */
+    public void setBlockStateDirect(int x, int y, int z, IBlockState state) {
+        Chunk chunk = getChunk(x >> 4, z >> 4);
+        int storageIndex = y >> 4;
+        ExtendedBlockStorage storage = chunk.storageArrays[storageIndex];
+        if (storage == Chunk.NULL_BLOCK_STORAGE) {
+            storage = createBlockStorage(storageIndex << 4);
+            chunk.storageArrays[storageIndex] = storage;
+        }
+        storage.set(x & 15, y & 15, z & 15, state);
+    }
+
+    /**
+     * Fills the box between the two corners (inclusive) with the given state.
+     */
+    public void fill(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, IBlockState state) {
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                for (int z = minZ; z <= maxZ; z++) {
+                    setBlockStateDirect(x, y, z, state);
+                }
+            }
+        }
+    }
+
+    /**
+     * A solid box of the given state, with the template origin at its minimum corner.
+     */
+    public static Map<BlockPos, IBlockState> createBoxTemplate(int sizeX, int sizeY, int sizeZ,
+        IBlockState state) {
+        Map<BlockPos, IBlockState> template = new HashMap<>();
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    template.put(new BlockPos(x, y, z), state);
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Creates a ship with physics enabled out of the given blocks, with the template origin placed at
+     * position. Only the chunks the ship blocks are in get claimed.
+     *
+     * @param template The blocks of the ship, relative to the template origin
+     */
+    public PhysicsObject createShip(Vector3dc position, Map<BlockPos, IBlockState> template) {
+        VSChunkClaim claim = chunkAllocator.allocateNextChunkClaim();
+        BlockPos regionCenter = claim.getRegionCenter();
+        for (BlockPos offset : template.keySet()) {
+            BlockPos inShip = regionCenter.add(offset);
+            claim.addChunkClaim(inShip.getX() >> 4, inShip.getZ() >> 4);
+        }
+
+        ShipTransform transform = new ShipTransform(position, VSMath.toVector3d(regionCenter));
+        AxisAlignedBB initialBB = new AxisAlignedBB(position.x(), position.y(), position.z(),
+            position.x(), position.y(), position.z());
+        // Deterministic ids so that runs are repeatable
+        UUID shipID = new UUID(0, shipsCreated);
+        ShipData shipData = ShipData.createData(allShips, "headless-" + shipsCreated, claim, shipID,
+            transform, initialBB);
+        shipsCreated++;
+
+        for (Map.Entry<BlockPos, IBlockState> entry : template.entrySet()) {
+            BlockPos inShip = regionCenter.add(entry.getKey());
+            IBlockState state = entry.getValue();
+            setBlockStateDirect(inShip.getX(), inShip.getY(), inShip.getZ(), state);
+            shipData.blockPositions.add(inShip.getX(), inShip.getY(), inShip.getZ());
+            if (BlockPhysicsDetails.isBlockProvidingForce(state)) {
+                shipData.activeForcePositions.add(inShip);
+            }
+            centerOfMassProvider.onSetBlockState(shipData.getInertiaData(), inShip,
+                Blocks.AIR.getDefaultState(), state);
+        }
+        shipData.setPhysicsEnabled(true);
+        allShips.addShip(shipData);
+
+        PhysicsObject ship = new PhysicsObject(this, shipData);
+        // Builds the surrounding chunk cache, the physics thread won't touch a ship without one
+        ship.onTick();
+        return ship;
+    }
+
+    /**
+     * The game tick part of a ship update, {@link PhysicsObject#onTick()} isn't visible outside of this
+     * package.
+     */
+    public void tickShip(PhysicsObject ship) {
+        ship.onTick();
+    }
+
+    private static ExtendedBlockStorage createBlockStorage(int yBase) {
+        ExtendedBlockStorage storage = new ExtendedBlockStorage(yBase, true);
+        try {
+            STORAGE_DATA_FIELD.set(storage, new OctreeBlockStateContainer());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return storage;
+    }
+
+    @Override
+    protected IChunkProvider createChunkProvider() {
+        return new IChunkProvider() {
+            @Nullable
+            @Override
+            public Chunk getLoadedChunk(int x, int z) {
+                return chunks.get(ChunkPos.asLong(x, z));
+            }
+
+            @Override
+            public Chunk provideChunk(int x, int z) {
+                long key = ChunkPos.asLong(x, z);
+                Chunk chunk = chunks.get(key);
+                if (chunk == null) {
+                    chunk = new Chunk(HeadlessWorld.this, x, z);
+                    chunks.put(key, chunk);
+                }
+                return chunk;
+            }
+
+            @Override
+            public boolean tick() {
+                return false;
+            }
+
+            @Override
+            public String makeString() {
+                return "HeadlessChunkCache: " + chunks.size();
+            }
+
+            @Override
+            public boolean isChunkGeneratedAt(int x, int z) {
+                return chunks.containsKey(ChunkPos.asLong(x, z));
+            }
+        };
+    }
+
+    @Override
+    protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+        return chunks.containsKey(ChunkPos.asLong(x, z));
+    }
+
+    /**
+     * Stands in for MixinBlockStateContainer.
+     */
+    public static class OctreeBlockStateContainer extends BlockStateContainer implements
+        IBitOctreeProvider {
+
+        private final IBitOctree bitOctree = new PackedBitOctree();
+
+        @Override
+        protected void set(int index, IBlockState state) {
+            super.set(index, state);
+            int x = index & 0xF;
+            int z = (index & 0xF0) >> 4;
+            int y = (index & 0xF00) >> 8;
+            bitOctree.set(x, y, z, state != null && state.getMaterial().isSolid());
+        }
+
+        @Override
+        public IBitOctree getBitOctree() {
+            return bitOctree;
+        }
+    }
+}
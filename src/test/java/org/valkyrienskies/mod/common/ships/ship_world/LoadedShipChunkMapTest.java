@@ -0,0 +1,102 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class LoadedShipChunkMapTest {
+
+    private static PhysicsObject createShip(HeadlessWorld world) {
+        return world.createShip(new Vector3d(),
+            HeadlessWorld.createBoxTemplate(1, 1, 1, Blocks.PLANKS.getDefaultState()));
+    }
+
+    @Test
+    public void testClaimedChunksMapToTheirShip() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject first = createShip(world);
+        PhysicsObject second = createShip(world);
+        ChunkPos firstCenter = first.getChunkClaim().getCenterPos();
+        ChunkPos secondCenter = second.getChunkClaim().getCenterPos();
+        first.getChunkClaim().addChunkClaim(firstCenter.x + 1, firstCenter.z);
+        LoadedShipChunkMap map = new LoadedShipChunkMap();
+        assertThat(map.getShipManagingChunk(firstCenter.x, firstCenter.z), nullValue());
+
+        map.addShip(first);
+        map.addShip(second);
+        for (ChunkPos chunkPos : first.getChunkClaim()) {
+            assertThat(map.getShipManagingChunk(chunkPos.x, chunkPos.z), sameInstance(first));
+        }
+        assertThat(map.getShipManagingChunk(firstCenter.x + 1, firstCenter.z), sameInstance(first));
+        assertThat(map.getShipManagingChunk(secondCenter.x, secondCenter.z), sameInstance(second));
+        // In the claim region of the first ship, but not claimed by it
+        assertThat(map.getShipManagingChunk(firstCenter.x - 1, firstCenter.z), nullValue());
+        assertThat(map.getShipManagingChunk(0, 0), nullValue());
+
+        map.clear();
+        assertThat(map.getShipManagingChunk(firstCenter.x, firstCenter.z), nullValue());
+        assertThat(map.getShipManagingChunk(secondCenter.x, secondCenter.z), nullValue());
+    }
+
+    @Test
+    public void testUpdatedShipsMapToTheirNewClaim() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject ship = createShip(world);
+        PhysicsObject other = createShip(world);
+        VSChunkClaim claim = ship.getChunkClaim();
+        ChunkPos center = claim.getCenterPos();
+        LoadedShipChunkMap map = new LoadedShipChunkMap();
+        map.addShip(ship);
+        map.addShip(other);
+
+        // Not mapped until the ship is updated
+        claim.addChunkClaim(center.x, center.z + 1);
+        claim.addChunkClaim(center.x, center.z + 2);
+        assertThat(map.getShipManagingChunk(center.x, center.z + 1), nullValue());
+        map.updateShip(ship);
+        assertThat(map.getShipManagingChunk(center.x, center.z + 1), sameInstance(ship));
+        assertThat(map.getShipManagingChunk(center.x, center.z + 2), sameInstance(ship));
+
+        claim.removeChunkClaim(center.x, center.z + 1);
+        map.updateShip(ship);
+        assertThat(map.getShipManagingChunk(center.x, center.z), sameInstance(ship));
+        assertThat(map.getShipManagingChunk(center.x, center.z + 1), nullValue());
+        assertThat(map.getShipManagingChunk(center.x, center.z + 2), sameInstance(ship));
+
+        // The other ship isn't touched
+        ChunkPos otherCenter = other.getChunkClaim().getCenterPos();
+        assertThat(map.getShipManagingChunk(otherCenter.x, otherCenter.z), sameInstance(other));
+    }
+
+    @Test
+    public void testRemovedShipsAreUnmapped() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject ship = createShip(world);
+        PhysicsObject other = createShip(world);
+        VSChunkClaim claim = ship.getChunkClaim();
+        ChunkPos center = claim.getCenterPos();
+        claim.addChunkClaim(center.x + 1, center.z + 1);
+        LoadedShipChunkMap map = new LoadedShipChunkMap();
+        map.addShip(ship);
+        map.addShip(other);
+
+        // Even the chunks the ship no longer claims are unmapped
+        claim.removeChunkClaim(center.x + 1, center.z + 1);
+        map.removeShip(ship);
+        assertThat(map.getShipManagingChunk(center.x, center.z), nullValue());
+        assertThat(map.getShipManagingChunk(center.x + 1, center.z + 1), nullValue());
+        ChunkPos otherCenter = other.getChunkClaim().getCenterPos();
+        assertThat(map.getShipManagingChunk(otherCenter.x, otherCenter.z), sameInstance(other));
+
+        // Removing it twice does nothing, and it can be added back
+        map.removeShip(ship);
+        map.addShip(ship);
+        assertThat(map.getShipManagingChunk(center.x, center.z), sameInstance(ship));
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PositionGridTest {
+
+    private static List<String> getWithinDistance(PositionGrid<String> grid, double x, double z, double distance) {
+        List<String> found = new ArrayList<>();
+        grid.forEachWithinDistance(x, z, distance, found::add);
+        Collections.sort(found);
+        return found;
+    }
+
+    @Test
+    public void testQueriesOnlyReturnObjectsWithinDistance() {
+        PositionGrid<String> grid = new PositionGrid<>();
+        grid.update("origin", 0, 0);
+        // Across the cell border from the origin
+        grid.update("negative", -1, -1);
+        grid.update("edge", 100, 0);
+        grid.update("far", 1000, 1000);
+        assertThat(grid.size(), equalTo(4));
+        assertThat(grid.contains("far"), equalTo(true));
+        assertThat(grid.contains("missing"), equalTo(false));
+
+        assertThat(getWithinDistance(grid, 0, 0, 10), equalTo(Arrays.asList("negative", "origin")));
+        // Distances must be strictly less than the query distance
+        assertThat(getWithinDistance(grid, 0, 0, 100), equalTo(Arrays.asList("negative", "origin")));
+        assertThat(getWithinDistance(grid, 0, 0, 100.5), equalTo(Arrays.asList("edge", "negative", "origin")));
+        // Within distance along x and z, but not diagonally
+        assertThat(getWithinDistance(grid, 930, 930, 95), empty());
+        assertThat(getWithinDistance(grid, 930, 930, 100), equalTo(Collections.singletonList("far")));
+
+        assertThat(grid.anyWithinDistance(1000, 990, 20), equalTo(true));
+        assertThat(grid.anyWithinDistance(500, 500, 20), equalTo(false));
+    }
+
+    @Test
+    public void testEveryObjectIsVisitedOnce() {
+        Random random = new Random(42);
+        PositionGrid<String> grid = new PositionGrid<>();
+        Map<String, double[]> positions = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            String object = "object" + i;
+            double[] position = {random.nextDouble() * 2000 - 1000, random.nextDouble() * 2000 - 1000};
+            positions.put(object, position);
+            grid.update(object, position[0], position[1]);
+        }
+
+        // Small queries go through the cells, big ones through every object. Both must visit every object within
+        // distance exactly once.
+        for (double distance : new double[] {5, 50, 150, 400, 5000}) {
+            for (int i = 0; i < 50; i++) {
+                double x = random.nextDouble() * 2400 - 1200;
+                double z = random.nextDouble() * 2400 - 1200;
+                List<String> expected = new ArrayList<>();
+                positions.forEach((object, position) -> {
+                    double xDif = position[0] - x;
+                    double zDif = position[1] - z;
+                    if (xDif * xDif + zDif * zDif < distance * distance) {
+                        expected.add(object);
+                    }
+                });
+                Collections.sort(expected);
+
+                assertThat(getWithinDistance(grid, x, z, distance), equalTo(expected));
+                assertThat(grid.anyWithinDistance(x, z, distance), equalTo(!expected.isEmpty()));
+            }
+        }
+    }
+
+    @Test
+    public void testMovedObjectsAreFoundAtTheirNewPosition() {
+        PositionGrid<String> grid = new PositionGrid<>();
+        grid.update("moving", 10, 10);
+        grid.update("still", 5000, 5000);
+
+        // Within the same cell
+        grid.update("moving", 20, 20);
+        assertThat(getWithinDistance(grid, 10, 10, 5), empty());
+        assertThat(getWithinDistance(grid, 20, 20, 5), equalTo(Collections.singletonList("moving")));
+
+        // Into other cells, including negative ones
+        grid.update("moving", -300, 700);
+        assertThat(getWithinDistance(grid, 20, 20, 5), empty());
+        assertThat(getWithinDistance(grid, -300, 700, 5), equalTo(Collections.singletonList("moving")));
+        grid.update("moving", 20, 20);
+        assertThat(getWithinDistance(grid, -300, 700, 5), empty());
+        assertThat(getWithinDistance(grid, 20, 20, 5), equalTo(Collections.singletonList("moving")));
+
+        assertThat(grid.size(), equalTo(2));
+        assertThat(getWithinDistance(grid, 0, 0, 10000), equalTo(Arrays.asList("moving", "still")));
+    }
+
+    @Test
+    public void testRemovedObjectsAreNotReturned() {
+        PositionGrid<String> grid = new PositionGrid<>();
+        grid.update("first", 0, 0);
+        grid.update("second", 1, 1);
+        grid.update("third", 300, 300);
+
+        assertThat(grid.remove("first"), equalTo(true));
+        assertThat(grid.remove("first"), equalTo(false));
+        assertThat(grid.contains("first"), equalTo(false));
+        assertThat(getWithinDistance(grid, 0, 0, 10), equalTo(Collections.singletonList("second")));
+
+        grid.retainAll(Collections.singleton("third"));
+        assertThat(grid.size(), equalTo(1));
+        assertThat(getWithinDistance(grid, 0, 0, 10), empty());
+        assertThat(getWithinDistance(grid, 300, 300, 10), equalTo(Collections.singletonList("third")));
+
+        // Added back after being removed
+        grid.update("first", 0, 0);
+        assertThat(getWithinDistance(grid, 0, 0, 10), equalTo(Collections.singletonList("first")));
+        grid.clear();
+        assertThat(grid.size(), equalTo(0));
+        assertThat(grid.anyWithinDistance(0, 0, 10000), equalTo(false));
+    }
+
+}
@@ -0,0 +1,129 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.ShipDataMethods;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class ShipBlockPositionPagerTest {
+
+    @TempDir
+    File tempDir;
+
+    private int oldCacheSize;
+
+    @BeforeAll
+    public static void bootstrap() {
+        Bootstrap.register();
+    }
+
+    @BeforeEach
+    public void pageOutEveryUnloadedShip() {
+        oldCacheSize = VSConfig.unloadedShipBlockCacheSize;
+        VSConfig.unloadedShipBlockCacheSize = 0;
+    }
+
+    @AfterEach
+    public void restoreCacheSize() {
+        VSConfig.unloadedShipBlockCacheSize = oldCacheSize;
+    }
+
+    private static ShipData createShip(QueryableShipData ships) {
+        VSChunkClaim claim = new ShipChunkAllocator().allocateNextChunkClaim();
+        claim.addChunkClaim(claim.getCenterPos().x, claim.getCenterPos().z);
+        ShipTransform transform = new ShipTransform(new Vector3d(1, 2, 3), new Vector3d(4, 5, 6));
+        ShipData ship = ShipData.createData(ships, "ship", claim, UUID.randomUUID(), transform,
+            new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+        ships.addShip(ship);
+        return ship;
+    }
+
+    @Test
+    public void testBlockChangesOfPagedOutShipsAreReplayed() throws IOException {
+        IBlockState air = Blocks.AIR.getDefaultState();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        try (ShipDataStore store = ShipDataStore.open(new File(tempDir, "ships.dat"),
+            VSJacksonUtil.getDefaultMapper())) {
+            QueryableShipData ships = new QueryableShipData();
+            ShipData ship = createShip(ships);
+            BlockPos first = ship.getChunkClaim().getRegionCenter();
+            ShipDataMethods.onSetBlockState(ship, first, air, planks);
+            store.write(Collections.singletonList(ship), Collections.emptyList());
+            ship.clearDirty();
+
+            // Reads right away instead of on the save thread
+            ShipBlockPositionPager pager = new ShipBlockPositionPager(store, Runnable::run);
+            pager.onShipUnloaded(ship);
+            pager.tick(ships);
+            assertThat(pager.isResident(ship), equalTo(false));
+
+            BlockPos second = first.up();
+            assertThat(ShipDataMethods.onSetBlockState(ship, second, air, planks), equalTo(false));
+            pager.queueBlockChange(ship, second, air, planks);
+            // Starts the read, then replays the change on the block positions read back
+            pager.tick(ships);
+            pager.tick(ships);
+
+            assertThat(pager.isResident(ship), equalTo(true));
+            assertThat(ship.blockPositions.contains(first), equalTo(true));
+            assertThat(ship.blockPositions.contains(second), equalTo(true));
+            assertThat(ship.isDirty(), equalTo(true));
+
+            // Not paged out again until the change is saved
+            pager.tick(ships);
+            assertThat(pager.isResident(ship), equalTo(true));
+        }
+    }
+
+    @Test
+    public void testFailedReadsAreRetried() throws IOException {
+        try (ShipDataStore store = ShipDataStore.open(new File(tempDir, "ships.dat"),
+            VSJacksonUtil.getDefaultMapper())) {
+            QueryableShipData ships = new QueryableShipData();
+            ShipData ship = createShip(ships);
+            ShipData saved = ship.createSnapshot();
+            ship.blockPositions = null;
+            ship.activeForcePositions = null;
+
+            ShipBlockPositionPager pager = new ShipBlockPositionPager(store, Runnable::run);
+            pager.requestPageIn(ship);
+            pager.tick(ships);
+            assertThat(pager.hasFailed(ship), equalTo(true));
+
+            store.write(Collections.singletonList(saved), Collections.emptyList());
+            for (int i = 0; i < ShipBlockPositionPager.RETRY_FAILED_READ_TICKS; i++) {
+                pager.requestPageIn(ship);
+                pager.tick(ships);
+                assertThat(pager.isResident(ship), equalTo(false));
+            }
+            pager.requestPageIn(ship);
+            pager.tick(ships);
+            assertThat(pager.hasFailed(ship), equalTo(false));
+            assertThat(pager.isResident(ship), equalTo(true));
+        }
+    }
+
+}
@@ -0,0 +1,166 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ShipBoundingBoxGridTest {
+
+    private static PhysicsObject createShip(HeadlessWorld world, AxisAlignedBB shipBB) {
+        PhysicsObject ship = world.createShip(new Vector3d(),
+            HeadlessWorld.createBoxTemplate(1, 1, 1, Blocks.PLANKS.getDefaultState()));
+        ship.setShipBoundingBox(shipBB);
+        return ship;
+    }
+
+    @Test
+    public void testQueriesOnlyReturnIntersectingShips() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject first = createShip(world, new AxisAlignedBB(0, 0, 0, 10, 10, 10));
+        PhysicsObject second = createShip(world, new AxisAlignedBB(1000, 0, 1000, 1010, 10, 1010));
+        // In the same cell as the first ship, but not touching it
+        PhysicsObject third = createShip(world, new AxisAlignedBB(20, 0, 20, 30, 10, 30));
+        ShipBoundingBoxGrid grid = new ShipBoundingBoxGrid();
+        for (PhysicsObject ship : Arrays.asList(first, second, third)) {
+            grid.update(ship);
+        }
+
+        assertThat(grid.getNearby(new AxisAlignedBB(5, 5, 5, 6, 6, 6)), equalTo(Collections.singletonList(first)));
+        assertThat(grid.getNearby(new AxisAlignedBB(1005, 5, 1005, 1006, 6, 1006)),
+            equalTo(Collections.singletonList(second)));
+        assertThat(grid.getNearby(new AxisAlignedBB(12, 5, 12, 18, 6, 18)), empty());
+        assertThat(grid.getNearby(new AxisAlignedBB(500, 5, 500, 501, 6, 501)), empty());
+        // The ships are within x and z of the query, but not y
+        assertThat(grid.getNearby(new AxisAlignedBB(0, 50, 0, 30, 60, 30)), empty());
+        // Bigger than the number of ships, so every ship is tested instead of every cell
+        assertThat(grid.getNearby(new AxisAlignedBB(-2000, 0, -2000, 2000, 10, 2000)),
+            containsInAnyOrder(first, second, third));
+    }
+
+    @Test
+    public void testShipsSpanningSeveralCellsAreReturnedOnce() {
+        HeadlessWorld world = new HeadlessWorld();
+        // Spans the cells -2 to 1 along x and z
+        PhysicsObject big = createShip(world, new AxisAlignedBB(-100, 0, -100, 100, 10, 100));
+        PhysicsObject small = createShip(world, new AxisAlignedBB(60, 0, 60, 70, 10, 70));
+        PhysicsObject far = createShip(world, new AxisAlignedBB(5000, 0, 5000, 5010, 10, 5010));
+        PhysicsObject farther = createShip(world, new AxisAlignedBB(9000, 0, 9000, 9010, 10, 9010));
+        ShipBoundingBoxGrid grid = new ShipBoundingBoxGrid();
+        for (PhysicsObject ship : Arrays.asList(big, small, far, farther)) {
+            grid.update(ship);
+        }
+
+        // Queries of at most 4 cells, so they go through the cells. Each starts in a different cell of the big
+        // ship, which is only returned from the first queried cell it's in.
+        assertThat(grid.getNearby(new AxisAlignedBB(-90, 0, -90, -10, 10, -10)),
+            equalTo(Collections.singletonList(big)));
+        assertThat(grid.getNearby(new AxisAlignedBB(10, 0, -10, 90, 10, 10)),
+            equalTo(Collections.singletonList(big)));
+        assertThat(grid.getNearby(new AxisAlignedBB(50, 0, 50, 80, 10, 80)), containsInAnyOrder(big, small));
+        // Only partly overlapping the big ship, starting in cells outside of it
+        assertThat(grid.getNearby(new AxisAlignedBB(-150, 0, -150, -90, 10, -90)),
+            equalTo(Collections.singletonList(big)));
+        assertThat(grid.getNearby(new AxisAlignedBB(90, 0, 90, 140, 10, 140)),
+            equalTo(Collections.singletonList(big)));
+    }
+
+    @Test
+    public void testMovedShipsAreFoundInTheirNewCells() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject ship = createShip(world, new AxisAlignedBB(0, 0, 0, 10, 10, 10));
+        PhysicsObject other = createShip(world, new AxisAlignedBB(5000, 0, 5000, 5010, 10, 5010));
+        ShipBoundingBoxGrid grid = new ShipBoundingBoxGrid();
+        grid.update(ship);
+        grid.update(other);
+        AxisAlignedBB oldQuery = new AxisAlignedBB(4, 4, 4, 6, 6, 6);
+        AxisAlignedBB newQuery = new AxisAlignedBB(304, 4, 304, 306, 6, 306);
+
+        // Moved within its cells, nothing to do for the grid
+        ship.setShipBoundingBox(new AxisAlignedBB(2, 0, 2, 12, 10, 12));
+        assertThat(grid.getNearby(oldQuery), equalTo(Collections.singletonList(ship)));
+        grid.update(ship);
+        assertThat(grid.getNearby(oldQuery), equalTo(Collections.singletonList(ship)));
+
+        // Not returned from the cells it left, even before it's updated
+        ship.setShipBoundingBox(new AxisAlignedBB(300, 0, 300, 310, 10, 310));
+        assertThat(grid.getNearby(oldQuery), empty());
+        grid.update(ship);
+        assertThat(grid.getNearby(oldQuery), empty());
+        assertThat(grid.getNearby(newQuery), equalTo(Collections.singletonList(ship)));
+
+        // Grown into more cells
+        ship.setShipBoundingBox(new AxisAlignedBB(0, 0, 0, 310, 10, 310));
+        grid.update(ship);
+        assertThat(grid.getNearby(oldQuery), equalTo(Collections.singletonList(ship)));
+        assertThat(grid.getNearby(newQuery), equalTo(Collections.singletonList(ship)));
+        assertThat(grid.getNearby(new AxisAlignedBB(150, 4, 150, 151, 6, 151)),
+            equalTo(Collections.singletonList(ship)));
+        assertThat(grid.getNearby(new AxisAlignedBB(5004, 4, 5004, 5006, 6, 5006)),
+            equalTo(Collections.singletonList(other)));
+    }
+
+    @Test
+    public void testRemovedShipsAreNotReturned() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject first = createShip(world, new AxisAlignedBB(0, 0, 0, 100, 10, 100));
+        PhysicsObject second = createShip(world, new AxisAlignedBB(50, 0, 50, 60, 10, 60));
+        ShipBoundingBoxGrid grid = new ShipBoundingBoxGrid();
+        grid.update(first);
+        grid.update(second);
+        AxisAlignedBB query = new AxisAlignedBB(55, 5, 55, 56, 6, 56);
+        assertThat(grid.getNearby(query), containsInAnyOrder(first, second));
+
+        grid.remove(first);
+        assertThat(grid.getNearby(query), equalTo(Collections.singletonList(second)));
+        assertThat(grid.getNearby(new AxisAlignedBB(-1000, 0, -1000, 1000, 10, 1000)),
+            equalTo(Collections.singletonList(second)));
+        // Removing it twice does nothing
+        grid.remove(first);
+        grid.remove(second);
+        assertThat(grid.getNearby(query), empty());
+
+        // Added back after being removed
+        grid.update(first);
+        assertThat(grid.getNearby(query), equalTo(Collections.singletonList(first)));
+        grid.clear();
+        assertThat(grid.getNearby(query), empty());
+    }
+
+    @Test
+    public void testOversizedShipsAreReturnedByEveryQuery() {
+        HeadlessWorld world = new HeadlessWorld();
+        // 64 by 64 cells, more than a ship can be put in
+        PhysicsObject huge = createShip(world, new AxisAlignedBB(-2000, 0, -2000, 2000, 10, 2000));
+        ShipBoundingBoxGrid grid = new ShipBoundingBoxGrid();
+        grid.update(huge);
+        List<PhysicsObject> others = Arrays.asList(
+            createShip(world, new AxisAlignedBB(0, 0, 0, 10, 10, 10)),
+            createShip(world, new AxisAlignedBB(3000, 0, 3000, 3010, 10, 3010)));
+        for (PhysicsObject other : others) {
+            grid.update(other);
+        }
+
+        assertThat(grid.getNearby(new AxisAlignedBB(1500, 5, -1500, 1501, 6, -1499)),
+            equalTo(Collections.singletonList(huge)));
+        assertThat(grid.getNearby(new AxisAlignedBB(5, 5, 5, 6, 6, 6)), containsInAnyOrder(huge, others.get(0)));
+        assertThat(grid.getNearby(new AxisAlignedBB(3005, 5, 3005, 3006, 6, 3006)),
+            equalTo(Collections.singletonList(others.get(1))));
+
+        // Shrunk back into the cells
+        huge.setShipBoundingBox(new AxisAlignedBB(-20, 0, -20, 20, 10, 20));
+        grid.update(huge);
+        assertThat(grid.getNearby(new AxisAlignedBB(1500, 5, -1500, 1501, 6, -1499)), empty());
+        assertThat(grid.getNearby(new AxisAlignedBB(5, 5, 5, 6, 6, 6)), containsInAnyOrder(huge, others.get(0)));
+        grid.remove(huge);
+        assertThat(grid.getNearby(new AxisAlignedBB(-10, 5, -10, -9, 6, -9)), empty());
+    }
+
+}
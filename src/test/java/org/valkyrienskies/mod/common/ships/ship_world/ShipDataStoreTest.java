@@ -0,0 +1,107 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ShipDataStoreTest {
+
+    @TempDir
+    File tempDir;
+
+    private static ShipData createShip(String name, int chunkZ) {
+        ShipTransform transform = new ShipTransform(new Vector3d(1, 2, 3), new Vector3d(4, 5, 6));
+        return ShipData.createData(new QueryableShipData(), name,
+            new VSChunkClaim(new ChunkPos(320000, chunkZ)), UUID.randomUUID(), transform,
+            new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+    }
+
+    @Test
+    public void testWriteAndReopen() throws IOException {
+        File file = new File(tempDir, "ships.dat");
+        ShipData first = createShip("first", 3200);
+        ShipData second = createShip("second", 6400);
+
+        try (ShipDataStore store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper())) {
+            store.write(Arrays.asList(first, second), Collections.emptyList());
+            first.setShipTransform(new ShipTransform(new Vector3d(7, 8, 9), new Vector3d(4, 5, 6)));
+            store.write(Collections.singletonList(first), Collections.singletonList(second.getUuid()));
+        }
+
+        try (ShipDataStore store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper())) {
+            assertThat(store.getStoredShips(), contains(first.getUuid()));
+            ShipData read = store.read(first.getUuid());
+            assertThat(read.getName(), is("first"));
+            assertThat(read.getShipTransform(), equalTo(first.getShipTransform()));
+            assertThat(store.read(second.getUuid()), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void testIncompleteRecordIsDiscarded() throws IOException {
+        File file = new File(tempDir, "ships.dat");
+        ShipData ship = createShip("ship", 3200);
+
+        try (ShipDataStore store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper())) {
+            store.write(Collections.singletonList(ship), Collections.emptyList());
+        }
+        long completeLength = file.length();
+        // Pretend the game stopped while writing a second record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(completeLength);
+            raf.write(new byte[10]);
+        }
+
+        try (ShipDataStore store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper())) {
+            assertThat(store.getStoredShips(), contains(ship.getUuid()));
+            assertThat(store.read(ship.getUuid()).getName(), is("ship"));
+        }
+        assertThat(file.length(), is(completeLength));
+    }
+
+    @Test
+    public void testCompactionKeepsLatestRecords() throws IOException {
+        File file = new File(tempDir, "ships.dat");
+        ShipData kept = createShip("kept", 3200);
+        ShipData rewritten = createShip("rewritten", 6400);
+
+        try (ShipDataStore store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper())) {
+            store.write(Arrays.asList(kept, rewritten), Collections.emptyList());
+            long longest = 0;
+            // Rewrite one ship until the file is compacted
+            for (int i = 0; file.length() >= longest; i++) {
+                longest = file.length();
+                rewritten.setShipTransform(new ShipTransform(new Vector3d(i, 0, 0), new Vector3d(4, 5, 6)));
+                store.write(Collections.singletonList(rewritten), Collections.emptyList());
+            }
+            assertThat(store.read(kept.getUuid()).getName(), is("kept"));
+            assertThat(store.read(rewritten.getUuid()).getShipTransform(), equalTo(rewritten.getShipTransform()));
+
+            // Still writable after the file was replaced
+            store.write(Collections.emptyList(), Collections.singletonList(kept.getUuid()));
+        }
+
+        try (ShipDataStore store = ShipDataStore.open(file, VSJacksonUtil.getDefaultMapper())) {
+            assertThat(store.getStoredShips(), contains(rewritten.getUuid()));
+            assertThat(store.read(rewritten.getUuid()).getShipTransform(), equalTo(rewritten.getShipTransform()));
+        }
+        assertThat(new File(tempDir, "ships.dat.tmp").exists(), is(false));
+    }
+}
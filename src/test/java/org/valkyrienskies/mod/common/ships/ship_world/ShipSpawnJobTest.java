@@ -0,0 +1,123 @@
+package org.valkyrienskies.mod.common.ships.ship_world;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Items;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.tileentity.TileEntityChest;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.Chunk;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.block_relocation.DetectorManager;
+import org.valkyrienskies.mod.common.ships.block_relocation.DetectorManager.DetectorIDs;
+import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.VSMath;
+
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ShipSpawnJobTest {
+
+    private static final BlockPos START = new BlockPos(0, 64, 0);
+
+    @Test
+    public void testBlocksChangedWhileSpawningAreNotDuplicated() {
+        HeadlessWorld world = new HeadlessWorld();
+        IBlockState planks = Blocks.PLANKS.getDefaultState();
+        world.fill(0, 64, 0, 3, 64, 3, planks);
+        BlockPos chestPos = new BlockPos(1, 65, 1);
+        world.setBlockStateDirect(chestPos.getX(), chestPos.getY(), chestPos.getZ(),
+            Blocks.CHEST.getDefaultState());
+        world.setTileEntity(chestPos, new TileEntityChest());
+
+        SpatialDetector detector = DetectorManager.getDetectorFor(DetectorIDs.ShipSpawnerGeneral, START, world,
+            1000, true);
+        assertThat(detector.foundSet.size(), equalTo(17));
+        ShipData shipData = createShipData();
+        ShipSpawnJob job = new ShipSpawnJob(world, shipData, detector, START);
+
+        // Change the world after the snapshot was taken
+        BlockPos brokenPos = new BlockPos(3, 64, 3);
+        BlockPos changedPos = new BlockPos(2, 64, 0);
+        world.setBlockStateDirect(brokenPos.getX(), brokenPos.getY(), brokenPos.getZ(),
+            Blocks.AIR.getDefaultState());
+        world.setBlockStateDirect(changedPos.getX(), changedPos.getY(), changedPos.getZ(),
+            Blocks.LOG.getDefaultState());
+
+        while (!job.advance()) {
+            Thread.yield();
+        }
+        assertThat(job.isFailed(), equalTo(false));
+
+        // And fill the chest once the ship chunks were made, but before the job is finished
+        ((TileEntityChest) world.getTileEntity(chestPos)).setInventorySlotContents(0,
+            new ItemStack(Items.DIAMOND, 5));
+
+        assertThat(job.finish(), equalTo(true));
+
+        BlockPos centerDifference = shipData.getChunkClaim().getRegionCenter().subtract(START);
+        assertThat(getShipBlockState(job, brokenPos.add(centerDifference)), equalTo(Blocks.AIR.getDefaultState()));
+        assertThat(shipData.blockPositions.contains(brokenPos.add(centerDifference)), equalTo(false));
+        assertThat(getShipBlockState(job, changedPos.add(centerDifference)), equalTo(Blocks.LOG.getDefaultState()));
+        assertThat(shipData.blockPositions.contains(changedPos.add(centerDifference)), equalTo(true));
+        assertThat(shipData.blockPositions.size(), equalTo(16));
+
+        TileEntity shipTile = getShipChunk(job, chestPos.add(centerDifference)).getTileEntityMap()
+            .get(chestPos.add(centerDifference));
+        assertThat(shipTile, instanceOf(TileEntityChest.class));
+        assertThat(((TileEntityChest) shipTile).getStackInSlot(0).getCount(), equalTo(5));
+
+        // Nothing of the ship is left behind in the world
+        for (int x = 0; x <= 3; x++) {
+            for (int z = 0; z <= 3; z++) {
+                assertThat(world.getBlockState(new BlockPos(x, 64, z)), equalTo(Blocks.AIR.getDefaultState()));
+            }
+        }
+        assertThat(world.getBlockState(chestPos), equalTo(Blocks.AIR.getDefaultState()));
+        assertThat(world.getChunk(chestPos).getTileEntityMap().containsKey(chestPos), equalTo(false));
+    }
+
+    @Test
+    public void testFailsIfAllBlocksWereBroken() {
+        HeadlessWorld world = new HeadlessWorld();
+        world.fill(0, 64, 0, 1, 64, 0, Blocks.PLANKS.getDefaultState());
+
+        SpatialDetector detector = DetectorManager.getDetectorFor(DetectorIDs.ShipSpawnerGeneral, START, world,
+            1000, true);
+        ShipSpawnJob job = new ShipSpawnJob(world, createShipData(), detector, START);
+        world.fill(0, 64, 0, 1, 64, 0, Blocks.AIR.getDefaultState());
+
+        while (!job.advance()) {
+            Thread.yield();
+        }
+        assertThat(job.finish(), equalTo(false));
+        assertThat(job.isFailed(), equalTo(true));
+    }
+
+    private static ShipData createShipData() {
+        VSChunkClaim claim = new ShipChunkAllocator().allocateNextChunkClaim();
+        BlockPos regionCenter = claim.getRegionCenter();
+        ShipTransform transform = new ShipTransform(VSMath.toVector3d(START), VSMath.toVector3d(regionCenter));
+        return ShipData.createData(new QueryableShipData(), "spawning", claim, UUID.randomUUID(), transform,
+            new AxisAlignedBB(START));
+    }
+
+    private static Chunk getShipChunk(ShipSpawnJob job, BlockPos pos) {
+        return job.getShipChunks().get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+    }
+
+    private static IBlockState getShipBlockState(ShipSpawnJob job, BlockPos pos) {
+        return getShipChunk(job, pos).getBlockState(pos);
+    }
+
+}
@@ -0,0 +1,100 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PackedBitOctreeTest {
+
+    @Test
+    public void testMatchesBooleanArray() {
+        Random random = new Random(42);
+        PackedBitOctree octree = new PackedBitOctree();
+        boolean[] expected = new boolean[IBitOctree.BLOCKS_TOTAL];
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(16);
+            int y = random.nextInt(16);
+            int z = random.nextInt(16);
+            // Mostly clear bits, so that some bricks become empty again
+            boolean bit = random.nextInt(3) == 0;
+            int oldModificationCount = octree.getModificationCount();
+            boolean changed = expected[x | (y << 4) | (z << 8)] != bit;
+
+            octree.set(x, y, z, bit);
+            expected[x | (y << 4) | (z << 8)] = bit;
+
+            assertThat(octree.get(x, y, z), equalTo(bit));
+            assertThat(octree.getModificationCount() != oldModificationCount, equalTo(changed));
+            if (i % 1000 == 0) {
+                assertMatches(octree, expected, random);
+            }
+        }
+        assertMatches(octree, expected, random);
+    }
+
+    @Test
+    public void testOctreeLevels() {
+        PackedBitOctree octree = new PackedBitOctree();
+        octree.set(13, 6, 1, true);
+        // x = 13 is 1101, y = 6 is 0110, z = 1 is 0001
+        int levelThreeIndex = octree.getOctreeLevelThreeIndex(1);
+        int levelTwoIndex = octree.getOctreeLevelTwoIndex(levelThreeIndex, 1 | 2);
+        int levelOneIndex = octree.getOctreeLevelOneIndex(levelTwoIndex, 2);
+
+        for (int offset = 0; offset < 8; offset++) {
+            assertThat(octree.getAtIndex(octree.getOctreeLevelThreeIndex(offset)), equalTo(offset == 1));
+            assertThat(octree.getAtIndex(octree.getOctreeLevelTwoIndex(levelThreeIndex, offset)),
+                equalTo(offset == 3));
+            assertThat(octree.getAtIndex(octree.getOctreeLevelOneIndex(levelTwoIndex, offset)),
+                equalTo(offset == 2));
+        }
+
+        octree.set(13, 6, 1, false);
+        assertThat(octree.getAtIndex(levelThreeIndex), equalTo(false));
+        assertThat(octree.getAtIndex(levelTwoIndex), equalTo(false));
+        assertThat(octree.getAtIndex(levelOneIndex), equalTo(false));
+    }
+
+    private static void assertMatches(PackedBitOctree octree, boolean[] expected, Random random) {
+        int expectedCount = 0;
+        for (int index = 0; index < expected.length; index++) {
+            assertThat(octree.getAtIndex(index), equalTo(expected[index]));
+            if (expected[index]) {
+                expectedCount++;
+            }
+        }
+        assertThat(octree.countSetBits(), equalTo(expectedCount));
+
+        for (int i = 0; i < 200; i++) {
+            int minX = random.nextInt(16);
+            int minY = random.nextInt(16);
+            int minZ = random.nextInt(16);
+            int maxX = minX + random.nextInt(16 - minX);
+            int maxY = minY + random.nextInt(16 - minY);
+            int maxZ = minZ + random.nextInt(16 - minZ);
+
+            TIntArrayList expectedInBox = new TIntArrayList();
+            for (int index = 0; index < expected.length; index++) {
+                int x = index & 15;
+                int y = (index >> 4) & 15;
+                int z = index >> 8;
+                if (expected[index] && x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ
+                    && z <= maxZ) {
+                    expectedInBox.add(index);
+                }
+            }
+
+            TIntArrayList inBox = new TIntArrayList();
+            assertThat(octree.forEachSetBitInBox(minX, minY, minZ, maxX, maxY, maxZ, inBox::add), equalTo(true));
+            inBox.sort();
+            assertThat(inBox, equalTo(expectedInBox));
+            assertThat(octree.hasSetBitInBox(minX, minY, minZ, maxX, maxY, maxZ),
+                equalTo(!expectedInBox.isEmpty()));
+        }
+    }
+
+}
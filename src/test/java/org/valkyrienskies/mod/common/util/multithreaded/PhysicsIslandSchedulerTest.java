@@ -0,0 +1,80 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.ship_world.HeadlessWorld;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PhysicsIslandSchedulerTest {
+
+    @Test
+    public void testSweepMatchesAllPairs() {
+        Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            AxisAlignedBB[] boxes = new AxisAlignedBB[random.nextInt(200)];
+            for (int i = 0; i < boxes.length; i++) {
+                double x = random.nextDouble() * 500;
+                double y = random.nextDouble() * 100;
+                double z = random.nextDouble() * 500;
+                boxes[i] = new AxisAlignedBB(x, y, z, x + random.nextDouble() * 40, y + random.nextDouble() * 20,
+                    z + random.nextDouble() * 40);
+            }
+
+            // The old all pairs grouping, with the lowest index of every group as its root
+            int[] expected = new int[boxes.length];
+            for (int i = 0; i < boxes.length; i++) {
+                expected[i] = i;
+            }
+            boolean merged = true;
+            while (merged) {
+                merged = false;
+                for (int i = 0; i < boxes.length; i++) {
+                    for (int j = i + 1; j < boxes.length; j++) {
+                        if (boxes[i].intersects(boxes[j]) && expected[i] != expected[j]) {
+                            int root = Math.min(expected[i], expected[j]);
+                            expected[i] = root;
+                            expected[j] = root;
+                            merged = true;
+                        }
+                    }
+                }
+            }
+
+            int[] parents = PhysicsIslandScheduler.groupOverlappingBoxes(boxes);
+            for (int i = 0; i < boxes.length; i++) {
+                int root = i;
+                while (parents[root] != root) {
+                    root = parents[root];
+                }
+                assertThat(root, equalTo(expected[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testIslandsKeepTheShipOrder() {
+        HeadlessWorld world = new HeadlessWorld();
+        PhysicsObject first = world.createShip(new Vector3d(0, 100, 0),
+            HeadlessWorld.createBoxTemplate(2, 2, 2, Blocks.PLANKS.getDefaultState()));
+        PhysicsObject second = world.createShip(new Vector3d(1000, 100, 0),
+            HeadlessWorld.createBoxTemplate(2, 2, 2, Blocks.PLANKS.getDefaultState()));
+        PhysicsObject third = world.createShip(new Vector3d(4, 100, 0),
+            HeadlessWorld.createBoxTemplate(2, 2, 2, Blocks.PLANKS.getDefaultState()));
+
+        // Not in the order of their UUIDs, like the serial path would tick them
+        List<List<PhysicsObject>> islands = PhysicsIslandScheduler.createIslands(
+            Arrays.asList(third, second, first), .05);
+        assertThat(islands, contains(Arrays.asList(third, first), Arrays.asList(second)));
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.config.VSConfig;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PhysicsStepControllerTest {
+
+    private static final double TIME_DELTA = .01;
+    private static final long BUDGET_NANO = 10000000;
+
+    @Test
+    public void testFastShipsAreSubstepped() {
+        PhysicsStepController controller = new PhysicsStepController();
+        // 0.25 blocks per step at most, so 25 blocks per second still fits in one step
+        assertThat(controller.getSubsteps(0, TIME_DELTA), equalTo(1));
+        assertThat(controller.getSubsteps(25, TIME_DELTA), equalTo(1));
+        assertThat(controller.getSubsteps(26, TIME_DELTA), equalTo(2));
+        assertThat(controller.getSubsteps(100, TIME_DELTA), equalTo(4));
+        assertThat(controller.getSubsteps(10000, TIME_DELTA), equalTo(VSConfig.maxPhysicsSubsteps));
+        assertThat(controller.getSubsteps(Double.NaN, TIME_DELTA), equalTo(1));
+    }
+
+    @Test
+    public void testStepsOnlyGetLongerOverBudget() {
+        PhysicsStepController controller = new PhysicsStepController();
+        for (int tick = 0; tick < 100; tick++) {
+            controller.onTickFinished(BUDGET_NANO / 2, BUDGET_NANO, TIME_DELTA);
+        }
+        assertThat(controller.getStepStretch(), equalTo(1));
+        assertThat(controller.getStepLength(0, TIME_DELTA, 0), equalTo(1));
+
+        for (int tick = 0; tick < 1000; tick++) {
+            controller.onTickFinished(BUDGET_NANO * 2, BUDGET_NANO, TIME_DELTA);
+        }
+        // Never longer than the max step time of 0.05 seconds
+        assertThat(controller.getStepStretch(), equalTo(5));
+        assertThat(controller.getStepLength(0, TIME_DELTA, 0), equalTo(5));
+        // Never further than the max displacement in one step
+        assertThat(controller.getStepLength(10, TIME_DELTA, 0), equalTo(2));
+        assertThat(controller.getStepLength(25, TIME_DELTA, 0), equalTo(1));
+
+        for (int tick = 0; tick < 1000; tick++) {
+            controller.onTickFinished(BUDGET_NANO / 4, BUDGET_NANO, TIME_DELTA);
+        }
+        assertThat(controller.getStepStretch(), equalTo(1));
+    }
+
+    @Test
+    public void testSlowShipsStepInDifferentTicks() {
+        PhysicsStepController controller = new PhysicsStepController();
+        controller.setStepStretch(5);
+        // Ships with every phase, planned the same way as PhysicsCalculations does
+        int[] ticksUntilNextStep = new int[5];
+        for (int tick = 1; tick <= 50; tick++) {
+            controller.onTickStarted();
+            int shipsStepping = 0;
+            for (int phase = 0; phase < ticksUntilNextStep.length; phase++) {
+                if (ticksUntilNextStep[phase] > 0) {
+                    ticksUntilNextStep[phase]--;
+                    continue;
+                }
+                int stepLength = controller.getStepLength(0, TIME_DELTA, phase);
+                if (tick > 1) {
+                    assertThat(stepLength, equalTo(5));
+                }
+                ticksUntilNextStep[phase] = stepLength - 1;
+                shipsStepping++;
+            }
+            // All of them step in the first tick, after that they take turns
+            assertThat(shipsStepping, equalTo(tick == 1 ? 5 : 1));
+        }
+    }
+
+}